@@ -12,6 +12,8 @@ const RANGE_OPTIONS = [
   { label: 'Last 6 hours', minutes: 360 },
   { label: 'Last 24 hours', minutes: 1440 }
 ];
+// Roughly the widest a chart is drawn, in pixels; the server downsamples anything longer.
+const MAX_CHART_POINTS = 2000;
 const FIXED_DATE = dayjs('2025-01-01T23:59:59Z'); // Replace with the exact date in your dataset
 
 export default function App() {
@@ -46,7 +48,8 @@ export default function App() {
         from,
         to,
         deviceId,
-        bucket: 'PT1M'
+        bucket: 'PT1M',
+        maxPoints: MAX_CHART_POINTS
       });
       setMetrics(response.points);
       setError(null);
@@ -62,7 +65,8 @@ export default function App() {
         deviceId,
         horizonMinutes: 60,
         windowMinutes: Math.max(180, range.minutes),
-        bucket: 'PT1M'
+        bucket: 'PT1M',
+        maxPoints: MAX_CHART_POINTS
       });
       setForecast(response.points);
       setError(null);
@@ -1,5 +1,6 @@
 import type {
   DeviceListResponse,
+  DeviceMetricsResponse,
   ForecastResponse,
   MetricsResponse,
   TelemetryRecord
@@ -32,6 +33,8 @@ export async function fetchMetrics(params: {
   to: string;
   deviceId?: string;
   bucket: string;
+  /** Server-side LTTB limit on the points returned. */
+  maxPoints?: number;
 }): Promise<MetricsResponse> {
   const url = buildUrl('/api/metrics');
   url.searchParams.set('from', params.from);
@@ -40,15 +43,43 @@ export async function fetchMetrics(params: {
   if (params.deviceId && params.deviceId !== 'ALL') {
     url.searchParams.set('deviceId', params.deviceId);
   }
+  if (params.maxPoints) {
+    url.searchParams.set('maxPoints', params.maxPoints.toString());
+  }
   const resp = await fetch(url.toString());
   return handleResponse<MetricsResponse>(resp);
 }
 
+/** Metrics for several devices (all of them when `deviceIds` is empty) in one request. */
+export async function fetchDeviceMetrics(params: {
+  from: string;
+  to: string;
+  deviceIds?: string[];
+  bucket: string;
+  /** Server-side LTTB limit on the points returned. */
+  maxPoints?: number;
+}): Promise<DeviceMetricsResponse> {
+  const url = buildUrl('/api/metrics/devices');
+  url.searchParams.set('from', params.from);
+  url.searchParams.set('to', params.to);
+  url.searchParams.set('bucket', params.bucket);
+  for (const deviceId of params.deviceIds ?? []) {
+    url.searchParams.append('deviceId', deviceId);
+  }
+  if (params.maxPoints) {
+    url.searchParams.set('maxPoints', params.maxPoints.toString());
+  }
+  const resp = await fetch(url.toString());
+  return handleResponse<DeviceMetricsResponse>(resp);
+}
+
 export async function fetchForecast(params: {
   deviceId?: string;
   horizonMinutes: number;
   windowMinutes: number;
   bucket: string;
+  /** Server-side LTTB limit on the points returned. */
+  maxPoints?: number;
 }): Promise<ForecastResponse> {
   const url = buildUrl('/api/forecast');
   url.searchParams.set('horizonMinutes', params.horizonMinutes.toString());
@@ -57,6 +88,9 @@ export async function fetchForecast(params: {
   if (params.deviceId && params.deviceId !== 'ALL') {
     url.searchParams.set('deviceId', params.deviceId);
   }
+  if (params.maxPoints) {
+    url.searchParams.set('maxPoints', params.maxPoints.toString());
+  }
   const resp = await fetch(url.toString());
   return handleResponse<ForecastResponse>(resp);
 }
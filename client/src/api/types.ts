@@ -19,6 +19,21 @@ export interface MetricsResponse {
   points: MetricPoint[];
 }
 
+/** One device's buckets as parallel arrays; `bucketStarts` are epoch milliseconds. */
+export interface DeviceMetricSeries {
+  deviceId: string;
+  bucketStarts: number[];
+  averagePowerKw: number[];
+  totalEnergyKwh: number[];
+}
+
+export interface DeviceMetricsResponse {
+  from: string;
+  to: string;
+  bucket: string;
+  devices: DeviceMetricSeries[];
+}
+
 export interface ForecastPoint {
   time: string;
   predictedPowerKw: number;
@@ -39,6 +54,13 @@ export interface ForecastResponse {
   points: ForecastPoint[];
 }
 
+export interface Device {
+  deviceId: string;
+  firstSeen: string;
+  lastSeen: string;
+}
+
 export interface DeviceListResponse {
   devices: string[];
+  details: Device[];
 }
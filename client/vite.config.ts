@@ -11,7 +11,8 @@ export default defineConfig(({ mode }) => {
       proxy: {
         '/api': {
           target: env.VITE_API_BASE_URL || 'http://localhost:8080',
-          changeOrigin: true
+          changeOrigin: true,
+          ws: true
         }
       }
     }
@@ -20,11 +20,11 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-jdbc")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-websocket")
     implementation("io.projectreactor:reactor-core")
     implementation("org.postgresql:postgresql")
     implementation("org.flywaydb:flyway-core")
     implementation("org.flywaydb:flyway-database-postgresql")
-    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-csv")
     implementation("org.apache.commons:commons-math3:3.6.1")
 
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
@@ -39,6 +39,22 @@ tasks.withType<Test> {
     systemProperty("user.timezone", "UTC")
 }
 
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the wall-clock benchmarks left out of the test task."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+}
+
 spotless {
     java {
         googleJavaFormat()
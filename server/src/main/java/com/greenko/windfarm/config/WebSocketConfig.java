@@ -0,0 +1,29 @@
+// path: server/src/main/java/com/greenko/windfarm/config/WebSocketConfig.java
+package com.greenko.windfarm.config;
+
+import com.greenko.windfarm.web.TelemetryWebSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+  private final TelemetryWebSocketHandler telemetryHandler;
+  private final WindfarmProperties properties;
+
+  public WebSocketConfig(
+      TelemetryWebSocketHandler telemetryHandler, WindfarmProperties properties) {
+    this.telemetryHandler = telemetryHandler;
+    this.properties = properties;
+  }
+
+  @Override
+  public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+    registry
+        .addHandler(telemetryHandler, "/api/ws/telemetry")
+        .setAllowedOriginPatterns(
+            properties.getWebSocket().getAllowedOrigins().toArray(String[]::new));
+  }
+}
@@ -4,14 +4,26 @@ package com.greenko.windfarm.config;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties(prefix = "windfarm")
 public class WindfarmProperties {
   private Path datasetPath = Paths.get("data/device_energy_data.csv");
+  private final Dataset dataset = new Dataset();
   private final Emitter emitter = new Emitter();
   private final Listener listener = new Listener();
   private final Seed seed = new Seed();
+  private final Bus bus = new Bus();
+  private final Ingest ingest = new Ingest();
+  private final Sse sse = new Sse();
+  private final WebSocket webSocket = new WebSocket();
+  private final HotTier hotTier = new HotTier();
+  private final MetricsCache metricsCache = new MetricsCache();
+  private final Devices devices = new Devices();
+  private final Storage storage = new Storage();
+  private final Export export = new Export();
 
   public Path getDatasetPath() {
     return datasetPath;
@@ -21,6 +33,10 @@ public class WindfarmProperties {
     this.datasetPath = datasetPath;
   }
 
+  public Dataset getDataset() {
+    return dataset;
+  }
+
   public Emitter getEmitter() {
     return emitter;
   }
@@ -33,6 +49,87 @@ public class WindfarmProperties {
     return seed;
   }
 
+  public Bus getBus() {
+    return bus;
+  }
+
+  public Ingest getIngest() {
+    return ingest;
+  }
+
+  public Sse getSse() {
+    return sse;
+  }
+
+  public WebSocket getWebSocket() {
+    return webSocket;
+  }
+
+  public HotTier getHotTier() {
+    return hotTier;
+  }
+
+  public MetricsCache getMetricsCache() {
+    return metricsCache;
+  }
+
+  public Devices getDevices() {
+    return devices;
+  }
+
+  public Storage getStorage() {
+    return storage;
+  }
+
+  public Export getExport() {
+    return export;
+  }
+
+  public static class Dataset {
+    /** Worker threads used to parse the CSV; 0 uses every available processor. */
+    private int loadParallelism = 0;
+
+    private boolean cacheEnabled = true;
+    private Path cacheDirectory = Paths.get("data/cache");
+
+    /**
+     * Also match the snapshot on a CRC32C of the CSV, which reads the whole file on every start.
+     */
+    private boolean cacheVerify = false;
+
+    public int getLoadParallelism() {
+      return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+      this.loadParallelism = loadParallelism;
+    }
+
+    public boolean isCacheEnabled() {
+      return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+      this.cacheEnabled = cacheEnabled;
+    }
+
+    public Path getCacheDirectory() {
+      return cacheDirectory;
+    }
+
+    public void setCacheDirectory(Path cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+    }
+
+    public boolean isCacheVerify() {
+      return cacheVerify;
+    }
+
+    public void setCacheVerify(boolean cacheVerify) {
+      this.cacheVerify = cacheVerify;
+    }
+  }
+
   public static class Emitter {
     private boolean enabled = true;
     private Duration interval = Duration.ofMinutes(1);
@@ -76,6 +173,9 @@ public class WindfarmProperties {
     private boolean enabled = true;
     private Duration flushInterval = Duration.ofMillis(200);
     private int batchSize = 500;
+    private WriteMode writeMode = WriteMode.COPY;
+    private int shards = 4;
+    private final Spool spool = new Spool();
 
     public boolean isEnabled() {
       return enabled;
@@ -100,12 +200,120 @@ public class WindfarmProperties {
     public void setBatchSize(int batchSize) {
       this.batchSize = batchSize;
     }
+
+    public int getShards() {
+      return shards;
+    }
+
+    public void setShards(int shards) {
+      this.shards = shards;
+    }
+
+    public Spool getSpool() {
+      return spool;
+    }
+
+    public WriteMode getWriteMode() {
+      return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+      this.writeMode = writeMode;
+    }
+
+    public enum WriteMode {
+      /** JDBC batch of {@code INSERT ... ON CONFLICT DO UPDATE}, one statement per row. */
+      BATCH,
+      /** Binary {@code COPY} into a staging table followed by one set-based upsert. */
+      COPY
+    }
+
+    public static class Spool {
+      private boolean enabled = true;
+      private Path directory = Paths.get("data/spool");
+      private DataSize segmentSize = DataSize.ofMegabytes(64);
+      private DataSize maxSize = DataSize.ofGigabytes(1);
+      private boolean force = false;
+      private Duration retryBackoff = Duration.ofMillis(500);
+      private Duration maxRetryBackoff = Duration.ofSeconds(30);
+      private int maxAttempts = 5;
+
+      public boolean isEnabled() {
+        return enabled;
+      }
+
+      public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+      }
+
+      public Path getDirectory() {
+        return directory;
+      }
+
+      public void setDirectory(Path directory) {
+        this.directory = directory;
+      }
+
+      public DataSize getSegmentSize() {
+        return segmentSize;
+      }
+
+      public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+      }
+
+      public DataSize getMaxSize() {
+        return maxSize;
+      }
+
+      public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+      }
+
+      public boolean isForce() {
+        return force;
+      }
+
+      public void setForce(boolean force) {
+        this.force = force;
+      }
+
+      public Duration getRetryBackoff() {
+        return retryBackoff;
+      }
+
+      public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+      }
+
+      public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+      }
+
+      public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+      }
+
+      public int getMaxAttempts() {
+        return maxAttempts;
+      }
+
+      public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+      }
+    }
   }
 
   public static class Seed {
     private boolean enabled = false;
+
+    /** Minutes of the dataset to seed, counted from its first timestamp; 0 seeds everything. */
     private int minutes = 180;
 
+    private int parallelism = 4;
+    private int chunkRows = 50_000;
+    private boolean deferIndexes = false;
+
     public boolean isEnabled() {
       return enabled;
     }
@@ -121,5 +329,391 @@ public class WindfarmProperties {
     public void setMinutes(int minutes) {
       this.minutes = minutes;
     }
+
+    public int getParallelism() {
+      return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+      this.parallelism = parallelism;
+    }
+
+    public int getChunkRows() {
+      return chunkRows;
+    }
+
+    public void setChunkRows(int chunkRows) {
+      this.chunkRows = chunkRows;
+    }
+
+    public boolean isDeferIndexes() {
+      return deferIndexes;
+    }
+
+    public void setDeferIndexes(boolean deferIndexes) {
+      this.deferIndexes = deferIndexes;
+    }
+  }
+
+  public static class Bus {
+    private int capacity = 8192;
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+      return waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+      this.waitStrategy = waitStrategy;
+    }
+
+    public enum WaitStrategy {
+      /** Consumers park on a condition; lowest CPU use, microseconds of wake-up latency. */
+      BLOCKING,
+      /** Consumers spin on the cursor; lowest latency, keeps one core busy per consumer. */
+      BUSY_SPIN
+    }
+  }
+
+  public static class Ingest {
+    private Duration backpressureTimeout = Duration.ofMillis(100);
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public Duration getBackpressureTimeout() {
+      return backpressureTimeout;
+    }
+
+    public void setBackpressureTimeout(Duration backpressureTimeout) {
+      this.backpressureTimeout = backpressureTimeout;
+    }
+
+    public Duration getRetryAfter() {
+      return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+      this.retryAfter = retryAfter;
+    }
+  }
+
+  public static class Sse {
+    private int queueCapacity = 256;
+    private SlowClientPolicy slowClientPolicy = SlowClientPolicy.DROP_OLDEST;
+    private Duration timeout = Duration.ofMinutes(30);
+    private double maxFps = 30;
+    private int replayCapacity = 65536;
+    private int replayMaxRows = 50_000;
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+    private Duration idleTimeout = Duration.ofMinutes(2);
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public SlowClientPolicy getSlowClientPolicy() {
+      return slowClientPolicy;
+    }
+
+    public void setSlowClientPolicy(SlowClientPolicy slowClientPolicy) {
+      this.slowClientPolicy = slowClientPolicy;
+    }
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    public double getMaxFps() {
+      return maxFps;
+    }
+
+    public void setMaxFps(double maxFps) {
+      this.maxFps = maxFps;
+    }
+
+    public int getReplayCapacity() {
+      return replayCapacity;
+    }
+
+    public void setReplayCapacity(int replayCapacity) {
+      this.replayCapacity = replayCapacity;
+    }
+
+    public int getReplayMaxRows() {
+      return replayMaxRows;
+    }
+
+    public void setReplayMaxRows(int replayMaxRows) {
+      this.replayMaxRows = replayMaxRows;
+    }
+
+    public Duration getHeartbeatInterval() {
+      return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+      this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getIdleTimeout() {
+      return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+      this.idleTimeout = idleTimeout;
+    }
+
+    public enum SlowClientPolicy {
+      /** Discard the oldest queued frame to make room. */
+      DROP_OLDEST,
+      /** Replace the queued frame of the same device, else discard the oldest. */
+      CONFLATE,
+      /** Close the connection; the client reconnects and resumes. */
+      DISCONNECT
+    }
+  }
+
+  public static class WebSocket {
+    private int queueCapacity = 8192;
+    private int maxBatch = 2048;
+    private Duration flushInterval = Duration.ofMillis(100);
+    private List<String> allowedOrigins = List.of();
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxBatch() {
+      return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+      this.maxBatch = maxBatch;
+    }
+
+    public Duration getFlushInterval() {
+      return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+      this.flushInterval = flushInterval;
+    }
+
+    public List<String> getAllowedOrigins() {
+      return allowedOrigins;
+    }
+
+    public void setAllowedOrigins(List<String> allowedOrigins) {
+      this.allowedOrigins = allowedOrigins;
+    }
+  }
+
+  public static class HotTier {
+    private boolean enabled = true;
+    private Duration window = Duration.ofHours(6);
+    private int warmPageRows = 50_000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public int getWarmPageRows() {
+      return warmPageRows;
+    }
+
+    public void setWarmPageRows(int warmPageRows) {
+      this.warmPageRows = warmPageRows;
+    }
+  }
+
+  public static class MetricsCache {
+    private boolean enabled = true;
+    private int maxSegments = 4096;
+    private int segmentBuckets = 60;
+    private Duration refreshInterval = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxSegments() {
+      return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+      this.maxSegments = maxSegments;
+    }
+
+    public int getSegmentBuckets() {
+      return segmentBuckets;
+    }
+
+    public void setSegmentBuckets(int segmentBuckets) {
+      this.segmentBuckets = segmentBuckets;
+    }
+
+    public Duration getRefreshInterval() {
+      return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+      this.refreshInterval = refreshInterval;
+    }
+  }
+
+  public static class Devices {
+    private Duration lastSeenInterval = Duration.ofMinutes(1);
+
+    public Duration getLastSeenInterval() {
+      return lastSeenInterval;
+    }
+
+    public void setLastSeenInterval(Duration lastSeenInterval) {
+      this.lastSeenInterval = lastSeenInterval;
+    }
+  }
+
+  public static class Storage {
+    private Duration interval = Duration.ofHours(1);
+    private final Compression compression = new Compression();
+    private final Retention retention = new Retention();
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(Duration interval) {
+      this.interval = interval;
+    }
+
+    public Compression getCompression() {
+      return compression;
+    }
+
+    public Retention getRetention() {
+      return retention;
+    }
+
+    public static class Compression {
+      private boolean enabled = true;
+      private Duration after = Duration.ofDays(7);
+
+      public boolean isEnabled() {
+        return enabled;
+      }
+
+      public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+      }
+
+      public Duration getAfter() {
+        return after;
+      }
+
+      public void setAfter(Duration after) {
+        this.after = after;
+      }
+    }
+
+    public static class Retention {
+      private boolean enabled = false;
+      private Duration after = Duration.ofDays(365);
+
+      public boolean isEnabled() {
+        return enabled;
+      }
+
+      public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+      }
+
+      public Duration getAfter() {
+        return after;
+      }
+
+      public void setAfter(Duration after) {
+        this.after = after;
+      }
+    }
+  }
+
+  public static class Export {
+    /** Exports streaming at once; each holds a database connection until its download ends. */
+    private int maxConcurrent = 4;
+
+    private Duration retryAfter = Duration.ofSeconds(5);
+
+    /** How long one export statement, including a whole CSV {@code COPY}, may run. */
+    private Duration statementTimeout = Duration.ofHours(1);
+
+    /** How long a cursor may wait between fetches for a client that has stopped reading. */
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    public int getMaxConcurrent() {
+      return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+    }
+
+    public Duration getRetryAfter() {
+      return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+      this.retryAfter = retryAfter;
+    }
+
+    public Duration getStatementTimeout() {
+      return statementTimeout;
+    }
+
+    public void setStatementTimeout(Duration statementTimeout) {
+      this.statementTimeout = statementTimeout;
+    }
+
+    public Duration getIdleTimeout() {
+      return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+      this.idleTimeout = idleTimeout;
+    }
   }
 }
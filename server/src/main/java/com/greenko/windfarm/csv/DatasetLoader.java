@@ -1,30 +1,27 @@
 // path: server/src/main/java/com/greenko/windfarm/csv/DatasetLoader.java
 package com.greenko.windfarm.csv;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.greenko.windfarm.config.WindfarmProperties;
-import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.DoubleAdder;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -32,109 +29,261 @@ import org.springframework.stereotype.Component;
 @Component
 public class DatasetLoader {
   private static final Logger log = LoggerFactory.getLogger(DatasetLoader.class);
-  private static final DateTimeFormatter FORMATTER =
-      DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm", Locale.ENGLISH);
+  private static final long MIN_CHUNK_BYTES = 4L << 20;
 
   private final Path datasetPath;
+  private final int parallelism;
+  private final Path cachePath;
+  private final boolean verifyCache;
+  private final MeterRegistry meterRegistry;
   private volatile DatasetSnapshot cached;
 
-  public DatasetLoader(WindfarmProperties properties) {
+  public DatasetLoader(WindfarmProperties properties, MeterRegistry meterRegistry) {
     Objects.requireNonNull(properties, "properties");
     this.datasetPath = properties.getDatasetPath();
+    WindfarmProperties.Dataset dataset = properties.getDataset();
+    int configured = dataset.getLoadParallelism();
+    this.parallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    this.cachePath =
+        dataset.isCacheEnabled()
+            ? dataset.getCacheDirectory().resolve(datasetPath.getFileName() + ".snapshot")
+            : null;
+    this.verifyCache = dataset.isCacheVerify();
+    this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
   }
 
-  public synchronized DatasetSnapshot loadDataset() {
-    if (cached != null) {
+  public DatasetSnapshot loadDataset() {
+    DatasetSnapshot snapshot = cached;
+    if (snapshot != null) {
+      return snapshot;
+    }
+    synchronized (this) {
+      if (cached == null) {
+        cached = load();
+      }
       return cached;
     }
+  }
+
+  private DatasetSnapshot load() {
     if (!Files.exists(datasetPath)) {
       throw new IllegalStateException("Dataset not found at " + datasetPath.toAbsolutePath());
     }
 
-    CsvMapper mapper = new CsvMapper();
-    CsvSchema schema =
-        CsvSchema.builder()
-            .addColumn("timestamp")
-            .addColumn("device_id")
-            .addColumn("energy_produced_kwh")
-            .setUseHeader(true)
-            .setColumnSeparator(',')
-            .build();
-
-    Map<Key, DoubleAdder> accumulator = new ConcurrentHashMap<>();
-    int rawRows = 0;
-    try (Reader reader = Files.newBufferedReader(datasetPath)) {
-      MappingIterator<RawRecord> iterator =
-          mapper.readerFor(RawRecord.class).with(schema).readValues(reader);
-      while (iterator.hasNext()) {
-        RawRecord row = iterator.next();
-        rawRows++;
-        if (row.timestamp() == null || row.deviceId() == null || row.energyKwh() == null) {
-          log.warn("Skipping malformed row: {}", row);
-          continue;
-        }
-        Instant time =
-            LocalDateTime.parse(row.timestamp().trim(), FORMATTER)
-                .atOffset(ZoneOffset.UTC)
-                .toInstant();
-        String deviceId = row.deviceId().trim();
-        double energy = row.energyKwh();
-        if (!Double.isFinite(energy)) {
-          log.warn("Skipping non-finite energy value {} for {} at {}", energy, deviceId, time);
-          continue;
+    long started = System.nanoTime();
+    SnapshotCache.Source source = null;
+    if (cachePath != null) {
+      try {
+        source = SnapshotCache.Source.of(datasetPath);
+        DatasetSnapshot snapshot = SnapshotCache.read(cachePath, source, verifyCache);
+        if (snapshot != null) {
+          log.info(
+              "Mapped dataset snapshot {} ({} rows) in {} ms (warm start)",
+              cachePath.toAbsolutePath(),
+              snapshot.size(),
+              recordLoadTime("snapshot", started));
+          return snapshot;
         }
-        accumulator.computeIfAbsent(new Key(time, deviceId), __ -> new DoubleAdder()).add(energy);
+      } catch (IOException ex) {
+        log.warn("Ignoring unreadable dataset snapshot {}: {}", cachePath, ex.getMessage());
+      }
+    }
+
+    DatasetSnapshot snapshot = parse();
+    log.info(
+        "Parsed dataset {} (raw rows: {}, normalized rows: {}) in {} ms (cold start)",
+        datasetPath.toAbsolutePath(),
+        snapshot.rawRowCount(),
+        snapshot.size(),
+        recordLoadTime("csv", started));
+    if (source != null) {
+      try {
+        SnapshotCache.write(cachePath, snapshot, source);
+        log.info("Wrote dataset snapshot {}", cachePath.toAbsolutePath());
+      } catch (IOException ex) {
+        log.warn("Could not write dataset snapshot {}", cachePath, ex);
       }
+    }
+    return snapshot;
+  }
+
+  private long recordLoadTime(String source, long started) {
+    long elapsed = System.nanoTime() - started;
+    Timer.builder("windfarm.dataset.load")
+        .description("Time to load the replay dataset at startup")
+        .tag("source", source)
+        .register(meterRegistry)
+        .record(elapsed, TimeUnit.NANOSECONDS);
+    return TimeUnit.NANOSECONDS.toMillis(elapsed);
+  }
+
+  private DatasetSnapshot parse() {
+    ParsedChunk parsed;
+    int threads;
+    try (FileChannel channel = FileChannel.open(datasetPath, StandardOpenOption.READ)) {
+      long start = MappedCsvParser.dataStart(channel);
+      long size = channel.size();
+      threads = (int) Math.max(1, Math.min(parallelism, (size - start) / MIN_CHUNK_BYTES));
+      parsed =
+          threads == 1
+              ? parseChunk(channel, start, size, false)
+              : parseParallel(channel, start, size, threads);
     } catch (IOException ex) {
       throw new IllegalStateException("Failed to read dataset: " + datasetPath, ex);
     }
+    long rawRows = parsed.rawRows();
 
-    List<TelemetryRecord> normalized = new ArrayList<>(accumulator.size());
-    accumulator.forEach(
-        (key, adder) ->
-            normalized.add(
-                new TelemetryRecord(key.time(), key.deviceId(), adder.sum(), adder.sum() * 60d)));
-    normalized.sort(
-        Comparator.comparing(TelemetryRecord::time).thenComparing(TelemetryRecord::deviceId));
-
-    if (normalized.isEmpty()) {
+    if (parsed.table().size() == 0) {
       throw new IllegalStateException("Dataset " + datasetPath + " produced no telemetry rows");
     }
-
-    DoubleSummaryStatistics stats =
-        normalized.stream().collect(Collectors.summarizingDouble(TelemetryRecord::powerKw));
-
     DatasetSnapshot snapshot =
-        new DatasetSnapshot(
-            normalized,
-            normalized.get(0).time(),
-            normalized.get(normalized.size() - 1).time(),
-            rawRows,
-            stats);
-    this.cached = snapshot;
-    log.info(
-        "Loaded dataset {} (raw rows: {}, normalized rows: {})",
-        datasetPath.toAbsolutePath(),
-        rawRows,
-        normalized.size());
+        toSnapshot(parsed.table(), parsed.devices(), Math.toIntExact(rawRows), threads > 1);
+    log.debug("Parsed {} on {} thread(s)", datasetPath, threads);
     return snapshot;
   }
 
-  record RawRecord(
-      @JsonProperty("timestamp") String timestamp,
-      @JsonProperty("device_id") String deviceId,
-      @JsonProperty("energy_produced_kwh") Double energyKwh) {}
+  private static ParsedChunk parseChunk(
+      FileChannel channel, long start, long end, boolean trackDuplicates) throws IOException {
+    DeviceDictionary devices = new DeviceDictionary();
+    // Rows are ~40 bytes and duplicates are rare; presize for one entry per row up to 4M.
+    MinuteAggregationTable table =
+        new MinuteAggregationTable((int) Math.min((end - start) / 32, 1 << 22), trackDuplicates);
+    MappedCsvParser parser = new MappedCsvParser(devices, table);
+    parser.parse(channel, start, end);
+    return new ParsedChunk(devices, table, parser.rawRows());
+  }
 
-  record Key(Instant time, String deviceId) {}
+  /**
+   * Splits {@code [start, end)} into newline-aligned ranges, parses and pre-aggregates each on its
+   * own fork-join worker and merges the partial tables in file order.
+   */
+  private static ParsedChunk parseParallel(FileChannel channel, long start, long end, int threads)
+      throws IOException {
+    long[] bounds = new long[threads + 1];
+    bounds[0] = start;
+    bounds[threads] = end;
+    for (int i = 1; i < threads; i++) {
+      long target = start + (end - start) * i / threads;
+      bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, target, end));
+    }
 
-  public record DatasetSnapshot(
-      List<TelemetryRecord> records,
-      Instant start,
-      Instant end,
-      int rawRowCount,
-      DoubleSummaryStatistics powerStatistics) {
-    public long durationMinutes() {
-      return (end.toEpochMilli() - start.toEpochMilli()) / 60000L + 1L;
+    List<Callable<ParsedChunk>> tasks = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      long from = bounds[i];
+      long to = bounds[i + 1];
+      tasks.add(() -> parseChunk(channel, from, to, true));
     }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    List<ParsedChunk> chunks = new ArrayList<>(threads);
+    try {
+      for (Future<ParsedChunk> future : pool.invokeAll(tasks)) {
+        chunks.add(future.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading dataset", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException io) {
+        throw io;
+      }
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException("Failed to parse dataset chunk", ex.getCause());
+    } finally {
+      pool.shutdown();
+    }
+
+    DeviceDictionary devices = new DeviceDictionary();
+    int entries = 0;
+    for (ParsedChunk chunk : chunks) {
+      entries += chunk.table().size();
+    }
+    MinuteAggregationTable table = new MinuteAggregationTable(entries);
+    long rawRows = 0;
+    for (ParsedChunk chunk : chunks) {
+      int[] remap = new int[chunk.devices().size()];
+      for (int i = 0; i < remap.length; i++) {
+        remap[i] = devices.indexOf(chunk.devices().name(i));
+      }
+      chunk.table().mergeInto(table, remap);
+      rawRows += chunk.rawRows();
+    }
+    return new ParsedChunk(devices, table, rawRows);
   }
+
+  private static long nextLineStart(FileChannel channel, long position, long end)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    while (position < end) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return Math.min(position + i + 1, end);
+        }
+      }
+      position += read;
+    }
+    return end;
+  }
+
+  /** Orders the aggregated rows by minute, then device id, into columns. */
+  private static DatasetSnapshot toSnapshot(
+      MinuteAggregationTable table, DeviceDictionary devices, int rawRows, boolean parallel) {
+    Integer[] byName = new Integer[devices.size()];
+    for (int i = 0; i < byName.length; i++) {
+      byName[i] = i;
+    }
+    Arrays.sort(byName, Comparator.comparing(devices::name));
+    int[] rank = new int[byName.length];
+    String[] names = new String[byName.length];
+    for (int i = 0; i < byName.length; i++) {
+      rank[byName[i]] = i;
+      names[i] = devices.name(byName[i]);
+    }
+
+    long[] keys = table.keys();
+    for (int i = 0; i < keys.length; i++) {
+      long key = keys[i];
+      keys[i] =
+          MinuteAggregationTable.key(
+              MinuteAggregationTable.epochMinute(key),
+              rank[MinuteAggregationTable.deviceIndex(key)]);
+    }
+    long[] epochSeconds = new long[keys.length];
+    int[] deviceIds = new int[keys.length];
+    double[] energy = new double[keys.length];
+    double[] power = new double[keys.length];
+    IntStream rows = IntStream.range(0, keys.length);
+    if (parallel) {
+      Arrays.parallelSort(keys);
+      rows = rows.parallel();
+    } else {
+      Arrays.sort(keys);
+    }
+    rows.forEach(
+        i -> {
+          long minute = MinuteAggregationTable.epochMinute(keys[i]);
+          int device = MinuteAggregationTable.deviceIndex(keys[i]);
+          epochSeconds[i] = minute * 60L;
+          deviceIds[i] = device;
+          energy[i] = table.get(MinuteAggregationTable.key(minute, byName[device]));
+          power[i] = energy[i] * 60d;
+        });
+    return new DatasetSnapshot(
+        epochSeconds,
+        deviceIds,
+        energy,
+        power,
+        names,
+        rawRows,
+        DoubleStream.of(power).summaryStatistics());
+  }
+
+  private record ParsedChunk(
+      DeviceDictionary devices, MinuteAggregationTable table, long rawRows) {}
 }
@@ -0,0 +1,173 @@
+// path: server/src/main/java/com/greenko/windfarm/csv/DatasetSnapshot.java
+package com.greenko.windfarm.csv;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Instant;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The normalized replay dataset, stored column by column and ordered by time, then device id. Each
+ * row is an index into parallel primitive arrays; device ids are dictionary-encoded, so walking the
+ * snapshot with {@link #cursor()} or the indexed accessors allocates nothing.
+ */
+public final class DatasetSnapshot {
+  private final long[] epochSeconds;
+  private final int[] deviceIds;
+  private final double[] energyKwh;
+  private final double[] powerKw;
+  private final String[] devices;
+  private final int rawRowCount;
+  private final DoubleSummaryStatistics powerStatistics;
+
+  DatasetSnapshot(
+      long[] epochSeconds,
+      int[] deviceIds,
+      double[] energyKwh,
+      double[] powerKw,
+      String[] devices,
+      int rawRowCount,
+      DoubleSummaryStatistics powerStatistics) {
+    if (epochSeconds.length == 0
+        || deviceIds.length != epochSeconds.length
+        || energyKwh.length != epochSeconds.length
+        || powerKw.length != epochSeconds.length) {
+      throw new IllegalArgumentException("Snapshot columns must be non-empty and of equal length");
+    }
+    this.epochSeconds = epochSeconds;
+    this.deviceIds = deviceIds;
+    this.energyKwh = energyKwh;
+    this.powerKw = powerKw;
+    this.devices = devices;
+    this.rawRowCount = rawRowCount;
+    this.powerStatistics = Objects.requireNonNull(powerStatistics, "powerStatistics");
+  }
+
+  public int size() {
+    return epochSeconds.length;
+  }
+
+  public long epochSecond(int row) {
+    return epochSeconds[row];
+  }
+
+  public Instant time(int row) {
+    return Instant.ofEpochSecond(epochSeconds[row]);
+  }
+
+  /** Index of the row's device in {@link #devices()}. */
+  public int deviceIndex(int row) {
+    return deviceIds[row];
+  }
+
+  public String deviceId(int row) {
+    return devices[deviceIds[row]];
+  }
+
+  public double energyKwh(int row) {
+    return energyKwh[row];
+  }
+
+  public double powerKw(int row) {
+    return powerKw[row];
+  }
+
+  /** Materializes one row; prefer the column accessors on hot paths. */
+  public TelemetryRecord record(int row) {
+    return new TelemetryRecord(time(row), deviceId(row), energyKwh[row], powerKw[row]);
+  }
+
+  /** Distinct device ids, sorted; {@link #deviceIndex(int)} indexes into this list. */
+  public List<String> devices() {
+    return List.of(devices);
+  }
+
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  public Instant start() {
+    return time(0);
+  }
+
+  public Instant end() {
+    return time(epochSeconds.length - 1);
+  }
+
+  public int rawRowCount() {
+    return rawRowCount;
+  }
+
+  public DoubleSummaryStatistics powerStatistics() {
+    return powerStatistics;
+  }
+
+  public long durationMinutes() {
+    return (epochSeconds[epochSeconds.length - 1] - epochSeconds[0]) / 60L + 1L;
+  }
+
+  long[] epochSecondColumn() {
+    return epochSeconds;
+  }
+
+  int[] deviceIdColumn() {
+    return deviceIds;
+  }
+
+  double[] energyColumn() {
+    return energyKwh;
+  }
+
+  double[] powerColumn() {
+    return powerKw;
+  }
+
+  String[] deviceDictionary() {
+    return devices;
+  }
+
+  /** Forward-only view over the rows; not thread-safe. */
+  public final class Cursor {
+    private int row = -1;
+
+    private Cursor() {}
+
+    /** Advances to the next row, returning {@code false} once past the last one. */
+    public boolean next() {
+      if (row < epochSeconds.length) {
+        row++;
+      }
+      return row < epochSeconds.length;
+    }
+
+    /** Positions the cursor so that the next call to {@link #next()} lands on {@code row}. */
+    public void seek(int row) {
+      this.row = Objects.checkIndex(row, epochSeconds.length + 1) - 1;
+    }
+
+    public int row() {
+      return row;
+    }
+
+    public long epochSecond() {
+      return epochSeconds[row];
+    }
+
+    public int deviceIndex() {
+      return deviceIds[row];
+    }
+
+    public String deviceId() {
+      return devices[deviceIds[row]];
+    }
+
+    public double energyKwh() {
+      return energyKwh[row];
+    }
+
+    public double powerKw() {
+      return powerKw[row];
+    }
+  }
+}
@@ -0,0 +1,96 @@
+// path: server/src/main/java/com/greenko/windfarm/csv/DeviceDictionary.java
+package com.greenko.windfarm.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns dense indexes to device ids as they are scanned. Lookups hash the raw bytes of the id in
+ * the mapped file, so only the first occurrence of a device allocates a {@link String}.
+ */
+final class DeviceDictionary {
+  private int[] slots = new int[256];
+  private final List<byte[]> encoded = new ArrayList<>();
+  private final List<String> names = new ArrayList<>();
+
+  DeviceDictionary() {
+    Arrays.fill(slots, -1);
+  }
+
+  int indexOf(ByteBuffer buffer, int offset, int length) {
+    int hash = hash(buffer, offset, length);
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int index = slots[slot];
+      if (index < 0) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return insert(slot, bytes);
+      }
+      if (matches(encoded.get(index), buffer, offset, length)) {
+        return index;
+      }
+    }
+  }
+
+  int indexOf(String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    return indexOf(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  String name(int index) {
+    return names.get(index);
+  }
+
+  int size() {
+    return names.size();
+  }
+
+  private int insert(int slot, byte[] bytes) {
+    int index = names.size();
+    encoded.add(bytes);
+    names.add(new String(bytes, StandardCharsets.UTF_8));
+    slots[slot] = index;
+    if (names.size() * 2 > slots.length) {
+      rehash();
+    }
+    return index;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    Arrays.fill(slots, -1);
+    int mask = slots.length - 1;
+    for (int index = 0; index < encoded.size(); index++) {
+      byte[] bytes = encoded.get(index);
+      int slot = hash(ByteBuffer.wrap(bytes), 0, bytes.length) & mask;
+      while (slots[slot] >= 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = index;
+    }
+  }
+
+  private static int hash(ByteBuffer buffer, int offset, int length) {
+    int hash = 0x811C9DC5;
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ buffer.get(i)) * 0x01000193;
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean matches(byte[] bytes, ByteBuffer buffer, int offset, int length) {
+    if (bytes.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] != buffer.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,336 @@
+// path: server/src/main/java/com/greenko/windfarm/csv/MappedCsvParser.java
+package com.greenko.windfarm.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the {@code timestamp,device_id,energy_produced_kwh} export straight out of a memory-mapped
+ * file and sums the energy of duplicate {@code (minute, device)} rows into a {@link
+ * MinuteAggregationTable}.
+ *
+ * <p>Timestamps in the fixed {@code dd-MM-yyyy HH:mm} layout are converted to epoch minutes with
+ * integer arithmetic, and energy values are parsed from the mapped bytes without creating
+ * substrings. Rows with a missing or unparseable field are skipped as malformed and rows with a
+ * non-finite energy value are skipped, both with a warning.
+ */
+final class MappedCsvParser {
+  private static final Logger log = LoggerFactory.getLogger(MappedCsvParser.class);
+  static final long INVALID_TIME = Long.MIN_VALUE;
+  private static final long WINDOW_BYTES = 1L << 30;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1d;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10d;
+    }
+  }
+
+  private final DeviceDictionary devices;
+  private final MinuteAggregationTable table;
+  private long rawRows;
+  private boolean numberValid;
+
+  MappedCsvParser(DeviceDictionary devices, MinuteAggregationTable table) {
+    this.devices = devices;
+    this.table = table;
+  }
+
+  /** Returns the offset of the first data row, just past the header line. */
+  static long dataStart(FileChannel channel) throws IOException {
+    long size = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long position = 0;
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /** Parses the rows in {@code [start, end)}; {@code start} must be the beginning of a line. */
+  void parse(FileChannel channel, long start, long end) throws IOException {
+    long position = start;
+    while (position < end) {
+      long length = Math.min(WINDOW_BYTES, end - position);
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      int consumed = parseLines(buffer, (int) length, position + length >= end);
+      if (consumed == 0) {
+        throw new IllegalStateException("CSV line at offset " + position + " exceeds 1 GiB");
+      }
+      position += consumed;
+    }
+  }
+
+  long rawRows() {
+    return rawRows;
+  }
+
+  /** Parses complete lines and returns the number of bytes consumed. */
+  private int parseLines(ByteBuffer buffer, int limit, boolean last) {
+    int lineStart = 0;
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      if (lineEnd == limit && !last) {
+        return lineStart;
+      }
+      int contentEnd = lineEnd;
+      if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+        contentEnd--;
+      }
+      if (contentEnd > lineStart) {
+        parseRow(buffer, lineStart, contentEnd);
+      }
+      lineStart = lineEnd + 1;
+    }
+    return limit;
+  }
+
+  private void parseRow(ByteBuffer buffer, int from, int to) {
+    rawRows++;
+    int timeEnd = fieldEnd(buffer, from, to);
+    int deviceEnd = timeEnd < to ? fieldEnd(buffer, timeEnd + 1, to) : to;
+    if (deviceEnd >= to) {
+      malformed(buffer, from, to);
+      return;
+    }
+    int energyEnd = fieldEnd(buffer, deviceEnd + 1, to);
+
+    long minute =
+        parseEpochMinute(buffer, trimStart(buffer, from, timeEnd), trimEnd(buffer, from, timeEnd));
+    int deviceStart = trimStart(buffer, timeEnd + 1, deviceEnd);
+    int deviceStop = trimEnd(buffer, timeEnd + 1, deviceEnd);
+    double energy =
+        parseDouble(
+            buffer,
+            trimStart(buffer, deviceEnd + 1, energyEnd),
+            trimEnd(buffer, deviceEnd + 1, energyEnd));
+    if (minute == INVALID_TIME || deviceStart >= deviceStop || !numberValid) {
+      malformed(buffer, from, to);
+      return;
+    }
+    int device = devices.indexOf(buffer, deviceStart, deviceStop - deviceStart);
+    if (device >= MinuteAggregationTable.MAX_DEVICES) {
+      throw new IllegalStateException(
+          "Dataset has more than " + MinuteAggregationTable.MAX_DEVICES + " devices");
+    }
+    if (!Double.isFinite(energy)) {
+      log.warn(
+          "Skipping non-finite energy value {} for {} at {}",
+          energy,
+          devices.name(device),
+          Instant.ofEpochSecond(minute * 60L));
+      return;
+    }
+    table.add(MinuteAggregationTable.key(minute, device), energy);
+  }
+
+  /** Returns the index of the comma ending the field at {@code from}, or {@code to}. */
+  private static int fieldEnd(ByteBuffer buffer, int from, int to) {
+    int i = from;
+    if (i < to && buffer.get(i) == '"') {
+      i++;
+      while (i < to) {
+        if (buffer.get(i) == '"') {
+          if (i + 1 < to && buffer.get(i + 1) == '"') {
+            i += 2;
+            continue;
+          }
+          i++;
+          break;
+        }
+        i++;
+      }
+    }
+    while (i < to && buffer.get(i) != ',') {
+      i++;
+    }
+    return i;
+  }
+
+  /** First byte of the field value, skipping blanks and an opening quote. */
+  private static int trimStart(ByteBuffer buffer, int from, int to) {
+    while (from < to && buffer.get(from) == ' ') {
+      from++;
+    }
+    if (from < to && buffer.get(from) == '"') {
+      from++;
+    }
+    return from;
+  }
+
+  /** End of the field value, dropping blanks and a closing quote. */
+  private static int trimEnd(ByteBuffer buffer, int from, int to) {
+    while (to > from && buffer.get(to - 1) == ' ') {
+      to--;
+    }
+    if (to > from && buffer.get(to - 1) == '"') {
+      to--;
+    }
+    return to;
+  }
+
+  /** Parses {@code dd-MM-yyyy HH:mm} into minutes since the epoch (UTC). */
+  static long parseEpochMinute(ByteBuffer buffer, int from, int to) {
+    if (to - from != 16
+        || buffer.get(from + 2) != '-'
+        || buffer.get(from + 5) != '-'
+        || buffer.get(from + 10) != ' '
+        || buffer.get(from + 13) != ':') {
+      return INVALID_TIME;
+    }
+    int day = digits(buffer, from, 2);
+    int month = digits(buffer, from + 3, 2);
+    int year = digits(buffer, from + 6, 4);
+    int hour = digits(buffer, from + 11, 2);
+    int minute = digits(buffer, from + 14, 2);
+    if (day < 1
+        || month < 1
+        || month > 12
+        || year < 0
+        || day > lengthOfMonth(year, month)
+        || hour < 0
+        || hour > 23
+        || minute < 0
+        || minute > 59) {
+      return INVALID_TIME;
+    }
+    return epochDay(year, month, day) * 1440L + hour * 60L + minute;
+  }
+
+  private static int digits(ByteBuffer buffer, int from, int count) {
+    int value = 0;
+    for (int i = from; i < from + count; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    return switch (month) {
+      case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      case 4, 6, 9, 11 -> 30;
+      default -> 31;
+    };
+  }
+
+  /** Days since 1970-01-01 for a proleptic Gregorian date (H. Hinnant's days_from_civil). */
+  static long epochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146_097 + dayOfEra - 719_468;
+  }
+
+  /**
+   * Parses a decimal number from the mapped bytes. Plain decimals whose digits fit in 53 bits with
+   * a power-of-ten exponent of at most 22 are computed exactly with one multiplication or division;
+   * anything else falls back to {@link Double#parseDouble}. Sets {@link #numberValid}.
+   */
+  double parseDouble(ByteBuffer buffer, int from, int to) {
+    numberValid = false;
+    int i = from;
+    boolean negative = false;
+    if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+      negative = buffer.get(i) == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int exponent = 0;
+    boolean anyDigit = false;
+    byte c;
+    while (i < to && (c = buffer.get(i)) >= '0' && c <= '9') {
+      mantissa = mantissa * 10 + (c - '0');
+      anyDigit = true;
+      if (mantissa > MAX_EXACT_MANTISSA) {
+        return parseSlow(buffer, from, to);
+      }
+      i++;
+    }
+    if (i < to && buffer.get(i) == '.') {
+      i++;
+      while (i < to && (c = buffer.get(i)) >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        exponent--;
+        anyDigit = true;
+        if (mantissa > MAX_EXACT_MANTISSA) {
+          return parseSlow(buffer, from, to);
+        }
+        i++;
+      }
+    }
+    if (!anyDigit) {
+      return parseSlow(buffer, from, to);
+    }
+    if (i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+      i++;
+      boolean negativeExponent = false;
+      if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+        negativeExponent = buffer.get(i) == '-';
+        i++;
+      }
+      int value = 0;
+      int start = i;
+      while (i < to && (c = buffer.get(i)) >= '0' && c <= '9' && value < 1000) {
+        value = value * 10 + (c - '0');
+        i++;
+      }
+      if (i == start) {
+        return parseSlow(buffer, from, to);
+      }
+      exponent += negativeExponent ? -value : value;
+    }
+    if (i != to || exponent < -22 || exponent > 22) {
+      return parseSlow(buffer, from, to);
+    }
+    double value =
+        exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+    numberValid = true;
+    return negative ? -value : value;
+  }
+
+  private double parseSlow(ByteBuffer buffer, int from, int to) {
+    if (from >= to) {
+      return Double.NaN;
+    }
+    try {
+      double value = Double.parseDouble(text(buffer, from, to));
+      numberValid = true;
+      return value;
+    } catch (NumberFormatException ex) {
+      return Double.NaN;
+    }
+  }
+
+  private void malformed(ByteBuffer buffer, int from, int to) {
+    log.warn("Skipping malformed row: {}", text(buffer, from, to));
+  }
+
+  private static String text(ByteBuffer buffer, int from, int to) {
+    byte[] bytes = new byte[to - from];
+    buffer.get(from, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,187 @@
+// path: server/src/main/java/com/greenko/windfarm/csv/MinuteAggregationTable.java
+package com.greenko.windfarm.csv;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from a packed {@code (epoch minute, device index)} key to the summed
+ * energy of every row with that key. Keys and values live in parallel primitive arrays.
+ *
+ * <p>A table that tracks duplicates also logs every value of a key seen more than once, so that
+ * {@link #mergeInto} can replay them and produce exactly the floating-point sum a single sequential
+ * pass over the whole file would have.
+ */
+final class MinuteAggregationTable {
+  static final int DEVICE_BITS = 24;
+  static final int MAX_DEVICES = 1 << DEVICE_BITS;
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private long[] keys;
+  private double[] values;
+  private int[] counts;
+  private int size;
+  private final boolean trackDuplicates;
+  private long[] duplicateKeys = new long[0];
+  private double[] duplicateValues = new double[0];
+  private int duplicates;
+
+  MinuteAggregationTable(int expected) {
+    this(expected, false);
+  }
+
+  MinuteAggregationTable(int expected, boolean trackDuplicates) {
+    int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+    this.trackDuplicates = trackDuplicates;
+    keys = new long[capacity];
+    values = new double[capacity];
+    counts = trackDuplicates ? new int[capacity] : null;
+    Arrays.fill(keys, EMPTY);
+  }
+
+  static long key(long epochMinute, int deviceIndex) {
+    return (epochMinute << DEVICE_BITS) | deviceIndex;
+  }
+
+  static long epochMinute(long key) {
+    return key >> DEVICE_BITS;
+  }
+
+  static int deviceIndex(long key) {
+    return (int) (key & (MAX_DEVICES - 1));
+  }
+
+  void add(long key, double value) {
+    int mask = keys.length - 1;
+    for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        if (trackDuplicates) {
+          if (counts[slot] == 1) {
+            logDuplicate(key, values[slot]);
+          }
+          logDuplicate(key, value);
+          counts[slot]++;
+        }
+        values[slot] += value;
+        return;
+      }
+      if (keys[slot] == EMPTY) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (trackDuplicates) {
+          counts[slot] = 1;
+        }
+        if (++size * 2 > keys.length) {
+          grow();
+        }
+        return;
+      }
+    }
+  }
+
+  double get(long key) {
+    int slot = slotOf(key);
+    return slot < 0 ? 0d : values[slot];
+  }
+
+  boolean contains(long key) {
+    return slotOf(key) >= 0;
+  }
+
+  /**
+   * Adds this table's sums to {@code target}, rewriting device indexes through {@code deviceRemap}.
+   * Keys the target already holds and that occurred more than once here are replayed value by
+   * value, in file order, so the result matches one sequential pass.
+   */
+  void mergeInto(MinuteAggregationTable target, int[] deviceRemap) {
+    if (!trackDuplicates) {
+      throw new IllegalStateException("Merging requires a table that tracks duplicates");
+    }
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] == EMPTY) {
+        continue;
+      }
+      long remapped = remap(keys[slot], deviceRemap);
+      if (counts[slot] > 1 && target.contains(remapped)) {
+        counts[slot] = -1;
+      } else {
+        target.add(remapped, values[slot]);
+      }
+    }
+    for (int i = 0; i < duplicates; i++) {
+      if (counts[slotOf(duplicateKeys[i])] < 0) {
+        target.add(remap(duplicateKeys[i], deviceRemap), duplicateValues[i]);
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Copies the occupied keys into a new array, in table order. */
+  long[] keys() {
+    long[] result = new long[size];
+    int next = 0;
+    for (long key : keys) {
+      if (key != EMPTY) {
+        result[next++] = key;
+      }
+    }
+    return result;
+  }
+
+  private int slotOf(long key) {
+    int mask = keys.length - 1;
+    for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      if (keys[slot] == EMPTY) {
+        return -1;
+      }
+    }
+  }
+
+  private static long remap(long key, int[] deviceRemap) {
+    return key(epochMinute(key), deviceRemap[deviceIndex(key)]);
+  }
+
+  private void logDuplicate(long key, double value) {
+    if (duplicates == duplicateKeys.length) {
+      int capacity = Math.max(16, duplicates * 2);
+      duplicateKeys = Arrays.copyOf(duplicateKeys, capacity);
+      duplicateValues = Arrays.copyOf(duplicateValues, capacity);
+    }
+    duplicateKeys[duplicates] = key;
+    duplicateValues[duplicates++] = value;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    double[] oldValues = values;
+    int[] oldCounts = counts;
+    keys = new long[oldKeys.length * 2];
+    values = new double[oldValues.length * 2];
+    counts = trackDuplicates ? new int[keys.length] : null;
+    Arrays.fill(keys, EMPTY);
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = mix(oldKeys[i]) & mask;
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        if (trackDuplicates) {
+          counts[slot] = oldCounts[i];
+        }
+      }
+    }
+  }
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,190 @@
+// path: server/src/main/java/com/greenko/windfarm/csv/SnapshotCache.java
+package com.greenko.windfarm.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.DoubleSummaryStatistics;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk copy of a {@link DatasetSnapshot}, written after a CSV parse and mapped on later starts
+ * while the source CSV is unchanged.
+ *
+ * <p>Layout (little-endian): a 48-byte header with magic, format version, the source CSV's size,
+ * modification time and CRC32C, the row, device and raw-row counts and a CRC32C of everything after
+ * the header; the power statistics; the device dictionary as length-prefixed UTF-8; then the
+ * epoch-second, device-id, energy and power columns, each 8-byte aligned.
+ */
+final class SnapshotCache {
+  static final int MAGIC = 0x57464453; // "WFDS"
+  static final int VERSION = 1;
+  private static final int HEADER_BYTES = 48;
+  private static final int STATISTICS_BYTES = 32;
+  private static final long CRC_WINDOW = 1L << 30;
+
+  private SnapshotCache() {}
+
+  /**
+   * Identity of the CSV a snapshot was built from. Size and modification time are read from the
+   * file system; the content CRC32C reads the whole file, so it is computed only on demand.
+   */
+  record Source(Path csv, long size, long modifiedMillis) {
+    static Source of(Path csv) throws IOException {
+      return new Source(csv, Files.size(csv), Files.getLastModifiedTime(csv).toMillis());
+    }
+
+    int crc() throws IOException {
+      try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+        return SnapshotCache.crc(channel, 0, channel.size());
+      }
+    }
+  }
+
+  /**
+   * Maps {@code cache} and copies its columns into a snapshot, or returns {@code null} if the file
+   * is missing, was written by another format version, belongs to a different source or fails its
+   * checksum. The source is matched on size and modification time, and also on its content CRC when
+   * {@code verifySource} is set.
+   */
+  static DatasetSnapshot read(Path cache, Source source, boolean verifySource) throws IOException {
+    if (!Files.isRegularFile(cache)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < HEADER_BYTES + STATISTICS_BYTES || length > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.getInt(0) != MAGIC
+          || buffer.getInt(4) != VERSION
+          || buffer.getLong(8) != source.size()
+          || buffer.getLong(16) != source.modifiedMillis()
+          || (verifySource && buffer.getInt(24) != source.crc())) {
+        return null;
+      }
+      int rows = buffer.getInt(28);
+      int deviceCount = buffer.getInt(32);
+      int rawRows = buffer.getInt(36);
+      int payloadCrc = buffer.getInt(40);
+      if (rows <= 0 || crc(channel, HEADER_BYTES, length - HEADER_BYTES) != payloadCrc) {
+        return null;
+      }
+
+      buffer.position(HEADER_BYTES);
+      long count = buffer.getLong();
+      double sum = buffer.getDouble();
+      double min = buffer.getDouble();
+      double max = buffer.getDouble();
+      String[] devices = new String[deviceCount];
+      for (int i = 0; i < deviceCount; i++) {
+        byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(name);
+        devices[i] = new String(name, StandardCharsets.UTF_8);
+      }
+      align(buffer);
+      long[] epochSeconds = new long[rows];
+      buffer.asLongBuffer().get(epochSeconds);
+      buffer.position(buffer.position() + rows * Long.BYTES);
+      int[] deviceIds = new int[rows];
+      buffer.asIntBuffer().get(deviceIds);
+      buffer.position(buffer.position() + rows * Integer.BYTES);
+      align(buffer);
+      double[] energy = new double[rows];
+      buffer.asDoubleBuffer().get(energy);
+      buffer.position(buffer.position() + rows * Double.BYTES);
+      double[] power = new double[rows];
+      buffer.asDoubleBuffer().get(power);
+      return new DatasetSnapshot(
+          epochSeconds,
+          deviceIds,
+          energy,
+          power,
+          devices,
+          rawRows,
+          new DoubleSummaryStatistics(count, min, max, sum));
+    }
+  }
+
+  /** Writes {@code snapshot} to a temporary file and atomically moves it over {@code cache}. */
+  static void write(Path cache, DatasetSnapshot snapshot, Source source) throws IOException {
+    int sourceCrc = source.crc();
+    int rows = snapshot.size();
+    String[] devices = snapshot.deviceDictionary();
+    byte[][] names = new byte[devices.length][];
+    long length = HEADER_BYTES + STATISTICS_BYTES;
+    for (int i = 0; i < devices.length; i++) {
+      names[i] = devices[i].getBytes(StandardCharsets.UTF_8);
+      length += Short.BYTES + names[i].length;
+    }
+    length = alignUp(length) + (long) rows * Long.BYTES;
+    length = alignUp(length + (long) rows * Integer.BYTES) + 2L * rows * Double.BYTES;
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Snapshot of " + rows + " rows exceeds 2 GiB");
+    }
+
+    Path directory = cache.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, cache.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel =
+          FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putLong(source.size()).putLong(source.modifiedMillis()).putInt(sourceCrc);
+        buffer.putInt(rows).putInt(devices.length).putInt(snapshot.rawRowCount());
+        buffer.position(HEADER_BYTES);
+        DoubleSummaryStatistics statistics = snapshot.powerStatistics();
+        buffer.putLong(statistics.getCount()).putDouble(statistics.getSum());
+        buffer.putDouble(statistics.getMin()).putDouble(statistics.getMax());
+        for (byte[] name : names) {
+          buffer.putShort((short) name.length).put(name);
+        }
+        align(buffer);
+        buffer.asLongBuffer().put(snapshot.epochSecondColumn());
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        buffer.asIntBuffer().put(snapshot.deviceIdColumn());
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        align(buffer);
+        buffer.asDoubleBuffer().put(snapshot.energyColumn());
+        buffer.position(buffer.position() + rows * Double.BYTES);
+        buffer.asDoubleBuffer().put(snapshot.powerColumn());
+        buffer.force();
+        buffer.putInt(40, crc(channel, HEADER_BYTES, length - HEADER_BYTES));
+        buffer.force();
+      }
+      Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static int crc(FileChannel channel, long position, long length) throws IOException {
+    CRC32C crc = new CRC32C();
+    long end = position + length;
+    while (position < end) {
+      long window = Math.min(CRC_WINDOW, end - position);
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, window));
+      position += window;
+    }
+    return (int) crc.getValue();
+  }
+
+  private static void align(ByteBuffer buffer) {
+    buffer.position((int) alignUp(buffer.position()));
+  }
+
+  private static long alignUp(long position) {
+    return (position + 7) & ~7L;
+  }
+}
@@ -0,0 +1,163 @@
+// path: server/src/main/java/com/greenko/windfarm/event/BusConsumer.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * One subscriber of the {@link TelemetryEventBus} ring. Each consumer owns its sequence and a
+ * thread that walks the ring and hands matching events to a {@link FluxSink}, honouring downstream
+ * demand. Only {@link OverflowPolicy#BLOCK} consumers gate the producer; the others detect that the
+ * producer lapped them and recover according to their policy.
+ */
+final class BusConsumer implements Runnable {
+  private static final Logger log = LoggerFactory.getLogger(BusConsumer.class);
+  private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final TelemetryEventBus bus;
+  private final String name;
+  private final OverflowPolicy policy;
+  private final Predicate<String> deviceFilter;
+  private final FluxSink<TelemetryRecord> sink;
+  private final AtomicLong sequence;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Map<String, TelemetryRecord> conflated = new LinkedHashMap<>();
+  private long lastWarnNanos = System.nanoTime() - WARN_INTERVAL_NANOS;
+  private volatile boolean running = true;
+
+  BusConsumer(
+      TelemetryEventBus bus,
+      String name,
+      OverflowPolicy policy,
+      Predicate<String> deviceFilter,
+      FluxSink<TelemetryRecord> sink,
+      long startSequence) {
+    this.bus = bus;
+    this.name = name;
+    this.policy = policy;
+    this.deviceFilter = deviceFilter;
+    this.sink = sink;
+    this.sequence = new AtomicLong(startSequence);
+  }
+
+  @Override
+  public void run() {
+    long next = sequence.get() + 1;
+    try {
+      while (running) {
+        long available = bus.waitStrategy().waitFor(next, bus.cursorSequence(), this::isRunning);
+        while (next <= available && running) {
+          TelemetrySlot slot = bus.slot(next);
+          String deviceId = slot.deviceId(next);
+          if (deviceId != null && deviceFilter.test(deviceId)) {
+            TelemetryRecord record = slot.read(next);
+            if (record == null) {
+              deviceId = null;
+            } else {
+              deliver(record);
+            }
+          }
+          if (deviceId == null) {
+            next = recoverFromOverflow(next);
+            break;
+          }
+          sequence.lazySet(next);
+          next++;
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException ex) {
+      log.error("Telemetry bus consumer {} failed", name, ex);
+      sink.error(ex);
+    } finally {
+      bus.remove(this);
+    }
+  }
+
+  /**
+   * Called when the slot for {@code lapped} was overwritten before this consumer read it.
+   *
+   * @return the next sequence to read
+   */
+  private long recoverFromOverflow(long lapped) {
+    long head = bus.cursorSequence().get();
+    long oldest = Math.max(lapped, head - bus.capacity() + 1);
+    long resume;
+    if (policy == OverflowPolicy.CONFLATE) {
+      conflated.clear();
+      for (long candidate = oldest; candidate <= head; candidate++) {
+        TelemetryRecord record = bus.slot(candidate).read(candidate);
+        if (record != null && deviceFilter.test(record.deviceId())) {
+          conflated.remove(record.deviceId());
+          conflated.put(record.deviceId(), record);
+        }
+      }
+      conflated.values().forEach(this::deliver);
+      dropped.addAndGet(Math.max(0, head - lapped + 1 - conflated.size()));
+      conflated.clear();
+      resume = head + 1;
+    } else {
+      // Resume half a ring behind the head so the consumer is not lapped again immediately.
+      resume = Math.max(lapped + 1, head - bus.capacity() / 2 + 1);
+      dropped.addAndGet(resume - lapped);
+    }
+    sequence.lazySet(resume - 1);
+    long now = System.nanoTime();
+    if (now - lastWarnNanos >= WARN_INTERVAL_NANOS) {
+      lastWarnNanos = now;
+      log.warn(
+          "Telemetry bus consumer {} fell a full ring behind ({}); {} events skipped so far",
+          name,
+          policy,
+          dropped.get());
+    }
+    return resume;
+  }
+
+  private void deliver(TelemetryRecord record) {
+    while (sink.requestedFromDownstream() == 0) {
+      if (!running || sink.isCancelled()) {
+        return;
+      }
+      LockSupport.parkNanos(20_000);
+    }
+    sink.next(record);
+  }
+
+  String name() {
+    return name;
+  }
+
+  OverflowPolicy policy() {
+    return policy;
+  }
+
+  long sequence() {
+    return sequence.get();
+  }
+
+  long lag() {
+    return Math.max(0, bus.cursorSequence().get() - sequence.get());
+  }
+
+  long dropped() {
+    return dropped.get();
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  void stop() {
+    running = false;
+  }
+}
@@ -0,0 +1,76 @@
+// path: server/src/main/java/com/greenko/windfarm/event/DeviceSelector.java
+package com.greenko.windfarm.event;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Devices a stream subscriber wants: every device, or an explicit set of device ids and/or device
+ * group prefixes. Construction drops ids and prefixes already covered by a shorter prefix, so a
+ * device matches at most one entry of a selector.
+ */
+public record DeviceSelector(Set<String> devices, Set<String> prefixes) {
+  private static final DeviceSelector ALL = new DeviceSelector(Set.of(), Set.of());
+
+  public DeviceSelector {
+    devices = Set.copyOf(devices);
+    prefixes = Set.copyOf(prefixes);
+  }
+
+  public static DeviceSelector all() {
+    return ALL;
+  }
+
+  public static DeviceSelector device(String deviceId) {
+    return of(List.of(deviceId), List.of());
+  }
+
+  /** Builds a selector from ids and prefixes, ignoring blank entries; none at all selects all. */
+  public static DeviceSelector of(Collection<String> devices, Collection<String> prefixes) {
+    TreeSet<String> minimalPrefixes = new TreeSet<>();
+    for (String prefix : new TreeSet<>(clean(prefixes))) {
+      if (!coveredBy(prefix, minimalPrefixes)) {
+        minimalPrefixes.add(prefix);
+      }
+    }
+    Set<String> ids = new TreeSet<>();
+    for (String device : clean(devices)) {
+      if (!coveredBy(device, minimalPrefixes)) {
+        ids.add(device);
+      }
+    }
+    if (ids.isEmpty() && minimalPrefixes.isEmpty()) {
+      return ALL;
+    }
+    return new DeviceSelector(ids, minimalPrefixes);
+  }
+
+  public boolean isAll() {
+    return devices.isEmpty() && prefixes.isEmpty();
+  }
+
+  public boolean matches(String deviceId) {
+    return isAll() || devices.contains(deviceId) || coveredBy(deviceId, prefixes);
+  }
+
+  private static boolean coveredBy(String value, Collection<String> prefixes) {
+    for (String prefix : prefixes) {
+      if (value.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Set<String> clean(Collection<String> values) {
+    Set<String> cleaned = new TreeSet<>();
+    for (String value : values) {
+      if (value != null && !value.isBlank()) {
+        cleaned.add(value.trim());
+      }
+    }
+    return cleaned;
+  }
+}
@@ -0,0 +1,50 @@
+// path: server/src/main/java/com/greenko/windfarm/event/LatestValueSlots.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The latest record of every device a conflated stream has seen. Each device owns one slot that
+ * arrivals overwrite in place; {@link #drainChanged()} returns only the slots written since the
+ * previous call, so a frame carries at most one record per device however fast the ingest rate.
+ */
+final class LatestValueSlots {
+  private final Map<String, Slot> slots = new HashMap<>();
+  private final List<Slot> changed = new ArrayList<>();
+
+  synchronized void update(TelemetryRecord record) {
+    Slot slot = slots.computeIfAbsent(record.deviceId(), id -> new Slot());
+    slot.latest = record;
+    if (!slot.changed) {
+      slot.changed = true;
+      changed.add(slot);
+    }
+  }
+
+  /** Latest records of the devices updated since the last drain, in order of first change. */
+  synchronized List<TelemetryRecord> drainChanged() {
+    if (changed.isEmpty()) {
+      return List.of();
+    }
+    List<TelemetryRecord> records = new ArrayList<>(changed.size());
+    for (Slot slot : changed) {
+      records.add(slot.latest);
+      slot.changed = false;
+    }
+    changed.clear();
+    return records;
+  }
+
+  synchronized int devices() {
+    return slots.size();
+  }
+
+  private static final class Slot {
+    private TelemetryRecord latest;
+    private boolean changed;
+  }
+}
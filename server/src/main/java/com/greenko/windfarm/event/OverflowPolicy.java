@@ -0,0 +1,12 @@
+// path: server/src/main/java/com/greenko/windfarm/event/OverflowPolicy.java
+package com.greenko.windfarm.event;
+
+/** What a {@link TelemetryEventBus} consumer does when it falls a full ring behind the producer. */
+public enum OverflowPolicy {
+  /** The producer waits for the consumer; nothing is lost. Reserve for consumers that keep up. */
+  BLOCK,
+  /** The consumer skips the oldest events and resumes close to the head of the ring. */
+  DROP_OLDEST,
+  /** The consumer skips ahead but still receives the latest event of every device in the ring. */
+  CONFLATE
+}
@@ -0,0 +1,119 @@
+// path: server/src/main/java/com/greenko/windfarm/event/ReplayRing.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent telemetry events, numbered by a sequence that only ever grows. Reconnecting SSE
+ * clients are caught up from here while the gap is still in the ring. One thread appends at a time
+ * (the {@link SseHub} does so under its fan-out lock) while any thread reads: a reader bounds its
+ * scan by a sequence it captured earlier and skips the slots overwritten since.
+ */
+final class ReplayRing {
+  /** An event and the sequence number it was published under. */
+  record Entry(long sequence, TelemetryRecord record) {}
+
+  private final AtomicReferenceArray<Entry> entries;
+  private final int mask;
+  // Published after the slot is written, so every sequence below it can be read.
+  private volatile long next;
+
+  ReplayRing(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Replay capacity must be between 1 and 2^30");
+    }
+    int size = Integer.highestOneBit(capacity);
+    size = size < capacity ? size << 1 : size;
+    this.entries = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /** Stores {@code record}, overwriting the oldest once full, and returns its sequence. */
+  long append(TelemetryRecord record) {
+    long sequence = next;
+    entries.set((int) sequence & mask, new Entry(sequence, record));
+    next = sequence + 1;
+    return sequence;
+  }
+
+  boolean isEmpty() {
+    return next == 0;
+  }
+
+  /** Sequence of the newest event, or -1 while the ring is empty. */
+  long lastSequence() {
+    return next - 1;
+  }
+
+  /** Sequence of the oldest event still held. */
+  long oldestSequence() {
+    return Math.max(0, next - entries.length());
+  }
+
+  /** Time of the oldest event still held; only valid when the ring is not empty. */
+  Instant oldestTime() {
+    while (true) {
+      long sequence = oldestSequence();
+      Entry entry = entries.get((int) sequence & mask);
+      if (entry.sequence() == sequence) {
+        return entry.record().time();
+      }
+      // Overwritten after the oldest sequence was read; the ring has moved on.
+    }
+  }
+
+  /** Whether every event published after {@code sequence} is still held. */
+  boolean coversAfter(long sequence) {
+    return coversAfter(sequence, lastSequence());
+  }
+
+  /** Whether every event published after {@code sequence}, up to {@code through}, is still held. */
+  boolean coversAfter(long sequence, long through) {
+    return sequence >= oldestSequence() - 1 && sequence <= through;
+  }
+
+  /** Events published after {@code sequence} that {@code selector} matches, oldest first. */
+  List<Entry> after(long sequence, DeviceSelector selector) {
+    return after(sequence, lastSequence(), selector);
+  }
+
+  /**
+   * Events published after {@code sequence}, up to {@code through}, that {@code selector} matches.
+   */
+  List<Entry> after(long sequence, long through, DeviceSelector selector) {
+    return collect(sequence + 1, through, null, selector);
+  }
+
+  /** Held events stamped at or after {@code time} that {@code selector} matches, oldest first. */
+  List<Entry> since(Instant time, DeviceSelector selector) {
+    return since(time, lastSequence(), selector);
+  }
+
+  /**
+   * Held events up to {@code through}, stamped at or after {@code time}, matching {@code selector}.
+   */
+  List<Entry> since(Instant time, long through, DeviceSelector selector) {
+    return collect(0, through, time, selector);
+  }
+
+  private List<Entry> collect(long from, long through, Instant notBefore, DeviceSelector selector) {
+    List<Entry> collected = new ArrayList<>();
+    for (long sequence = Math.max(from, oldestSequence()); sequence <= through; sequence++) {
+      Entry entry = entries.get((int) sequence & mask);
+      if (entry.sequence() != sequence) {
+        // Overwritten while this scan ran: that event is no longer held.
+        continue;
+      }
+      TelemetryRecord record = entry.record();
+      if ((notBefore == null || !record.time().isBefore(notBefore))
+          && selector.matches(record.deviceId())) {
+        collected.add(entry);
+      }
+    }
+    return collected;
+  }
+}
@@ -0,0 +1,438 @@
+// path: server/src/main/java/com/greenko/windfarm/event/SseClient.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.config.WindfarmProperties.Sse.SlowClientPolicy;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * One Server-Sent Events connection with a bounded outbound queue drained by its own virtual
+ * thread. {@link #offer} never blocks, so a peer that stops reading only fills its own queue; once
+ * the queue is full the {@link SlowClientPolicy} decides what gives.
+ *
+ * <p>Only the drain thread touches the emitter. {@link #close} just stops it, because completing
+ * the emitter waits for the monitor a blocked write holds; the drain thread completes it once that
+ * write returns, so neither the fan-out nor the heartbeat wheel ever waits on a peer.
+ *
+ * <p>A conflated client receives no per-record frames. Records only overwrite its {@link
+ * LatestValueSlots}, which the hub flushes as one batched frame per tick of the client's frame
+ * rate.
+ */
+public final class SseClient {
+  private static final Logger log = LoggerFactory.getLogger(SseClient.class);
+  private static final AtomicLong IDS = new AtomicLong();
+  private static final long NOT_WRITING = Long.MIN_VALUE;
+
+  /** What happened to a frame handed to {@link #offer}. */
+  enum Outcome {
+    /** Queued with room to spare. */
+    QUEUED,
+    /** Queued after discarding the oldest frame. */
+    DROPPED_OLDEST,
+    /** Replaced the frame already queued for the same device. */
+    CONFLATED,
+    /** The queue was full and the client was disconnected. */
+    EVICTED,
+    /** The client is already closed. */
+    CLOSED
+  }
+
+  /** What {@link #heartbeat} did when the client's heartbeat came due. */
+  enum Heartbeat {
+    /** A heartbeat was queued. */
+    SENT,
+    /** Not needed: a frame was written recently, or frames are still waiting to be written. */
+    SKIPPED,
+    /** Writes made no progress for the idle timeout, so the client was disconnected. */
+    IDLE,
+    /** The client is already closed. */
+    CLOSED
+  }
+
+  /** Point-in-time counters of one connection. */
+  public record Stats(
+      long id,
+      Set<String> devices,
+      Set<String> prefixes,
+      double fps,
+      int queued,
+      long lagMillis,
+      long sent,
+      long dropped,
+      long conflated,
+      boolean evicted) {}
+
+  private final long id = IDS.incrementAndGet();
+  private final SseEmitter emitter;
+  private final DeviceSelector selector;
+  private final int capacity;
+  private final SlowClientPolicy policy;
+  private final Consumer<SseClient> onClose;
+  private final double fps;
+  private final LatestValueSlots latest;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final ArrayDeque<Pending> queue;
+  private final Map<String, Pending> pendingByDevice;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicLong sent = new AtomicLong();
+  private long dropped;
+  private long conflated;
+  private volatile boolean evicted;
+  // When the last data frame (not a heartbeat) finished writing, and when the write in progress
+  // started; together they tell a quiet connection from one whose peer stopped reading. A new
+  // client counts as long quiet, so its heartbeats follow whatever deadline the hub picked.
+  private volatile long lastDataNanos = System.nanoTime() - Long.MAX_VALUE / 4;
+  private volatile long writeStartedNanos = NOT_WRITING;
+
+  SseClient(
+      SseEmitter emitter,
+      DeviceSelector selector,
+      int capacity,
+      SlowClientPolicy policy,
+      Consumer<SseClient> onClose) {
+    this(emitter, selector, capacity, policy, 0, onClose);
+  }
+
+  /** A client that receives the latest value of each changed device {@code fps} times a second. */
+  SseClient(
+      SseEmitter emitter,
+      DeviceSelector selector,
+      int capacity,
+      SlowClientPolicy policy,
+      double fps,
+      Consumer<SseClient> onClose) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("SSE queue capacity must be positive");
+    }
+    this.emitter = emitter;
+    this.selector = selector;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.onClose = onClose;
+    this.fps = fps;
+    this.latest = fps > 0 ? new LatestValueSlots() : null;
+    this.queue = new ArrayDeque<>(capacity);
+    this.pendingByDevice = policy == SlowClientPolicy.CONFLATE ? new HashMap<>() : null;
+  }
+
+  /** Starts the virtual thread that writes queued frames to the emitter. */
+  SseClient start() {
+    return start(List::of);
+  }
+
+  /**
+   * Starts the drain thread, which first writes the frames {@code replay} returns and then the
+   * queue. The supplier runs on that thread, so a slow catch-up query only delays this client; live
+   * frames queue up meanwhile under the usual full-queue policy.
+   */
+  SseClient start(Supplier<List<SseFrame>> replay) {
+    Thread.ofVirtual().name("sse-client-" + id).start(() -> drain(replay));
+    return this;
+  }
+
+  /** Queues {@code frame} for {@code deviceId} without blocking. */
+  Outcome offer(SseFrame frame, String deviceId) {
+    Outcome outcome = Outcome.QUEUED;
+    lock.lock();
+    try {
+      if (closed.get()) {
+        return Outcome.CLOSED;
+      }
+      if (queue.size() >= capacity) {
+        switch (policy) {
+          case DISCONNECT -> outcome = Outcome.EVICTED;
+          case CONFLATE -> {
+            Pending pending = pendingByDevice.get(deviceId);
+            if (pending != null) {
+              // Keeps its place in the queue and the time it was first queued.
+              pending.frame = frame;
+              conflated++;
+              return Outcome.CONFLATED;
+            }
+            dropOldest();
+            outcome = Outcome.DROPPED_OLDEST;
+          }
+          case DROP_OLDEST -> {
+            dropOldest();
+            outcome = Outcome.DROPPED_OLDEST;
+          }
+        }
+      }
+      if (outcome != Outcome.EVICTED) {
+        Pending pending = new Pending(deviceId, frame, System.nanoTime());
+        queue.addLast(pending);
+        if (pendingByDevice != null && deviceId != null) {
+          pendingByDevice.put(deviceId, pending);
+        }
+        notEmpty.signal();
+        return outcome;
+      }
+    } finally {
+      lock.unlock();
+    }
+    evicted = true;
+    log.debug("Evicting SSE client {} with {} frames queued", id, capacity);
+    close();
+    return outcome;
+  }
+
+  boolean isConflated() {
+    return latest != null;
+  }
+
+  double fps() {
+    return fps;
+  }
+
+  /** Overwrites the device's slot; only valid for conflated clients. */
+  void conflate(TelemetryRecord record) {
+    latest.update(record);
+  }
+
+  /** Latest records of the devices that changed since the previous tick. */
+  List<TelemetryRecord> drainChanged() {
+    return latest.drainChanged();
+  }
+
+  /** Queues a heartbeat unless frames are already waiting, which keep the connection alive. */
+  void offerHeartbeat() {
+    lock.lock();
+    try {
+      if (!closed.get() && queue.isEmpty()) {
+        queue.addLast(new Pending(null, SseFrame.HEARTBEAT, System.nanoTime()));
+        notEmpty.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Called by the heartbeat wheel when this client is due. Queues a heartbeat only if no data was
+   * written for {@code intervalNanos} and nothing is waiting, and disconnects the client if one
+   * write has been blocked for {@code idleTimeoutNanos} (0 disables that): its peer stopped
+   * reading.
+   */
+  Heartbeat heartbeat(long nowNanos, long intervalNanos, long idleTimeoutNanos) {
+    long started = writeStartedNanos;
+    if (started != NOT_WRITING) {
+      if (idleTimeoutNanos <= 0 || nowNanos - started < idleTimeoutNanos) {
+        return closed.get() ? Heartbeat.CLOSED : Heartbeat.SKIPPED;
+      }
+      evicted = true;
+      log.debug(
+          "Evicting SSE client {}: a write is blocked for {} ms",
+          id,
+          TimeUnit.NANOSECONDS.toMillis(nowNanos - started));
+      close();
+      return Heartbeat.IDLE;
+    }
+    lock.lock();
+    try {
+      if (closed.get()) {
+        return Heartbeat.CLOSED;
+      }
+      if (!queue.isEmpty() || nowNanos - lastDataNanos < intervalNanos) {
+        return Heartbeat.SKIPPED;
+      }
+      offerHeartbeat();
+      return Heartbeat.SENT;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * When the heartbeat wheel should look at a skipped client again: one interval after its last
+   * data, or one interval from now if that has passed, but no later than a blocked write turns
+   * idle.
+   */
+  long nextHeartbeat(long nowNanos, long intervalNanos, long idleTimeoutNanos) {
+    long next = lastDataNanos + intervalNanos;
+    if (next - nowNanos <= 0) {
+      next = nowNanos + intervalNanos;
+    }
+    long started = writeStartedNanos;
+    if (started != NOT_WRITING && idleTimeoutNanos > 0 && started + idleTimeoutNanos - next < 0) {
+      next = started + idleTimeoutNanos;
+    }
+    return next;
+  }
+
+  /**
+   * Stops the drain thread and notifies the owner once. The emitter is completed by the drain
+   * thread after the write in progress, if any, returns.
+   */
+  void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    lock.lock();
+    try {
+      queue.clear();
+      if (pendingByDevice != null) {
+        pendingByDevice.clear();
+      }
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+    onClose.accept(this);
+  }
+
+  boolean isClosed() {
+    return closed.get();
+  }
+
+  SseEmitter emitter() {
+    return emitter;
+  }
+
+  int queued() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Stats stats() {
+    lock.lock();
+    try {
+      Pending head = queue.peekFirst();
+      long lag = head == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.queued);
+      return new Stats(
+          id,
+          selector.devices(),
+          selector.prefixes(),
+          fps,
+          queue.size(),
+          lag,
+          sent.get(),
+          dropped,
+          conflated,
+          evicted);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void dropOldest() {
+    Pending oldest = queue.pollFirst();
+    forget(oldest);
+    dropped++;
+  }
+
+  private void forget(Pending pending) {
+    if (pendingByDevice != null && pending.deviceId != null) {
+      pendingByDevice.remove(pending.deviceId, pending);
+    }
+  }
+
+  private SseFrame take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (queue.isEmpty()) {
+        if (closed.get()) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      Pending next = queue.pollFirst();
+      forget(next);
+      return next.frame;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void drain(Supplier<List<SseFrame>> replay) {
+    Throwable failure = null;
+    try {
+      for (SseFrame frame : replay(replay)) {
+        if (closed.get()) {
+          return;
+        }
+        write(frame);
+      }
+      for (SseFrame frame = take(); frame != null && !closed.get(); frame = take()) {
+        write(frame);
+      }
+    } catch (IOException ex) {
+      log.debug("SSE client {} disconnected", id, ex);
+      failure = ex;
+    } catch (IllegalStateException ex) {
+      // The emitter was already completed, by a timeout for instance.
+      log.debug("SSE client {} disconnected", id, ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      close();
+      complete(failure);
+    }
+  }
+
+  private void complete(Throwable failure) {
+    try {
+      if (failure == null) {
+        emitter.complete();
+      } else {
+        emitter.completeWithError(failure);
+      }
+    } catch (RuntimeException ex) {
+      log.debug("Failed to complete SSE emitter {}", id, ex);
+    }
+  }
+
+  private void write(SseFrame frame) throws IOException {
+    writeStartedNanos = System.nanoTime();
+    try {
+      emitter.send(frame);
+    } finally {
+      if (frame != SseFrame.HEARTBEAT) {
+        lastDataNanos = System.nanoTime();
+      }
+      writeStartedNanos = NOT_WRITING;
+    }
+    sent.incrementAndGet();
+  }
+
+  private List<SseFrame> replay(Supplier<List<SseFrame>> replay) {
+    try {
+      return replay.get();
+    } catch (RuntimeException ex) {
+      // The client still gets the live stream; it just misses the gap.
+      log.warn("Failed to replay missed events to SSE client {}", id, ex);
+      return List.of();
+    }
+  }
+
+  private static final class Pending {
+    private final String deviceId;
+    private final long queued;
+    private SseFrame frame;
+
+    private Pending(String deviceId, SseFrame frame, long queued) {
+      this.deviceId = deviceId;
+      this.frame = frame;
+      this.queued = queued;
+    }
+  }
+}
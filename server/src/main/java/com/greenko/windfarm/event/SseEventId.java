@@ -0,0 +1,47 @@
+// path: server/src/main/java/com/greenko/windfarm/event/SseEventId.java
+package com.greenko.windfarm.event;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The {@code id} of a telemetry SSE event, echoed back by browsers as {@code Last-Event-ID}. It is
+ * {@code <boot>-<sequence>@<time>}: the sequence locates the event in this process's {@link
+ * ReplayRing}, the boot tag tells sequences of an earlier process apart, and the time is the
+ * fallback position when the sequence cannot be used. Events replayed from the database, and those
+ * of older servers, carry just the time.
+ */
+record SseEventId(String boot, long sequence, Instant time) {
+  static final long NO_SEQUENCE = -1;
+
+  static String format(String boot, long sequence, Instant time) {
+    return boot + "-" + sequence + "@" + time;
+  }
+
+  /** Parses a {@code Last-Event-ID} header, or returns {@code null} if it is not one of ours. */
+  static SseEventId parse(String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      int at = value.indexOf('@');
+      if (at < 0) {
+        return new SseEventId(null, NO_SEQUENCE, Instant.parse(value.trim()));
+      }
+      int dash = value.lastIndexOf('-', at);
+      if (dash <= 0) {
+        return null;
+      }
+      return new SseEventId(
+          value.substring(0, dash),
+          Long.parseLong(value, dash + 1, at, 10),
+          Instant.parse(value.substring(at + 1)));
+    } catch (DateTimeParseException | NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  boolean isFrom(String currentBoot) {
+    return sequence >= 0 && currentBoot.equals(boot);
+  }
+}
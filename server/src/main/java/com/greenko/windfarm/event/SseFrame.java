@@ -0,0 +1,113 @@
+// path: server/src/main/java/com/greenko/windfarm/event/SseFrame.java
+package com.greenko.windfarm.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+/**
+ * A complete Server-Sent Events frame encoded once to UTF-8 and written verbatim to every
+ * connection. Passing it to {@link
+ * org.springframework.web.servlet.mvc.method.annotation.SseEmitter#send(SseEventBuilder)} hands the
+ * shared {@code byte[]} to the byte-array message converter, so no per-client serialization or
+ * copying takes place. Frames are immutable; the builder methods are unsupported.
+ */
+public final class SseFrame implements SseEventBuilder {
+  public static final SseFrame HEARTBEAT = of("event:heartbeat\n:keep-alive\n\n");
+
+  private final byte[] bytes;
+  private final Set<DataWithMediaType> parts;
+
+  private SseFrame(byte[] bytes) {
+    this.bytes = bytes;
+    this.parts = Set.of(new DataWithMediaType(bytes, MediaType.TEXT_PLAIN));
+  }
+
+  /** Encodes {@code record} as JSON into an {@code id}/{@code event}/{@code data} frame. */
+  public static SseFrame event(
+      String id, String name, TelemetryRecord record, ObjectMapper mapper) {
+    return event(id, name, record, mapper, record.deviceId());
+  }
+
+  /** Encodes {@code records} as one JSON array, for a frame that batches several devices. */
+  public static SseFrame batch(
+      String id, String name, List<TelemetryRecord> records, ObjectMapper mapper) {
+    return event(id, name, records, mapper, records.size() + " records");
+  }
+
+  private static SseFrame event(
+      String id, String name, Object data, ObjectMapper mapper, String description) {
+    byte[] json;
+    try {
+      json = mapper.writeValueAsBytes(data);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Failed to encode telemetry for " + description, ex);
+    }
+    byte[] head = ("id:" + id + "\nevent:" + name + "\ndata:").getBytes(StandardCharsets.UTF_8);
+    byte[] frame = Arrays.copyOf(head, head.length + json.length + 2);
+    System.arraycopy(json, 0, frame, head.length, json.length);
+    frame[frame.length - 2] = '\n';
+    frame[frame.length - 1] = '\n';
+    return new SseFrame(frame);
+  }
+
+  static SseFrame of(String frame) {
+    return new SseFrame(frame.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Length of the encoded frame in bytes. */
+  public int length() {
+    return bytes.length;
+  }
+
+  @Override
+  public Set<DataWithMediaType> build() {
+    return parts;
+  }
+
+  @Override
+  public String toString() {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public SseEventBuilder id(String id) {
+    throw immutable();
+  }
+
+  @Override
+  public SseEventBuilder name(String eventName) {
+    throw immutable();
+  }
+
+  @Override
+  public SseEventBuilder reconnectTime(long reconnectTimeMillis) {
+    throw immutable();
+  }
+
+  @Override
+  public SseEventBuilder comment(String comment) {
+    throw immutable();
+  }
+
+  @Override
+  public SseEventBuilder data(Object object) {
+    throw immutable();
+  }
+
+  @Override
+  public SseEventBuilder data(Object object, MediaType mediaType) {
+    throw immutable();
+  }
+
+  private static UnsupportedOperationException immutable() {
+    return new UnsupportedOperationException("SSE frame is already encoded");
+  }
+}
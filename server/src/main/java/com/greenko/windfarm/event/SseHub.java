@@ -1,19 +1,32 @@
 // path: server/src/main/java/com/greenko/windfarm/event/SseHub.java
 package com.greenko.windfarm.event;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenko.windfarm.config.WindfarmProperties;
 import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.repository.TelemetryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.Disposable;
@@ -21,8 +34,37 @@ import reactor.core.Disposable;
 @Component
 public class SseHub {
   private static final Logger log = LoggerFactory.getLogger(SseHub.class);
+  // Upper bound of a catch-up query when no event has been published since startup.
+  private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+  // Slots of the heartbeat wheel, which spans one heartbeat interval; at 30s a tick is ~120ms.
+  private static final int HEARTBEAT_SLOTS = 256;
   private final TelemetryEventBus eventBus;
-  private final Map<SseEmitter, Optional<String>> emitters = new ConcurrentHashMap<>();
+  private final ObjectMapper objectMapper;
+  private final TelemetryRepository repository;
+  private final WindfarmProperties.Sse properties;
+  private final SubscriberIndex<SseClient> clients = new SubscriberIndex<>();
+  // Tags event ids so sequences handed out by an earlier process are never looked up in this ring.
+  private final String boot = Long.toString(System.currentTimeMillis(), 36);
+  private final ReplayRing replayRing;
+  // Held while an event is appended to the ring and queued, and while a client is added and the
+  // newest sequence captured, so that every event reaches a reconnecting client exactly once:
+  // replayed up to that sequence or live after it. The replay itself is read without the lock.
+  private final ReentrantLock fanoutLock = new ReentrantLock();
+  // Identical catch-up queries (a reconnect storm after a deploy) share one round trip.
+  private final Map<CatchUp, CompletableFuture<List<TelemetryRecord>>> catchUps =
+      new ConcurrentHashMap<>();
+  private final Counter droppedCounter;
+  private final Counter conflatedCounter;
+  private final Counter evictionCounter;
+  private final Counter replayedFromMemory;
+  private final Counter replayedFromDatabase;
+  private final Counter heartbeatCounter;
+  private final Counter idleEvictionCounter;
+  private final long heartbeatIntervalNanos;
+  private final long idleTimeoutNanos;
+  // Each client sits in the slot of its next heartbeat, so a tick only visits the clients due in
+  // it instead of sweeping every connection at once.
+  private final TimerWheel<SseClient> heartbeats;
   private final ScheduledExecutorService heartbeatScheduler =
       Executors.newSingleThreadScheduledExecutor(
           runnable -> {
@@ -30,86 +72,332 @@ public class SseHub {
             thread.setDaemon(true);
             return thread;
           });
+  // One thread is plenty: a tick only drains a client's slots, encodes one frame and enqueues it.
+  private final ScheduledExecutorService conflationScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "sse-conflation");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final Map<SseClient, ScheduledFuture<?>> conflationTicks = new ConcurrentHashMap<>();
   private Disposable subscription;
 
-  public SseHub(TelemetryEventBus eventBus) {
+  public SseHub(
+      TelemetryEventBus eventBus,
+      ObjectMapper objectMapper,
+      TelemetryRepository repository,
+      WindfarmProperties properties,
+      MeterRegistry meterRegistry) {
     this.eventBus = eventBus;
+    this.objectMapper = objectMapper;
+    this.repository = repository;
+    this.properties = properties.getSse();
+    this.replayRing = new ReplayRing(this.properties.getReplayCapacity());
+    this.heartbeatIntervalNanos = this.properties.getHeartbeatInterval().toNanos();
+    this.idleTimeoutNanos = this.properties.getIdleTimeout().toNanos();
+    if (heartbeatIntervalNanos < HEARTBEAT_SLOTS) {
+      throw new IllegalArgumentException("SSE heartbeat interval is too short");
+    }
+    this.heartbeats =
+        new TimerWheel<>(
+            System.nanoTime(),
+            heartbeatIntervalNanos / HEARTBEAT_SLOTS,
+            HEARTBEAT_SLOTS,
+            this::heartbeat);
+    this.droppedCounter =
+        Counter.builder("windfarm.sse.dropped")
+            .description("SSE frames discarded from full client queues")
+            .register(meterRegistry);
+    this.conflatedCounter =
+        Counter.builder("windfarm.sse.conflated")
+            .description("SSE frames that replaced a queued frame of the same device")
+            .register(meterRegistry);
+    this.evictionCounter =
+        Counter.builder("windfarm.sse.evictions")
+            .description("SSE clients disconnected because their queue was full")
+            .register(meterRegistry);
+    this.replayedFromMemory =
+        Counter.builder("windfarm.sse.replayed")
+            .description("Events replayed to reconnecting SSE clients")
+            .tag("source", "memory")
+            .register(meterRegistry);
+    this.replayedFromDatabase =
+        Counter.builder("windfarm.sse.replayed")
+            .description("Events replayed to reconnecting SSE clients")
+            .tag("source", "database")
+            .register(meterRegistry);
+    this.heartbeatCounter =
+        Counter.builder("windfarm.sse.heartbeats")
+            .description("Heartbeats queued to SSE clients that had no data for an interval")
+            .register(meterRegistry);
+    this.idleEvictionCounter =
+        Counter.builder("windfarm.sse.idle.evictions")
+            .description("SSE clients disconnected because a write stayed blocked")
+            .register(meterRegistry);
+    Gauge.builder("windfarm.sse.clients", clients, SubscriberIndex::size)
+        .description("Open SSE connections")
+        .register(meterRegistry);
+    Gauge.builder("windfarm.sse.queue.max", this, SseHub::maxQueued)
+        .description("Deepest outbound queue across SSE connections")
+        .register(meterRegistry);
   }
 
   @PostConstruct
   void start() {
     subscription =
-        eventBus.stream()
+        eventBus.stream("sse", OverflowPolicy.DROP_OLDEST)
             .subscribe(this::broadcast, error -> log.error("SSE hub encountered error", error));
-    heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats, 30, 30, TimeUnit.SECONDS);
+    long tick = heartbeats.tickNanos();
+    heartbeatScheduler.scheduleAtFixedRate(
+        this::advanceHeartbeats, tick, tick, TimeUnit.NANOSECONDS);
   }
 
-  public SseEmitter register(Optional<String> deviceId) {
-    SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(30));
-    emitter.onCompletion(() -> emitters.remove(emitter));
-    emitter.onTimeout(
-        () -> {
-          emitters.remove(emitter);
-          emitter.complete();
-        });
+  /** Opens a stream that receives every record of the selected devices. */
+  public SseEmitter register(DeviceSelector selector) {
+    return register(selector, null);
+  }
+
+  /**
+   * Opens a stream that receives every record of the selected devices, starting with the ones
+   * published after {@code lastEventId} (the {@code Last-Event-ID} a reconnecting browser sends).
+   * The gap is served from the in-memory replay ring; only the part older than the ring is read
+   * from the database. Events stamped with the same time as the last one may be repeated.
+   */
+  public SseEmitter register(DeviceSelector selector, String lastEventId) {
+    return open(selector, 0, SseEventId.parse(lastEventId));
+  }
+
+  /**
+   * Opens a stream that receives, {@code fps} times a second, one {@code telemetry-batch} event
+   * holding the latest record of each selected device that changed since the previous one.
+   */
+  public SseEmitter registerConflated(DeviceSelector selector, double fps) {
+    if (!(fps > 0 && fps <= properties.getMaxFps())) {
+      throw new IllegalArgumentException(
+          "fps must be greater than 0 and at most " + properties.getMaxFps());
+    }
+    // A conflated client only shows current values, which its first ticks bring up to date.
+    return open(selector, fps, null);
+  }
+
+  private SseEmitter open(DeviceSelector selector, double fps, SseEventId lastEventId) {
+    SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+    SseClient client =
+        new SseClient(
+            emitter,
+            selector,
+            properties.getQueueCapacity(),
+            properties.getSlowClientPolicy(),
+            fps,
+            this::closed);
+    // Whatever ends the request - completion, timeout or a write error seen by Spring - closes the
+    // client, which stops its drain thread and drops it from the index.
+    emitter.onCompletion(client::close);
+    emitter.onTimeout(client::close);
     emitter.onError(
         ex -> {
-          emitters.remove(emitter);
-          log.debug("Removed errored emitter", ex);
+          log.debug("Closing errored SSE client", ex);
+          client.close();
         });
-    emitters.put(emitter, deviceId.filter(id -> !id.isBlank()));
     try {
+      // Sent before the drain thread starts so it is always the first event on the stream.
       emitter.send(SseEmitter.event().name("init").data("connected").reconnectTime(3000));
     } catch (IOException e) {
       log.debug("Failed to send initial SSE message", e);
     }
+    long through;
+    fanoutLock.lock();
+    try {
+      through = replayRing.lastSequence();
+      clients.add(client, selector);
+    } finally {
+      fanoutLock.unlock();
+    }
+    client.start(lastEventId == null ? List::of : replay(lastEventId, selector, through));
+    // A random first deadline spreads a reconnect storm evenly over the interval; after that each
+    // client keeps its own phase.
+    heartbeats.schedule(
+        client,
+        System.nanoTime() + ThreadLocalRandom.current().nextLong(1, heartbeatIntervalNanos + 1));
+    if (client.isConflated()) {
+      long periodNanos = Math.round(TimeUnit.SECONDS.toNanos(1) / fps);
+      conflationTicks.put(
+          client,
+          conflationScheduler.scheduleAtFixedRate(
+              () -> flushConflated(client), periodNanos, periodNanos, TimeUnit.NANOSECONDS));
+      if (client.isClosed()) {
+        // Closed before the tick was registered, so closed() had nothing to cancel.
+        closed(client);
+      }
+    }
     return emitter;
   }
 
+  private void closed(SseClient client) {
+    clients.remove(client);
+    ScheduledFuture<?> tick = conflationTicks.remove(client);
+    if (tick != null) {
+      tick.cancel(false);
+    }
+  }
+
+  /**
+   * Returns the supplier the client's own thread calls to encode the events {@code last} missed, up
+   * to {@code through}, the newest sequence when the client joined; later events reach it live. The
+   * ring is read there too, so a reconnect storm never holds up the fan-out.
+   */
+  private Supplier<List<SseFrame>> replay(SseEventId last, DeviceSelector selector, long through) {
+    return () -> {
+      boolean inRing = last.isFrom(boot) && replayRing.coversAfter(last.sequence(), through);
+      // Falls back to the database only for the part of the gap older than the ring.
+      Instant oldestTime = replayRing.isEmpty() ? null : replayRing.oldestTime();
+      CatchUp catchUp =
+          !inRing && (oldestTime == null || oldestTime.isAfter(last.time()))
+              ? new CatchUp(last.time(), oldestTime == null ? END_OF_TIME : oldestTime)
+              : null;
+      List<ReplayRing.Entry> fromRing =
+          inRing
+              ? replayRing.after(last.sequence(), through, selector)
+              : replayRing.since(last.time(), through, selector);
+      List<SseFrame> frames = new ArrayList<>();
+      if (catchUp != null) {
+        for (TelemetryRecord record : catchUp(catchUp)) {
+          if (selector.matches(record.deviceId())) {
+            // No sequence: a client that drops again mid catch-up resumes by time.
+            frames.add(SseFrame.event(record.time().toString(), "telemetry", record, objectMapper));
+          }
+        }
+        replayedFromDatabase.increment(frames.size());
+      }
+      for (ReplayRing.Entry entry : fromRing) {
+        frames.add(frame(entry.sequence(), entry.record()));
+      }
+      replayedFromMemory.increment(fromRing.size());
+      return frames;
+    };
+  }
+
+  private List<TelemetryRecord> catchUp(CatchUp range) {
+    CompletableFuture<List<TelemetryRecord>> query = new CompletableFuture<>();
+    CompletableFuture<List<TelemetryRecord>> running = catchUps.putIfAbsent(range, query);
+    if (running != null) {
+      return running.join();
+    }
+    try {
+      List<TelemetryRecord> rows =
+          repository.findBetween(range.from(), range.to(), properties.getReplayMaxRows());
+      if (rows.size() >= properties.getReplayMaxRows()) {
+        log.warn(
+            "SSE catch-up from {} was cut at {} rows; older events are not replayed",
+            range.from(),
+            rows.size());
+      }
+      query.complete(rows);
+      return rows;
+    } catch (RuntimeException ex) {
+      query.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      catchUps.remove(range, query);
+    }
+  }
+
   private void broadcast(TelemetryRecord record) {
-    emitters.entrySet().removeIf(entry -> {
-      try {
-        return !send(entry.getKey(), entry.getValue(), record);
-      } catch (Exception e) {
-        log.debug("Error during broadcast, removing emitter", e);
-        // Don't try to complete emitters that are already in error state
-        return true; // Remove this emitter
+    fanoutLock.lock();
+    try {
+      long sequence = replayRing.append(record);
+      // Encoded lazily, at most once, and the same bytes are queued for every matching client.
+      SseFrame[] frame = new SseFrame[1];
+      // Only the subscribers of this device (or of all devices) are visited, and only to enqueue:
+      // the writes happen on each client's own thread, so a stalled peer never delays the others.
+      clients.forEach(record.deviceId(), client -> {
+        if (client.isConflated()) {
+          // Conflated clients only keep the latest value; their tick encodes and sends it.
+          client.conflate(record);
+          return;
+        }
+        if (frame[0] == null) {
+          frame[0] = frame(sequence, record);
+        }
+        count(client.offer(frame[0], record.deviceId()));
+      });
+    } finally {
+      fanoutLock.unlock();
+    }
+  }
+
+  private SseFrame frame(long sequence, TelemetryRecord record) {
+    return SseFrame.event(
+        SseEventId.format(boot, sequence, record.time()), "telemetry", record, objectMapper);
+  }
+
+  private void flushConflated(SseClient client) {
+    try {
+      List<TelemetryRecord> changed = client.drainChanged();
+      if (changed.isEmpty()) {
+        return;
+      }
+      Instant newest = changed.get(0).time();
+      for (TelemetryRecord record : changed) {
+        if (record.time().isAfter(newest)) {
+          newest = record.time();
+        }
       }
-    });
+      // A batch has no single device, so it is never conflated with another queued frame.
+      count(client.offer(
+          SseFrame.batch(newest.toString(), "telemetry-batch", changed, objectMapper), null));
+    } catch (RuntimeException ex) {
+      // An exception would cancel the periodic task and silently freeze this client's stream.
+      log.warn("Failed to flush conflated SSE frame", ex);
+    }
   }
 
-  private boolean send(SseEmitter emitter, Optional<String> filter, TelemetryRecord record) {
-    if (filter.isPresent() && !filter.get().equals(record.deviceId())) {
-      return true;
+  private void count(SseClient.Outcome outcome) {
+    switch (outcome) {
+      case DROPPED_OLDEST -> droppedCounter.increment();
+      case CONFLATED -> conflatedCounter.increment();
+      case EVICTED -> evictionCounter.increment();
+      default -> {
+        // queued, or the client closed concurrently and is being removed
+      }
     }
+  }
+
+  private void advanceHeartbeats() {
     try {
-      emitter.send(
-          SseEmitter.event()
-              .name("telemetry")
-              .data(record, MediaType.APPLICATION_JSON)
-              .id(record.time().toString()));
-      return true;
-    } catch (IOException ex) {
-      log.debug("Removing SSE emitter due to send failure", ex);
-      // Don't try to complete - just remove from map
-      return false;
-    } catch (IllegalStateException ex) {
-      log.debug("SSE emitter already in invalid state, removing", ex);
-      return false;
+      heartbeats.advance(System.nanoTime());
+    } catch (RuntimeException ex) {
+      // An exception would cancel the periodic task and stop every heartbeat.
+      log.warn("Failed to advance SSE heartbeats", ex);
     }
   }
 
-  private void sendHeartbeats() {
-    emitters.keySet().removeIf(emitter -> {
-      try {
-        emitter.send(SseEmitter.event().name("heartbeat").comment("keep-alive"));
-        return false; // Keep this emitter
-      } catch (IOException | IllegalStateException e) {
-        log.debug("Removing disconnected emitter during heartbeat", e);
-        // Don't try to complete - just remove from map
-        return true; // Remove this emitter
+  private long heartbeat(SseClient client, long deadline, long now) {
+    switch (client.heartbeat(now, heartbeatIntervalNanos, idleTimeoutNanos)) {
+      case SENT -> {
+        heartbeatCounter.increment();
+        // From the deadline, not from now: a late tick must not pull clients into the same slot.
+        long next = deadline + heartbeatIntervalNanos;
+        if (next - now <= 0) {
+          // More than an interval behind; skip the missed beats rather than send them in a burst.
+          next += ((now - next) / heartbeatIntervalNanos + 1) * heartbeatIntervalNanos;
+        }
+        return next;
+      }
+      case IDLE -> {
+        idleEvictionCounter.increment();
+        return TimerWheel.CANCEL;
+      }
+      case CLOSED -> {
+        // Closed clients stay on the wheel until their next deadline, which drops them here.
+        return TimerWheel.CANCEL;
+      }
+      default -> {
+        // Skipped: due again one interval after the data that kept the connection alive.
+        return client.nextHeartbeat(now, heartbeatIntervalNanos, idleTimeoutNanos);
       }
-    });
+    }
   }
 
   @PreDestroy
@@ -118,11 +406,27 @@ public class SseHub {
       subscription.dispose();
     }
     heartbeatScheduler.shutdownNow();
-    emitters.keySet().forEach(SseEmitter::complete);
-    emitters.clear();
+    conflationScheduler.shutdownNow();
+    clients.forEachSubscriber(SseClient::close);
   }
 
   public int connectionCount() {
-    return emitters.size();
+    return clients.size();
+  }
+
+  /** Queue depth, lag and drop counters of every open connection, most backed-up first. */
+  public List<SseClient.Stats> clientStats() {
+    List<SseClient.Stats> stats = new ArrayList<>();
+    clients.forEachSubscriber(client -> stats.add(client.stats()));
+    stats.sort(Comparator.comparingInt(SseClient.Stats::queued).reversed());
+    return stats;
   }
+
+  private int maxQueued() {
+    int[] max = new int[1];
+    clients.forEachSubscriber(client -> max[0] = Math.max(max[0], client.queued()));
+    return max[0];
+  }
+
+  private record CatchUp(Instant from, Instant to) {}
 }
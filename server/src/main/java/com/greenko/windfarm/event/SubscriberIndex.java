@@ -0,0 +1,97 @@
+// path: server/src/main/java/com/greenko/windfarm/event/SubscriberIndex.java
+package com.greenko.windfarm.event;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Stream subscribers indexed by the devices they selected, so fan-out of a record only visits the
+ * subscribers that want it: the exact-device set for its id, the set of every matching device group
+ * prefix and the "all devices" set. Safe for concurrent registration, removal and dispatch.
+ *
+ * @param <S> subscriber handle, compared by identity or {@code equals}
+ */
+public class SubscriberIndex<S> {
+  private final Map<S, DeviceSelector> selectors = new ConcurrentHashMap<>();
+  private final Set<S> all = ConcurrentHashMap.newKeySet();
+  private final Map<String, Set<S>> byDevice = new ConcurrentHashMap<>();
+  private final Map<String, Set<S>> byPrefix = new ConcurrentHashMap<>();
+
+  public void add(S subscriber, DeviceSelector selector) {
+    if (selectors.putIfAbsent(subscriber, selector) != null) {
+      throw new IllegalStateException("Subscriber is already registered");
+    }
+    if (selector.isAll()) {
+      all.add(subscriber);
+      return;
+    }
+    selector.devices().forEach(id -> join(byDevice, id, subscriber));
+    selector.prefixes().forEach(prefix -> join(byPrefix, prefix, subscriber));
+  }
+
+  /** Removes {@code subscriber}; returns {@code false} if it was not registered. */
+  public boolean remove(S subscriber) {
+    DeviceSelector selector = selectors.remove(subscriber);
+    if (selector == null) {
+      return false;
+    }
+    if (selector.isAll()) {
+      all.remove(subscriber);
+      return true;
+    }
+    selector.devices().forEach(id -> leave(byDevice, id, subscriber));
+    selector.prefixes().forEach(prefix -> leave(byPrefix, prefix, subscriber));
+    return true;
+  }
+
+  /** Calls {@code action} once for every subscriber whose selector matches {@code deviceId}. */
+  public void forEach(String deviceId, Consumer<? super S> action) {
+    all.forEach(action);
+    Set<S> exact = byDevice.get(deviceId);
+    if (exact != null) {
+      exact.forEach(action);
+    }
+    if (!byPrefix.isEmpty()) {
+      byPrefix.forEach(
+          (prefix, subscribers) -> {
+            if (deviceId.startsWith(prefix)) {
+              subscribers.forEach(action);
+            }
+          });
+    }
+  }
+
+  /** Calls {@code action} for every registered subscriber. */
+  public void forEachSubscriber(Consumer<? super S> action) {
+    selectors.keySet().forEach(action);
+  }
+
+  public DeviceSelector selector(S subscriber) {
+    return selectors.get(subscriber);
+  }
+
+  public int size() {
+    return selectors.size();
+  }
+
+  private static <S> void join(Map<String, Set<S>> index, String key, S subscriber) {
+    index.compute(
+        key,
+        (__, subscribers) -> {
+          Set<S> joined = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+          joined.add(subscriber);
+          return joined;
+        });
+  }
+
+  private static <S> void leave(Map<String, Set<S>> index, String key, S subscriber) {
+    index.computeIfPresent(
+        key,
+        (__, subscribers) -> {
+          subscribers.remove(subscriber);
+          return subscribers.isEmpty() ? null : subscribers;
+        });
+  }
+}
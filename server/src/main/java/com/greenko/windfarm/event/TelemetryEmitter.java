@@ -3,12 +3,10 @@ package com.greenko.windfarm.event;
 
 import com.greenko.windfarm.config.WindfarmProperties;
 import com.greenko.windfarm.csv.DatasetLoader;
-import com.greenko.windfarm.csv.DatasetLoader.DatasetSnapshot;
-import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.csv.DatasetSnapshot;
 import jakarta.annotation.PostConstruct;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -33,9 +31,10 @@ public class TelemetryEmitter implements DisposableBean {
   private final Environment environment;
   private final ScheduledExecutorService scheduler;
 
-  private List<TelemetryRecord> records;
+  private volatile DatasetSnapshot snapshot;
   private Duration interval;
   private Duration datasetSpan;
+  private Duration cycleOffset = Duration.ZERO;
   private final AtomicInteger index = new AtomicInteger();
   private final AtomicLong cycle = new AtomicLong();
 
@@ -62,14 +61,14 @@ public class TelemetryEmitter implements DisposableBean {
       return;
     }
     DatasetSnapshot snapshot = datasetLoader.loadDataset();
-    this.records = snapshot.records();
     this.interval = determineInterval();
     Instant start = snapshot.start();
     Instant end = snapshot.end();
     this.datasetSpan = Duration.between(start, end).plus(interval);
+    this.snapshot = snapshot;
     log.info(
         "Telemetry emitter started with {} normalized rows (interval={} ms)",
-        records.size(),
+        snapshot.size(),
         interval.toMillis());
     scheduler.scheduleAtFixedRate(this::emitNext, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
   }
@@ -93,17 +92,21 @@ public class TelemetryEmitter implements DisposableBean {
   }
 
   private void emitNext() {
-    if (records == null || records.isEmpty()) {
+    DatasetSnapshot dataset = snapshot;
+    if (dataset == null) {
       return;
     }
-    int currentIndex = index.getAndUpdate(i -> (i + 1) % records.size());
-    TelemetryRecord base = records.get(currentIndex);
-    long cycleNumber = cycle.get();
-    TelemetryRecord adjusted =
-        base.withTime(base.time().plus(datasetSpan.multipliedBy(cycleNumber)));
-    eventBus.publish(adjusted);
-    if (currentIndex == records.size() - 1) {
-      cycle.incrementAndGet();
+    int row = index.getAndUpdate(i -> (i + 1) % dataset.size());
+    Duration offset = cycleOffset;
+    eventBus.publish(
+        dataset.epochSecond(row) + offset.getSeconds(),
+        offset.getNano(),
+        dataset.deviceId(row),
+        dataset.energyKwh(row),
+        dataset.powerKw(row));
+    if (row == dataset.size() - 1) {
+      long cycleNumber = cycle.getAndIncrement();
+      cycleOffset = datasetSpan.multipliedBy(cycleNumber + 1);
       log.debug("Completed emitter cycle {}", cycleNumber);
     }
   }
@@ -1,29 +1,213 @@
 // path: server/src/main/java/com/greenko/windfarm/event/TelemetryEventBus.java
 package com.greenko.windfarm.event;
 
+import com.greenko.windfarm.config.WindfarmProperties;
 import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.FluxSink;
 
+/**
+ * Ring buffer that fans telemetry out from the producers to independent consumers.
+ *
+ * <p>Slots are allocated once and overwritten in place, so publishing does not allocate. Each
+ * consumer keeps its own sequence into the ring and runs on its own thread; {@link
+ * OverflowPolicy#BLOCK} consumers make the producer wait when they are a full ring behind, while
+ * the other policies let a slow consumer (such as SSE fan-out) skip events without holding back the
+ * database writer. Producers are serialized, which keeps the ring single-producer.
+ */
 @Component
 public class TelemetryEventBus {
   private static final Logger log = LoggerFactory.getLogger(TelemetryEventBus.class);
-  private final Sinks.Many<TelemetryRecord> sink =
-      Sinks.many().multicast().onBackpressureBuffer(5000, false);
+  private final TelemetrySlot[] ring;
+  private final int mask;
+  private final AtomicLong cursor = new AtomicLong(-1);
+  private final WaitStrategy waitStrategy;
+  private final List<BusConsumer> consumers = new CopyOnWriteArrayList<>();
+  private final Map<BusConsumer, List<Meter>> consumerMeters = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final AtomicInteger anonymousStreams = new AtomicInteger();
+  private final Object producerLock = new Object();
+  private long gatingSequence = -1;
+
+  public TelemetryEventBus(WindfarmProperties properties, MeterRegistry meterRegistry) {
+    int capacity = ceilingPowerOfTwo(Math.max(2, properties.getBus().getCapacity()));
+    this.ring = new TelemetrySlot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      ring[i] = new TelemetrySlot();
+    }
+    this.mask = capacity - 1;
+    this.waitStrategy = WaitStrategy.of(properties.getBus().getWaitStrategy());
+    this.meterRegistry = meterRegistry;
+  }
 
   public void publish(TelemetryRecord record) {
     Objects.requireNonNull(record, "record");
-    Sinks.EmitResult result = sink.tryEmitNext(record);
-    if (!result.isSuccess()) {
-      log.warn("Dropped telemetry event {} due to backpressure ({})", record, result);
+    publish(
+        record.time().getEpochSecond(),
+        record.time().getNano(),
+        record.deviceId(),
+        record.energyKwh(),
+        record.powerKw());
+  }
+
+  /**
+   * Publishes an event, waiting while a {@link OverflowPolicy#BLOCK} consumer is a full ring
+   * behind. The wait happens outside the producer lock, so {@link #tryPublish} callers are not held
+   * up by it. The event is discarded if the calling thread is interrupted while waiting.
+   */
+  public void publish(
+      long epochSecond, int nano, String deviceId, double energyKwh, double powerKw) {
+    Objects.requireNonNull(deviceId, "deviceId");
+    while (true) {
+      synchronized (producerLock) {
+        long next = cursor.get() + 1;
+        if (hasCapacity(next)) {
+          write(next, epochSecond, nano, deviceId, energyKwh, powerKw);
+          return;
+        }
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        log.warn("Interrupted while waiting for bus capacity; dropped event for {}", deviceId);
+        return;
+      }
+      LockSupport.parkNanos(10_000);
     }
   }
 
+  /**
+   * Publishes an event only if no {@link OverflowPolicy#BLOCK} consumer would have to be
+   * overwritten. Never waits for capacity, nor for a {@link #publish} that is waiting for it.
+   *
+   * @return {@code false} if the ring is full and the event was not published
+   */
+  public boolean tryPublish(
+      long epochSecond, int nano, String deviceId, double energyKwh, double powerKw) {
+    Objects.requireNonNull(deviceId, "deviceId");
+    synchronized (producerLock) {
+      long next = cursor.get() + 1;
+      if (!hasCapacity(next)) {
+        return false;
+      }
+      write(next, epochSecond, nano, deviceId, energyKwh, powerKw);
+      return true;
+    }
+  }
+
+  /** Compatibility adapter: every subscription is a {@link OverflowPolicy#DROP_OLDEST} consumer. */
   public Flux<TelemetryRecord> stream() {
-    return sink.asFlux();
+    return stream("stream-" + anonymousStreams.incrementAndGet(), OverflowPolicy.DROP_OLDEST);
+  }
+
+  public Flux<TelemetryRecord> stream(String name, OverflowPolicy policy) {
+    return stream(name, policy, deviceId -> true);
+  }
+
+  /**
+   * Subscribes a named consumer that only receives events whose device id matches {@code
+   * deviceFilter}. The filter runs on the ring slot, before an event is copied out of it. The
+   * consumer starts at the current head of the ring and is removed when the subscription ends.
+   */
+  public Flux<TelemetryRecord> stream(
+      String name, OverflowPolicy policy, Predicate<String> deviceFilter) {
+    return Flux.create(
+        sink -> {
+          BusConsumer consumer;
+          synchronized (producerLock) {
+            consumer = new BusConsumer(this, name, policy, deviceFilter, sink, cursor.get());
+            consumers.add(consumer);
+          }
+          registerMeters(consumer);
+          sink.onDispose(consumer::stop);
+          Thread thread = new Thread(consumer, "telemetry-bus-" + name);
+          thread.setDaemon(true);
+          thread.start();
+        },
+        FluxSink.OverflowStrategy.BUFFER);
+  }
+
+  private boolean hasCapacity(long next) {
+    long wrapPoint = next - ring.length;
+    if (wrapPoint <= gatingSequence) {
+      return true;
+    }
+    long minimum = next - 1;
+    for (BusConsumer consumer : consumers) {
+      if (consumer.policy() == OverflowPolicy.BLOCK) {
+        minimum = Math.min(minimum, consumer.sequence());
+      }
+    }
+    gatingSequence = minimum;
+    return wrapPoint <= minimum;
+  }
+
+  private void write(
+      long next, long epochSecond, int nano, String deviceId, double energyKwh, double powerKw) {
+    ring[(int) next & mask].write(next, epochSecond, nano, deviceId, energyKwh, powerKw);
+    cursor.set(next);
+    waitStrategy.signalAll();
+  }
+
+  private void registerMeters(BusConsumer consumer) {
+    consumerMeters.put(
+        consumer,
+        List.of(
+            Gauge.builder("windfarm.bus.lag", consumer, BusConsumer::lag)
+                .description("Events published but not yet consumed")
+                .tag("consumer", consumer.name())
+                .register(meterRegistry),
+            FunctionCounter.builder("windfarm.bus.dropped", consumer, BusConsumer::dropped)
+                .description("Events skipped because the consumer fell a full ring behind")
+                .tag("consumer", consumer.name())
+                .register(meterRegistry)));
+  }
+
+  void remove(BusConsumer consumer) {
+    consumers.remove(consumer);
+    List<Meter> meters = consumerMeters.remove(consumer);
+    if (meters != null) {
+      meters.forEach(meterRegistry::remove);
+    }
+  }
+
+  TelemetrySlot slot(long sequence) {
+    return ring[(int) sequence & mask];
+  }
+
+  AtomicLong cursorSequence() {
+    return cursor;
+  }
+
+  WaitStrategy waitStrategy() {
+    return waitStrategy;
+  }
+
+  int capacity() {
+    return ring.length;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    consumers.forEach(BusConsumer::stop);
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
   }
 }
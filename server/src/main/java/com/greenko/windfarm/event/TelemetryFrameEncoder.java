@@ -0,0 +1,139 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TelemetryFrameEncoder.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes batches of telemetry for the binary WebSocket stream. One encoder serves one connection:
+ * device ids are numbered in the order the connection first sees them and each name is sent once,
+ * in the frame that first uses it. Fixed-width integers are big-endian like the ingest format;
+ * varints are unsigned LEB128 and time deltas are zigzag-encoded first.
+ *
+ * <pre>
+ * u8      frame type, always 1 (telemetry)
+ * u8      value width in bytes: 4 (float32) or 8 (float64)
+ * varint  number of new devices d
+ * d x     varint length n, n bytes device id (UTF-8); indexes continue from the previous frame
+ * varint  number of records r
+ * i64     time of the first record, epoch milliseconds
+ * r x     varint zigzag time delta from the previous record in milliseconds (0 for the first)
+ *         varint device index
+ *         energy kWh, power kW as float32 or float64
+ * </pre>
+ *
+ * <p>A minute of readings for a fleet shares one timestamp, so a record usually costs one byte of
+ * time, one or two of device and 8 of values with float32.
+ */
+final class TelemetryFrameEncoder {
+  static final byte TELEMETRY_FRAME = 1;
+
+  private final boolean float64;
+  private final Map<String, Integer> deviceIndexes = new HashMap<>();
+  private final List<byte[]> newDevices = new ArrayList<>();
+  private byte[] buffer = new byte[4096];
+  private int position;
+
+  TelemetryFrameEncoder(boolean float64) {
+    this.float64 = float64;
+  }
+
+  /** Encodes {@code records}, in order, into one frame. */
+  byte[] encode(List<TelemetryRecord> records) {
+    if (records.isEmpty()) {
+      throw new IllegalArgumentException("A telemetry frame needs at least one record");
+    }
+    newDevices.clear();
+    int[] devices = new int[records.size()];
+    for (int i = 0; i < devices.length; i++) {
+      devices[i] = deviceIndex(records.get(i).deviceId());
+    }
+
+    position = 0;
+    putByte(TELEMETRY_FRAME);
+    putByte(float64 ? 8 : 4);
+    putVarint(newDevices.size());
+    for (byte[] name : newDevices) {
+      putVarint(name.length);
+      putBytes(name);
+    }
+    putVarint(records.size());
+    long previous = records.get(0).time().toEpochMilli();
+    putLong(previous);
+    for (int i = 0; i < devices.length; i++) {
+      TelemetryRecord record = records.get(i);
+      long time = record.time().toEpochMilli();
+      long delta = time - previous;
+      putVarint((delta << 1) ^ (delta >> 63));
+      previous = time;
+      putVarint(devices[i]);
+      if (float64) {
+        putLong(Double.doubleToRawLongBits(record.energyKwh()));
+        putLong(Double.doubleToRawLongBits(record.powerKw()));
+      } else {
+        putInt(Float.floatToRawIntBits((float) record.energyKwh()));
+        putInt(Float.floatToRawIntBits((float) record.powerKw()));
+      }
+    }
+    return Arrays.copyOf(buffer, position);
+  }
+
+  /** Number of device ids sent so far. */
+  int deviceCount() {
+    return deviceIndexes.size();
+  }
+
+  private int deviceIndex(String deviceId) {
+    Integer index = deviceIndexes.get(deviceId);
+    if (index == null) {
+      index = deviceIndexes.size();
+      deviceIndexes.put(deviceId, index);
+      newDevices.add(deviceId.getBytes(StandardCharsets.UTF_8));
+    }
+    return index;
+  }
+
+  private void ensure(int bytes) {
+    if (position + bytes > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+    }
+  }
+
+  private void putByte(int value) {
+    ensure(1);
+    buffer[position++] = (byte) value;
+  }
+
+  private void putBytes(byte[] bytes) {
+    ensure(bytes.length);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void putVarint(long value) {
+    ensure(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private void putInt(int value) {
+    ensure(4);
+    buffer[position++] = (byte) (value >>> 24);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void putLong(long value) {
+    putInt((int) (value >>> 32));
+    putInt((int) value);
+  }
+}
@@ -3,37 +3,80 @@ package com.greenko.windfarm.event;
 
 import com.greenko.windfarm.config.WindfarmProperties;
 import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.repository.BatchTelemetryWriter;
+import com.greenko.windfarm.repository.CopyTelemetryWriter;
+import com.greenko.windfarm.repository.DeviceDirectory;
+import com.greenko.windfarm.repository.TelemetryWriter;
+import com.greenko.windfarm.spool.SpoolDrainer;
+import com.greenko.windfarm.spool.TelemetrySpool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PreDestroy;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.stereotype.Service;
 import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 @Service
 public class TelemetryListener {
   private static final Logger log = LoggerFactory.getLogger(TelemetryListener.class);
-  private final JdbcTemplate jdbcTemplate;
+  private static final Pattern LANE_DIRECTORY = Pattern.compile("lane-(\\d+)");
+  private final TelemetryWriter writer;
   private final TelemetryEventBus eventBus;
   private final WindfarmProperties properties;
-  private Disposable subscription;
+  private final MeterRegistry meterRegistry;
+  private final List<Disposable> lanes = new ArrayList<>();
+  private final List<Scheduler> schedulers = new ArrayList<>();
+  private final List<TelemetrySpool> spools = new ArrayList<>();
+  private final List<SpoolDrainer> drainers = new ArrayList<>();
+  private final List<Thread> drainerThreads = new ArrayList<>();
   private final AtomicBoolean started = new AtomicBoolean();
 
   public TelemetryListener(
-      JdbcTemplate jdbcTemplate, TelemetryEventBus eventBus, WindfarmProperties properties) {
-    this.jdbcTemplate = jdbcTemplate;
+      JdbcTemplate jdbcTemplate,
+      TelemetryEventBus eventBus,
+      WindfarmProperties properties,
+      MeterRegistry meterRegistry,
+      ApplicationEventPublisher events,
+      DeviceDirectory devices) {
     this.eventBus = eventBus;
     this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.writer =
+        publishing(
+            registering(
+                createWriter(jdbcTemplate, properties.getListener().getWriteMode()), devices),
+            events);
     initialize();
   }
 
+  static TelemetryWriter createWriter(
+      JdbcTemplate jdbcTemplate, WindfarmProperties.Listener.WriteMode mode) {
+    TelemetryWriter batch = new BatchTelemetryWriter(jdbcTemplate);
+    return switch (mode) {
+      case BATCH -> batch;
+      case COPY -> new CopyTelemetryWriter(jdbcTemplate, batch);
+    };
+  }
+
   private void initialize() {
     if (!properties.getListener().isEnabled()) {
       log.info("Telemetry listener disabled via configuration");
@@ -41,33 +84,164 @@ public class TelemetryListener {
     }
     Duration flush = properties.getListener().getFlushInterval();
     int batchSize = properties.getListener().getBatchSize();
-    subscription =
-        eventBus.stream()
-            .publishOn(Schedulers.newSingle("telemetry-listener"))
-            .bufferTimeout(batchSize, flush)
-            .filter(batch -> !batch.isEmpty())
-            .subscribe(this::persistBatch, this::handleError);
+    int shards = Math.max(1, properties.getListener().getShards());
+    WindfarmProperties.Listener.Spool spool = properties.getListener().getSpool();
+    for (int lane = 0; lane < shards; lane++) {
+      int shard = lane;
+      Scheduler scheduler = Schedulers.newSingle("telemetry-listener-" + lane);
+      schedulers.add(scheduler);
+      Consumer<List<TelemetryRecord>> sink =
+          spool.isEnabled() ? openSpool(lane, false)::append : this::persistBatch;
+      Counter dropped =
+          Counter.builder("windfarm.listener.dropped")
+              .description("Telemetry rows dropped because their batch could not be stored")
+              .tag("lane", Integer.toString(lane))
+              .register(meterRegistry);
+      lanes.add(
+          eventBus.stream(
+                  "listener-" + lane,
+                  OverflowPolicy.BLOCK,
+                  deviceId -> shardOf(deviceId, shards) == shard)
+              .publishOn(scheduler)
+              .bufferTimeout(batchSize, flush, scheduler)
+              .filter(batch -> !batch.isEmpty())
+              .subscribe(isolating(sink, dropped), this::handleError));
+    }
+    if (spool.isEnabled()) {
+      drainOrphanedLanes(shards);
+    }
+    log.info(
+        "Telemetry listener persisting with {} writer across {} lanes (spool {})",
+        properties.getListener().getWriteMode(),
+        shards,
+        spool.isEnabled() ? spool.getDirectory().toAbsolutePath() : "disabled");
     started.set(true);
   }
 
+  /** Keeps the device registry current with every committed batch. */
+  static TelemetryWriter registering(TelemetryWriter writer, DeviceDirectory devices) {
+    return batch -> {
+      writer.write(batch);
+      if (!batch.isEmpty()) {
+        devices.observe(batch);
+      }
+    };
+  }
+
+  /**
+   * Announces every committed batch as a {@link TelemetryPersistedEvent}, whether it was written by
+   * a lane directly or drained from a spool.
+   */
+  static TelemetryWriter publishing(TelemetryWriter writer, ApplicationEventPublisher events) {
+    return batch -> {
+      writer.write(batch);
+      if (!batch.isEmpty()) {
+        events.publishEvent(TelemetryPersistedEvent.of(batch));
+      }
+    };
+  }
+
+  /**
+   * Keeps a lane alive when one batch cannot be written or spooled: the batch is dropped and
+   * counted, and the lane carries on with the next. Letting the exception through would end the
+   * lane's subscription, and every device hashed onto it would stop being persisted.
+   */
+  static Consumer<List<TelemetryRecord>> isolating(
+      Consumer<List<TelemetryRecord>> sink, Counter dropped) {
+    return batch -> {
+      try {
+        sink.accept(batch);
+      } catch (RuntimeException ex) {
+        dropped.increment(batch.size());
+        log.error("Dropped {} telemetry rows that could not be stored", batch.size(), ex);
+      }
+    };
+  }
+
+  /**
+   * Routes a device to a writer lane. Every record of a device lands on the same lane, which
+   * persists its batches one at a time, so per-device ordering is preserved.
+   */
+  static int shardOf(String deviceId, int shards) {
+    return Math.floorMod(deviceId.hashCode(), shards);
+  }
+
+  /**
+   * Opens the spool of a lane and starts the thread that drains it into the database. Lanes write
+   * batches to the spool instead of the database, so the event bus never waits on DB latency.
+   */
+  private TelemetrySpool openSpool(int lane, boolean stopWhenEmpty) {
+    WindfarmProperties.Listener.Spool config = properties.getListener().getSpool();
+    TelemetrySpool spool;
+    try {
+      spool =
+          new TelemetrySpool(
+              config.getDirectory().resolve("lane-" + lane),
+              (int) config.getSegmentSize().toBytes(),
+              config.getMaxSize().toBytes(),
+              config.isForce());
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to open telemetry spool for lane " + lane, ex);
+    }
+    spools.add(spool);
+    Gauge.builder("windfarm.listener.spool.depth", spool, TelemetrySpool::depth)
+        .description("Spooled telemetry rows not yet persisted to the database")
+        .tag("lane", Integer.toString(lane))
+        .register(meterRegistry);
+    Gauge.builder("windfarm.listener.spool.size", spool, TelemetrySpool::sizeBytes)
+        .description("Disk space taken by the spool segments")
+        .baseUnit("bytes")
+        .tag("lane", Integer.toString(lane))
+        .register(meterRegistry);
+    FunctionCounter.builder("windfarm.listener.spool.dropped", spool, TelemetrySpool::rejected)
+        .description("Telemetry rows dropped because the spool was full")
+        .tag("lane", Integer.toString(lane))
+        .register(meterRegistry);
+    FunctionCounter.builder(
+            "windfarm.listener.spool.quarantined", spool, TelemetrySpool::quarantined)
+        .description("Telemetry rows set aside after the database kept rejecting them")
+        .tag("lane", Integer.toString(lane))
+        .register(meterRegistry);
+    SpoolDrainer drainer =
+        new SpoolDrainer(
+            spool,
+            writer,
+            config.getRetryBackoff(),
+            config.getMaxRetryBackoff(),
+            config.getMaxAttempts(),
+            stopWhenEmpty);
+    drainers.add(drainer);
+    Thread thread = new Thread(drainer, "telemetry-spool-drainer-" + lane);
+    thread.setDaemon(true);
+    thread.start();
+    drainerThreads.add(thread);
+    return spool;
+  }
+
+  /** Replays spools left behind by lanes that no longer exist after the shard count shrank. */
+  private void drainOrphanedLanes(int shards) {
+    Path directory = properties.getListener().getSpool().getDirectory();
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (Stream<Path> children = Files.list(directory)) {
+      children
+          .map(path -> LANE_DIRECTORY.matcher(path.getFileName().toString()))
+          .filter(Matcher::matches)
+          .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+          .filter(lane -> lane >= shards)
+          .forEach(lane -> openSpool(lane, true));
+    } catch (IOException ex) {
+      log.warn("Failed to scan spool directory {} for orphaned lanes", directory, ex);
+    }
+  }
+
   private void handleError(Throwable throwable) {
     log.error("Telemetry listener terminated due to error", throwable);
   }
 
   private void persistBatch(List<TelemetryRecord> batch) {
-    jdbcTemplate.batchUpdate(
-        "INSERT INTO telemetry(time, device_id, energy_kwh) VALUES (?, ?, ?) "
-            + "ON CONFLICT (time, device_id) DO UPDATE SET energy_kwh = EXCLUDED.energy_kwh",
-        batch,
-        batch.size(),
-        new ParameterizedPreparedStatementSetter<>() {
-          @Override
-          public void setValues(PreparedStatement ps, TelemetryRecord record) throws SQLException {
-            ps.setObject(1, java.sql.Timestamp.from(record.time()));
-            ps.setString(2, record.deviceId());
-            ps.setDouble(3, record.energyKwh());
-          }
-        });
+    writer.write(batch);
     if (log.isDebugEnabled()) {
       log.debug("Persisted {} telemetry rows", batch.size());
     }
@@ -79,8 +253,16 @@ public class TelemetryListener {
 
   @PreDestroy
   public void shutdown() {
-    if (subscription != null && !subscription.isDisposed()) {
-      subscription.dispose();
+    lanes.forEach(Disposable::dispose);
+    schedulers.forEach(Scheduler::dispose);
+    drainers.forEach(SpoolDrainer::stop);
+    for (Thread thread : drainerThreads) {
+      try {
+        thread.join(Duration.ofSeconds(5));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
     }
+    spools.forEach(TelemetrySpool::close);
   }
 }
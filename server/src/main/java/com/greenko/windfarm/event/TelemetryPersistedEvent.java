@@ -0,0 +1,39 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TelemetryPersistedEvent.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published after telemetry has been committed to the database, so that results derived from the
+ * table can be dropped where it changed.
+ *
+ * @param from the earliest reading written, inclusive
+ * @param to the latest reading written, inclusive
+ * @param deviceIds the devices written
+ */
+public record TelemetryPersistedEvent(Instant from, Instant to, Set<String> deviceIds) {
+  public TelemetryPersistedEvent {
+    deviceIds = Set.copyOf(deviceIds);
+  }
+
+  /** Describes a non-empty batch. */
+  public static TelemetryPersistedEvent of(List<TelemetryRecord> batch) {
+    Instant from = batch.get(0).time();
+    Instant to = from;
+    Set<String> deviceIds = new HashSet<>();
+    for (TelemetryRecord record : batch) {
+      if (record.time().isBefore(from)) {
+        from = record.time();
+      }
+      if (record.time().isAfter(to)) {
+        to = record.time();
+      }
+      deviceIds.add(record.deviceId());
+    }
+    return new TelemetryPersistedEvent(from, to, deviceIds);
+  }
+}
@@ -0,0 +1,70 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TelemetrySlot.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+
+/**
+ * Pre-allocated, mutable ring buffer entry. Writes are published with a sequence lock: the producer
+ * marks the slot as being written, stores the fields and then stores the sequence, so a consumer
+ * that reads the same sequence before and after copying the fields has a consistent copy.
+ */
+final class TelemetrySlot {
+  static final long WRITING = Long.MIN_VALUE;
+
+  volatile long sequence = -1;
+  long epochSecond;
+  int nano;
+  String deviceId;
+  double energyKwh;
+  double powerKw;
+
+  void write(
+      long sequence,
+      long epochSecond,
+      int nano,
+      String deviceId,
+      double energyKwh,
+      double powerKw) {
+    this.sequence = WRITING;
+    VarHandle.storeStoreFence();
+    this.epochSecond = epochSecond;
+    this.nano = nano;
+    this.deviceId = deviceId;
+    this.energyKwh = energyKwh;
+    this.powerKw = powerKw;
+    this.sequence = sequence;
+  }
+
+  /**
+   * Copies the slot if it still holds {@code expected}.
+   *
+   * @return the record, or {@code null} if the producer has already reused the slot
+   */
+  TelemetryRecord read(long expected) {
+    if (sequence != expected) {
+      return null;
+    }
+    long second = epochSecond;
+    int nanos = nano;
+    String device = deviceId;
+    double energy = energyKwh;
+    double power = powerKw;
+    VarHandle.loadLoadFence();
+    if (sequence != expected) {
+      return null;
+    }
+    return new TelemetryRecord(Instant.ofEpochSecond(second, nanos), device, energy, power);
+  }
+
+  /** Reads only the device id, for filtering before a full copy is made. */
+  String deviceId(long expected) {
+    if (sequence != expected) {
+      return null;
+    }
+    String device = deviceId;
+    VarHandle.loadLoadFence();
+    return sequence == expected ? device : null;
+  }
+}
@@ -0,0 +1,231 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TelemetrySocket.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.Counter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * One binary telemetry WebSocket. Records matching its subscription collect in a bounded buffer
+ * (oldest dropped when full) that a virtual thread sends as one {@link TelemetryFrameEncoder} frame
+ * per flush interval, or sooner once a batch is full. Text replies to subscription commands go out
+ * on the same thread, since a session must not be written concurrently.
+ */
+public final class TelemetrySocket {
+  private static final Logger log = LoggerFactory.getLogger(TelemetrySocket.class);
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private final long id = IDS.incrementAndGet();
+  private final WebSocketSession session;
+  private final TelemetryFrameEncoder encoder;
+  private final int capacity;
+  private final int maxBatch;
+  private final long flushIntervalNanos;
+  private final Counter bytesSent;
+  private final Consumer<TelemetrySocket> onClose;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition ready = lock.newCondition();
+  private final ArrayDeque<TelemetryRecord> pending;
+  private final ArrayDeque<String> replies = new ArrayDeque<>();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicLong dropped = new AtomicLong();
+  // Subscription state; changed only by the hub under its fan-out lock.
+  private final Set<String> devices = new LinkedHashSet<>();
+  private final Set<String> prefixes = new LinkedHashSet<>();
+  private boolean all;
+
+  TelemetrySocket(
+      WebSocketSession session,
+      boolean float64,
+      int capacity,
+      int maxBatch,
+      long flushIntervalNanos,
+      Counter bytesSent,
+      Consumer<TelemetrySocket> onClose) {
+    if (capacity < 1 || maxBatch < 1) {
+      throw new IllegalArgumentException(
+          "WebSocket queue capacity and batch size must be positive");
+    }
+    this.session = session;
+    this.encoder = new TelemetryFrameEncoder(float64);
+    this.capacity = capacity;
+    this.maxBatch = maxBatch;
+    this.flushIntervalNanos = flushIntervalNanos;
+    this.bytesSent = bytesSent;
+    this.onClose = onClose;
+    this.pending = new ArrayDeque<>(Math.min(capacity, 1024));
+  }
+
+  TelemetrySocket start() {
+    Thread.ofVirtual().name("ws-client-" + id).start(this::drain);
+    return this;
+  }
+
+  /** Buffers {@code record} without blocking; returns {@code true} if the oldest was dropped. */
+  boolean offer(TelemetryRecord record) {
+    lock.lock();
+    try {
+      if (closed.get()) {
+        return false;
+      }
+      boolean full = pending.size() >= capacity;
+      if (full) {
+        pending.pollFirst();
+        dropped.incrementAndGet();
+      }
+      pending.addLast(record);
+      // Wake the sender only when a batch starts or fills, not for every record.
+      if (pending.size() == 1 || pending.size() == maxBatch) {
+        ready.signal();
+      }
+      return full;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Queues a text message, sent before any telemetry still buffered. */
+  public void reply(String text) {
+    lock.lock();
+    try {
+      if (!closed.get()) {
+        replies.addLast(text);
+        ready.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Adds devices and prefixes; with neither, subscribes to every device. */
+  DeviceSelector subscribe(Collection<String> deviceIds, Collection<String> devicePrefixes) {
+    if (deviceIds.isEmpty() && devicePrefixes.isEmpty()) {
+      all = true;
+    }
+    devices.addAll(deviceIds);
+    prefixes.addAll(devicePrefixes);
+    return selector();
+  }
+
+  /**
+   * Removes devices and prefixes; with neither, unsubscribes from everything. Removing a device
+   * still covered by "all" or by a prefix has no effect.
+   */
+  DeviceSelector unsubscribe(Collection<String> deviceIds, Collection<String> devicePrefixes) {
+    if (deviceIds.isEmpty() && devicePrefixes.isEmpty()) {
+      all = false;
+      devices.clear();
+      prefixes.clear();
+    }
+    devices.removeAll(deviceIds);
+    prefixes.removeAll(devicePrefixes);
+    return selector();
+  }
+
+  /** The current subscription, or {@code null} when subscribed to nothing. */
+  DeviceSelector selector() {
+    if (all) {
+      return DeviceSelector.all();
+    }
+    if (devices.isEmpty() && prefixes.isEmpty()) {
+      return null;
+    }
+    return DeviceSelector.of(devices, prefixes);
+  }
+
+  /** Stops the sender, closes the session if still open and notifies the owner once. */
+  public void close(CloseStatus status) {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    lock.lock();
+    try {
+      pending.clear();
+      replies.clear();
+      ready.signal();
+    } finally {
+      lock.unlock();
+    }
+    if (session.isOpen()) {
+      try {
+        session.close(status);
+      } catch (IOException ex) {
+        log.debug("Failed to close telemetry WebSocket {}", id, ex);
+      }
+    }
+    onClose.accept(this);
+  }
+
+  boolean isClosed() {
+    return closed.get();
+  }
+
+  long dropped() {
+    return dropped.get();
+  }
+
+  private void drain() {
+    List<TelemetryRecord> batch = new ArrayList<>(Math.min(maxBatch, capacity));
+    try {
+      while (true) {
+        String reply;
+        batch.clear();
+        lock.lock();
+        try {
+          while (pending.isEmpty() && replies.isEmpty() && !closed.get()) {
+            ready.await();
+          }
+          reply = replies.pollFirst();
+          if (reply == null) {
+            // Let the batch fill for up to one flush interval.
+            long remaining = flushIntervalNanos;
+            while (remaining > 0
+                && pending.size() < maxBatch
+                && replies.isEmpty()
+                && !closed.get()) {
+              remaining = ready.awaitNanos(remaining);
+            }
+            for (int i = 0; i < maxBatch && !pending.isEmpty(); i++) {
+              batch.add(pending.pollFirst());
+            }
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (closed.get()) {
+          return;
+        }
+        if (reply != null) {
+          session.sendMessage(new TextMessage(reply));
+        } else if (!batch.isEmpty()) {
+          byte[] frame = encoder.encode(batch);
+          session.sendMessage(new BinaryMessage(frame));
+          bytesSent.increment(frame.length);
+        }
+      }
+    } catch (IOException | IllegalStateException ex) {
+      log.debug("Telemetry WebSocket {} disconnected", id, ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TelemetrySocketHub.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.Disposable;
+
+/**
+ * Fans telemetry out to the binary WebSocket stream. Like {@link SseHub} it reads its own {@link
+ * TelemetryEventBus} consumer and keeps connections in a {@link SubscriberIndex}, so a record only
+ * visits the sockets subscribed to its device; unlike SSE, subscriptions change in-band.
+ */
+@Component
+public class TelemetrySocketHub {
+  private static final Logger log = LoggerFactory.getLogger(TelemetrySocketHub.class);
+  private final TelemetryEventBus eventBus;
+  private final WindfarmProperties.WebSocket properties;
+  private final SubscriberIndex<TelemetrySocket> sockets = new SubscriberIndex<>();
+  // Makes a subscription change atomic with respect to fan-out, so a device kept across the
+  // change never misses a record.
+  private final ReentrantLock fanoutLock = new ReentrantLock();
+  private final Counter droppedCounter;
+  private final Counter bytesCounter;
+  private Disposable subscription;
+
+  public TelemetrySocketHub(
+      TelemetryEventBus eventBus, WindfarmProperties properties, MeterRegistry meterRegistry) {
+    this.eventBus = eventBus;
+    this.properties = properties.getWebSocket();
+    this.droppedCounter =
+        Counter.builder("windfarm.ws.dropped")
+            .description("Records dropped from full WebSocket buffers")
+            .register(meterRegistry);
+    this.bytesCounter =
+        Counter.builder("windfarm.ws.bytes")
+            .description("Binary telemetry frame bytes sent over WebSockets")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    Gauge.builder("windfarm.ws.sessions", sockets, SubscriberIndex::size)
+        .description("WebSockets with an active subscription")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void start() {
+    subscription =
+        eventBus.stream("websocket", OverflowPolicy.DROP_OLDEST)
+            .subscribe(
+                this::broadcast, error -> log.error("WebSocket hub encountered error", error));
+  }
+
+  /** Starts streaming to {@code session}; it receives nothing until it subscribes. */
+  public TelemetrySocket open(WebSocketSession session, boolean float64) {
+    return new TelemetrySocket(
+            session,
+            float64,
+            properties.getQueueCapacity(),
+            properties.getMaxBatch(),
+            properties.getFlushInterval().toNanos(),
+            bytesCounter,
+            sockets::remove)
+        .start();
+  }
+
+  /**
+   * Adds devices and prefixes to the socket's subscription (every device when both are empty) and
+   * returns the resulting selector.
+   */
+  public DeviceSelector subscribe(
+      TelemetrySocket socket, Collection<String> deviceIds, Collection<String> prefixes) {
+    fanoutLock.lock();
+    try {
+      return reindex(socket, socket.subscribe(deviceIds, prefixes));
+    } finally {
+      fanoutLock.unlock();
+    }
+  }
+
+  /**
+   * Removes devices and prefixes from the socket's subscription (everything when both are empty)
+   * and returns the resulting selector, or {@code null} when nothing is left.
+   */
+  public DeviceSelector unsubscribe(
+      TelemetrySocket socket, Collection<String> deviceIds, Collection<String> prefixes) {
+    fanoutLock.lock();
+    try {
+      return reindex(socket, socket.unsubscribe(deviceIds, prefixes));
+    } finally {
+      fanoutLock.unlock();
+    }
+  }
+
+  private DeviceSelector reindex(TelemetrySocket socket, DeviceSelector selector) {
+    sockets.remove(socket);
+    if (selector != null && !socket.isClosed()) {
+      sockets.add(socket, selector);
+    }
+    return selector;
+  }
+
+  private void broadcast(TelemetryRecord record) {
+    fanoutLock.lock();
+    try {
+      sockets.forEach(
+          record.deviceId(),
+          socket -> {
+            if (socket.offer(record)) {
+              droppedCounter.increment();
+            }
+          });
+    } finally {
+      fanoutLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (subscription != null && !subscription.isDisposed()) {
+      subscription.dispose();
+    }
+    sockets.forEachSubscriber(socket -> socket.close(CloseStatus.GOING_AWAY));
+  }
+
+  public int sessionCount() {
+    return sockets.size();
+  }
+}
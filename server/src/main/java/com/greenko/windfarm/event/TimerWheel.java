@@ -0,0 +1,139 @@
+// path: server/src/main/java/com/greenko/windfarm/event/TimerWheel.java
+package com.greenko.windfarm.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel: timers are hashed by deadline onto a ring of slots, one slot per tick, and
+ * {@link #advance} only visits the slots whose tick has passed. Scheduling is O(1) from any thread
+ * and a tick costs the number of timers in its slot, so timers spread over the ring expire in
+ * small, evenly sized groups instead of one sweep. Deadlines further out than one revolution stay
+ * in their slot until the revolution that reaches them.
+ *
+ * <p>A timer fires no earlier than its deadline and at most about one tick late. {@link #advance}
+ * must always be called from the same thread; the expiry callback runs on it and may reschedule.
+ *
+ * @param <T> the item a timer belongs to
+ */
+final class TimerWheel<T> {
+  /** Returned by an {@link Expiry} to drop the item instead of rescheduling it. */
+  static final long CANCEL = Long.MIN_VALUE;
+
+  /** Called when an item's deadline has passed. */
+  @FunctionalInterface
+  interface Expiry<T> {
+    /**
+     * Returns the item's next deadline in {@link System#nanoTime()} terms, or {@link #CANCEL}.
+     * Basing it on {@code deadlineNanos} rather than {@code nowNanos} keeps a periodic timer in
+     * phase even when ticks run late.
+     */
+    long expire(T item, long deadlineNanos, long nowNanos);
+  }
+
+  private final long originNanos;
+  private final long tickNanos;
+  private final int mask;
+  private final Expiry<T> expiry;
+  private final List<List<Timer<T>>> slots;
+  // Timers scheduled from other threads, hashed into their slot by the next advance.
+  private final Queue<Timer<T>> incoming = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  // Next tick to process; only touched by the advancing thread.
+  private long tick;
+
+  /**
+   * @param originNanos the start of tick 0
+   * @param tickNanos the time one slot covers
+   * @param slots ring size, rounded up to a power of two
+   */
+  TimerWheel(long originNanos, long tickNanos, int slots, Expiry<T> expiry) {
+    if (tickNanos < 1 || slots < 1 || slots > 1 << 20) {
+      throw new IllegalArgumentException(
+          "Timer wheel tick must be positive and slots between 1 and 2^20");
+    }
+    int count = Integer.highestOneBit(slots);
+    count = count < slots ? count << 1 : count;
+    this.originNanos = originNanos;
+    this.tickNanos = tickNanos;
+    this.mask = count - 1;
+    this.expiry = expiry;
+    this.slots = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      this.slots.add(new ArrayList<>());
+    }
+  }
+
+  /** Schedules {@code item} to expire at {@code deadlineNanos}. Safe from any thread. */
+  void schedule(T item, long deadlineNanos) {
+    size.incrementAndGet();
+    incoming.add(new Timer<>(item, deadlineNanos));
+  }
+
+  /**
+   * Expires every timer whose deadline is at or before {@code nowNanos}, in tick order, and returns
+   * how many expired.
+   */
+  int advance(long nowNanos) {
+    long target = Math.floorDiv(nowNanos - originNanos, tickNanos);
+    int expired = 0;
+    for (Timer<T> timer = incoming.poll(); timer != null; timer = incoming.poll()) {
+      place(timer, tick);
+    }
+    while (tick <= target) {
+      int index = (int) (tick & mask);
+      List<Timer<T>> due = slots.get(index);
+      if (!due.isEmpty()) {
+        // Swapped out so that timers rescheduled into this slot land in a fresh list.
+        slots.set(index, new ArrayList<>());
+        for (Timer<T> timer : due) {
+          if (timer.tick > tick) {
+            // Belongs to a later revolution.
+            slots.get(index).add(timer);
+            continue;
+          }
+          expired++;
+          long next = expiry.expire(timer.item, timer.deadlineNanos, nowNanos);
+          if (next == CANCEL) {
+            size.decrementAndGet();
+          } else {
+            timer.deadlineNanos = next;
+            place(timer, tick + 1);
+          }
+        }
+      }
+      tick++;
+    }
+    return expired;
+  }
+
+  /** Number of scheduled timers, including ones not yet hashed into a slot. */
+  int size() {
+    return size.get();
+  }
+
+  long tickNanos() {
+    return tickNanos;
+  }
+
+  private void place(Timer<T> timer, long earliestTick) {
+    // Rounded up, so a timer never fires before its deadline.
+    long deadlineTick = -Math.floorDiv(originNanos - timer.deadlineNanos, tickNanos);
+    timer.tick = Math.max(deadlineTick, earliestTick);
+    slots.get((int) (timer.tick & mask)).add(timer);
+  }
+
+  private static final class Timer<T> {
+    private final T item;
+    private long deadlineNanos;
+    private long tick;
+
+    private Timer(T item, long deadlineNanos) {
+      this.item = item;
+      this.deadlineNanos = deadlineNanos;
+    }
+  }
+}
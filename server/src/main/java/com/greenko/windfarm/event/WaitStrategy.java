@@ -0,0 +1,86 @@
+// path: server/src/main/java/com/greenko/windfarm/event/WaitStrategy.java
+package com.greenko.windfarm.event;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/** How a {@link TelemetryEventBus} consumer waits for the producer to publish new events. */
+interface WaitStrategy {
+  /**
+   * Waits until {@code cursor} reaches {@code sequence} or {@code running} turns false.
+   *
+   * @return the highest published sequence observed
+   */
+  long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running)
+      throws InterruptedException;
+
+  /** Called by the producer after every publish. */
+  void signalAll();
+
+  static WaitStrategy of(WindfarmProperties.Bus.WaitStrategy type) {
+    return switch (type) {
+      case BLOCKING -> new Blocking();
+      case BUSY_SPIN -> new BusySpin();
+    };
+  }
+
+  final class Blocking implements WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean();
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running)
+        throws InterruptedException {
+      long available = cursor.get();
+      if (available >= sequence) {
+        return available;
+      }
+      lock.lock();
+      try {
+        while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+          signalNeeded.set(true);
+          if ((available = cursor.get()) >= sequence) {
+            break;
+          }
+          published.await(100, TimeUnit.MILLISECONDS);
+        }
+      } finally {
+        lock.unlock();
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAll() {
+      // Only take the lock when a consumer is actually parked.
+      if (signalNeeded.getAndSet(false)) {
+        lock.lock();
+        try {
+          published.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  final class BusySpin implements WaitStrategy {
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) {
+      long available;
+      while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+        Thread.onSpinWait();
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAll() {}
+  }
+}
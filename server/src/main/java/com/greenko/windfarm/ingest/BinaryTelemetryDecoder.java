@@ -0,0 +1,83 @@
+// path: server/src/main/java/com/greenko/windfarm/ingest/BinaryTelemetryDecoder.java
+package com.greenko.windfarm.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the compact binary ingest format. The body is a sequence of length-prefixed frames, all
+ * integers big-endian:
+ *
+ * <pre>
+ * u16  frame length (bytes that follow)
+ * i64  time, epoch milliseconds
+ * f64  energy, kWh
+ * u8   device id length n
+ * n    device id, UTF-8
+ * f64  power, kW (optional and ignored; power is always derived from energy)
+ * </pre>
+ *
+ * <p>Frames longer than the fields above are accepted and the extra bytes skipped, so the format
+ * can grow new trailing fields.
+ */
+public class BinaryTelemetryDecoder implements TelemetryDecoder {
+  public static final String MEDIA_TYPE = "application/vnd.windfarm.telemetry+binary";
+  private static final int MIN_FRAME = 8 + 8 + 1 + 1;
+
+  private final DataInputStream input;
+  private final byte[] frame = new byte[0xFFFF];
+  private final ByteBuffer view = ByteBuffer.wrap(frame);
+  private final DeviceIdCache deviceIds = new DeviceIdCache();
+  private long index;
+
+  public BinaryTelemetryDecoder(InputStream body) {
+    this.input = new DataInputStream(new BufferedInputStream(body, 64 * 1024));
+  }
+
+  @Override
+  public boolean next(DecodedTelemetry target) throws IOException {
+    int high = input.read();
+    if (high < 0) {
+      return false;
+    }
+    int low = input.read();
+    if (low < 0) {
+      throw invalid("truncated frame length");
+    }
+    int length = (high << 8) | low;
+    if (length < MIN_FRAME) {
+      throw invalid("frame of " + length + " bytes is too short");
+    }
+    try {
+      input.readFully(frame, 0, length);
+    } catch (EOFException ex) {
+      throw invalid("truncated frame");
+    }
+    target.setEpochMilli(view.getLong(0));
+    target.energyKwh = view.getDouble(8);
+    int deviceLength = Byte.toUnsignedInt(frame[16]);
+    if (deviceLength == 0 || 17 + deviceLength > length) {
+      throw invalid("invalid device id length " + deviceLength);
+    }
+    target.deviceId = deviceIds.intern(frame, 17, deviceLength);
+    if (!Double.isFinite(target.energyKwh)) {
+      throw invalid("energy must be finite");
+    }
+    target.derivePower();
+    index++;
+    return true;
+  }
+
+  private IllegalArgumentException invalid(String reason) {
+    return new IllegalArgumentException("Invalid telemetry frame " + index + ": " + reason);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
@@ -0,0 +1,44 @@
+// path: server/src/main/java/com/greenko/windfarm/ingest/DecodedTelemetry.java
+package com.greenko.windfarm.ingest;
+
+/** Mutable holder a {@link TelemetryDecoder} fills for each record, reused across records. */
+public final class DecodedTelemetry {
+  long epochSecond;
+  int nano;
+  String deviceId;
+  double energyKwh;
+  double powerKw;
+
+  public long epochSecond() {
+    return epochSecond;
+  }
+
+  public int nano() {
+    return nano;
+  }
+
+  public String deviceId() {
+    return deviceId;
+  }
+
+  public double energyKwh() {
+    return energyKwh;
+  }
+
+  public double powerKw() {
+    return powerKw;
+  }
+
+  void setEpochMilli(long epochMilli) {
+    epochSecond = Math.floorDiv(epochMilli, 1000L);
+    nano = (int) Math.floorMod(epochMilli, 1000L) * 1_000_000;
+  }
+
+  /**
+   * Power is derived from minute-level energy the same way the hypertable does, so what is
+   * published live matches what is stored.
+   */
+  void derivePower() {
+    powerKw = energyKwh * 60d;
+  }
+}
@@ -0,0 +1,58 @@
+// path: server/src/main/java/com/greenko/windfarm/ingest/DeviceIdCache.java
+package com.greenko.windfarm.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Small direct-mapped cache that turns encoded device ids back into canonical {@link String}
+ * instances, so a fleet sending the same few thousand ids does not allocate a string per record.
+ * Not thread-safe; each decoder owns one.
+ */
+final class DeviceIdCache {
+  private static final int SIZE = 4096;
+  private final String[] strings = new String[SIZE];
+  private final byte[][] encoded = new byte[SIZE][];
+
+  String intern(byte[] buffer, int offset, int length) {
+    int hash = 1;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + buffer[i];
+    }
+    int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+    byte[] cached = encoded[index];
+    if (cached != null
+        && Arrays.equals(cached, 0, cached.length, buffer, offset, offset + length)) {
+      return strings[index];
+    }
+    String value = new String(buffer, offset, length, StandardCharsets.UTF_8);
+    encoded[index] = Arrays.copyOfRange(buffer, offset, offset + length);
+    strings[index] = value;
+    return value;
+  }
+
+  String intern(char[] buffer, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + buffer[i];
+    }
+    int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+    String cached = strings[index];
+    if (cached != null && cached.length() == length && matches(cached, buffer, offset)) {
+      return cached;
+    }
+    String value = new String(buffer, offset, length);
+    strings[index] = value;
+    encoded[index] = value.getBytes(StandardCharsets.UTF_8);
+    return value;
+  }
+
+  private static boolean matches(String cached, char[] buffer, int offset) {
+    for (int i = 0; i < cached.length(); i++) {
+      if (cached.charAt(i) != buffer[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,120 @@
+// path: server/src/main/java/com/greenko/windfarm/ingest/NdjsonTelemetryDecoder.java
+package com.greenko.windfarm.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decodes newline-delimited JSON objects such as
+ *
+ * <pre>{"time":"2025-01-01T00:00:00Z","deviceId":"Device_1","energyKwh":1.25}</pre>
+ *
+ * <p>{@code time} may also be epoch milliseconds. Power is always derived from energy, as the table
+ * stores it, so a {@code powerKw} field is ignored like any other unknown field. Objects are read
+ * from a streaming parser, so the body is never buffered.
+ */
+public class NdjsonTelemetryDecoder implements TelemetryDecoder {
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private final JsonParser parser;
+  private final DeviceIdCache deviceIds = new DeviceIdCache();
+  private long index;
+
+  public NdjsonTelemetryDecoder(InputStream body) throws IOException {
+    this.parser = FACTORY.createParser(body);
+  }
+
+  @Override
+  public boolean next(DecodedTelemetry target) throws IOException {
+    try {
+      return read(target);
+    } catch (JsonProcessingException ex) {
+      // Broken syntax or an out-of-range number is the client's fault, not an I/O failure.
+      throw invalid("malformed JSON: " + ex.getOriginalMessage());
+    }
+  }
+
+  private boolean read(DecodedTelemetry target) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      return false;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw invalid("expected a JSON object");
+    }
+    boolean hasTime = false;
+    boolean hasEnergy = false;
+    target.deviceId = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "time" -> {
+          readTime(value, target);
+          hasTime = true;
+        }
+        case "deviceId" -> {
+          if (value != JsonToken.VALUE_STRING || parser.getTextLength() == 0) {
+            throw invalid("deviceId must be a non-empty string");
+          }
+          target.deviceId =
+              deviceIds.intern(
+                  parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        case "energyKwh" -> {
+          target.energyKwh = readNumber(value, field);
+          hasEnergy = true;
+        }
+        default -> parser.skipChildren();
+      }
+    }
+    if (!hasTime || target.deviceId == null || !hasEnergy) {
+      throw invalid("time, deviceId and energyKwh are required");
+    }
+    target.derivePower();
+    index++;
+    return true;
+  }
+
+  private void readTime(JsonToken value, DecodedTelemetry target) throws IOException {
+    if (value == JsonToken.VALUE_NUMBER_INT) {
+      target.setEpochMilli(parser.getLongValue());
+      return;
+    }
+    if (value != JsonToken.VALUE_STRING) {
+      throw invalid("time must be an ISO-8601 instant or epoch milliseconds");
+    }
+    try {
+      Instant time = Instant.parse(parser.getText());
+      target.epochSecond = time.getEpochSecond();
+      target.nano = time.getNano();
+    } catch (DateTimeParseException ex) {
+      throw invalid("invalid time '" + parser.getText() + "'");
+    }
+  }
+
+  private double readNumber(JsonToken value, String field) throws IOException {
+    if (value != JsonToken.VALUE_NUMBER_FLOAT && value != JsonToken.VALUE_NUMBER_INT) {
+      throw invalid(field + " must be a number");
+    }
+    double number = parser.getDoubleValue();
+    if (!Double.isFinite(number)) {
+      throw invalid(field + " must be finite");
+    }
+    return number;
+  }
+
+  private IllegalArgumentException invalid(String reason) {
+    return new IllegalArgumentException("Invalid telemetry record " + index + ": " + reason);
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
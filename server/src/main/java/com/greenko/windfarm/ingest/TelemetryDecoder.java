@@ -0,0 +1,16 @@
+// path: server/src/main/java/com/greenko/windfarm/ingest/TelemetryDecoder.java
+package com.greenko.windfarm.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Incrementally decodes telemetry records from a request body, one record per call. */
+public interface TelemetryDecoder extends Closeable {
+  /**
+   * Decodes the next record into {@code target}.
+   *
+   * @return {@code false} once the body is exhausted
+   * @throws IllegalArgumentException if the next record is malformed
+   */
+  boolean next(DecodedTelemetry target) throws IOException;
+}
@@ -0,0 +1,7 @@
+// path: server/src/main/java/com/greenko/windfarm/model/Device.java
+package com.greenko.windfarm.model;
+
+import java.time.Instant;
+
+/** A registered device with the times of its oldest and newest readings seen so far. */
+public record Device(String deviceId, Instant firstSeen, Instant lastSeen) {}
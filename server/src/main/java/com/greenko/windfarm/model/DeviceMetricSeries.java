@@ -0,0 +1,52 @@
+// path: server/src/main/java/com/greenko/windfarm/model/DeviceMetricSeries.java
+package com.greenko.windfarm.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Bucketed metrics of one device as parallel arrays: index {@code i} of each array describes the
+ * same bucket. Bucket starts are epoch milliseconds. A fleet response then costs a few numbers per
+ * bucket rather than an object with repeated field names.
+ */
+public record DeviceMetricSeries(
+    String deviceId, long[] bucketStarts, double[] averagePowerKw, double[] totalEnergyKwh) {
+
+  /** Collects one device's buckets in order; reusable through {@link #reset}. */
+  public static final class Builder {
+    private String deviceId;
+    private long[] bucketStarts = new long[64];
+    private double[] averagePowerKw = new double[64];
+    private double[] totalEnergyKwh = new double[64];
+    private int size;
+
+    public String deviceId() {
+      return deviceId;
+    }
+
+    public void reset(String deviceId) {
+      this.deviceId = deviceId;
+      this.size = 0;
+    }
+
+    public void add(Instant bucketStart, double averagePower, double totalEnergy) {
+      if (size == bucketStarts.length) {
+        bucketStarts = Arrays.copyOf(bucketStarts, size * 2);
+        averagePowerKw = Arrays.copyOf(averagePowerKw, size * 2);
+        totalEnergyKwh = Arrays.copyOf(totalEnergyKwh, size * 2);
+      }
+      bucketStarts[size] = bucketStart.toEpochMilli();
+      averagePowerKw[size] = averagePower;
+      totalEnergyKwh[size] = totalEnergy;
+      size++;
+    }
+
+    public DeviceMetricSeries build() {
+      return new DeviceMetricSeries(
+          deviceId,
+          Arrays.copyOf(bucketStarts, size),
+          Arrays.copyOf(averagePowerKw, size),
+          Arrays.copyOf(totalEnergyKwh, size));
+    }
+  }
+}
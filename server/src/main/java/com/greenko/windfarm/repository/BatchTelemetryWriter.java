@@ -0,0 +1,35 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/BatchTelemetryWriter.java
+package com.greenko.windfarm.repository;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/** Writes each row through a JDBC batch of {@code INSERT ... ON CONFLICT DO UPDATE}. */
+public class BatchTelemetryWriter implements TelemetryWriter {
+  private final JdbcTemplate jdbcTemplate;
+
+  public BatchTelemetryWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void write(List<TelemetryRecord> batch) {
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO telemetry(time, device_id, energy_kwh) VALUES (?, ?, ?) "
+            + "ON CONFLICT (time, device_id) DO UPDATE SET energy_kwh = EXCLUDED.energy_kwh",
+        batch,
+        batch.size(),
+        new ParameterizedPreparedStatementSetter<>() {
+          @Override
+          public void setValues(PreparedStatement ps, TelemetryRecord record) throws SQLException {
+            ps.setObject(1, java.sql.Timestamp.from(record.time()));
+            ps.setString(2, record.deviceId());
+            ps.setDouble(3, record.energyKwh());
+          }
+        });
+  }
+}
@@ -0,0 +1,99 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/CopyTelemetryWriter.java
+package com.greenko.windfarm.repository;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Streams a batch into a session-local staging table with binary {@code COPY} and merges it into
+ * {@code telemetry} with a single set-based upsert. Falls back to the supplied writer when the
+ * pooled connection is not a PostgreSQL connection.
+ */
+public class CopyTelemetryWriter implements TelemetryWriter {
+  private static final Logger log = LoggerFactory.getLogger(CopyTelemetryWriter.class);
+  static final String CREATE_STAGING =
+      "CREATE TEMP TABLE IF NOT EXISTS telemetry_staging ("
+          + "ord INT NOT NULL, time TIMESTAMPTZ NOT NULL, device_id TEXT NOT NULL, "
+          + "energy_kwh DOUBLE PRECISION NOT NULL) ON COMMIT DELETE ROWS";
+  static final String COPY_STAGING =
+      "COPY telemetry_staging (ord, time, device_id, energy_kwh) FROM STDIN (FORMAT BINARY)";
+  private static final String MERGE =
+      "INSERT INTO telemetry(time, device_id, energy_kwh) "
+          + "SELECT DISTINCT ON (time, device_id) time, device_id, energy_kwh "
+          + "FROM telemetry_staging ORDER BY time, device_id, ord DESC "
+          + "ON CONFLICT (time, device_id) DO UPDATE SET energy_kwh = EXCLUDED.energy_kwh";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TelemetryWriter fallback;
+  private final AtomicBoolean fallbackActive = new AtomicBoolean();
+
+  public CopyTelemetryWriter(JdbcTemplate jdbcTemplate, TelemetryWriter fallback) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public void write(List<TelemetryRecord> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (fallbackActive.get()) {
+      fallback.write(batch);
+      return;
+    }
+    TelemetryCopyEncoder encoder = new TelemetryCopyEncoder(batch.size());
+    for (TelemetryRecord record : batch) {
+      encoder.add(record.time(), record.deviceId(), record.energyKwh());
+    }
+    Boolean copied = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> copy(con, encoder));
+    if (!Boolean.TRUE.equals(copied)) {
+      fallback.write(batch);
+    }
+  }
+
+  private boolean copy(Connection con, TelemetryCopyEncoder encoder) throws SQLException {
+    if (!con.isWrapperFor(PGConnection.class)) {
+      if (fallbackActive.compareAndSet(false, true)) {
+        log.warn("Connection is not a PostgreSQL connection; COPY ingest falls back to batch");
+      }
+      return false;
+    }
+    boolean autoCommit = con.getAutoCommit();
+    con.setAutoCommit(false);
+    try {
+      try (Statement statement = con.createStatement()) {
+        statement.execute(CREATE_STAGING);
+      }
+      int length = encoder.finish();
+      CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+      try {
+        copyIn.writeToCopy(encoder.buffer(), 0, length);
+        copyIn.endCopy();
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      }
+      try (Statement statement = con.createStatement()) {
+        statement.executeUpdate(MERGE);
+      }
+      con.commit();
+      return true;
+    } catch (SQLException | RuntimeException ex) {
+      con.rollback();
+      throw ex;
+    } finally {
+      con.setAutoCommit(autoCommit);
+    }
+  }
+}
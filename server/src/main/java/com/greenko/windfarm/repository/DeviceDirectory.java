@@ -0,0 +1,230 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/DeviceDirectory.java
+package com.greenko.windfarm.repository;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.Device;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * In-process copy of the {@code device} table, loaded on first use and kept current by the writers
+ * that persist telemetry. Lookups never touch the database.
+ *
+ * <p>A device is written to the table when it is first seen, when an older reading moves its
+ * first-seen time back, or when its last-seen time has moved on by more than {@code
+ * lastSeenInterval} since it was last stored; in between, only the in-memory last-seen time
+ * advances. Writes merge with {@code LEAST}/{@code GREATEST}, so concurrent writers and replayed
+ * batches cannot move either time the wrong way.
+ */
+@Repository
+public class DeviceDirectory {
+  private static final Logger log = LoggerFactory.getLogger(DeviceDirectory.class);
+  // Existing devices are only ever updated: an INSERT ... ON CONFLICT draws an id from the identity
+  // sequence even when it ends up updating, which would use one up on every write of a device.
+  private static final String UPDATE =
+      "UPDATE device SET "
+          + "first_seen = LEAST(device.first_seen, s.first_seen), "
+          + "last_seen = GREATEST(device.last_seen, s.last_seen) "
+          + "FROM unnest(?::text[], ?::timestamptz[], ?::timestamptz[]) "
+          + "AS s(device_id, first_seen, last_seen) "
+          + "WHERE device.device_id = s.device_id "
+          + "RETURNING device.device_id, device.first_seen, device.last_seen";
+  private static final String INSERT =
+      "INSERT INTO device (device_id, first_seen, last_seen) "
+          + "SELECT * FROM unnest(?::text[], ?::timestamptz[], ?::timestamptz[]) "
+          + "AS s(device_id, first_seen, last_seen) ORDER BY device_id "
+          + "ON CONFLICT (device_id) DO NOTHING "
+          + "RETURNING device_id, first_seen, last_seen";
+  private static final RowMapper<Device> DEVICE_MAPPER =
+      (rs, rowNum) ->
+          new Device(
+              rs.getString("device_id"),
+              rs.getTimestamp("first_seen").toInstant(),
+              rs.getTimestamp("last_seen").toInstant());
+
+  /** The span of readings of one device seen in a batch or a seed. */
+  public record Sighting(String deviceId, Instant first, Instant last) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Duration lastSeenInterval;
+  // Guards everything below.
+  private final Map<String, Entry> devices = new TreeMap<>();
+  private boolean loaded;
+
+  public DeviceDirectory(JdbcTemplate jdbcTemplate, WindfarmProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.lastSeenInterval = properties.getDevices().getLastSeenInterval();
+  }
+
+  /** Registered device ids in ascending order. */
+  public List<String> deviceIds() {
+    synchronized (this) {
+      load();
+      return List.copyOf(devices.keySet());
+    }
+  }
+
+  /** Registered devices ordered by id. */
+  public List<Device> devices() {
+    synchronized (this) {
+      load();
+      return devices.values().stream().map(entry -> entry.device).toList();
+    }
+  }
+
+  public Optional<Device> find(String deviceId) {
+    synchronized (this) {
+      load();
+      return Optional.ofNullable(devices.get(deviceId)).map(entry -> entry.device);
+    }
+  }
+
+  /**
+   * Notes the devices of a batch that has just been persisted. Failures to update the table are
+   * logged and retried with the next batch of the device, so ingest never fails on them.
+   */
+  public void observe(List<TelemetryRecord> batch) {
+    Map<String, Sighting> sightings = new HashMap<>();
+    for (TelemetryRecord record : batch) {
+      sightings.merge(
+          record.deviceId(),
+          new Sighting(record.deviceId(), record.time(), record.time()),
+          DeviceDirectory::span);
+    }
+    try {
+      register(sightings.values());
+    } catch (DataAccessException ex) {
+      log.warn("Failed to update the device registry for {} devices", sightings.size(), ex);
+    }
+  }
+
+  /** Records {@code sightings}, writing the ones the table does not reflect yet. */
+  public void register(Collection<Sighting> sightings) {
+    List<Sighting> inserts = new ArrayList<>();
+    List<Sighting> updates = new ArrayList<>();
+    synchronized (this) {
+      load();
+      for (Sighting sighting : sightings) {
+        Entry entry = devices.get(sighting.deviceId());
+        if (entry == null) {
+          devices.put(
+              sighting.deviceId(),
+              new Entry(new Device(sighting.deviceId(), sighting.first(), sighting.last()), null));
+          inserts.add(sighting);
+          continue;
+        }
+        Device device = entry.device;
+        entry.device =
+            new Device(
+                device.deviceId(),
+                min(device.firstSeen(), sighting.first()),
+                max(device.lastSeen(), sighting.last()));
+        if (entry.stored == null) {
+          inserts.add(sighting);
+        } else if (sighting.first().isBefore(entry.stored.firstSeen())
+            || sighting.last().isAfter(entry.stored.lastSeen().plus(lastSeenInterval))) {
+          updates.add(sighting);
+        }
+      }
+    }
+    if (inserts.isEmpty() && updates.isEmpty()) {
+      return;
+    }
+    List<Device> stored = new ArrayList<>(write(INSERT, inserts));
+    if (stored.size() < inserts.size()) {
+      // Another writer registered some of them first; merge with what it stored.
+      Set<String> inserted = new HashSet<>();
+      stored.forEach(device -> inserted.add(device.deviceId()));
+      inserts.stream()
+          .filter(sighting -> !inserted.contains(sighting.deviceId()))
+          .forEach(updates::add);
+    }
+    stored.addAll(write(UPDATE, updates));
+    synchronized (this) {
+      for (Device device : stored) {
+        Entry entry = devices.get(device.deviceId());
+        entry.stored = device;
+        entry.device =
+            new Device(
+                device.deviceId(),
+                min(entry.device.firstSeen(), device.firstSeen()),
+                max(entry.device.lastSeen(), device.lastSeen()));
+      }
+    }
+  }
+
+  private List<Device> write(String sql, List<Sighting> pending) {
+    if (pending.isEmpty()) {
+      return List.of();
+    }
+    String[] ids = new String[pending.size()];
+    String[] firsts = new String[pending.size()];
+    String[] lasts = new String[pending.size()];
+    for (int i = 0; i < ids.length; i++) {
+      Sighting sighting = pending.get(i);
+      ids[i] = sighting.deviceId();
+      firsts[i] = sighting.first().toString();
+      lasts[i] = sighting.last().toString();
+    }
+    return jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps = con.prepareStatement(sql);
+          ps.setArray(1, con.createArrayOf("text", ids));
+          ps.setArray(2, con.createArrayOf("text", firsts));
+          ps.setArray(3, con.createArrayOf("text", lasts));
+          return ps;
+        },
+        DEVICE_MAPPER);
+  }
+
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    for (Device device :
+        jdbcTemplate.query("SELECT device_id, first_seen, last_seen FROM device", DEVICE_MAPPER)) {
+      devices.put(device.deviceId(), new Entry(device, device));
+    }
+    loaded = true;
+  }
+
+  private static Sighting span(Sighting a, Sighting b) {
+    return new Sighting(a.deviceId(), min(a.first(), b.first()), max(a.last(), b.last()));
+  }
+
+  private static Instant min(Instant a, Instant b) {
+    return a.isBefore(b) ? a : b;
+  }
+
+  private static Instant max(Instant a, Instant b) {
+    return a.isAfter(b) ? a : b;
+  }
+
+  /** What is known about a device, and what the table held when it was last written or read. */
+  private static final class Entry {
+    Device device;
+    Device stored;
+
+    Entry(Device device, Device stored) {
+      this.device = device;
+      this.stored = stored;
+    }
+  }
+}
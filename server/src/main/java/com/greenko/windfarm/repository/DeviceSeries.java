@@ -0,0 +1,121 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/DeviceSeries.java
+package com.greenko.windfarm.repository;
+
+/**
+ * Recent readings of one device in time order, keyed by epoch microseconds and held in parallel
+ * primitive arrays used as a ring that grows by doubling. Appending in time order and evicting from
+ * the head are O(1); a late or repeated reading is placed by binary search, replacing one with the
+ * same timestamp like the table's upsert does. Not thread-safe: {@link HotTierTelemetryRepository}
+ * guards it with its lock.
+ */
+final class DeviceSeries {
+  private long[] times;
+  private double[] energy;
+  private double[] power;
+  private int head;
+  private int size;
+
+  DeviceSeries(int initialCapacity) {
+    int capacity = Integer.highestOneBit(Math.max(2, initialCapacity));
+    capacity = capacity < initialCapacity ? capacity << 1 : capacity;
+    this.times = new long[capacity];
+    this.energy = new double[capacity];
+    this.power = new double[capacity];
+  }
+
+  /** Stores a reading and returns {@code true}, or {@code false} if it replaced one. */
+  boolean put(long epochMicros, double energyKwh, double powerKw) {
+    if (size == 0 || epochMicros > time(size - 1)) {
+      ensureCapacity();
+      set(size++, epochMicros, energyKwh, powerKw);
+      return true;
+    }
+    int index = lowerBound(epochMicros);
+    if (index < size && time(index) == epochMicros) {
+      set(index, epochMicros, energyKwh, powerKw);
+      return false;
+    }
+    ensureCapacity();
+    // Late reading: shift the newer ones up by one, which only late data pays for.
+    for (int i = size; i > index; i--) {
+      int from = slot(i - 1);
+      set(i, times[from], energy[from], power[from]);
+    }
+    size++;
+    set(index, epochMicros, energyKwh, powerKw);
+    return true;
+  }
+
+  /** Drops readings older than {@code epochMicros} and returns how many. */
+  int evictBefore(long epochMicros) {
+    int evicted = 0;
+    while (size > 0 && times[head] < epochMicros) {
+      head = (head + 1) & (times.length - 1);
+      size--;
+      evicted++;
+    }
+    return evicted;
+  }
+
+  /** Index of the first reading at or after {@code epochMicros}, or {@link #size()} if none. */
+  int lowerBound(long epochMicros) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (time(middle) < epochMicros) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long time(int index) {
+    return times[slot(index)];
+  }
+
+  double energy(int index) {
+    return energy[slot(index)];
+  }
+
+  double power(int index) {
+    return power[slot(index)];
+  }
+
+  private int slot(int index) {
+    return (head + index) & (times.length - 1);
+  }
+
+  private void set(int index, long epochMicros, double energyKwh, double powerKw) {
+    int slot = slot(index);
+    times[slot] = epochMicros;
+    energy[slot] = energyKwh;
+    power[slot] = powerKw;
+  }
+
+  private void ensureCapacity() {
+    if (size < times.length) {
+      return;
+    }
+    // Unrolls the ring so that the head is at 0 again.
+    long[] grownTimes = new long[times.length * 2];
+    double[] grownEnergy = new double[times.length * 2];
+    double[] grownPower = new double[times.length * 2];
+    for (int i = 0; i < size; i++) {
+      int slot = slot(i);
+      grownTimes[i] = times[slot];
+      grownEnergy[i] = energy[slot];
+      grownPower[i] = power[slot];
+    }
+    times = grownTimes;
+    energy = grownEnergy;
+    power = grownPower;
+    head = 0;
+  }
+}
@@ -0,0 +1,466 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/HotTierTelemetryRepository.java
+package com.greenko.windfarm.repository;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.OverflowPolicy;
+import com.greenko.windfarm.event.TelemetryEventBus;
+import com.greenko.windfarm.model.DeviceMetricSeries;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.model.TimeSeriesPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import reactor.core.Disposable;
+
+/**
+ * Answers queries about the most recent telemetry from memory and everything else from {@link
+ * JdbcTelemetryRepository}. Each device keeps a {@link DeviceSeries} covering the configured window
+ * behind the newest reading, fed from the event bus and warmed from the database once the
+ * application is ready (after any seeding). A query is only served from memory when memory is known
+ * to hold every row it could match: its range starts inside the window, and within it, after the
+ * point warm-up started from.
+ *
+ * <p>Rows reach memory from the bus before the writer commits them, so recent answers can be a
+ * flush interval ahead of the table. Rows that bypass the bus after warm-up are not seen.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(
+    prefix = "windfarm.hot-tier",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class HotTierTelemetryRepository implements TelemetryRepository {
+  private static final Logger log = LoggerFactory.getLogger(HotTierTelemetryRepository.class);
+  // time_bucket() aligns buckets to this origin by default, so in-memory buckets do the same.
+  private static final long TIME_BUCKET_ORIGIN = micros(Instant.parse("2000-01-03T00:00:00Z"));
+  private static final long MINUTE = TimeUnit.MINUTES.toMicros(1);
+  private static final long NOT_WARM = Long.MAX_VALUE;
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
+  private final JdbcTelemetryRepository delegate;
+  private final TelemetryEventBus eventBus;
+  private final long windowMicros;
+  private final int warmPageRows;
+  // The bus consumer and warm-up write; queries read. Guards everything below.
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, DeviceSeries> series = new HashMap<>();
+  private long newest = EMPTY;
+  private long warmedFrom = NOT_WARM;
+  private long lastSweep = EMPTY;
+  private volatile long readings;
+  private final Counter memoryQueries;
+  private final Counter databaseQueries;
+  private Disposable subscription;
+
+  public HotTierTelemetryRepository(
+      JdbcTelemetryRepository delegate,
+      TelemetryEventBus eventBus,
+      WindfarmProperties properties,
+      MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.eventBus = eventBus;
+    this.windowMicros = properties.getHotTier().getWindow().toNanos() / 1_000;
+    this.warmPageRows = properties.getHotTier().getWarmPageRows();
+    if (windowMicros <= 0 || warmPageRows < 1) {
+      throw new IllegalArgumentException("Hot tier window and warm-up page size must be positive");
+    }
+    this.memoryQueries =
+        Counter.builder("windfarm.hot-tier.queries")
+            .description("Telemetry queries by where they were answered")
+            .tag("source", "memory")
+            .register(meterRegistry);
+    this.databaseQueries =
+        Counter.builder("windfarm.hot-tier.queries")
+            .description("Telemetry queries by where they were answered")
+            .tag("source", "database")
+            .register(meterRegistry);
+    Gauge.builder("windfarm.hot-tier.readings", this, repository -> repository.readings)
+        .description("Readings held in the in-memory hot tier")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void start() {
+    // Cheap enough to keep up, and a gap would make memory disagree with the table.
+    subscription =
+        eventBus.stream("hot-tier", OverflowPolicy.BLOCK)
+            .subscribe(
+                this::add, error -> log.error("Hot tier stopped receiving telemetry", error));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void warmWhenReady() {
+    Thread.ofVirtual().name("hot-tier-warm-up").start(this::warm);
+  }
+
+  /**
+   * Loads the window behind the newest stored row, page by page. Live rows keep arriving meanwhile;
+   * the same row from both sources is stored once. Until this completes every query goes to the
+   * database.
+   */
+  void warm() {
+    long started = System.nanoTime();
+    try {
+      Optional<Instant> latest = delegate.findMostRecentTimestamp();
+      long from = latest.map(time -> micros(time) - windowMicros).orElse(EMPTY);
+      long loaded = 0;
+      if (latest.isPresent()) {
+        Instant cursor = instant(from);
+        while (true) {
+          List<TelemetryRecord> page = delegate.findBetween(cursor, END_OF_TIME, warmPageRows);
+          lock.writeLock().lock();
+          try {
+            page.forEach(this::store);
+          } finally {
+            lock.writeLock().unlock();
+          }
+          loaded += page.size();
+          if (page.size() < warmPageRows) {
+            break;
+          }
+          // The next page starts at the last timestamp again, so its remaining rows are not lost.
+          Instant last = page.get(page.size() - 1).time();
+          if (!last.isAfter(cursor)) {
+            throw new IllegalStateException(
+                "More than " + warmPageRows + " rows share the timestamp " + last);
+          }
+          cursor = last;
+        }
+      }
+      lock.writeLock().lock();
+      try {
+        warmedFrom = from;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      log.info(
+          "Hot tier warmed with {} rows in {} ms",
+          loaded,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (RuntimeException ex) {
+      log.warn("Failed to warm the hot tier; recent queries keep going to the database", ex);
+    }
+  }
+
+  @Override
+  public List<MetricPoint> queryMetrics(
+      Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+    long bucketMicros = TimeUnit.SECONDS.toMicros(bucket.getSeconds());
+    if (bucketMicros <= 0) {
+      throw new IllegalArgumentException("Bucket must be positive");
+    }
+    lock.readLock().lock();
+    try {
+      if (covers(from)) {
+        TreeMap<Long, double[]> buckets = new TreeMap<>();
+        for (DeviceSeries device : select(deviceId)) {
+          addBuckets(buckets, device, micros(from), micros(to), bucketMicros);
+        }
+        List<MetricPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach(
+            (start, sums) ->
+                points.add(new MetricPoint(instant(start), sums[0] / sums[1], sums[2])));
+        memoryQueries.increment();
+        return points;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    databaseQueries.increment();
+    return delegate.queryMetrics(from, to, deviceId, bucket);
+  }
+
+  @Override
+  public List<DeviceMetricSeries> queryDeviceMetrics(
+      Instant from, Instant to, List<String> deviceIds, Duration bucket) {
+    long bucketMicros = TimeUnit.SECONDS.toMicros(bucket.getSeconds());
+    if (bucketMicros <= 0) {
+      throw new IllegalArgumentException("Bucket must be positive");
+    }
+    lock.readLock().lock();
+    try {
+      if (covers(from)) {
+        List<DeviceMetricSeries> result = new ArrayList<>();
+        DeviceMetricSeries.Builder builder = new DeviceMetricSeries.Builder();
+        for (String deviceId : new TreeSet<>(deviceIds.isEmpty() ? series.keySet() : deviceIds)) {
+          DeviceSeries device = series.get(deviceId);
+          if (device == null) {
+            continue;
+          }
+          TreeMap<Long, double[]> buckets = new TreeMap<>();
+          addBuckets(buckets, device, micros(from), micros(to), bucketMicros);
+          if (buckets.isEmpty()) {
+            continue;
+          }
+          builder.reset(deviceId);
+          buckets.forEach((start, sums) -> builder.add(instant(start), sums[0] / sums[1], sums[2]));
+          result.add(builder.build());
+        }
+        memoryQueries.increment();
+        return result;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    databaseQueries.increment();
+    return delegate.queryDeviceMetrics(from, to, deviceIds, bucket);
+  }
+
+  /** Adds the readings in {@code [from, end]} to per-bucket power sum, count and energy sum. */
+  private static void addBuckets(
+      TreeMap<Long, double[]> buckets,
+      DeviceSeries device,
+      long from,
+      long end,
+      long bucketMicros) {
+    for (int i = device.lowerBound(from); i < device.size(); i++) {
+      long time = device.time(i);
+      if (time > end) {
+        break;
+      }
+      long start =
+          TIME_BUCKET_ORIGIN
+              + Math.floorDiv(time - TIME_BUCKET_ORIGIN, bucketMicros) * bucketMicros;
+      double[] sums = buckets.computeIfAbsent(start, key -> new double[3]);
+      sums[0] += device.power(i);
+      sums[1]++;
+      sums[2] += device.energy(i);
+    }
+  }
+
+  @Override
+  public List<TelemetryRecord> findLatest(Optional<String> deviceId, int limit) {
+    lock.readLock().lock();
+    try {
+      if (warmedFrom != NOT_WARM) {
+        List<TelemetryRecord> latest = latestInMemory(deviceId, limit);
+        if (latest != null) {
+          memoryQueries.increment();
+          return latest;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    databaseQueries.increment();
+    return delegate.findLatest(deviceId, limit);
+  }
+
+  @Override
+  public List<TelemetryRecord> findBetween(Instant from, Instant to, int limit) {
+    return delegate.findBetween(from, to, limit);
+  }
+
+  @Override
+  public List<TimeSeriesPoint> loadPowerSeries(
+      Instant from, Instant to, Optional<String> deviceId) {
+    lock.readLock().lock();
+    try {
+      if (covers(from)) {
+        long end = micros(to);
+        // Like the SQL: one device's raw readings, or the fleet's power summed per minute.
+        TreeMap<Long, double[]> minutes = deviceId.isPresent() ? null : new TreeMap<>();
+        List<TimeSeriesPoint> points = new ArrayList<>();
+        for (DeviceSeries device : select(deviceId)) {
+          for (int i = device.lowerBound(micros(from)); i < device.size(); i++) {
+            long time = device.time(i);
+            if (time > end) {
+              break;
+            }
+            if (minutes == null) {
+              points.add(new TimeSeriesPoint(instant(time), device.power(i)));
+            } else {
+              minutes
+                      .computeIfAbsent(Math.floorDiv(time, MINUTE) * MINUTE, key -> new double[1])[
+                      0] +=
+                  device.power(i);
+            }
+          }
+        }
+        if (minutes != null) {
+          minutes.forEach(
+              (minute, sum) -> points.add(new TimeSeriesPoint(instant(minute), sum[0])));
+        }
+        memoryQueries.increment();
+        return points;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    databaseQueries.increment();
+    return delegate.loadPowerSeries(from, to, deviceId);
+  }
+
+  @Override
+  public Optional<Instant> findMostRecentTimestamp() {
+    lock.readLock().lock();
+    try {
+      if (warmedFrom != NOT_WARM && newest != EMPTY) {
+        memoryQueries.increment();
+        return Optional.of(instant(newest));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    databaseQueries.increment();
+    return delegate.findMostRecentTimestamp();
+  }
+
+  @Override
+  public List<String> listDeviceIds() {
+    return delegate.listDeviceIds();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (subscription != null && !subscription.isDisposed()) {
+      subscription.dispose();
+    }
+  }
+
+  private void add(TelemetryRecord record) {
+    lock.writeLock().lock();
+    try {
+      store(record);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void store(TelemetryRecord record) {
+    long time = micros(record.time());
+    if (time > newest) {
+      newest = time;
+      if (lastSweep == EMPTY || time - lastSweep >= MINUTE) {
+        // Devices that went quiet are only trimmed here, at most once a minute of data.
+        lastSweep = time;
+        sweep();
+      }
+    }
+    long horizon = newest - windowMicros;
+    if (time < horizon) {
+      return;
+    }
+    DeviceSeries device = series.computeIfAbsent(record.deviceId(), id -> new DeviceSeries(64));
+    // power_kw is generated from energy_kwh in the table, whatever a producer sent along.
+    long delta = device.put(time, record.energyKwh(), record.energyKwh() * 60) ? 1 : 0;
+    readings += delta - device.evictBefore(horizon);
+  }
+
+  private void sweep() {
+    long horizon = newest - windowMicros;
+    long evicted = 0;
+    Iterator<DeviceSeries> iterator = series.values().iterator();
+    while (iterator.hasNext()) {
+      DeviceSeries device = iterator.next();
+      evicted += device.evictBefore(horizon);
+      if (device.size() == 0) {
+        iterator.remove();
+      }
+    }
+    readings -= evicted;
+  }
+
+  /** Whether memory holds every row at or after {@code from}. */
+  private boolean covers(Instant from) {
+    if (warmedFrom == NOT_WARM) {
+      return false;
+    }
+    long horizon = newest == EMPTY ? warmedFrom : Math.max(warmedFrom, newest - windowMicros);
+    return micros(from) >= horizon;
+  }
+
+  private Collection<DeviceSeries> select(Optional<String> deviceId) {
+    if (deviceId.isEmpty()) {
+      return series.values();
+    }
+    DeviceSeries device = series.get(deviceId.get());
+    return device == null ? List.of() : List.of(device);
+  }
+
+  /**
+   * The newest {@code limit} rows, oldest first, merged across devices from the tail of each
+   * series; {@code null} when they may include rows memory does not hold.
+   */
+  private List<TelemetryRecord> latestInMemory(Optional<String> deviceId, int limit) {
+    PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> Long.compare(b.time(), a.time()));
+    if (deviceId.isEmpty()) {
+      series.forEach((id, device) -> cursors.add(new Cursor(id, device, device.size() - 1)));
+    } else if (series.containsKey(deviceId.get())) {
+      DeviceSeries device = series.get(deviceId.get());
+      cursors.add(new Cursor(deviceId.get(), device, device.size() - 1));
+    }
+    cursors.removeIf(cursor -> cursor.index < 0);
+    long horizon = newest == EMPTY ? warmedFrom : Math.max(warmedFrom, newest - windowMicros);
+    List<TelemetryRecord> latest = new ArrayList<>(limit);
+    while (latest.size() < limit) {
+      Cursor cursor = cursors.poll();
+      if (cursor == null) {
+        // Fewer rows than asked for: only complete if nothing was ever older than memory.
+        return warmedFrom == EMPTY ? reversed(latest) : null;
+      }
+      if (cursor.time() < horizon) {
+        return null;
+      }
+      DeviceSeries device = cursor.device;
+      latest.add(
+          new TelemetryRecord(
+              instant(cursor.time()),
+              cursor.deviceId,
+              device.energy(cursor.index),
+              device.power(cursor.index)));
+      if (cursor.index > 0) {
+        cursors.add(new Cursor(cursor.deviceId, device, cursor.index - 1));
+      }
+    }
+    return reversed(latest);
+  }
+
+  private static List<TelemetryRecord> reversed(List<TelemetryRecord> records) {
+    Collections.reverse(records);
+    return records;
+  }
+
+  private static long micros(Instant time) {
+    return Math.addExact(
+        Math.multiplyExact(time.getEpochSecond(), 1_000_000L), time.getNano() / 1_000);
+  }
+
+  private static Instant instant(long micros) {
+    return Instant.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+  }
+
+  private record Cursor(String deviceId, DeviceSeries device, int index) {
+    long time() {
+      return device.time(index);
+    }
+  }
+}
@@ -1,19 +1,33 @@
 // path: server/src/main/java/com/greenko/windfarm/repository/JdbcTelemetryRepository.java
 package com.greenko.windfarm.repository;
 
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.DeviceMetricSeries;
 import com.greenko.windfarm.model.MetricPoint;
 import com.greenko.windfarm.model.TelemetryRecord;
 import com.greenko.windfarm.model.TimeSeriesPoint;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.postgresql.PGConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
@@ -21,51 +35,175 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class JdbcTelemetryRepository implements TelemetryRepository {
   private static final Logger log = LoggerFactory.getLogger(JdbcTelemetryRepository.class);
+  /** Rows per round trip when streaming through a cursor. */
+  private static final int STREAM_FETCH_SIZE = 2_000;
+  private static final RowMapper<TelemetryRecord> TELEMETRY_RECORD_MAPPER =
+          (rs, rowNum) ->
+                  new TelemetryRecord(
+                          rs.getTimestamp("time").toInstant(),
+                          rs.getString("device_id"),
+                          rs.getDouble("energy_kwh"),
+                          rs.getDouble("power_kw"));
   private final JdbcTemplate jdbcTemplate;
+  private final WindfarmProperties.Export export;
 
-  public JdbcTelemetryRepository(JdbcTemplate jdbcTemplate) {
+  public JdbcTelemetryRepository(JdbcTemplate jdbcTemplate, WindfarmProperties properties) {
     this.jdbcTemplate = jdbcTemplate;
+    this.export = properties.getExport();
   }
 
   @Override
   public List<MetricPoint> queryMetrics(
           Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+    Query query = metricsQuery(from, to, deviceId.stream().toList(), bucket, false);
+    return jdbcTemplate.query(query.sql(), query.params(), this::mapMetricPoint);
+  }
+
+  /**
+   * Like {@link #queryMetrics} but hands each point to {@code sink} as it is read through a cursor,
+   * so memory stays flat however long the range is.
+   */
+  public void streamMetrics(
+          Instant from,
+          Instant to,
+          Optional<String> deviceId,
+          Duration bucket,
+          Consumer<? super MetricPoint> sink) {
+    stream(
+            metricsQuery(from, to, deviceId.stream().toList(), bucket, false),
+            this::mapMetricPoint,
+            sink);
+  }
+
+  @Override
+  public List<DeviceMetricSeries> queryDeviceMetrics(
+          Instant from, Instant to, List<String> deviceIds, Duration bucket) {
+    Query query = metricsQuery(from, to, deviceIds, bucket, true);
+    // Rows arrive ordered by device, so each device's series is built up in one run.
+    List<DeviceMetricSeries> series = new ArrayList<>();
+    DeviceMetricSeries.Builder current = new DeviceMetricSeries.Builder();
+    jdbcTemplate.query(
+            query.sql(),
+            rs -> {
+              String deviceId = rs.getString("device_id");
+              if (!deviceId.equals(current.deviceId())) {
+                if (current.deviceId() != null) {
+                  series.add(current.build());
+                }
+                current.reset(deviceId);
+              }
+              current.add(
+                      rs.getTimestamp("bucket_start").toInstant(),
+                      rs.getDouble("avg_power"),
+                      rs.getDouble("total_energy"));
+            },
+            query.params());
+    if (current.deviceId() != null) {
+      series.add(current.build());
+    }
+    return series;
+  }
+
+  /**
+   * Buckets readings of {@code deviceIds} (every device when empty), per device when
+   * {@code byDevice} is set and otherwise across them.
+   */
+  private Query metricsQuery(
+          Instant from, Instant to, List<String> deviceIds, Duration bucket, boolean byDevice) {
     String intervalLiteral = intervalLiteral(bucket);
+    if (!RollupPlanner.usable(bucket).isEmpty()) {
+      List<RollupPlanner.Segment> plan =
+              RollupPlanner.plan(from, to, bucket, rollupWatermarks());
+      if (plan.stream().anyMatch(segment -> !segment.isRaw())) {
+        return rollupQuery(plan, deviceIds, intervalLiteral, byDevice);
+      }
+    }
     StringBuilder sql =
             new StringBuilder(
-                    "SELECT time_bucket('"
+                    "SELECT "
+                            + (byDevice ? "device_id, " : "")
+                            + "time_bucket('"
                             + intervalLiteral
                             + "', time) AS bucket_start, "
                             + "AVG(power_kw) AS avg_power, "
                             + "SUM(energy_kwh) AS total_energy "
                             + "FROM telemetry WHERE time >= ? AND time <= ?");
-    if (deviceId.isPresent()) {
-      sql.append(" AND device_id = ?");
+    List<Object> params = new ArrayList<>();
+    params.add(java.sql.Timestamp.from(from));
+    params.add(java.sql.Timestamp.from(to));
+    appendDeviceFilter(sql, params, deviceIds);
+    sql.append(byDevice
+            ? " GROUP BY device_id, bucket_start ORDER BY device_id, bucket_start"
+            : " GROUP BY bucket_start ORDER BY bucket_start");
+    return new Query(sql.toString(), params.toArray());
+  }
+
+  /**
+   * Reads each planned segment from its rollup or from the raw table and buckets them together.
+   * Rollup rows carry sums and counts, so a raw reading joins them as a count of one.
+   */
+  private Query rollupQuery(
+          List<RollupPlanner.Segment> plan,
+          List<String> deviceIds,
+          String intervalLiteral,
+          boolean byDevice) {
+    Map<String, List<RollupPlanner.Segment>> bySource = new LinkedHashMap<>();
+    for (RollupPlanner.Segment segment : plan) {
+      bySource.computeIfAbsent(segment.source(), source -> new ArrayList<>()).add(segment);
+    }
+    StringBuilder sql =
+            new StringBuilder(
+                    "SELECT "
+                            + (byDevice ? "device_id, " : "")
+                            + "time_bucket('"
+                            + intervalLiteral
+                            + "', time) AS bucket_start, "
+                            + "SUM(power_sum) / SUM(readings)::double precision AS avg_power, "
+                            + "SUM(energy_sum) AS total_energy FROM (");
+    List<Object> params = new ArrayList<>();
+    String separator = "";
+    for (Map.Entry<String, List<RollupPlanner.Segment>> entry : bySource.entrySet()) {
+      boolean raw = RollupPlanner.RAW.equals(entry.getKey());
+      String timeColumn = raw ? "time" : "bucket";
+      sql.append(separator)
+              .append(raw
+                      ? "SELECT time, device_id, power_kw AS power_sum, 1::bigint AS readings, "
+                              + "energy_kwh AS energy_sum FROM telemetry"
+                      : "SELECT bucket AS time, device_id, power_sum, readings::bigint AS readings, "
+                              + "energy_sum FROM " + entry.getKey())
+              .append(" WHERE (");
+      String or = "";
+      for (RollupPlanner.Segment segment : entry.getValue()) {
+        sql.append(or).append('(').append(timeColumn).append(" >= ? AND ")
+                .append(timeColumn).append(" < ?)");
+        params.add(java.sql.Timestamp.from(segment.start()));
+        params.add(java.sql.Timestamp.from(segment.end()));
+        or = " OR ";
+      }
+      sql.append(')');
+      appendDeviceFilter(sql, params, deviceIds);
+      separator = " UNION ALL ";
     }
-    sql.append(" GROUP BY bucket_start ORDER BY bucket_start");
+    sql.append(byDevice
+            ? ") parts GROUP BY device_id, bucket_start ORDER BY device_id, bucket_start"
+            : ") parts GROUP BY bucket_start ORDER BY bucket_start");
+    return new Query(sql.toString(), params.toArray());
+  }
 
-    Object[] params;
-    if (deviceId.isPresent()) {
-      params = new Object[] {
-              java.sql.Timestamp.from(from),
-              java.sql.Timestamp.from(to),
-              deviceId.get()
-      };
-    } else {
-      params = new Object[] {
-              java.sql.Timestamp.from(from),
-              java.sql.Timestamp.from(to)
-      };
+  private static void appendDeviceFilter(
+          StringBuilder sql, List<Object> params, List<String> deviceIds) {
+    if (deviceIds.size() == 1) {
+      sql.append(" AND device_id = ?");
+      params.add(deviceIds.get(0));
+    } else if (!deviceIds.isEmpty()) {
+      sql.append(" AND device_id = ANY(?)");
+      params.add(deviceIds.toArray(String[]::new));
     }
+  }
 
-    return jdbcTemplate.query(
-            sql.toString(),
-            params,
-            (rs, rowNum) ->
-                    new MetricPoint(
-                            rs.getTimestamp("bucket_start").toInstant(),
-                            rs.getDouble("avg_power"),
-                            rs.getDouble("total_energy")));
+  /** Start of the newest materialized bucket of each rollup that has any. */
+  private Map<String, Instant> rollupWatermarks() {
+    return new TelemetryRollups(jdbcTemplate).watermarks();
   }
 
   @Override
@@ -98,32 +236,151 @@ public class JdbcTelemetryRepository implements TelemetryRepository {
             .collect(Collectors.toList());
   }
 
+  @Override
+  public List<TelemetryRecord> findBetween(Instant from, Instant to, int limit) {
+    // Half-open, so a catch-up that ends where the SSE replay ring begins does not repeat it.
+    String sql = "SELECT time, device_id, energy_kwh, power_kw FROM telemetry WHERE time >= ? AND time < ? ORDER BY time, device_id LIMIT ?";
+    return jdbcTemplate.query(
+            sql,
+            new Object[] {
+                    java.sql.Timestamp.from(from),
+                    java.sql.Timestamp.from(to),
+                    limit
+            },
+            (rs, rowNum) ->
+                    new TelemetryRecord(
+                            rs.getTimestamp("time").toInstant(),
+                            rs.getString("device_id"),
+                            rs.getDouble("energy_kwh"),
+                            rs.getDouble("power_kw")));
+  }
+
   @Override
   public List<TimeSeriesPoint> loadPowerSeries(
           Instant from, Instant to, Optional<String> deviceId) {
+    Query query = powerSeriesQuery(from, to, deviceId);
+    return jdbcTemplate.query(query.sql(), query.params(), this::mapTimeSeriesPoint);
+  }
+
+  /** Like {@link #loadPowerSeries} but read through a cursor into {@code sink}. */
+  public void streamPowerSeries(
+          Instant from, Instant to, Optional<String> deviceId, Consumer<? super TimeSeriesPoint> sink) {
+    stream(powerSeriesQuery(from, to, deviceId), this::mapTimeSeriesPoint, sink);
+  }
+
+  private Query powerSeriesQuery(Instant from, Instant to, Optional<String> deviceId) {
     if (deviceId.isPresent()) {
       String sql = "SELECT time, power_kw AS power FROM telemetry WHERE device_id = ? AND time >= ? AND time <= ? ORDER BY time";
-      return jdbcTemplate.query(
+      return new Query(
               sql,
               new Object[] {
                       deviceId.get(),
                       java.sql.Timestamp.from(from),
                       java.sql.Timestamp.from(to)
-              },
-              this::mapTimeSeriesPoint);
+              });
     } else {
       // Fixed: Use time_bucket for proper aggregation across all devices
       String sql = "SELECT time_bucket('1 minute', time) AS time, SUM(power_kw) AS power FROM telemetry WHERE time >= ? AND time <= ? GROUP BY time_bucket('1 minute', time) ORDER BY time";
-      return jdbcTemplate.query(
+      return new Query(
               sql,
               new Object[] {
                       java.sql.Timestamp.from(from),
                       java.sql.Timestamp.from(to)
-              },
-              this::mapTimeSeriesPoint);
+              });
     }
   }
 
+  /** Raw readings in {@code [from, to]} in time and device order, read through a cursor. */
+  public void streamRaw(
+          Instant from, Instant to, Optional<String> deviceId, Consumer<? super TelemetryRecord> sink) {
+    String sql = "SELECT time, device_id, energy_kwh, power_kw FROM telemetry WHERE time >= ? AND time <= ?"
+            + (deviceId.isPresent() ? " AND device_id = ?" : "")
+            + " ORDER BY time, device_id";
+    Object[] params = deviceId.isPresent()
+            ? new Object[] {java.sql.Timestamp.from(from), java.sql.Timestamp.from(to), deviceId.get()}
+            : new Object[] {java.sql.Timestamp.from(from), java.sql.Timestamp.from(to)};
+    stream(new Query(sql, params), TELEMETRY_RECORD_MAPPER, sink);
+  }
+
+  /**
+   * Writes the raw readings in {@code [from, to]} to {@code out} as CSV with a header, produced by
+   * the server with {@code COPY ... TO STDOUT} so no row is materialized here. Returns the number
+   * of rows.
+   */
+  public long copyRawCsv(Instant from, Instant to, Optional<String> deviceId, OutputStream out) {
+    // COPY takes no bind parameters; instants print without quotes and the device id is escaped.
+    String sql = "COPY (SELECT to_char(time AT TIME ZONE 'UTC', 'YYYY-MM-DD\"T\"HH24:MI:SS.US\"Z\"') AS \"time\", "
+            + "device_id AS \"deviceId\", energy_kwh AS \"energyKwh\", power_kw AS \"powerKw\" "
+            + "FROM telemetry WHERE time >= '" + from + "'::timestamptz AND time <= '" + to + "'::timestamptz"
+            + deviceId.map(id -> " AND device_id = '" + id.replace("'", "''") + "'").orElse("")
+            + " ORDER BY time, device_id) TO STDOUT WITH (FORMAT csv, HEADER)";
+    return inExportTransaction(
+            con -> {
+              if (!con.isWrapperFor(PGConnection.class)) {
+                throw new IllegalStateException("CSV export requires a PostgreSQL connection");
+              }
+              try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+              } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+              }
+            });
+  }
+
+  /**
+   * Runs {@code query} in a transaction so that the driver fetches through a cursor,
+   * {@link #STREAM_FETCH_SIZE} rows at a time, instead of buffering the whole result.
+   */
+  private <T> void stream(Query query, RowMapper<T> mapper, Consumer<? super T> sink) {
+    inExportTransaction(
+            con -> {
+              try (PreparedStatement statement = con.prepareStatement(query.sql())) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                new ArgumentPreparedStatementSetter(query.params()).setValues(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                  for (int row = 0; rs.next(); row++) {
+                    sink.accept(mapper.mapRow(rs, row));
+                  }
+                }
+              }
+              return null;
+            });
+  }
+
+  /**
+   * Runs an export in its own transaction, bounded by the export statement timeout and by an
+   * idle-in-transaction timeout. An export holds its connection for as long as the client takes to
+   * download it; when the client stops reading, the server ends the session rather than letting it
+   * hold a pooled connection until the request times out.
+   */
+  private <T> T inExportTransaction(ConnectionCallback<T> work) {
+    return jdbcTemplate.execute(
+            (ConnectionCallback<T>) con -> {
+              boolean autoCommit = con.getAutoCommit();
+              con.setAutoCommit(false);
+              try {
+                try (Statement settings = con.createStatement()) {
+                  settings.execute("SET LOCAL statement_timeout = "
+                          + export.getStatementTimeout().toMillis());
+                  settings.execute("SET LOCAL idle_in_transaction_session_timeout = "
+                          + export.getIdleTimeout().toMillis());
+                }
+                T result = work.doInConnection(con);
+                con.commit();
+                return result;
+              } catch (SQLException | RuntimeException ex) {
+                try {
+                  con.rollback();
+                } catch (SQLException rollback) {
+                  ex.addSuppressed(rollback);
+                }
+                throw ex;
+              } finally {
+                con.setAutoCommit(autoCommit);
+              }
+            });
+  }
+
   @Override
   public Optional<Instant> findMostRecentTimestamp() {
     return jdbcTemplate.query(
@@ -134,7 +391,7 @@ public class JdbcTelemetryRepository implements TelemetryRepository {
   @Override
   public List<String> listDeviceIds() {
     return jdbcTemplate.query(
-            "SELECT DISTINCT device_id FROM telemetry ORDER BY device_id",
+            "SELECT device_id FROM device ORDER BY device_id",
             (rs, rowNum) -> rs.getString("device_id"));
   }
 
@@ -173,7 +430,16 @@ public class JdbcTelemetryRepository implements TelemetryRepository {
     return builder.toString();
   }
 
+  private MetricPoint mapMetricPoint(ResultSet rs, int rowNum) throws SQLException {
+    return new MetricPoint(
+            rs.getTimestamp("bucket_start").toInstant(),
+            rs.getDouble("avg_power"),
+            rs.getDouble("total_energy"));
+  }
+
   private TimeSeriesPoint mapTimeSeriesPoint(ResultSet rs, int rowNum) throws SQLException {
     return new TimeSeriesPoint(rs.getTimestamp("time").toInstant(), rs.getDouble("power"));
   }
-}
\ No newline at end of file
+
+  private record Query(String sql, Object[] params) {}
+}
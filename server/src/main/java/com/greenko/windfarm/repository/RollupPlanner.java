@@ -0,0 +1,108 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/RollupPlanner.java
+package com.greenko.windfarm.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a metrics range into pieces that can each be read from the coarsest continuous aggregate
+ * able to answer them. A rollup is usable when its width divides the requested bucket, so every
+ * rollup bucket falls inside exactly one requested bucket; all of them share {@code time_bucket}'s
+ * default origin. The middle of the range is served from the coarsest usable rollup, the partial
+ * buckets at its edges from finer ones, and whatever lies before the first whole minute or after a
+ * rollup's materialization watermark from the raw table.
+ */
+final class RollupPlanner {
+  /** The raw table, used for anything no rollup covers. */
+  static final String RAW = "telemetry";
+
+  /** Rollups from finest to coarsest, as created by the {@code V3} migration. */
+  static final List<Rollup> ROLLUPS =
+      List.of(
+          new Rollup("telemetry_1m", Duration.ofMinutes(1)),
+          new Rollup("telemetry_15m", Duration.ofMinutes(15)),
+          new Rollup("telemetry_1h", Duration.ofHours(1)),
+          new Rollup("telemetry_1d", Duration.ofDays(1)));
+
+  record Rollup(String view, Duration width) {}
+
+  /** Rows of {@code source} with a time (or bucket start) in {@code [start, end)}. */
+  record Segment(String source, Instant start, Instant end) {
+    boolean isRaw() {
+      return RAW.equals(source);
+    }
+  }
+
+  private RollupPlanner() {}
+
+  /** Rollups whose width divides {@code bucket}, finest first. */
+  static List<Rollup> usable(Duration bucket) {
+    List<Rollup> usable = new ArrayList<>();
+    for (Rollup rollup : ROLLUPS) {
+      if (bucket.toNanos() % rollup.width().toNanos() == 0) {
+        usable.add(rollup);
+      }
+    }
+    return usable;
+  }
+
+  /**
+   * Plans the inclusive range {@code [from, to]} in time order.
+   *
+   * @param watermarks per rollup view, the start of its newest materialized bucket; that bucket may
+   *     still be filling and is not trusted. Rollups without an entry are not used.
+   */
+  static List<Segment> plan(
+      Instant from, Instant to, Duration bucket, Map<String, Instant> watermarks) {
+    List<Rollup> usable = usable(bucket);
+    List<Segment> segments = new ArrayList<>();
+    split(micros(from), micros(to) + 1, usable.size() - 1, usable, watermarks, segments);
+    return segments;
+  }
+
+  private static void split(
+      long start,
+      long end,
+      int level,
+      List<Rollup> usable,
+      Map<String, Instant> watermarks,
+      List<Segment> segments) {
+    if (start >= end) {
+      return;
+    }
+    if (level < 0) {
+      segments.add(new Segment(RAW, instant(start), instant(end)));
+      return;
+    }
+    Rollup rollup = usable.get(level);
+    Instant watermark = watermarks.get(rollup.view());
+    long width = micros(rollup.width());
+    long limit = watermark == null ? Long.MIN_VALUE : Math.min(end, micros(watermark));
+    long first = -Math.floorDiv(-start, width) * width;
+    long last = Math.floorDiv(limit, width) * width;
+    if (watermark == null || first >= last) {
+      split(start, end, level - 1, usable, watermarks, segments);
+      return;
+    }
+    split(start, first, level - 1, usable, watermarks, segments);
+    segments.add(new Segment(rollup.view(), instant(first), instant(last)));
+    split(last, end, level - 1, usable, watermarks, segments);
+  }
+
+  private static long micros(Instant instant) {
+    return Math.addExact(
+        Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+  }
+
+  private static long micros(Duration duration) {
+    return duration.toNanos() / 1_000;
+  }
+
+  private static Instant instant(long micros) {
+    return Instant.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000);
+  }
+}
@@ -0,0 +1,105 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/TelemetryCopyEncoder.java
+package com.greenko.windfarm.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Encodes telemetry rows in the PostgreSQL binary {@code COPY} format for the staging table layout
+ * {@code (ord INT, time TIMESTAMPTZ, device_id TEXT, energy_kwh DOUBLE PRECISION)}.
+ *
+ * <p>The {@code ord} column carries the position of the row inside the batch so the merge step can
+ * keep the last write when a batch contains the same {@code (time, device_id)} twice.
+ */
+public final class TelemetryCopyEncoder {
+  private static final byte[] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0
+  };
+  private static final long POSTGRES_EPOCH_MICROS = 946_684_800L * 1_000_000L;
+  private static final short FIELD_COUNT = 4;
+
+  private byte[] buffer;
+  private int position;
+  private int rows;
+  private String lastDeviceId;
+  private byte[] lastDeviceBytes;
+
+  public TelemetryCopyEncoder(int expectedRows) {
+    this.buffer = new byte[Math.max(64, 19 + expectedRows * 48)];
+    reset();
+  }
+
+  public void reset() {
+    rows = 0;
+    System.arraycopy(SIGNATURE, 0, buffer, 0, SIGNATURE.length);
+    position = SIGNATURE.length;
+    putInt(0); // flags
+    putInt(0); // header extension length
+  }
+
+  public void add(Instant time, String deviceId, double energyKwh) {
+    add(time.getEpochSecond() * 1_000_000L + time.getNano() / 1_000, deviceId, energyKwh);
+  }
+
+  public void add(long epochMicros, String deviceId, double energyKwh) {
+    if (deviceId != lastDeviceId) {
+      lastDeviceBytes = deviceId.getBytes(StandardCharsets.UTF_8);
+      lastDeviceId = deviceId;
+    }
+    add(epochMicros, lastDeviceBytes, energyKwh);
+  }
+
+  /** Adds a row whose device id is already UTF-8 encoded, e.g. from a device dictionary. */
+  public void add(long epochMicros, byte[] device, double energyKwh) {
+    ensureCapacity(2 + 8 + 12 + 4 + device.length + 12);
+    putShort(FIELD_COUNT);
+    putInt(4);
+    putInt(rows++);
+    putInt(8);
+    putLong(epochMicros - POSTGRES_EPOCH_MICROS);
+    putInt(device.length);
+    System.arraycopy(device, 0, buffer, position, device.length);
+    position += device.length;
+    putInt(8);
+    putLong(Double.doubleToRawLongBits(energyKwh));
+  }
+
+  /** Appends the trailer and returns the number of valid bytes in {@link #buffer()}. */
+  public int finish() {
+    ensureCapacity(2);
+    putShort((short) -1);
+    return position;
+  }
+
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  public int rowCount() {
+    return rows;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (position + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+    }
+  }
+
+  private void putShort(short value) {
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void putInt(int value) {
+    buffer[position++] = (byte) (value >>> 24);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void putLong(long value) {
+    putInt((int) (value >>> 32));
+    putInt((int) value);
+  }
+}
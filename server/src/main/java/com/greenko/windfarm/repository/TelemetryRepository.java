@@ -1,6 +1,7 @@
 // path: server/src/main/java/com/greenko/windfarm/repository/TelemetryRepository.java
 package com.greenko.windfarm.repository;
 
+import com.greenko.windfarm.model.DeviceMetricSeries;
 import com.greenko.windfarm.model.MetricPoint;
 import com.greenko.windfarm.model.TelemetryRecord;
 import com.greenko.windfarm.model.TimeSeriesPoint;
@@ -13,8 +14,17 @@ public interface TelemetryRepository {
   List<MetricPoint> queryMetrics(
       Instant from, Instant to, Optional<String> deviceId, Duration bucket);
 
+  /**
+   * Buckets each of {@code deviceIds} separately, or every device when it is empty, in one query.
+   * Series are ordered by device id; devices without readings in the range are left out.
+   */
+  List<DeviceMetricSeries> queryDeviceMetrics(
+      Instant from, Instant to, List<String> deviceIds, Duration bucket);
+
   List<TelemetryRecord> findLatest(Optional<String> deviceId, int limit);
 
+  List<TelemetryRecord> findBetween(Instant from, Instant to, int limit);
+
   List<TimeSeriesPoint> loadPowerSeries(Instant from, Instant to, Optional<String> deviceId);
 
   Optional<Instant> findMostRecentTimestamp();
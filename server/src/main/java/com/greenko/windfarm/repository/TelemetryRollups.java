@@ -0,0 +1,92 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/TelemetryRollups.java
+package com.greenko.windfarm.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and refreshes the materialization of the telemetry rollups. Metrics queries trust a rollup
+ * up to the start of its newest bucket, so a write landing before that point is only visible in the
+ * rollup once the range is refreshed again.
+ */
+@Repository
+public class TelemetryRollups {
+  private static final long TIME_BUCKET_ORIGIN =
+      Instant.parse("2000-01-03T00:00:00Z").getEpochSecond();
+  private final JdbcTemplate jdbcTemplate;
+
+  public TelemetryRollups(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Start of the newest materialized bucket of each rollup that has any. */
+  public Map<String, Instant> watermarks() {
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < RollupPlanner.ROLLUPS.size(); i++) {
+      String view = RollupPlanner.ROLLUPS.get(i).view();
+      sql.append(i == 0 ? "" : ", ")
+          .append("(SELECT max(bucket) FROM ")
+          .append(view)
+          .append(") AS ")
+          .append(view);
+    }
+    return jdbcTemplate.query(
+        sql.toString(),
+        rs -> {
+          Map<String, Instant> watermarks = new HashMap<>();
+          if (rs.next()) {
+            for (RollupPlanner.Rollup rollup : RollupPlanner.ROLLUPS) {
+              Timestamp watermark = rs.getTimestamp(rollup.view());
+              if (watermark != null) {
+                watermarks.put(rollup.view(), watermark.toInstant());
+              }
+            }
+          }
+          return watermarks;
+        });
+  }
+
+  /**
+   * Re-materializes, finest first, the buckets of every rollup that {@code [from, to]} overlaps
+   * below its watermark, and returns how many rollups that was. Writes past the watermark are left
+   * to the refresh policies, since queries read those buckets from the raw table anyway.
+   */
+  public int refresh(Instant from, Instant to) {
+    return refresh(from, to, watermarks());
+  }
+
+  /** Like {@link #refresh(Instant, Instant)}, against watermarks read earlier by the caller. */
+  public int refresh(Instant from, Instant to, Map<String, Instant> watermarks) {
+    int refreshed = 0;
+    for (RollupPlanner.Rollup rollup : RollupPlanner.ROLLUPS) {
+      Instant watermark = watermarks.get(rollup.view());
+      if (watermark == null || !from.isBefore(watermark)) {
+        continue;
+      }
+      long width = rollup.width().getSeconds();
+      Instant start = Instant.ofEpochSecond(align(from.getEpochSecond(), width));
+      Instant end = Instant.ofEpochSecond(align(to.getEpochSecond(), width) + width);
+      if (end.isAfter(watermark)) {
+        end = watermark;
+      }
+      jdbcTemplate.execute(
+          "CALL refresh_continuous_aggregate('"
+              + rollup.view()
+              + "', '"
+              + start
+              + "'::timestamptz, '"
+              + end
+              + "'::timestamptz)");
+      refreshed++;
+    }
+    return refreshed;
+  }
+
+  private static long align(long seconds, long width) {
+    return TIME_BUCKET_ORIGIN + Math.floorDiv(seconds - TIME_BUCKET_ORIGIN, width) * width;
+  }
+}
@@ -0,0 +1,121 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/TelemetrySeedWriter.java
+package com.greenko.windfarm.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Bulk-loads seed chunks with binary {@code COPY} and keeps the per-dataset seed checkpoint.
+ *
+ * <p>Each chunk is copied into the session-local staging table and inserted with {@code ON CONFLICT
+ * DO NOTHING} in its own transaction, so re-sending a chunk after an interrupted seed is harmless.
+ * Safe for concurrent use; every call borrows its own connection.
+ */
+public class TelemetrySeedWriter {
+  private static final String INSERT =
+      "INSERT INTO telemetry(time, device_id, energy_kwh) "
+          + "SELECT time, device_id, energy_kwh FROM telemetry_staging "
+          + "ON CONFLICT (time, device_id) DO NOTHING";
+  private static final String DROP_DEVICE_TIME_INDEX =
+      "DROP INDEX IF EXISTS idx_telemetry_device_time_desc";
+  private static final String CREATE_DEVICE_TIME_INDEX =
+      "CREATE INDEX IF NOT EXISTS idx_telemetry_device_time_desc "
+          + "ON telemetry (device_id, time DESC)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public TelemetrySeedWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Copies and commits one encoded chunk; the encoder must not have been finished yet. */
+  public void write(TelemetryCopyEncoder encoder) {
+    if (encoder.rowCount() == 0) {
+      return;
+    }
+    jdbcTemplate.execute((ConnectionCallback<Void>) con -> copy(con, encoder));
+  }
+
+  public Optional<Instant> lastCheckpoint(String dataset) {
+    return jdbcTemplate
+        .query(
+            "SELECT last_time FROM seed_checkpoint WHERE dataset = ?",
+            (rs, rowNum) -> rs.getTimestamp(1).toInstant(),
+            dataset)
+        .stream()
+        .findFirst();
+  }
+
+  /** Records that every row at or before {@code lastTime} has been committed. */
+  public void checkpoint(String dataset, Instant lastTime, long rowsLoaded) {
+    jdbcTemplate.update(
+        "INSERT INTO seed_checkpoint(dataset, last_time, rows_loaded) VALUES (?, ?, ?) "
+            + "ON CONFLICT (dataset) DO UPDATE SET last_time = EXCLUDED.last_time, "
+            + "rows_loaded = EXCLUDED.rows_loaded, updated_at = now()",
+        dataset,
+        Timestamp.from(lastTime),
+        rowsLoaded);
+  }
+
+  /** Drops secondary indexes so the bulk load only maintains the primary key. */
+  public void dropDeferrableIndexes() {
+    jdbcTemplate.execute(DROP_DEVICE_TIME_INDEX);
+  }
+
+  public void createDeferrableIndexes() {
+    jdbcTemplate.execute(CREATE_DEVICE_TIME_INDEX);
+  }
+
+  /**
+   * Materializes the rollups, finest first, so that seeded history is served from them straight
+   * away instead of after the refresh policies next run.
+   */
+  public void refreshRollups() {
+    for (RollupPlanner.Rollup rollup : RollupPlanner.ROLLUPS) {
+      jdbcTemplate.execute(
+          "CALL refresh_continuous_aggregate('" + rollup.view() + "', NULL, NULL)");
+    }
+  }
+
+  private Void copy(Connection con, TelemetryCopyEncoder encoder) throws SQLException {
+    if (!con.isWrapperFor(PGConnection.class)) {
+      throw new IllegalStateException("Seeding requires a PostgreSQL connection");
+    }
+    boolean autoCommit = con.getAutoCommit();
+    con.setAutoCommit(false);
+    try {
+      try (Statement statement = con.createStatement()) {
+        statement.execute(CopyTelemetryWriter.CREATE_STAGING);
+      }
+      int length = encoder.finish();
+      CopyIn copyIn =
+          con.unwrap(PGConnection.class).getCopyAPI().copyIn(CopyTelemetryWriter.COPY_STAGING);
+      try {
+        copyIn.writeToCopy(encoder.buffer(), 0, length);
+        copyIn.endCopy();
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      }
+      try (Statement statement = con.createStatement()) {
+        statement.executeUpdate(INSERT);
+      }
+      con.commit();
+      return null;
+    } catch (SQLException | RuntimeException ex) {
+      con.rollback();
+      throw ex;
+    } finally {
+      con.setAutoCommit(autoCommit);
+    }
+  }
+}
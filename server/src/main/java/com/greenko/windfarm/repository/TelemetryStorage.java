@@ -0,0 +1,58 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/TelemetryStorage.java
+package com.greenko.windfarm.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Compresses and drops {@code telemetry} chunks. Every chunk is compressed in its own statement, so
+ * a long pass holds no lock across chunks and a failure leaves the chunks before it compressed.
+ */
+@Repository
+public class TelemetryStorage {
+  private final JdbcTemplate jdbcTemplate;
+
+  public TelemetryStorage(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public Optional<Instant> newestTime() {
+    return Optional.ofNullable(
+            jdbcTemplate.queryForObject("SELECT max(time) FROM telemetry", Timestamp.class))
+        .map(Timestamp::toInstant);
+  }
+
+  /** Chunks lying wholly before {@code olderThan} that are not compressed yet, oldest first. */
+  public List<String> uncompressedChunks(Instant olderThan) {
+    return jdbcTemplate.queryForList(
+        "SELECT format('%I.%I', chunk_schema, chunk_name) FROM timescaledb_information.chunks "
+            + "WHERE hypertable_name = 'telemetry' AND NOT is_compressed AND range_end <= ? "
+            + "ORDER BY range_start",
+        String.class, Timestamp.from(olderThan));
+  }
+
+  public void compressChunk(String chunk) {
+    jdbcTemplate.queryForObject(
+        "SELECT compress_chunk(?::regclass, if_not_compressed => true)::text", String.class, chunk);
+  }
+
+  /** Drops the chunks lying wholly before {@code olderThan} and returns how many there were. */
+  public int dropChunks(Instant olderThan) {
+    return jdbcTemplate
+        .queryForList(
+            "SELECT drop_chunks('telemetry', older_than => ?::timestamptz)::text",
+            String.class,
+            Timestamp.from(olderThan))
+        .size();
+  }
+
+  /** Size of the table, its indexes and its compressed chunks, in bytes. */
+  public long sizeBytes() {
+    Long size = jdbcTemplate.queryForObject("SELECT hypertable_size('telemetry')", Long.class);
+    return size == null ? 0 : size;
+  }
+}
@@ -0,0 +1,10 @@
+// path: server/src/main/java/com/greenko/windfarm/repository/TelemetryWriter.java
+package com.greenko.windfarm.repository;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.util.List;
+
+/** Persists batches of telemetry into the {@code telemetry} hypertable with upsert semantics. */
+public interface TelemetryWriter {
+  void write(List<TelemetryRecord> batch);
+}
@@ -1,19 +1,21 @@
 // path: server/src/main/java/com/greenko/windfarm/service/DeviceService.java
 package com.greenko.windfarm.service;
 
-import com.greenko.windfarm.repository.TelemetryRepository;
+import com.greenko.windfarm.model.Device;
+import com.greenko.windfarm.repository.DeviceDirectory;
 import java.util.List;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DeviceService {
-  private final TelemetryRepository repository;
+  private final DeviceDirectory directory;
 
-  public DeviceService(TelemetryRepository repository) {
-    this.repository = repository;
+  public DeviceService(DeviceDirectory directory) {
+    this.directory = directory;
   }
 
-  public List<String> listDevices() {
-    return repository.listDeviceIds();
+  /** Registered devices ordered by id, served from the in-process device directory. */
+  public List<Device> listDevices() {
+    return directory.devices();
   }
 }
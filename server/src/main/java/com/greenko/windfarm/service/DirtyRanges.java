@@ -0,0 +1,59 @@
+// path: server/src/main/java/com/greenko/windfarm/service/DirtyRanges.java
+package com.greenko.windfarm.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Time ranges written since they were last taken, with the devices written in each. Ranges that
+ * overlap or lie within {@code gap} of each other are merged, so a steady stream of batches at the
+ * head of the data stays one range while a late write further back keeps its own.
+ */
+final class DirtyRanges {
+  /** A merged range of writes; both ends inclusive. */
+  record Range(Instant from, Instant to, Set<String> deviceIds) {}
+
+  private final Duration gap;
+  // Keyed by the start of each range; ranges never overlap. Guarded by itself.
+  private final TreeMap<Instant, Range> ranges = new TreeMap<>();
+
+  DirtyRanges(Duration gap) {
+    this.gap = gap;
+  }
+
+  void add(Instant from, Instant to, Set<String> deviceIds) {
+    Set<String> devices = new HashSet<>(deviceIds);
+    synchronized (ranges) {
+      Map.Entry<Instant, Range> before = ranges.floorEntry(from);
+      if (before != null && !before.getValue().to().plus(gap).isBefore(from)) {
+        from = before.getKey();
+      }
+      Instant limit = to.plus(gap);
+      Map.Entry<Instant, Range> next = ranges.ceilingEntry(from);
+      while (next != null && !next.getKey().isAfter(limit)) {
+        Range merged = ranges.remove(next.getKey());
+        devices.addAll(merged.deviceIds());
+        if (merged.to().isAfter(to)) {
+          to = merged.to();
+        }
+        next = ranges.ceilingEntry(from);
+      }
+      ranges.put(from, new Range(from, to, Set.copyOf(devices)));
+    }
+  }
+
+  /** Removes and returns every range, earliest first. */
+  List<Range> take() {
+    synchronized (ranges) {
+      List<Range> taken = new ArrayList<>(ranges.values());
+      ranges.clear();
+      return taken;
+    }
+  }
+}
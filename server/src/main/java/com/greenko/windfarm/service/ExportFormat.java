@@ -0,0 +1,36 @@
+// path: server/src/main/java/com/greenko/windfarm/service/ExportFormat.java
+package com.greenko.windfarm.service;
+
+import java.util.Locale;
+
+/** Formats that exports can be streamed in. */
+public enum ExportFormat {
+  /** One JSON object per line, shaped like the JSON API. */
+  NDJSON("application/x-ndjson", "ndjson"),
+  /** Comma-separated values with a header row. */
+  CSV("text/csv", "csv");
+
+  private final String mediaType;
+  private final String extension;
+
+  ExportFormat(String mediaType, String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  public String mediaType() {
+    return mediaType;
+  }
+
+  public String extension() {
+    return extension;
+  }
+
+  public static ExportFormat parse(String value) {
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("Unsupported export format: " + value, ex);
+    }
+  }
+}
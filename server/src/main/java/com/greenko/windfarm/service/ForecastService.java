@@ -22,11 +22,23 @@ public class ForecastService {
     this.repository = repository;
   }
 
+  /**
+   * Forecasts {@code horizon} from the power series of the trailing {@code window}. The model
+   * always fits every point of the window; {@code maxPoints}, unless 0, only bounds the forecast
+   * points returned, which are reduced with LTTB.
+   */
   public ForecastResponse forecast(
-      Optional<String> deviceId, Duration window, Duration horizon, Duration bucket) {
+      Optional<String> deviceId,
+      Duration window,
+      Duration horizon,
+      Duration bucket,
+      int maxPoints) {
     if (horizon.isNegative() || horizon.isZero()) {
       throw new IllegalArgumentException("horizon must be positive");
     }
+    if (maxPoints != 0) {
+      Lttb.checkMaxPoints(maxPoints);
+    }
     if (window.isNegative() || window.isZero()) {
       throw new IllegalArgumentException("window must be positive");
     }
@@ -89,6 +101,10 @@ public class ForecastService {
         slope,
         intercept,
         residualStd,
-        points);
+        Lttb.downsample(
+            points,
+            maxPoints,
+            point -> point.time().toEpochMilli(),
+            ForecastPoint::predictedPowerKw));
   }
 }
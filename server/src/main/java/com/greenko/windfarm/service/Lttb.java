@@ -0,0 +1,101 @@
+// path: server/src/main/java/com/greenko/windfarm/service/Lttb.java
+package com.greenko.windfarm.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling. The first and last points are kept; the points in
+ * between are split into {@code maxPoints - 2} equal buckets, and from each bucket the point that
+ * forms the largest triangle with the point kept before it and the average of the next bucket is
+ * kept. Peaks and troughs survive where plain decimation or averaging would flatten them.
+ *
+ * <p>One pass over the input; the only allocation is the array of kept indexes.
+ */
+final class Lttb {
+  /** Fewer points than this cannot keep both ends and anything in between. */
+  static final int MIN_POINTS = 3;
+
+  private Lttb() {}
+
+  /**
+   * Indexes of the points to keep, ascending, out of {@code size} points ordered by {@code x}. All
+   * of them when {@code size <= maxPoints}.
+   */
+  static int[] select(int size, int maxPoints, IntToDoubleFunction x, IntToDoubleFunction y) {
+    checkMaxPoints(maxPoints);
+    if (size <= maxPoints) {
+      int[] all = new int[size];
+      for (int i = 0; i < size; i++) {
+        all[i] = i;
+      }
+      return all;
+    }
+    int[] kept = new int[maxPoints];
+    double every = (double) (size - 2) / (maxPoints - 2);
+    int a = 0;
+    for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+      int start = (int) (bucket * every) + 1;
+      int end = (int) ((bucket + 1) * every) + 1;
+      int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, size);
+      double averageX = 0;
+      double averageY = 0;
+      for (int i = end; i < nextEnd; i++) {
+        averageX += x.applyAsDouble(i);
+        averageY += y.applyAsDouble(i);
+      }
+      averageX /= nextEnd - end;
+      averageY /= nextEnd - end;
+      double ax = x.applyAsDouble(a);
+      double ay = y.applyAsDouble(a);
+      double largest = -1;
+      int chosen = start;
+      for (int i = start; i < end; i++) {
+        // Twice the triangle's area; the factor does not change which point wins.
+        double area =
+            Math.abs(
+                (ax - averageX) * (y.applyAsDouble(i) - ay)
+                    - (ax - x.applyAsDouble(i)) * (averageY - ay));
+        if (area > largest) {
+          largest = area;
+          chosen = i;
+        }
+      }
+      kept[bucket + 1] = chosen;
+      a = chosen;
+    }
+    kept[maxPoints - 1] = size - 1;
+    return kept;
+  }
+
+  /** {@code points} reduced to at most {@code maxPoints}, or unchanged when it is 0. */
+  static <T> List<T> downsample(
+      List<T> points, int maxPoints, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+    if (maxPoints == 0) {
+      return points;
+    }
+    checkMaxPoints(maxPoints);
+    if (points.size() <= maxPoints) {
+      return points;
+    }
+    int[] kept =
+        select(
+            points.size(),
+            maxPoints,
+            i -> x.applyAsDouble(points.get(i)),
+            i -> y.applyAsDouble(points.get(i)));
+    List<T> sampled = new ArrayList<>(kept.length);
+    for (int index : kept) {
+      sampled.add(points.get(index));
+    }
+    return sampled;
+  }
+
+  static void checkMaxPoints(int maxPoints) {
+    if (maxPoints < MIN_POINTS) {
+      throw new IllegalArgumentException("maxPoints must be at least " + MIN_POINTS);
+    }
+  }
+}
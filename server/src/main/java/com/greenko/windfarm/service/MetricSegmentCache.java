@@ -0,0 +1,185 @@
+// path: server/src/main/java/com/greenko/windfarm/service/MetricSegmentCache.java
+package com.greenko.windfarm.service;
+
+import com.greenko.windfarm.model.MetricPoint;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches metrics in fixed segments of {@code segmentBuckets} buckets, keyed by device, bucket size
+ * and segment start. Segments are aligned like {@code time_bucket}, so a request is answered by the
+ * whole buckets of the segments it overlaps plus, at most, one direct query for a partial bucket at
+ * each end. Overlapping windows from many dashboards then share segments, and concurrent misses on
+ * one segment share a single query.
+ *
+ * <p>Segments are kept least recently used first up to {@code maxSegments}. A segment stays valid
+ * until {@link #invalidate} reports a write inside it, which in practice only happens to the
+ * segment at the head of the data; older segments are computed once.
+ */
+final class MetricSegmentCache {
+  private static final long TIME_BUCKET_ORIGIN =
+      TimeUnit.SECONDS.toMicros(Instant.parse("2000-01-03T00:00:00Z").getEpochSecond());
+
+  /** Computes metrics for an inclusive range, as {@code TelemetryRepository.queryMetrics} does. */
+  @FunctionalInterface
+  interface Loader {
+    List<MetricPoint> load(Instant from, Instant to, Optional<String> deviceId, Duration bucket);
+  }
+
+  private final Loader loader;
+  private final int segmentBuckets;
+  private final Map<Key, CompletableFuture<List<MetricPoint>>> segments;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  MetricSegmentCache(Loader loader, int maxSegments, int segmentBuckets) {
+    if (maxSegments < 1 || segmentBuckets < 1) {
+      throw new IllegalArgumentException(
+          "Metrics cache size and buckets per segment must be positive");
+    }
+    this.loader = loader;
+    this.segmentBuckets = segmentBuckets;
+    this.segments =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<Key, CompletableFuture<List<MetricPoint>>> eldest) {
+            return size() > maxSegments;
+          }
+        };
+  }
+
+  /** Answers {@code [from, to]} like the loader would. */
+  List<MetricPoint> query(Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+    long bucketMicros = TimeUnit.SECONDS.toMicros(bucket.getSeconds());
+    if (bucketMicros <= 0) {
+      throw new IllegalArgumentException("Bucket must be positive");
+    }
+    long start = micros(from);
+    long end = micros(to);
+    // Whole buckets lie in [first, last); the rest of the range is a partial bucket at either end.
+    long first = align(start + bucketMicros - 1, bucketMicros);
+    long last = align(end + 1, bucketMicros);
+    if (first >= last) {
+      return loader.load(from, to, deviceId, bucket);
+    }
+    List<MetricPoint> points = new ArrayList<>();
+    if (start < first) {
+      points.addAll(loader.load(from, instant(first - 1), deviceId, bucket));
+    }
+    long segmentMicros = bucketMicros * segmentBuckets;
+    for (long segment = align(first, segmentMicros); segment < last; segment += segmentMicros) {
+      Key key = new Key(deviceId.orElse(null), bucketMicros, segment, segmentMicros);
+      for (MetricPoint point : segment(key, bucket)) {
+        long bucketStart = micros(point.bucketStart());
+        if (bucketStart >= first && bucketStart < last) {
+          points.add(point);
+        }
+      }
+    }
+    if (last <= end) {
+      points.addAll(loader.load(instant(last), to, deviceId, bucket));
+    }
+    return points;
+  }
+
+  /**
+   * Drops every segment that overlaps {@code [from, to]} for one of {@code deviceIds} or for the
+   * whole fleet. A query still loading such a segment returns its result but does not keep it.
+   */
+  void invalidate(Instant from, Instant to, Set<String> deviceIds) {
+    long start = micros(from);
+    long end = micros(to);
+    synchronized (segments) {
+      Iterator<Key> keys = segments.keySet().iterator();
+      while (keys.hasNext()) {
+        Key key = keys.next();
+        if ((key.deviceId() == null || deviceIds.contains(key.deviceId()))
+            && key.start() <= end
+            && key.start() + key.length() > start) {
+          keys.remove();
+        }
+      }
+    }
+  }
+
+  int size() {
+    synchronized (segments) {
+      return segments.size();
+    }
+  }
+
+  long hits() {
+    return hits.get();
+  }
+
+  long misses() {
+    return misses.get();
+  }
+
+  private List<MetricPoint> segment(Key key, Duration bucket) {
+    CompletableFuture<List<MetricPoint>> result;
+    boolean load = false;
+    synchronized (segments) {
+      result = segments.get(key);
+      if (result == null) {
+        result = new CompletableFuture<>();
+        segments.put(key, result);
+        load = true;
+      }
+    }
+    if (!load) {
+      hits.incrementAndGet();
+      try {
+        return result.join();
+      } catch (CompletionException ex) {
+        throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+      }
+    }
+    misses.incrementAndGet();
+    try {
+      List<MetricPoint> points =
+          List.copyOf(
+              loader.load(
+                  instant(key.start()),
+                  instant(key.start() + key.length() - 1),
+                  Optional.ofNullable(key.deviceId()),
+                  bucket));
+      result.complete(points);
+      return points;
+    } catch (RuntimeException ex) {
+      synchronized (segments) {
+        segments.remove(key, result);
+      }
+      result.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  private static long align(long micros, long width) {
+    return TIME_BUCKET_ORIGIN + Math.floorDiv(micros - TIME_BUCKET_ORIGIN, width) * width;
+  }
+
+  private static long micros(Instant instant) {
+    return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1_000;
+  }
+
+  private static Instant instant(long micros) {
+    return Instant.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000);
+  }
+
+  /** A device ({@code null} for the fleet), bucket size and segment start, all in microseconds. */
+  private record Key(String deviceId, long bucketMicros, long start, long length) {}
+}
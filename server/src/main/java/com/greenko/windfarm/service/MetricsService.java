@@ -1,27 +1,208 @@
 // path: server/src/main/java/com/greenko/windfarm/service/MetricsService.java
 package com.greenko.windfarm.service;
 
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.TelemetryPersistedEvent;
+import com.greenko.windfarm.model.DeviceMetricSeries;
 import com.greenko.windfarm.model.MetricPoint;
 import com.greenko.windfarm.repository.TelemetryRepository;
+import com.greenko.windfarm.repository.TelemetryRollups;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 @Service
-public class MetricsService {
+public class MetricsService implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(MetricsService.class);
+  // The finest rollup width; writes closer together than this are refreshed as one range.
+  private static final Duration REFRESH_GAP = Duration.ofMinutes(1);
   private final TelemetryRepository telemetryRepository;
+  private final TelemetryRollups rollups;
+  private final MetricSegmentCache cache;
+  private final DirtyRanges dirty = new DirtyRanges(REFRESH_GAP);
+  private final Duration refreshInterval;
+  private final ScheduledExecutorService refresher;
 
-  public MetricsService(TelemetryRepository telemetryRepository) {
+  public MetricsService(
+      TelemetryRepository telemetryRepository,
+      TelemetryRollups rollups,
+      WindfarmProperties properties,
+      MeterRegistry meterRegistry) {
     this.telemetryRepository = telemetryRepository;
+    this.rollups = rollups;
+    WindfarmProperties.MetricsCache config = properties.getMetricsCache();
+    if (config.getRefreshInterval() == null
+        || config.getRefreshInterval().isNegative()
+        || config.getRefreshInterval().isZero()) {
+      throw new IllegalArgumentException("Metrics cache refresh interval must be positive");
+    }
+    this.refreshInterval = config.getRefreshInterval();
+    CustomizableThreadFactory factory = new CustomizableThreadFactory("metrics-rollup-refresh-");
+    factory.setDaemon(true);
+    this.refresher = Executors.newSingleThreadScheduledExecutor(factory);
+    if (!config.isEnabled()) {
+      this.cache = null;
+      return;
+    }
+    this.cache =
+        new MetricSegmentCache(
+            telemetryRepository::queryMetrics, config.getMaxSegments(), config.getSegmentBuckets());
+    FunctionCounter.builder("windfarm.metrics.cache.segments", cache, MetricSegmentCache::hits)
+        .description("Metrics cache segment lookups")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("windfarm.metrics.cache.segments", cache, MetricSegmentCache::misses)
+        .description("Metrics cache segment lookups")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("windfarm.metrics.cache.size", cache, MetricSegmentCache::size)
+        .description("Metrics segments held in the cache")
+        .register(meterRegistry);
   }
 
+  @PostConstruct
+  private void initialize() {
+    if (cache == null) {
+      return;
+    }
+    long interval = refreshInterval.toMillis();
+    refresher.scheduleWithFixedDelay(
+        this::refreshRollups, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Metrics for {@code [from, to]}, reduced with LTTB on average power to at most {@code maxPoints}
+   * buckets unless it is 0.
+   */
   public List<MetricPoint> loadMetrics(
-      Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+      Instant from, Instant to, Optional<String> deviceId, Duration bucket, int maxPoints) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("from must be before to");
+    }
+    if (maxPoints != 0) {
+      Lttb.checkMaxPoints(maxPoints);
+    }
+    List<MetricPoint> points =
+        cache == null
+            ? telemetryRepository.queryMetrics(from, to, deviceId, bucket)
+            : cache.query(from, to, deviceId, bucket);
+    return Lttb.downsample(
+        points,
+        maxPoints,
+        point -> point.bucketStart().toEpochMilli(),
+        MetricPoint::averagePowerKw);
+  }
+
+  /**
+   * Per-device series for {@code deviceIds}, or for every device when it is empty, each reduced
+   * like {@link #loadMetrics}.
+   */
+  public List<DeviceMetricSeries> loadDeviceMetrics(
+      Instant from, Instant to, List<String> deviceIds, Duration bucket, int maxPoints) {
     if (from.isAfter(to)) {
       throw new IllegalArgumentException("from must be before to");
     }
-    return telemetryRepository.queryMetrics(from, to, deviceId, bucket);
+    if (maxPoints != 0) {
+      Lttb.checkMaxPoints(maxPoints);
+    }
+    List<DeviceMetricSeries> devices =
+        telemetryRepository.queryDeviceMetrics(
+            from, to, deviceIds.stream().filter(id -> !id.isBlank()).distinct().toList(), bucket);
+    if (maxPoints == 0) {
+      return devices;
+    }
+    return devices.stream().map(series -> downsample(series, maxPoints)).toList();
+  }
+
+  private static DeviceMetricSeries downsample(DeviceMetricSeries series, int maxPoints) {
+    long[] bucketStarts = series.bucketStarts();
+    double[] averagePowerKw = series.averagePowerKw();
+    if (bucketStarts.length <= maxPoints) {
+      return series;
+    }
+    int[] kept =
+        Lttb.select(bucketStarts.length, maxPoints, i -> bucketStarts[i], i -> averagePowerKw[i]);
+    long[] keptStarts = new long[kept.length];
+    double[] keptPower = new double[kept.length];
+    double[] keptEnergy = new double[kept.length];
+    for (int i = 0; i < kept.length; i++) {
+      keptStarts[i] = bucketStarts[kept[i]];
+      keptPower[i] = averagePowerKw[kept[i]];
+      keptEnergy[i] = series.totalEnergyKwh()[kept[i]];
+    }
+    return new DeviceMetricSeries(series.deviceId(), keptStarts, keptPower, keptEnergy);
+  }
+
+  /**
+   * Drops the cached segments a committed write touched and notes its range for the next rollup
+   * refresh. This runs on the writer that committed the batch, so it stays in memory; the refresh
+   * itself happens in {@link #refreshRollups}.
+   */
+  @EventListener
+  public void onTelemetryPersisted(TelemetryPersistedEvent event) {
+    if (cache == null) {
+      return;
+    }
+    cache.invalidate(event.from(), event.to(), event.deviceIds());
+    dirty.add(event.from(), event.to(), event.deviceIds());
+  }
+
+  /**
+   * Re-materializes the rollups under the ranges written since the last pass, then drops the
+   * segments there once more. Segments are refilled from the rollups, so a write below a rollup's
+   * watermark, which the refresh policies would only pick up on their next run, would otherwise
+   * leave a segment refilled in the meantime holding the stale rollup. Writes are merged between
+   * passes and the watermarks are read once per pass, so a burst of batches costs one refresh.
+   */
+  void refreshRollups() {
+    List<DirtyRanges.Range> ranges = dirty.take();
+    if (ranges.isEmpty()) {
+      return;
+    }
+    Map<String, Instant> watermarks;
+    try {
+      watermarks = rollups.watermarks();
+    } catch (RuntimeException ex) {
+      log.warn(
+          "Failed to read telemetry rollup watermarks; cached metrics for {} written ranges may"
+              + " stay stale until they are written again",
+          ranges.size(),
+          ex);
+      return;
+    }
+    for (DirtyRanges.Range range : ranges) {
+      try {
+        if (rollups.refresh(range.from(), range.to(), watermarks) > 0) {
+          cache.invalidate(range.from(), range.to(), range.deviceIds());
+        }
+      } catch (RuntimeException ex) {
+        log.warn(
+            "Failed to refresh telemetry rollups for {} to {}; cached metrics there stay stale"
+                + " until it is written again",
+            range.from(),
+            range.to(),
+            ex);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    refresher.shutdownNow();
   }
 }
@@ -3,50 +3,267 @@ package com.greenko.windfarm.service;
 
 import com.greenko.windfarm.config.WindfarmProperties;
 import com.greenko.windfarm.csv.DatasetLoader;
-import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.csv.DatasetSnapshot;
+import com.greenko.windfarm.event.TelemetryPersistedEvent;
+import com.greenko.windfarm.repository.DeviceDirectory;
+import com.greenko.windfarm.repository.TelemetryCopyEncoder;
+import com.greenko.windfarm.repository.TelemetrySeedWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+/**
+ * Bulk-loads the replay dataset into {@code telemetry}. The rows are cut into minute-aligned chunks
+ * that several writer threads encode and {@code COPY} on their own connections. After every chunk
+ * the coordinator advances a checkpoint to the last timestamp below which all chunks have
+ * committed, so an interrupted seed resumes from there. The telemetry rollups are refreshed once
+ * the load finishes.
+ */
 @Component
 @ConditionalOnProperty(prefix = "windfarm.seed", name = "enabled", havingValue = "true")
 public class SeedRunner implements CommandLineRunner {
   private static final Logger log = LoggerFactory.getLogger(SeedRunner.class);
+  private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
   private final DatasetLoader datasetLoader;
   private final WindfarmProperties properties;
-  private final JdbcTemplate jdbcTemplate;
+  private final TelemetrySeedWriter writer;
+  private final ApplicationEventPublisher events;
+  private final DeviceDirectory devices;
 
   public SeedRunner(
-      DatasetLoader datasetLoader, WindfarmProperties properties, JdbcTemplate jdbcTemplate) {
+      DatasetLoader datasetLoader,
+      WindfarmProperties properties,
+      JdbcTemplate jdbcTemplate,
+      ApplicationEventPublisher events,
+      DeviceDirectory devices) {
     this.datasetLoader = datasetLoader;
     this.properties = properties;
-    this.jdbcTemplate = jdbcTemplate;
+    this.writer = new TelemetrySeedWriter(jdbcTemplate);
+    this.events = events;
+    this.devices = devices;
   }
 
   @Override
-  public void run(String... args) {
-    int minutes = properties.getSeed().getMinutes();
-    List<TelemetryRecord> records = datasetLoader.loadDataset().records();
-    if (records.isEmpty()) {
-      log.warn("No records available for seeding");
+  public void run(String... args) throws InterruptedException {
+    WindfarmProperties.Seed seed = properties.getSeed();
+    DatasetSnapshot snapshot = datasetLoader.loadDataset();
+    String dataset = properties.getDatasetPath().getFileName().toString();
+    int end =
+        seed.getMinutes() > 0
+            ? rowsBefore(snapshot, snapshot.epochSecond(0) + seed.getMinutes() * 60L)
+            : snapshot.size();
+    Instant checkpoint = writer.lastCheckpoint(dataset).orElse(null);
+    int start = checkpoint == null ? 0 : rowsBefore(snapshot, checkpoint.getEpochSecond() + 1);
+    if (start >= end) {
+      log.info("Seed of {} is complete up to checkpoint {}", dataset, checkpoint);
       return;
     }
-    int limit = Math.min(minutes * 100, records.size());
-    List<TelemetryRecord> subset = records.subList(0, limit);
-    jdbcTemplate.batchUpdate(
-        "INSERT INTO telemetry(time, device_id, energy_kwh) VALUES (?, ?, ?) "
-            + "ON CONFLICT (time, device_id) DO NOTHING",
-        subset,
-        subset.size(),
-        (ps, record) -> {
-          ps.setObject(1, record.time());
-          ps.setString(2, record.deviceId());
-          ps.setDouble(3, record.energyKwh());
-        });
-    log.info("Seeded {} telemetry records", subset.size());
+    if (checkpoint != null) {
+      log.info(
+          "Resuming seed of {} after checkpoint {} (row {} of {})",
+          dataset,
+          checkpoint,
+          start,
+          end);
+    }
+
+    if (seed.isDeferIndexes()) {
+      writer.dropDeferrableIndexes();
+    }
+    try {
+      load(snapshot, dataset, chunkBounds(snapshot, start, end, seed.getChunkRows()), seed);
+    } finally {
+      if (seed.isDeferIndexes()) {
+        long started = System.nanoTime();
+        writer.createDeferrableIndexes();
+        log.info(
+            "Rebuilt deferred telemetry indexes in {} ms",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      }
+    }
+
+    devices.register(sightings(snapshot, end));
+    long started = System.nanoTime();
+    writer.refreshRollups();
+    log.info(
+        "Refreshed telemetry rollups in {} ms",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    events.publishEvent(
+        new TelemetryPersistedEvent(
+            snapshot.time(start), snapshot.time(end - 1), new HashSet<>(snapshot.devices())));
+  }
+
+  private void load(
+      DatasetSnapshot snapshot, String dataset, int[] bounds, WindfarmProperties.Seed seed)
+      throws InterruptedException {
+    int chunks = bounds.length - 1;
+    int threads = Math.max(1, Math.min(seed.getParallelism(), chunks));
+    byte[][] devices = new byte[snapshot.devices().size()][];
+    for (int i = 0; i < devices.length; i++) {
+      devices[i] = snapshot.devices().get(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    AtomicInteger nextChunk = new AtomicInteger();
+    BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("seed-writer-"));
+    List<Future<?>> workers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      workers.add(
+          executor.submit(
+              () -> {
+                TelemetryCopyEncoder encoder = new TelemetryCopyEncoder(seed.getChunkRows());
+                for (int chunk = nextChunk.getAndIncrement();
+                    chunk < chunks;
+                    chunk = nextChunk.getAndIncrement()) {
+                  encoder.reset();
+                  for (int row = bounds[chunk]; row < bounds[chunk + 1]; row++) {
+                    encoder.add(
+                        snapshot.epochSecond(row) * 1_000_000L,
+                        devices[snapshot.deviceIndex(row)],
+                        snapshot.energyKwh(row));
+                  }
+                  writer.write(encoder);
+                  completed.add(chunk);
+                }
+                return null;
+              }));
+    }
+    executor.shutdown();
+
+    long total = bounds[chunks] - bounds[0];
+    long started = System.nanoTime();
+    long lastReport = started;
+    boolean[] done = new boolean[chunks];
+    int committed = 0;
+    long rows = 0;
+    try {
+      for (int finished = 0; finished < chunks; ) {
+        Integer chunk = completed.poll(1, TimeUnit.SECONDS);
+        if (chunk == null) {
+          rethrowFailure(workers);
+          continue;
+        }
+        finished++;
+        done[chunk] = true;
+        rows += bounds[chunk + 1] - bounds[chunk];
+        int before = committed;
+        while (committed < chunks && done[committed]) {
+          committed++;
+        }
+        if (committed > before) {
+          int last = bounds[committed] - 1;
+          writer.checkpoint(dataset, snapshot.time(last), last + 1L);
+        }
+        long now = System.nanoTime();
+        if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+          log.info(
+              "Seeded {}/{} telemetry rows ({} rows/s)", rows, total, rate(rows, now - started));
+          lastReport = now;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    log.info(
+        "Seeded {} telemetry records on {} connection(s) ({} rows/s)",
+        total,
+        threads,
+        rate(total, System.nanoTime() - started));
+  }
+
+  /** Splits {@code [start, end)} into chunks of about {@code chunkRows}, ending on minute edges. */
+  static int[] chunkBounds(DatasetSnapshot snapshot, int start, int end, int chunkRows) {
+    List<Integer> bounds = new ArrayList<>();
+    bounds.add(start);
+    int position = start;
+    while (position < end) {
+      int next = (int) Math.min(end, (long) position + Math.max(1, chunkRows));
+      while (next < end && snapshot.epochSecond(next) == snapshot.epochSecond(next - 1)) {
+        next++;
+      }
+      bounds.add(next);
+      position = next;
+    }
+    return bounds.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * The first and last reading of every device in the leading {@code end} rows, which after a load
+   * are all in the table, including rows committed by an earlier, interrupted seed.
+   */
+  static List<DeviceDirectory.Sighting> sightings(DatasetSnapshot snapshot, int end) {
+    int deviceCount = snapshot.devices().size();
+    int[] first = new int[deviceCount];
+    int[] last = new int[deviceCount];
+    Arrays.fill(first, -1);
+    for (int row = 0; row < end; row++) {
+      int device = snapshot.deviceIndex(row);
+      if (first[device] < 0) {
+        first[device] = row;
+      }
+      last[device] = row;
+    }
+    List<DeviceDirectory.Sighting> sightings = new ArrayList<>();
+    for (int device = 0; device < deviceCount; device++) {
+      if (first[device] >= 0) {
+        sightings.add(
+            new DeviceDirectory.Sighting(
+                snapshot.devices().get(device),
+                snapshot.time(first[device]),
+                snapshot.time(last[device])));
+      }
+    }
+    return sightings;
+  }
+
+  /** Number of leading rows whose timestamp is before {@code epochSecond}. */
+  static int rowsBefore(DatasetSnapshot snapshot, long epochSecond) {
+    int low = 0;
+    int high = snapshot.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (snapshot.epochSecond(mid) < epochSecond) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static void rethrowFailure(List<Future<?>> workers) throws InterruptedException {
+    for (Future<?> worker : workers) {
+      if (worker.isDone()) {
+        try {
+          worker.get();
+        } catch (ExecutionException ex) {
+          throw new IllegalStateException("Seeding failed", ex.getCause());
+        }
+      }
+    }
+  }
+
+  private static long rate(long rows, long nanos) {
+    return nanos == 0 ? rows : rows * 1_000_000_000L / nanos;
   }
 }
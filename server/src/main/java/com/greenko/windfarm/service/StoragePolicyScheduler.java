@@ -0,0 +1,117 @@
+// path: server/src/main/java/com/greenko/windfarm/service/StoragePolicyScheduler.java
+package com.greenko.windfarm.service;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.repository.TelemetryStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the telemetry retention and compression policies every {@code windfarm.storage.interval}:
+ * chunks lying wholly more than {@code retention.after} behind the newest reading are dropped, and
+ * those more than {@code compression.after} behind it are compressed. Ages are measured from the
+ * newest reading rather than the wall clock because replayed telemetry carries historical
+ * timestamps, which TimescaleDB's own {@code now()}-based policies would compress or drop as soon
+ * as they were written.
+ *
+ * <p>The rollups are not affected by retention; metrics for dropped ranges are still served from
+ * them at whole-minute buckets.
+ */
+@Component
+public class StoragePolicyScheduler implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(StoragePolicyScheduler.class);
+  private final TelemetryStorage storage;
+  private final WindfarmProperties.Storage config;
+  private final Counter compressed;
+  private final Counter dropped;
+  private final ScheduledExecutorService scheduler;
+
+  public StoragePolicyScheduler(
+      TelemetryStorage storage, WindfarmProperties properties, MeterRegistry meterRegistry) {
+    WindfarmProperties.Storage config = properties.getStorage();
+    if (!isPositive(config.getInterval())
+        || !isPositive(config.getCompression().getAfter())
+        || !isPositive(config.getRetention().getAfter())) {
+      throw new IllegalArgumentException("Storage policy interval and ages must be positive");
+    }
+    this.storage = storage;
+    this.config = config;
+    this.compressed =
+        Counter.builder("windfarm.storage.chunks")
+            .description("Telemetry chunks handled by the storage policies")
+            .tag("action", "compressed")
+            .register(meterRegistry);
+    this.dropped =
+        Counter.builder("windfarm.storage.chunks")
+            .description("Telemetry chunks handled by the storage policies")
+            .tag("action", "dropped")
+            .register(meterRegistry);
+    CustomizableThreadFactory factory = new CustomizableThreadFactory("storage-policy-");
+    factory.setDaemon(true);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(factory);
+  }
+
+  @PostConstruct
+  private void initialize() {
+    if (!config.getCompression().isEnabled() && !config.getRetention().isEnabled()) {
+      log.info("Telemetry compression and retention disabled via configuration");
+      return;
+    }
+    long interval = config.getInterval().toMillis();
+    scheduler.scheduleWithFixedDelay(this::apply, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /** Runs one pass of both policies. */
+  void apply() {
+    try {
+      Optional<Instant> newest = storage.newestTime();
+      if (newest.isEmpty()) {
+        return;
+      }
+      int droppedChunks = 0;
+      if (config.getRetention().isEnabled()) {
+        droppedChunks = storage.dropChunks(newest.get().minus(config.getRetention().getAfter()));
+        dropped.increment(droppedChunks);
+      }
+      int compressedChunks = 0;
+      if (config.getCompression().isEnabled()) {
+        for (String chunk :
+            storage.uncompressedChunks(newest.get().minus(config.getCompression().getAfter()))) {
+          storage.compressChunk(chunk);
+          compressed.increment();
+          compressedChunks++;
+        }
+      }
+      if (droppedChunks > 0 || compressedChunks > 0) {
+        log.info(
+            "Compressed {} and dropped {} telemetry chunks; telemetry now takes {} MB",
+            compressedChunks,
+            droppedChunks,
+            storage.sizeBytes() / (1024 * 1024));
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Telemetry storage policies failed; retrying in {}", config.getInterval(), ex);
+    }
+  }
+
+  private static boolean isPositive(Duration duration) {
+    return duration != null && !duration.isNegative() && !duration.isZero();
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+}
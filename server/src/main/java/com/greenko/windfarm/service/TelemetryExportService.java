@@ -0,0 +1,199 @@
+// path: server/src/main/java/com/greenko/windfarm/service/TelemetryExportService.java
+package com.greenko.windfarm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.model.TimeSeriesPoint;
+import com.greenko.windfarm.repository.JdbcTelemetryRepository;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.stereotype.Service;
+
+/**
+ * Streams metrics, power series and raw readings to an output stream as they are read from the
+ * database, so a request holds one fetch of rows at a time rather than its whole result. Raw CSV is
+ * produced by Postgres itself with {@code COPY ... TO STDOUT}.
+ *
+ * <p>An export holds a pooled connection until its download ends, so at most {@code
+ * windfarm.export.max-concurrent} run at once; callers take a slot with {@link #tryBegin} first.
+ */
+@Service
+public class TelemetryExportService {
+  private static final int CSV_BUFFER_CHARS = 32 * 1024;
+
+  private final JdbcTelemetryRepository repository;
+  private final ObjectMapper objectMapper;
+  // Leaves flushing to the generator's buffer instead of flushing the response on every row.
+  private final ObjectWriter rowWriter;
+  private final Semaphore slots;
+
+  public TelemetryExportService(
+      JdbcTelemetryRepository repository,
+      ObjectMapper objectMapper,
+      WindfarmProperties properties) {
+    int maxConcurrent = properties.getExport().getMaxConcurrent();
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("Export concurrency must be at least 1");
+    }
+    this.repository = repository;
+    this.objectMapper = objectMapper;
+    this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.slots = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * Takes one of the export slots without waiting, returning {@code false} if all are in use. A
+   * caller that gets one must {@link #end} it once its export has finished or failed.
+   */
+  public boolean tryBegin() {
+    return slots.tryAcquire();
+  }
+
+  public void end() {
+    slots.release();
+  }
+
+  public void writeMetrics(
+      Instant from,
+      Instant to,
+      Optional<String> deviceId,
+      Duration bucket,
+      ExportFormat format,
+      OutputStream out)
+      throws IOException {
+    write(
+        format,
+        out,
+        new String[] {"bucketStart", "averagePowerKw", "totalEnergyKwh"},
+        (MetricPoint point) ->
+            new Object[] {point.bucketStart(), point.averagePowerKw(), point.totalEnergyKwh()},
+        sink -> repository.streamMetrics(from, to, deviceId, bucket, sink));
+  }
+
+  public void writePowerSeries(
+      Instant from, Instant to, Optional<String> deviceId, ExportFormat format, OutputStream out)
+      throws IOException {
+    write(
+        format,
+        out,
+        new String[] {"time", "value"},
+        (TimeSeriesPoint point) -> new Object[] {point.time(), point.value()},
+        sink -> repository.streamPowerSeries(from, to, deviceId, sink));
+  }
+
+  public void writeRaw(
+      Instant from, Instant to, Optional<String> deviceId, ExportFormat format, OutputStream out)
+      throws IOException {
+    if (format == ExportFormat.CSV) {
+      try {
+        repository.copyRawCsv(from, to, deviceId, out);
+      } catch (UncheckedIOException ex) {
+        throw ex.getCause();
+      }
+      out.flush();
+      return;
+    }
+    write(
+        format,
+        out,
+        new String[] {"time", "deviceId", "energyKwh", "powerKw"},
+        (TelemetryRecord record) ->
+            new Object[] {record.time(), record.deviceId(), record.energyKwh(), record.powerKw()},
+        sink -> repository.streamRaw(from, to, deviceId, sink));
+  }
+
+  private <T> void write(
+      ExportFormat format,
+      OutputStream out,
+      String[] columns,
+      Function<T, Object[]> values,
+      Consumer<Consumer<T>> source)
+      throws IOException {
+    try {
+      if (format == ExportFormat.NDJSON) {
+        writeNdjson(out, source);
+      } else {
+        writeCsv(out, columns, values, source);
+      }
+    } catch (UncheckedIOException ex) {
+      // The client went away; the cursor has been closed on the way out.
+      throw ex.getCause();
+    }
+  }
+
+  private <T> void writeNdjson(OutputStream out, Consumer<Consumer<T>> source) throws IOException {
+    try (JsonGenerator generator =
+        objectMapper
+            .getFactory()
+            .createGenerator(out)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+      generator.setRootValueSeparator(new SerializedString(""));
+      source.accept(
+          item -> {
+            try {
+              rowWriter.writeValue(generator, item);
+              generator.writeRaw('\n');
+            } catch (IOException ex) {
+              throw new UncheckedIOException(ex);
+            }
+          });
+    }
+  }
+
+  private <T> void writeCsv(
+      OutputStream out,
+      String[] columns,
+      Function<T, Object[]> values,
+      Consumer<Consumer<T>> source)
+      throws IOException {
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_CHARS);
+    writeCsvRow(writer, columns);
+    source.accept(
+        item -> {
+          try {
+            writeCsvRow(writer, values.apply(item));
+          } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+          }
+        });
+    writer.flush();
+  }
+
+  private static void writeCsvRow(Writer writer, Object[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(csvField(String.valueOf(values[i])));
+    }
+    writer.write('\n');
+  }
+
+  static String csvField(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return '"' + value.replace("\"", "\"\"") + '"';
+      }
+    }
+    return value;
+  }
+}
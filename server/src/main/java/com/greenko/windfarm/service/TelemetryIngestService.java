@@ -0,0 +1,77 @@
+// path: server/src/main/java/com/greenko/windfarm/service/TelemetryIngestService.java
+package com.greenko.windfarm.service;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.TelemetryEventBus;
+import com.greenko.windfarm.ingest.BinaryTelemetryDecoder;
+import com.greenko.windfarm.ingest.DecodedTelemetry;
+import com.greenko.windfarm.ingest.NdjsonTelemetryDecoder;
+import com.greenko.windfarm.ingest.TelemetryDecoder;
+import com.greenko.windfarm.web.dto.IngestResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TelemetryIngestService {
+  private final TelemetryEventBus eventBus;
+  private final long backpressureTimeoutNanos;
+
+  public TelemetryIngestService(TelemetryEventBus eventBus, WindfarmProperties properties) {
+    this.eventBus = eventBus;
+    this.backpressureTimeoutNanos = properties.getIngest().getBackpressureTimeout().toNanos();
+  }
+
+  public IngestResponse ingestNdjson(InputStream body) throws IOException {
+    try (TelemetryDecoder decoder = new NdjsonTelemetryDecoder(body)) {
+      return ingest(decoder);
+    }
+  }
+
+  public IngestResponse ingestBinary(InputStream body) throws IOException {
+    try (TelemetryDecoder decoder = new BinaryTelemetryDecoder(body)) {
+      return ingest(decoder);
+    }
+  }
+
+  /**
+   * Publishes records as they are decoded. If the bus stays full for longer than the configured
+   * backpressure timeout, decoding stops and the response reports how many records were accepted.
+   */
+  IngestResponse ingest(TelemetryDecoder decoder) throws IOException {
+    DecodedTelemetry record = new DecodedTelemetry();
+    long accepted = 0;
+    while (decoder.next(record)) {
+      if (!publish(record)) {
+        return new IngestResponse(accepted, true);
+      }
+      accepted++;
+    }
+    return new IngestResponse(accepted, false);
+  }
+
+  private boolean publish(DecodedTelemetry record) {
+    if (tryPublish(record)) {
+      return true;
+    }
+    long deadline = System.nanoTime() + backpressureTimeoutNanos;
+    while (System.nanoTime() - deadline < 0) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      if (tryPublish(record)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean tryPublish(DecodedTelemetry record) {
+    return eventBus.tryPublish(
+        record.epochSecond(),
+        record.nano(),
+        record.deviceId(),
+        record.energyKwh(),
+        record.powerKw());
+  }
+}
@@ -0,0 +1,8 @@
+// path: server/src/main/java/com/greenko/windfarm/spool/SpoolBatch.java
+package com.greenko.windfarm.spool;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.util.List;
+
+/** A batch read back from a {@link TelemetrySpool}, together with its position in the spool. */
+public record SpoolBatch(List<TelemetryRecord> records, long segmentId, int nextOffset) {}
@@ -0,0 +1,123 @@
+// path: server/src/main/java/com/greenko/windfarm/spool/SpoolDrainer.java
+package com.greenko.windfarm.spool;
+
+import com.greenko.windfarm.repository.TelemetryWriter;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+
+/**
+ * Drains a {@link TelemetrySpool} into a {@link TelemetryWriter} on a dedicated thread. A batch
+ * that fails to persist is retried with exponential backoff and is only acknowledged once it has
+ * been written, so a database outage delays persistence without losing rows.
+ *
+ * <p>Failures to reach the database are retried indefinitely. A batch that the database itself
+ * rejects {@code maxAttempts} times in a row is {@linkplain TelemetrySpool#quarantine quarantined}
+ * instead, so that one poison batch cannot hold back the rows spooled behind it.
+ */
+public class SpoolDrainer implements Runnable {
+  private static final Logger log = LoggerFactory.getLogger(SpoolDrainer.class);
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(500);
+
+  private final TelemetrySpool spool;
+  private final TelemetryWriter writer;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final int maxAttempts;
+  private final boolean stopWhenEmpty;
+  private volatile boolean running = true;
+
+  public SpoolDrainer(
+      TelemetrySpool spool,
+      TelemetryWriter writer,
+      Duration initialBackoff,
+      Duration maxBackoff,
+      int maxAttempts,
+      boolean stopWhenEmpty) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("Spool max attempts must be positive");
+    }
+    this.spool = spool;
+    this.writer = writer;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.maxAttempts = maxAttempts;
+    this.stopWhenEmpty = stopWhenEmpty;
+  }
+
+  @Override
+  public void run() {
+    Duration backoff = initialBackoff;
+    int attempts = 0;
+    try {
+      while (running) {
+        SpoolBatch batch = spool.next(POLL_INTERVAL);
+        if (batch == null) {
+          if (stopWhenEmpty) {
+            log.info("Drained spool {}", spool.directory());
+            return;
+          }
+          continue;
+        }
+        try {
+          writer.write(batch.records());
+          spool.acknowledge(batch);
+          backoff = initialBackoff;
+          attempts = 0;
+          if (log.isDebugEnabled()) {
+            log.debug("Persisted {} spooled telemetry rows", batch.records().size());
+          }
+        } catch (RuntimeException ex) {
+          if (!isUnavailable(ex) && ++attempts >= maxAttempts) {
+            log.error(
+                "Quarantining spooled batch of {} rows in {} after {} failed attempts",
+                batch.records().size(),
+                spool.directory(),
+                attempts,
+                ex);
+            if (quarantine(batch)) {
+              backoff = initialBackoff;
+              attempts = 0;
+              continue;
+            }
+          }
+          log.warn(
+              "Failed to persist spooled batch ({} rows pending), retrying in {} ms: {}",
+              spool.depth(),
+              backoff.toMillis(),
+              ex.getMessage());
+          Thread.sleep(backoff.toMillis());
+          backoff =
+              backoff.multipliedBy(2).compareTo(maxBackoff) > 0
+                  ? maxBackoff
+                  : backoff.multipliedBy(2);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean quarantine(SpoolBatch batch) {
+    try {
+      spool.quarantine(batch);
+      return true;
+    } catch (UncheckedIOException ex) {
+      log.error("Failed to quarantine spooled batch in {}; retrying it", spool.directory(), ex);
+      return false;
+    }
+  }
+
+  /** Whether {@code ex} means the database could not be reached rather than refused the rows. */
+  private static boolean isUnavailable(RuntimeException ex) {
+    return ex instanceof TransientDataAccessException
+        || ex instanceof DataAccessResourceFailureException;
+  }
+
+  public void stop() {
+    running = false;
+  }
+}
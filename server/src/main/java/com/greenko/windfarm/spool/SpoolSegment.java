@@ -0,0 +1,131 @@
+// path: server/src/main/java/com/greenko/windfarm/spool/SpoolSegment.java
+package com.greenko.windfarm.spool;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped spool file. Frames are laid out back to back as {@code [int length][int
+ * crc32c][payload]}; the zero-filled remainder of the file terminates the frame sequence, so the
+ * write position can be recovered after a crash by scanning until the first frame that is empty or
+ * fails its checksum.
+ */
+final class SpoolSegment {
+  static final int FRAME_HEADER_BYTES = 8;
+
+  private final long id;
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private int writePosition;
+  private boolean sealed;
+
+  private SpoolSegment(long id, Path path, MappedByteBuffer buffer) {
+    this.id = id;
+    this.path = path;
+    this.buffer = buffer;
+  }
+
+  static SpoolSegment create(Path path, long id, int capacity) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      return new SpoolSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+    }
+  }
+
+  /** Maps an existing segment, recovers its write position and seals it against new appends. */
+  static SpoolSegment recover(Path path, long id) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Spool segment " + path + " exceeds 2 GiB");
+      }
+      SpoolSegment segment =
+          new SpoolSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      int position = 0;
+      while (segment.frameLength(position) > 0) {
+        position += FRAME_HEADER_BYTES + segment.frameLength(position);
+      }
+      segment.writePosition = position;
+      segment.sealed = true;
+      return segment;
+    }
+  }
+
+  long id() {
+    return id;
+  }
+
+  int writePosition() {
+    return writePosition;
+  }
+
+  /** Size of the mapped file, which is allocated in full when the segment is created. */
+  int capacity() {
+    return buffer.capacity();
+  }
+
+  boolean isSealed() {
+    return sealed;
+  }
+
+  void seal() {
+    sealed = true;
+  }
+
+  boolean append(byte[] payload, int length, boolean force) {
+    if (sealed || writePosition + FRAME_HEADER_BYTES + length > buffer.capacity()) {
+      return false;
+    }
+    CRC32C crc = new CRC32C();
+    crc.update(payload, 0, length);
+    buffer.put(writePosition + FRAME_HEADER_BYTES, payload, 0, length);
+    buffer.putInt(writePosition + 4, (int) crc.getValue());
+    // The length is written last: a torn frame has either a zero length or a bad checksum.
+    buffer.putInt(writePosition, length);
+    if (force) {
+      buffer.force(writePosition, FRAME_HEADER_BYTES + length);
+    }
+    writePosition += FRAME_HEADER_BYTES + length;
+    return true;
+  }
+
+  /** Returns the payload of the frame at {@code offset}. */
+  byte[] read(int offset) {
+    int length = buffer.getInt(offset);
+    byte[] payload = new byte[length];
+    buffer.get(offset + FRAME_HEADER_BYTES, payload);
+    return payload;
+  }
+
+  int nextOffset(int offset) {
+    return offset + FRAME_HEADER_BYTES + buffer.getInt(offset);
+  }
+
+  /** Length of a valid frame at {@code offset}, or {@code -1} if there is none. */
+  private int frameLength(int offset) {
+    if (offset + FRAME_HEADER_BYTES > buffer.capacity()) {
+      return -1;
+    }
+    int length = buffer.getInt(offset);
+    if (length <= 0 || offset + FRAME_HEADER_BYTES + length > buffer.capacity()) {
+      return -1;
+    }
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(offset + FRAME_HEADER_BYTES, length));
+    return (int) crc.getValue() == buffer.getInt(offset + 4) ? length : -1;
+  }
+
+  void delete() throws IOException {
+    Files.deleteIfExists(path);
+  }
+}
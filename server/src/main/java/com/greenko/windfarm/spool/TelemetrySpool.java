@@ -0,0 +1,353 @@
+// path: server/src/main/java/com/greenko/windfarm/spool/TelemetrySpool.java
+package com.greenko.windfarm.spool;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only local spool of telemetry batches backed by segmented memory-mapped files.
+ *
+ * <p>One thread appends batches and one thread drains them: {@link #next(Duration)} returns the
+ * oldest unacknowledged batch and {@link #acknowledge(SpoolBatch)} moves the read checkpoint past
+ * it. The checkpoint is persisted, so after a restart only unacknowledged batches are replayed.
+ * Segments whose batches have all been acknowledged are deleted.
+ *
+ * <p>The segment files together never exceed {@code maxBytes}: once another segment would not fit,
+ * {@link #append} refuses batches until the drainer frees one. A batch that can never be persisted
+ * is moved to the {@code quarantine} subdirectory by {@link #quarantine} so the spool can advance.
+ */
+public class TelemetrySpool implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(TelemetrySpool.class);
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final String QUARANTINE_DIRECTORY = "quarantine";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final long maxBytes;
+  private final boolean force;
+  private final TreeMap<Long, SpoolSegment> segments = new TreeMap<>();
+  private final MappedByteBuffer checkpoint;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition appended = lock.newCondition();
+  private final AtomicLong depth = new AtomicLong();
+  private final AtomicLong sizeBytes = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong quarantined = new AtomicLong();
+  private SpoolSegment head;
+  private long readSegmentId;
+  private int readOffset;
+  private boolean full;
+
+  public TelemetrySpool(Path directory, int segmentSize, boolean force) throws IOException {
+    this(directory, segmentSize, Long.MAX_VALUE, force);
+  }
+
+  public TelemetrySpool(Path directory, int segmentSize, long maxBytes, boolean force)
+      throws IOException {
+    if (maxBytes < segmentSize) {
+      throw new IllegalArgumentException("Spool size limit must hold at least one segment");
+    }
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    this.maxBytes = maxBytes;
+    this.force = force;
+    try (FileChannel channel =
+        FileChannel.open(
+            directory.resolve(CHECKPOINT_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      this.checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+    }
+    recover();
+  }
+
+  private void recover() throws IOException {
+    List<Path> files;
+    try (Stream<Path> listing = Files.list(directory)) {
+      files = listing.filter(path -> path.toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+    }
+    boolean checkpointValid = checkpointCrc() == checkpoint.getInt(12);
+    long checkpointSegment = checkpointValid ? checkpoint.getLong(0) : Long.MIN_VALUE;
+    for (Path file : files) {
+      long id = segmentId(file);
+      if (id < checkpointSegment) {
+        Files.delete(file);
+        continue;
+      }
+      SpoolSegment segment = SpoolSegment.recover(file, id);
+      segments.put(id, segment);
+      sizeBytes.addAndGet(segment.capacity());
+    }
+    if (!segments.isEmpty() && segments.containsKey(checkpointSegment)) {
+      readSegmentId = checkpointSegment;
+      readOffset = Math.min(checkpoint.getInt(8), segments.get(checkpointSegment).writePosition());
+    } else {
+      readSegmentId = segments.isEmpty() ? 0 : segments.firstKey();
+      readOffset = 0;
+    }
+    long pending = 0;
+    for (SpoolSegment segment : segments.tailMap(readSegmentId, true).values()) {
+      int offset = segment.id() == readSegmentId ? readOffset : 0;
+      while (offset < segment.writePosition()) {
+        pending += ByteBuffer.wrap(segment.read(offset)).getInt(0);
+        offset = segment.nextOffset(offset);
+      }
+    }
+    depth.set(pending);
+    head = createSegment(segments.isEmpty() ? readSegmentId : segments.lastKey() + 1, segmentSize);
+    if (pending > 0) {
+      log.info("Recovered {} unacknowledged telemetry rows from spool {}", pending, directory);
+    }
+  }
+
+  /**
+   * Appends {@code batch} unless it would take a new segment past the size limit.
+   *
+   * @return {@code false} if the spool is full and the batch was dropped
+   */
+  public boolean append(List<TelemetryRecord> batch) {
+    if (batch.isEmpty()) {
+      return true;
+    }
+    byte[] payload = encode(batch);
+    lock.lock();
+    try {
+      if (!head.append(payload, payload.length, force)) {
+        int capacity = Math.max(segmentSize, payload.length + SpoolSegment.FRAME_HEADER_BYTES);
+        if (sizeBytes.get() + capacity > maxBytes) {
+          rejected.addAndGet(batch.size());
+          if (!full) {
+            full = true;
+            log.warn(
+                "Telemetry spool {} reached its {} MB limit; dropping batches until it drains",
+                directory,
+                maxBytes / (1024 * 1024));
+          }
+          return false;
+        }
+        head.seal();
+        head = createSegment(head.id() + 1, capacity);
+        head.append(payload, payload.length, force);
+      }
+      if (full) {
+        full = false;
+        log.info("Telemetry spool {} is accepting batches again", directory);
+      }
+      depth.addAndGet(batch.size());
+      appended.signalAll();
+      return true;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to roll spool segment in " + directory, ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the oldest unacknowledged batch, waiting up to {@code timeout} for one to be appended.
+   * Until it is acknowledged, repeated calls return the same batch.
+   *
+   * @return the batch, or {@code null} if none arrived in time
+   */
+  public SpoolBatch next(Duration timeout) throws InterruptedException {
+    long remaining = timeout.toNanos();
+    lock.lock();
+    try {
+      while (true) {
+        SpoolSegment segment = segments.get(readSegmentId);
+        if (segment != null && readOffset < segment.writePosition()) {
+          return new SpoolBatch(
+              decode(segment.read(readOffset)), readSegmentId, segment.nextOffset(readOffset));
+        }
+        if (segment != null && segment.isSealed()) {
+          // Everything in a sealed segment before the read offset has been acknowledged.
+          segments.remove(readSegmentId);
+          sizeBytes.addAndGet(-segment.capacity());
+          deleteQuietly(segment);
+          Map.Entry<Long, SpoolSegment> following = segments.higherEntry(readSegmentId);
+          readSegmentId = following != null ? following.getKey() : head.id();
+          readOffset = 0;
+          writeCheckpoint();
+          continue;
+        }
+        if (remaining <= 0) {
+          return null;
+        }
+        remaining = appended.awaitNanos(remaining);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void acknowledge(SpoolBatch batch) {
+    lock.lock();
+    try {
+      if (batch.segmentId() != readSegmentId || batch.nextOffset() <= readOffset) {
+        return;
+      }
+      readOffset = batch.nextOffset();
+      depth.addAndGet(-batch.records().size());
+      writeCheckpoint();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes {@code batch} to its own file under {@code quarantine}, in the spool's frame encoding,
+   * and acknowledges it. Used for a batch the database keeps rejecting, so that the rows behind it
+   * are not held up forever while the failed ones stay on disk for inspection.
+   */
+  public void quarantine(SpoolBatch batch) {
+    lock.lock();
+    try {
+      Path file =
+          Files.createDirectories(directory.resolve(QUARANTINE_DIRECTORY))
+              .resolve(String.format("%020d-%010d.frame", batch.segmentId(), batch.nextOffset()));
+      Files.write(file, encode(batch.records()));
+      acknowledge(batch);
+      quarantined.addAndGet(batch.records().size());
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to quarantine spooled batch in " + directory, ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Number of spooled telemetry rows not yet acknowledged. */
+  public long depth() {
+    return depth.get();
+  }
+
+  /** Bytes taken by the segment files. */
+  public long sizeBytes() {
+    return sizeBytes.get();
+  }
+
+  /** Telemetry rows dropped because the spool was full. */
+  public long rejected() {
+    return rejected.get();
+  }
+
+  /** Telemetry rows moved to the quarantine. */
+  public long quarantined() {
+    return quarantined.get();
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      checkpoint.force();
+      segments.values().forEach(SpoolSegment::seal);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private SpoolSegment createSegment(long id, int capacity) throws IOException {
+    Path path = directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    SpoolSegment segment = SpoolSegment.create(path, id, capacity);
+    segments.put(id, segment);
+    sizeBytes.addAndGet(capacity);
+    return segment;
+  }
+
+  private void writeCheckpoint() {
+    checkpoint.putLong(0, readSegmentId);
+    checkpoint.putInt(8, readOffset);
+    checkpoint.putInt(12, checkpointCrc());
+    if (force) {
+      checkpoint.force();
+    }
+  }
+
+  private int checkpointCrc() {
+    CRC32C crc = new CRC32C();
+    crc.update(checkpoint.slice(0, 12));
+    return (int) crc.getValue();
+  }
+
+  private void deleteQuietly(SpoolSegment segment) {
+    try {
+      segment.delete();
+    } catch (IOException ex) {
+      log.warn("Failed to delete drained spool segment {} in {}", segment.id(), directory, ex);
+    }
+  }
+
+  private static long segmentId(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  static byte[] encode(List<TelemetryRecord> batch) {
+    List<byte[]> devices = new ArrayList<>(batch.size());
+    int size = 4;
+    for (TelemetryRecord record : batch) {
+      byte[] device = record.deviceId().getBytes(StandardCharsets.UTF_8);
+      devices.add(device);
+      size += 8 + 4 + 2 + device.length + 8 + 8;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      TelemetryRecord record = batch.get(i);
+      byte[] device = devices.get(i);
+      buffer.putLong(record.time().getEpochSecond());
+      buffer.putInt(record.time().getNano());
+      buffer.putShort((short) device.length);
+      buffer.put(device);
+      buffer.putDouble(record.energyKwh());
+      buffer.putDouble(record.powerKw());
+    }
+    return buffer.array();
+  }
+
+  static List<TelemetryRecord> decode(byte[] payload) {
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    int count = buffer.getInt();
+    List<TelemetryRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Instant time = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+      byte[] device = new byte[Short.toUnsignedInt(buffer.getShort())];
+      buffer.get(device);
+      records.add(
+          new TelemetryRecord(
+              time,
+              new String(device, StandardCharsets.UTF_8),
+              buffer.getDouble(),
+              buffer.getDouble()));
+    }
+    return records;
+  }
+}
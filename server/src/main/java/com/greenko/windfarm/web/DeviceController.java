@@ -1,8 +1,10 @@
 // path: server/src/main/java/com/greenko/windfarm/web/DeviceController.java
 package com.greenko.windfarm.web;
 
+import com.greenko.windfarm.model.Device;
 import com.greenko.windfarm.service.DeviceService;
 import com.greenko.windfarm.web.dto.DeviceListResponse;
+import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -18,6 +20,7 @@ public class DeviceController {
 
   @GetMapping
   public DeviceListResponse list() {
-    return new DeviceListResponse(deviceService.listDevices());
+    List<Device> devices = deviceService.listDevices();
+    return new DeviceListResponse(devices.stream().map(Device::deviceId).toList(), devices);
   }
 }
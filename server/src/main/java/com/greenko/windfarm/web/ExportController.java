@@ -0,0 +1,122 @@
+// path: server/src/main/java/com/greenko/windfarm/web/ExportController.java
+package com.greenko.windfarm.web;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.service.ExportFormat;
+import com.greenko.windfarm.service.TelemetryExportService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streams large ranges as NDJSON or CSV. Rows are written as they come off a database cursor, so
+ * the memory a request needs does not grow with the range. Each export holds a database connection
+ * while it downloads, so once {@code windfarm.export.max-concurrent} are running the response is
+ * {@code 429} with a {@code Retry-After} header.
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+  private final TelemetryExportService exportService;
+  private final Duration retryAfter;
+
+  public ExportController(TelemetryExportService exportService, WindfarmProperties properties) {
+    this.exportService = exportService;
+    this.retryAfter = properties.getExport().getRetryAfter();
+  }
+
+  @GetMapping("/metrics")
+  public ResponseEntity<StreamingResponseBody> metrics(
+      @RequestParam(name = "from") String fromStr,
+      @RequestParam(name = "to") String toStr,
+      @RequestParam(name = "deviceId", required = false) String deviceId,
+      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr,
+      @RequestParam(name = "format", defaultValue = "ndjson") String formatStr) {
+    Instant from = RequestParams.parseInstant(fromStr);
+    Instant to = RequestParams.parseInstant(toStr);
+    checkRange(from, to);
+    Duration bucket = RequestParams.parseDuration(bucketStr);
+    ExportFormat format = ExportFormat.parse(formatStr);
+    return respond(
+        "metrics",
+        format,
+        out -> exportService.writeMetrics(from, to, device(deviceId), bucket, format, out));
+  }
+
+  @GetMapping("/power")
+  public ResponseEntity<StreamingResponseBody> power(
+      @RequestParam(name = "from") String fromStr,
+      @RequestParam(name = "to") String toStr,
+      @RequestParam(name = "deviceId", required = false) String deviceId,
+      @RequestParam(name = "format", defaultValue = "ndjson") String formatStr) {
+    Instant from = RequestParams.parseInstant(fromStr);
+    Instant to = RequestParams.parseInstant(toStr);
+    checkRange(from, to);
+    ExportFormat format = ExportFormat.parse(formatStr);
+    return respond(
+        "power",
+        format,
+        out -> exportService.writePowerSeries(from, to, device(deviceId), format, out));
+  }
+
+  @GetMapping("/raw")
+  public ResponseEntity<StreamingResponseBody> raw(
+      @RequestParam(name = "from") String fromStr,
+      @RequestParam(name = "to") String toStr,
+      @RequestParam(name = "deviceId", required = false) String deviceId,
+      @RequestParam(name = "format", defaultValue = "ndjson") String formatStr) {
+    Instant from = RequestParams.parseInstant(fromStr);
+    Instant to = RequestParams.parseInstant(toStr);
+    checkRange(from, to);
+    ExportFormat format = ExportFormat.parse(formatStr);
+    return respond(
+        "telemetry",
+        format,
+        out -> exportService.writeRaw(from, to, device(deviceId), format, out));
+  }
+
+  private ResponseEntity<StreamingResponseBody> respond(
+      String name, ExportFormat format, StreamingResponseBody body) {
+    if (!exportService.tryBegin()) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())))
+          .build();
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(format.mediaType()))
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename(name + "." + format.extension())
+                .build()
+                .toString())
+        .body(
+            out -> {
+              try {
+                body.writeTo(out);
+              } finally {
+                exportService.end();
+              }
+            });
+  }
+
+  private Optional<String> device(String deviceId) {
+    return Optional.ofNullable(deviceId).filter(id -> !id.isBlank());
+  }
+
+  private void checkRange(Instant from, Instant to) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("from must be before to");
+    }
+  }
+}
@@ -24,7 +24,8 @@ public class ForecastController {
       @RequestParam(name = "deviceId", required = false) String deviceId,
       @RequestParam(name = "horizonMinutes", defaultValue = "60") int horizonMinutes,
       @RequestParam(name = "windowMinutes", defaultValue = "180") int windowMinutes,
-      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr) {
+      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr,
+      @RequestParam(name = "maxPoints", defaultValue = "0") int maxPoints) {
     if (horizonMinutes <= 0) {
       throw new IllegalArgumentException("horizonMinutes must be positive");
     }
@@ -33,20 +34,12 @@ public class ForecastController {
     }
     Duration horizon = Duration.ofMinutes(horizonMinutes);
     Duration window = Duration.ofMinutes(windowMinutes);
-    Duration bucket = parseDuration(bucketStr);
+    Duration bucket = RequestParams.parseDuration(bucketStr);
     return forecastService.forecast(
-        Optional.ofNullable(deviceId).filter(id -> !id.isBlank()), window, horizon, bucket);
-  }
-
-  private Duration parseDuration(String value) {
-    try {
-      if (value.toLowerCase().endsWith("minute") || value.toLowerCase().endsWith("minutes")) {
-        String digits = value.split(" ")[0];
-        return Duration.ofMinutes(Long.parseLong(digits));
-      }
-      return Duration.parse(value);
-    } catch (Exception ex) {
-      throw new IllegalArgumentException("Invalid bucket duration: " + value, ex);
-    }
+        Optional.ofNullable(deviceId).filter(id -> !id.isBlank()),
+        window,
+        horizon,
+        bucket,
+        maxPoints);
   }
 }
@@ -1,12 +1,13 @@
 // path: server/src/main/java/com/greenko/windfarm/web/MetricsController.java
 package com.greenko.windfarm.web;
 
+import com.greenko.windfarm.model.DeviceMetricSeries;
 import com.greenko.windfarm.model.MetricPoint;
 import com.greenko.windfarm.service.MetricsService;
+import com.greenko.windfarm.web.dto.DeviceMetricsResponse;
 import com.greenko.windfarm.web.dto.MetricsResponse;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.validation.annotation.Validated;
@@ -30,33 +31,36 @@ public class MetricsController {
       @RequestParam(name = "from", required = false) String fromStr,
       @RequestParam(name = "to", required = false) String toStr,
       @RequestParam(name = "deviceId", required = false) String deviceId,
-      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr) {
-    Instant to = toStr != null ? parseInstant(toStr) : Instant.now();
-    Instant from = fromStr != null ? parseInstant(fromStr) : to.minus(Duration.ofHours(6));
-    Duration bucket = parseDuration(bucketStr);
+      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr,
+      @RequestParam(name = "maxPoints", defaultValue = "0") int maxPoints) {
+    Instant to = toStr != null ? RequestParams.parseInstant(toStr) : Instant.now();
+    Instant from =
+        fromStr != null ? RequestParams.parseInstant(fromStr) : to.minus(Duration.ofHours(6));
+    Duration bucket = RequestParams.parseDuration(bucketStr);
     List<MetricPoint> points =
         metricsService.loadMetrics(
-            from, to, Optional.ofNullable(deviceId).filter(id -> !id.isBlank()), bucket);
+            from, to, Optional.ofNullable(deviceId).filter(id -> !id.isBlank()), bucket, maxPoints);
     return new MetricsResponse(from, to, deviceId == null ? "ALL" : deviceId, bucketStr, points);
   }
 
-  private Instant parseInstant(String value) {
-    try {
-      return Instant.parse(value);
-    } catch (DateTimeParseException ex) {
-      throw new IllegalArgumentException("Invalid instant: " + value, ex);
-    }
-  }
-
-  private Duration parseDuration(String value) {
-    try {
-      if (value.toLowerCase().endsWith("minute") || value.toLowerCase().endsWith("minutes")) {
-        String digits = value.split(" ")[0];
-        return Duration.ofMinutes(Long.parseLong(digits));
-      }
-      return Duration.parse(value);
-    } catch (Exception ex) {
-      throw new IllegalArgumentException("Invalid bucket duration: " + value, ex);
-    }
+  /**
+   * Series for several devices from one grouped query, as parallel arrays per device. Without
+   * {@code deviceId} every device is returned. {@code maxPoints} applies to each device.
+   */
+  @GetMapping("/devices")
+  public DeviceMetricsResponse deviceMetrics(
+      @RequestParam(name = "from", required = false) String fromStr,
+      @RequestParam(name = "to", required = false) String toStr,
+      @RequestParam(name = "deviceId", required = false) List<String> deviceIds,
+      @RequestParam(name = "bucket", defaultValue = "PT1M") String bucketStr,
+      @RequestParam(name = "maxPoints", defaultValue = "0") int maxPoints) {
+    Instant to = toStr != null ? RequestParams.parseInstant(toStr) : Instant.now();
+    Instant from =
+        fromStr != null ? RequestParams.parseInstant(fromStr) : to.minus(Duration.ofHours(6));
+    Duration bucket = RequestParams.parseDuration(bucketStr);
+    List<DeviceMetricSeries> devices =
+        metricsService.loadDeviceMetrics(
+            from, to, deviceIds == null ? List.of() : deviceIds, bucket, maxPoints);
+    return new DeviceMetricsResponse(from, to, bucketStr, devices);
   }
 }
@@ -0,0 +1,34 @@
+// path: server/src/main/java/com/greenko/windfarm/web/RequestParams.java
+package com.greenko.windfarm.web;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the time and bucket query parameters shared by the metrics, forecast and export endpoints.
+ */
+final class RequestParams {
+  private RequestParams() {}
+
+  static Instant parseInstant(String value) {
+    try {
+      return Instant.parse(value);
+    } catch (DateTimeParseException ex) {
+      throw new IllegalArgumentException("Invalid instant: " + value, ex);
+    }
+  }
+
+  /** An ISO-8601 duration, or a count of minutes such as {@code 5 minutes}. */
+  static Duration parseDuration(String value) {
+    try {
+      if (value.toLowerCase().endsWith("minute") || value.toLowerCase().endsWith("minutes")) {
+        String digits = value.split(" ")[0];
+        return Duration.ofMinutes(Long.parseLong(digits));
+      }
+      return Duration.parse(value);
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Invalid bucket duration: " + value, ex);
+    }
+  }
+}
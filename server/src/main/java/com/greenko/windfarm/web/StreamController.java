@@ -1,10 +1,15 @@
 // path: server/src/main/java/com/greenko/windfarm/web/StreamController.java
 package com.greenko.windfarm.web;
 
+import com.greenko.windfarm.event.DeviceSelector;
+import com.greenko.windfarm.event.SseClient;
 import com.greenko.windfarm.event.SseHub;
-import java.util.Optional;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,8 +24,35 @@ public class StreamController {
     this.hub = hub;
   }
 
+  /**
+   * Streams telemetry for every device, or only for the devices named in {@code deviceId}
+   * (repeatable or comma-separated) and those whose id starts with a {@code prefix}. With {@code
+   * mode=conflated} the stream carries, {@code fps} times a second, one {@code telemetry-batch}
+   * event with the latest record of each device that changed since the previous event. A browser
+   * reconnecting with {@code Last-Event-ID} first receives the events it missed.
+   */
   @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public SseEmitter stream(@RequestParam(name = "deviceId", required = false) String deviceId) {
-    return hub.register(Optional.ofNullable(deviceId).filter(id -> !id.isBlank()));
+  public SseEmitter stream(
+      @RequestParam(name = "deviceId", required = false) List<String> deviceIds,
+      @RequestParam(name = "prefix", required = false) List<String> prefixes,
+      @RequestParam(name = "mode", defaultValue = "full") String mode,
+      @RequestParam(name = "fps", defaultValue = "1") double fps,
+      @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+    DeviceSelector selector =
+        DeviceSelector.of(
+            Objects.requireNonNullElse(deviceIds, List.of()),
+            Objects.requireNonNullElse(prefixes, List.of()));
+    return switch (mode.toLowerCase(Locale.ROOT)) {
+      case "full" -> hub.register(selector, lastEventId);
+      case "conflated" -> hub.registerConflated(selector, fps);
+      default -> throw new IllegalArgumentException(
+          "Unknown stream mode '" + mode + "', expected full or conflated");
+    };
+  }
+
+  /** Outbound queue depth, lag and drop counters of every open stream. */
+  @GetMapping("/clients")
+  public List<SseClient.Stats> clients() {
+    return hub.clientStats();
   }
 }
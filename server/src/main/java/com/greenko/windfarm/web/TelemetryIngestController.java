@@ -0,0 +1,56 @@
+// path: server/src/main/java/com/greenko/windfarm/web/TelemetryIngestController.java
+package com.greenko.windfarm.web;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.ingest.BinaryTelemetryDecoder;
+import com.greenko.windfarm.service.TelemetryIngestService;
+import com.greenko.windfarm.web.dto.IngestResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Accepts telemetry pushed by SCADA gateways, either as NDJSON or in the binary frame format
+ * described on {@link BinaryTelemetryDecoder}. Bodies are decoded as they stream in. When the event
+ * bus cannot keep up, the response is {@code 429} with a {@code Retry-After} header and the number
+ * of leading records that were accepted.
+ */
+@RestController
+@RequestMapping("/api/telemetry")
+public class TelemetryIngestController {
+  private final TelemetryIngestService ingestService;
+  private final Duration retryAfter;
+
+  public TelemetryIngestController(
+      TelemetryIngestService ingestService, WindfarmProperties properties) {
+    this.ingestService = ingestService;
+    this.retryAfter = properties.getIngest().getRetryAfter();
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<IngestResponse> ingestNdjson(InputStream body) throws IOException {
+    return respond(ingestService.ingestNdjson(body));
+  }
+
+  @PostMapping(
+      consumes = {BinaryTelemetryDecoder.MEDIA_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public ResponseEntity<IngestResponse> ingestBinary(InputStream body) throws IOException {
+    return respond(ingestService.ingestBinary(body));
+  }
+
+  private ResponseEntity<IngestResponse> respond(IngestResponse response) {
+    if (response.throttled()) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())))
+          .body(response);
+    }
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+  }
+}
@@ -0,0 +1,148 @@
+// path: server/src/main/java/com/greenko/windfarm/web/TelemetryWebSocketHandler.java
+package com.greenko.windfarm.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenko.windfarm.event.DeviceSelector;
+import com.greenko.windfarm.event.TelemetrySocket;
+import com.greenko.windfarm.event.TelemetrySocketHub;
+import com.greenko.windfarm.web.dto.StreamCommand;
+import com.greenko.windfarm.web.dto.StreamSubscription;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Binary telemetry stream at {@code /api/ws/telemetry}. The server sends batched binary frames in
+ * the format documented on {@code TelemetryFrameEncoder}; the client sends JSON text commands such
+ * as {@code {"type":"subscribe","deviceIds":["Device_1"],"prefixes":["Device_2"]}} and gets the
+ * resulting subscription back. {@code deviceId}/{@code prefix} query parameters subscribe on
+ * connect, and {@code precision=float64} selects full-precision values.
+ */
+@Component
+public class TelemetryWebSocketHandler extends AbstractWebSocketHandler {
+  private static final Logger log = LoggerFactory.getLogger(TelemetryWebSocketHandler.class);
+  private static final String SOCKET = TelemetrySocket.class.getName();
+  private final TelemetrySocketHub hub;
+  private final ObjectMapper objectMapper;
+
+  public TelemetryWebSocketHandler(TelemetrySocketHub hub, ObjectMapper objectMapper) {
+    this.hub = hub;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+    MultiValueMap<String, String> query =
+        UriComponentsBuilder.fromUri(Objects.requireNonNull(session.getUri()))
+            .build()
+            .getQueryParams();
+    String precision = Objects.requireNonNullElse(query.getFirst("precision"), "float32");
+    if (!precision.equals("float32") && !precision.equals("float64")) {
+      session.close(CloseStatus.BAD_DATA.withReason("precision must be float32 or float64"));
+      return;
+    }
+    TelemetrySocket socket = hub.open(session, precision.equals("float64"));
+    session.getAttributes().put(SOCKET, socket);
+    List<String> deviceIds = split(query.get("deviceId"));
+    List<String> prefixes = split(query.get("prefix"));
+    if (!deviceIds.isEmpty() || !prefixes.isEmpty()) {
+      reply(socket, hub.subscribe(socket, deviceIds, prefixes));
+    }
+  }
+
+  @Override
+  protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+    TelemetrySocket socket = socket(session);
+    if (socket == null) {
+      return;
+    }
+    StreamCommand command;
+    try {
+      command = objectMapper.readValue(message.getPayload(), StreamCommand.class);
+    } catch (JsonProcessingException ex) {
+      error(socket, "Malformed command: " + ex.getOriginalMessage());
+      return;
+    }
+    List<String> deviceIds = split(command.deviceIds());
+    List<String> prefixes = split(command.prefixes());
+    switch (Objects.requireNonNullElse(command.type(), "")) {
+      case "subscribe" -> reply(socket, hub.subscribe(socket, deviceIds, prefixes));
+      case "unsubscribe" -> reply(socket, hub.unsubscribe(socket, deviceIds, prefixes));
+      default -> error(socket, "Unknown command type '" + command.type() + "'");
+    }
+  }
+
+  @Override
+  protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message)
+      throws Exception {
+    session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Commands are JSON text messages"));
+  }
+
+  @Override
+  public void handleTransportError(WebSocketSession session, Throwable exception) {
+    log.debug("Telemetry WebSocket transport error", exception);
+    close(session, CloseStatus.SERVER_ERROR);
+  }
+
+  @Override
+  public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+    close(session, status);
+  }
+
+  private void close(WebSocketSession session, CloseStatus status) {
+    TelemetrySocket socket = socket(session);
+    if (socket != null) {
+      socket.close(status);
+    }
+  }
+
+  private void reply(TelemetrySocket socket, DeviceSelector selector) {
+    StreamSubscription subscription =
+        selector == null
+            ? new StreamSubscription("subscription", false, Set.of(), Set.of())
+            : new StreamSubscription(
+                "subscription", selector.isAll(), selector.devices(), selector.prefixes());
+    send(socket, subscription);
+  }
+
+  private void error(TelemetrySocket socket, String message) {
+    send(socket, Map.of("type", "error", "message", message));
+  }
+
+  private void send(TelemetrySocket socket, Object payload) {
+    try {
+      socket.reply(objectMapper.writeValueAsString(payload));
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Failed to encode WebSocket reply", ex);
+    }
+  }
+
+  private static TelemetrySocket socket(WebSocketSession session) {
+    return (TelemetrySocket) session.getAttributes().get(SOCKET);
+  }
+
+  /** Values may repeat or be comma-separated, as on {@code /api/stream}. */
+  private static List<String> split(List<String> values) {
+    if (values == null) {
+      return List.of();
+    }
+    return values.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .filter(value -> !value.isEmpty())
+        .toList();
+  }
+}
@@ -1,6 +1,8 @@
 // path: server/src/main/java/com/greenko/windfarm/web/dto/DeviceListResponse.java
 package com.greenko.windfarm.web.dto;
 
+import com.greenko.windfarm.model.Device;
 import java.util.List;
 
-public record DeviceListResponse(List<String> devices) {}
+/** Device ids, and the same devices with their first- and last-seen times. */
+public record DeviceListResponse(List<String> devices, List<Device> details) {}
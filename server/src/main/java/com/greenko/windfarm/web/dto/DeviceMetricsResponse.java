@@ -0,0 +1,9 @@
+// path: server/src/main/java/com/greenko/windfarm/web/dto/DeviceMetricsResponse.java
+package com.greenko.windfarm.web.dto;
+
+import com.greenko.windfarm.model.DeviceMetricSeries;
+import java.time.Instant;
+import java.util.List;
+
+public record DeviceMetricsResponse(
+    Instant from, Instant to, String bucket, List<DeviceMetricSeries> devices) {}
@@ -0,0 +1,9 @@
+// path: server/src/main/java/com/greenko/windfarm/web/dto/IngestResponse.java
+package com.greenko.windfarm.web.dto;
+
+/**
+ * Outcome of a telemetry ingest request. When {@code throttled} is set, the first {@code accepted}
+ * records of the body were published and the caller should resend the rest after the {@code
+ * Retry-After} delay.
+ */
+public record IngestResponse(long accepted, boolean throttled) {}
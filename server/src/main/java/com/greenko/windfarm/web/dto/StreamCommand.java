@@ -0,0 +1,10 @@
+// path: server/src/main/java/com/greenko/windfarm/web/dto/StreamCommand.java
+package com.greenko.windfarm.web.dto;
+
+import java.util.List;
+
+/**
+ * A text message from a telemetry WebSocket client: {@code subscribe} or {@code unsubscribe} the
+ * given devices and device-id prefixes. With neither list, the command applies to every device.
+ */
+public record StreamCommand(String type, List<String> deviceIds, List<String> prefixes) {}
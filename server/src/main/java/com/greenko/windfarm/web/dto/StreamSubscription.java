@@ -0,0 +1,8 @@
+// path: server/src/main/java/com/greenko/windfarm/web/dto/StreamSubscription.java
+package com.greenko.windfarm.web.dto;
+
+import java.util.Set;
+
+/** Reply to a {@link StreamCommand}: what the WebSocket is subscribed to now. */
+public record StreamSubscription(
+    String type, boolean all, Set<String> deviceIds, Set<String> prefixes) {}
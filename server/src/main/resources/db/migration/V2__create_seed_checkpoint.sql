@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS seed_checkpoint (
+    dataset      TEXT PRIMARY KEY,
+    last_time    TIMESTAMPTZ NOT NULL,
+    rows_loaded  BIGINT NOT NULL,
+    updated_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,16 @@
+-- One row per device ever seen, kept by the ingest path and the seed, so listing devices no longer
+-- scans every chunk of telemetry. id is a surrogate key for encoding device ids.
+CREATE TABLE IF NOT EXISTS device (
+    id          BIGINT GENERATED ALWAYS AS IDENTITY UNIQUE,
+    device_id   TEXT PRIMARY KEY,
+    first_seen  TIMESTAMPTZ NOT NULL,
+    last_seen   TIMESTAMPTZ NOT NULL
+);
+
+-- Registers the devices already stored; a one-off scan.
+INSERT INTO device (device_id, first_seen, last_seen)
+SELECT device_id, MIN(time), MAX(time)
+FROM telemetry
+GROUP BY device_id
+ORDER BY device_id
+ON CONFLICT (device_id) DO NOTHING;
@@ -0,0 +1,9 @@
+-- Native compression for telemetry: one segment per device with rows ordered newest first, so a
+-- device's range or latest readings only decompress that device's segments. Chunks are compressed
+-- and dropped by the application (windfarm.storage) relative to the newest reading rather than by
+-- now()-based policies, because replayed telemetry carries historical timestamps.
+ALTER TABLE telemetry SET (
+    timescaledb.compress,
+    timescaledb.compress_segmentby = 'device_id',
+    timescaledb.compress_orderby = 'time DESC'
+);
@@ -0,0 +1,34 @@
+// path: server/src/test/java/com/greenko/windfarm/WindfarmApplicationTest.java
+package com.greenko.windfarm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.service.MetricsService;
+import com.greenko.windfarm.service.StoragePolicyScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Wires the whole application without a database: nothing connects until a query runs, so every
+ * bean is created without Docker.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.flyway.enabled=false",
+      "windfarm.hot-tier.enabled=false",
+      "windfarm.dataset.cache-enabled=false",
+      "windfarm.storage.compression.enabled=false"
+    })
+@ActiveProfiles("test")
+class WindfarmApplicationTest {
+  @Autowired private ApplicationContext context;
+
+  @Test
+  void contextLoads() {
+    assertThat(context.getBean(MetricsService.class)).isNotNull();
+    assertThat(context.getBean(StoragePolicyScheduler.class)).isNotNull();
+  }
+}
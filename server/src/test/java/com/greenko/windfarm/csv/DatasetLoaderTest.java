@@ -4,23 +4,232 @@ package com.greenko.windfarm.csv;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.greenko.windfarm.config.WindfarmProperties;
-import com.greenko.windfarm.csv.DatasetLoader.DatasetSnapshot;
 import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class DatasetLoaderTest {
+  @TempDir Path tempDir;
+
   @Test
   void aggregatesDuplicateRows() {
-    WindfarmProperties properties = new WindfarmProperties();
-    properties.setDatasetPath(Paths.get("src/test/resources/test-data/sample.csv"));
-    DatasetLoader loader = new DatasetLoader(properties);
+    DatasetLoader loader =
+        new DatasetLoader(
+            properties(Paths.get("src/test/resources/test-data/sample.csv")),
+            new SimpleMeterRegistry());
 
     DatasetSnapshot snapshot = loader.loadDataset();
 
-    assertThat(snapshot.records()).hasSize(5);
-    TelemetryRecord first = snapshot.records().get(0);
+    assertThat(snapshot.size()).isEqualTo(5);
+    TelemetryRecord first = snapshot.record(0);
     assertThat(first.energyKwh()).isEqualTo(1.5);
     assertThat(first.powerKw()).isEqualTo(90.0);
+    assertThat(snapshot.devices()).containsExactly("Device_1", "Device_2");
+  }
+
+  @Test
+  void skipsMalformedRowsAndOrdersByTimeThenDevice() throws IOException {
+    Path csv = tempDir.resolve("messy.csv");
+    Files.writeString(
+        csv,
+        "timestamp,device_id,energy_produced_kwh\r\n"
+            + "29-02-2024 23:59, \"Device_2\" ,2.5e-1\r\n"
+            + "\r\n"
+            + "29-02-2024 23:59,Device_10,1\r\n"
+            + "30-02-2024 00:00,Device_1,1.0\r\n"
+            + "01-03-2024 00:00,Device_1\r\n"
+            + "01-03-2024 00:00,Device_1,abc\r\n"
+            + "01-03-2024 00:00,Device_1,NaN\r\n"
+            + "01-03-2024 00:00,Device_1,0.125",
+        StandardCharsets.UTF_8);
+    DatasetSnapshot snapshot =
+        new DatasetLoader(properties(csv), new SimpleMeterRegistry()).loadDataset();
+
+    assertThat(snapshot.rawRowCount()).isEqualTo(7);
+    assertThat(records(snapshot))
+        .containsExactly(
+            new TelemetryRecord(Instant.parse("2024-02-29T23:59:00Z"), "Device_10", 1.0, 60.0),
+            new TelemetryRecord(Instant.parse("2024-02-29T23:59:00Z"), "Device_2", 0.25, 15.0),
+            new TelemetryRecord(Instant.parse("2024-03-01T00:00:00Z"), "Device_1", 0.125, 7.5));
+  }
+
+  @Test
+  void parallelLoadMatchesSequentialLoad() throws IOException {
+    Path csv = tempDir.resolve("large.csv");
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder content = new StringBuilder("timestamp,device_id,energy_produced_kwh\n");
+    for (int i = 0; i < 450_000; i++) {
+      // Revisit earlier minutes now and then so duplicates straddle chunk boundaries.
+      int minute = random.nextInt(10) == 0 ? random.nextInt(i / 20 + 1) : i / 20;
+      content
+          .append(
+              String.format(
+                  Locale.ROOT,
+                  "%02d-01-2025 %02d:%02d",
+                  1 + minute / 1440,
+                  minute / 60 % 24,
+                  minute % 60))
+          .append(",Device_")
+          .append(random.nextInt(25))
+          .append(',')
+          .append(random.nextDouble() * 3)
+          .append('\n');
+    }
+    Files.writeString(csv, content, StandardCharsets.UTF_8);
+
+    DatasetSnapshot sequential = load(csv, 1);
+    DatasetSnapshot parallel = load(csv, 4);
+
+    assertThat(parallel.rawRowCount()).isEqualTo(sequential.rawRowCount());
+    assertThat(records(parallel)).isEqualTo(records(sequential));
+    assertThat(parallel.powerStatistics().getSum())
+        .isEqualTo(sequential.powerStatistics().getSum());
+  }
+
+  @Test
+  void mapsCachedSnapshotUntilTheCsvChanges() throws IOException {
+    Path csv = tempDir.resolve("cached.csv");
+    Files.copy(Paths.get("src/test/resources/test-data/sample.csv"), csv);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    DatasetSnapshot cold = new DatasetLoader(properties(csv), registry).loadDataset();
+    DatasetSnapshot warm = new DatasetLoader(properties(csv), registry).loadDataset();
+
+    assertThat(records(warm)).isEqualTo(records(cold));
+    assertThat(warm.devices()).isEqualTo(cold.devices());
+    assertThat(warm.rawRowCount()).isEqualTo(cold.rawRowCount());
+    assertThat(warm.powerStatistics().getSum()).isEqualTo(cold.powerStatistics().getSum());
+    assertThat(warm.powerStatistics().getMax()).isEqualTo(cold.powerStatistics().getMax());
+    assertThat(registry.get("windfarm.dataset.load").tag("source", "csv").timer().count())
+        .isEqualTo(1);
+    assertThat(registry.get("windfarm.dataset.load").tag("source", "snapshot").timer().count())
+        .isEqualTo(1);
+
+    Files.writeString(
+        csv, "01-01-2025 00:03,Device_3,2.0\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    DatasetSnapshot changed = new DatasetLoader(properties(csv), registry).loadDataset();
+
+    assertThat(changed.size()).isEqualTo(6);
+    assertThat(registry.get("windfarm.dataset.load").tag("source", "csv").timer().count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void reparsesWhenTheSnapshotIsCorrupt() throws IOException {
+    Path csv = tempDir.resolve("corrupt.csv");
+    Files.copy(Paths.get("src/test/resources/test-data/sample.csv"), csv);
+    DatasetSnapshot cold =
+        new DatasetLoader(properties(csv), new SimpleMeterRegistry()).loadDataset();
+    Path cache = tempDir.resolve("cache").resolve("corrupt.csv.snapshot");
+    byte[] bytes = Files.readAllBytes(cache);
+    bytes[bytes.length - 1] ^= 0x55;
+    Files.write(cache, bytes);
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    DatasetSnapshot reloaded = new DatasetLoader(properties(csv), registry).loadDataset();
+
+    assertThat(records(reloaded)).isEqualTo(records(cold));
+    assertThat(registry.get("windfarm.dataset.load").tag("source", "csv").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void matchesTheCsvContentsOnlyWhenVerifying() throws IOException {
+    Path csv = tempDir.resolve("edited.csv");
+    Files.copy(Paths.get("src/test/resources/test-data/sample.csv"), csv);
+    new DatasetLoader(properties(csv), new SimpleMeterRegistry()).loadDataset();
+    // Same size and modification time, different contents.
+    FileTime modified = Files.getLastModifiedTime(csv);
+    Files.writeString(
+        csv, Files.readString(csv).replace("Device_2", "Device_7"), StandardCharsets.UTF_8);
+    Files.setLastModifiedTime(csv, modified);
+
+    DatasetSnapshot trusted =
+        new DatasetLoader(properties(csv), new SimpleMeterRegistry()).loadDataset();
+    WindfarmProperties verifying = properties(csv);
+    verifying.getDataset().setCacheVerify(true);
+    DatasetSnapshot verified =
+        new DatasetLoader(verifying, new SimpleMeterRegistry()).loadDataset();
+
+    assertThat(trusted.devices()).containsExactly("Device_1", "Device_2");
+    assertThat(verified.devices()).containsExactly("Device_1", "Device_7");
+  }
+
+  @Test
+  void cursorWalksRowsInOrder() {
+    DatasetSnapshot snapshot =
+        new DatasetLoader(
+                properties(Paths.get("src/test/resources/test-data/sample.csv")),
+                new SimpleMeterRegistry())
+            .loadDataset();
+
+    DatasetSnapshot.Cursor cursor = snapshot.cursor();
+    cursor.seek(2);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.deviceId()).isEqualTo("Device_2");
+    assertThat(cursor.epochSecond())
+        .isEqualTo(Instant.parse("2025-01-01T00:01:00Z").getEpochSecond());
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.energyKwh()).isEqualTo(1.1);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.deviceIndex()).isEqualTo(1);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  private static List<TelemetryRecord> records(DatasetSnapshot snapshot) {
+    List<TelemetryRecord> records = new ArrayList<>(snapshot.size());
+    DatasetSnapshot.Cursor cursor = snapshot.cursor();
+    while (cursor.next()) {
+      records.add(snapshot.record(cursor.row()));
+    }
+    return records;
+  }
+
+  private DatasetSnapshot load(Path csv, int parallelism) {
+    WindfarmProperties properties = properties(csv);
+    properties.getDataset().setLoadParallelism(parallelism);
+    properties.getDataset().setCacheEnabled(false);
+    return new DatasetLoader(properties, new SimpleMeterRegistry()).loadDataset();
+  }
+
+  private WindfarmProperties properties(Path csv) {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.setDatasetPath(csv);
+    properties.getDataset().setCacheDirectory(tempDir.resolve("cache"));
+    return properties;
+  }
+
+  @Test
+  void parsesDoublesExactlyLikeTheJdk() {
+    MappedCsvParser parser =
+        new MappedCsvParser(new DeviceDictionary(), new MinuteAggregationTable(16));
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 100_000; i++) {
+      String text =
+          switch (i % 4) {
+            case 0 -> Double.toString(random.nextDouble() * 1000);
+            case 1 -> String.format(Locale.ROOT, "%.3f", random.nextDouble() * 50);
+            case 2 -> Long.toString(random.nextLong(1_000_000));
+            default -> Double.toString(random.nextDouble() * 1e-30);
+          };
+      byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+      assertThat(parser.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length))
+          .as(text)
+          .isEqualTo(Double.parseDouble(text));
+    }
   }
 }
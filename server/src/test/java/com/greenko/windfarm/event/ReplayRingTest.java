@@ -0,0 +1,114 @@
+// path: server/src/test/java/com/greenko/windfarm/event/ReplayRingTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ReplayRingTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+  @Test
+  void replaysEventsAfterASequenceStillInTheRing() {
+    ReplayRing ring = new ReplayRing(8);
+    for (int i = 0; i < 6; i++) {
+      assertThat(ring.append(record(i, "D" + (i % 2)))).isEqualTo(i);
+    }
+
+    assertThat(ring.coversAfter(2)).isTrue();
+    assertThat(sequences(ring.after(2, DeviceSelector.all()))).containsExactly(3L, 4L, 5L);
+    assertThat(sequences(ring.after(2, DeviceSelector.device("D1")))).containsExactly(3L, 5L);
+    assertThat(ring.after(5, DeviceSelector.all())).isEmpty();
+  }
+
+  @Test
+  void reportsGapsOlderThanTheRing() {
+    ReplayRing ring = new ReplayRing(5);
+    for (int i = 0; i < 20; i++) {
+      ring.append(record(i, "D1"));
+    }
+
+    // Capacity is rounded up to 8, so sequences 12..19 are held.
+    assertThat(ring.oldestSequence()).isEqualTo(12);
+    assertThat(ring.oldestTime()).isEqualTo(START.plusSeconds(12));
+    assertThat(ring.coversAfter(11)).isTrue();
+    assertThat(ring.coversAfter(10)).isFalse();
+    assertThat(ring.coversAfter(20)).isFalse();
+  }
+
+  @Test
+  void stopsAtTheCapturedSequenceAndSkipsOverwrittenEvents() {
+    ReplayRing ring = new ReplayRing(8);
+    for (int i = 0; i < 6; i++) {
+      ring.append(record(i, "D1"));
+    }
+    long through = ring.lastSequence();
+    // Published after the capture; 8 and 9 overwrite sequences 0 and 1.
+    for (int i = 6; i < 10; i++) {
+      ring.append(record(i, "D1"));
+    }
+
+    assertThat(through).isEqualTo(5);
+    assertThat(ring.coversAfter(3, through)).isTrue();
+    assertThat(ring.coversAfter(0, through)).isFalse();
+    assertThat(sequences(ring.after(3, through, DeviceSelector.all()))).containsExactly(4L, 5L);
+    assertThat(sequences(ring.after(-1, through, DeviceSelector.all())))
+        .containsExactly(2L, 3L, 4L, 5L);
+    assertThat(sequences(ring.since(START.plusSeconds(4), through, DeviceSelector.all())))
+        .containsExactly(4L, 5L);
+    assertThat(new ReplayRing(4).lastSequence()).isEqualTo(-1);
+  }
+
+  @Test
+  void findsEventsByTimeWhenTheSequenceIsUnknown() {
+    ReplayRing ring = new ReplayRing(16);
+    for (int i = 0; i < 10; i++) {
+      ring.append(record(i / 2, "D" + (i % 2)));
+    }
+
+    assertThat(ring.since(START.plusSeconds(3), DeviceSelector.all()))
+        .extracting(entry -> entry.record().time())
+        .containsExactly(
+            START.plusSeconds(3), START.plusSeconds(3), START.plusSeconds(4), START.plusSeconds(4));
+  }
+
+  @Test
+  void parsesEventIds() {
+    String id = SseEventId.format("m5x1k2", 42, START);
+
+    assertThat(SseEventId.parse(id)).isEqualTo(new SseEventId("m5x1k2", 42, START));
+    assertThat(SseEventId.parse(id).isFrom("m5x1k2")).isTrue();
+    assertThat(SseEventId.parse(id).isFrom("other")).isFalse();
+    assertThat(SseEventId.parse(START.toString()))
+        .isEqualTo(new SseEventId(null, SseEventId.NO_SEQUENCE, START));
+    assertThat(SseEventId.parse(START.toString()).isFrom("m5x1k2")).isFalse();
+    assertThat(SseEventId.parse("nonsense")).isNull();
+    assertThat(SseEventId.parse("boot-x@" + START)).isNull();
+    assertThat(SseEventId.parse("")).isNull();
+    assertThat(SseEventId.parse(null)).isNull();
+  }
+
+  @Test
+  void deviceSelectorsWithPrefixesFilterReplay() {
+    ReplayRing ring = new ReplayRing(8);
+    ring.append(record(0, "Device_1"));
+    ring.append(record(1, "Device_2"));
+    ring.append(record(2, "Device_10"));
+
+    assertThat(ring.after(-1, DeviceSelector.of(Set.of(), Set.of("Device_1"))))
+        .extracting(entry -> entry.record().deviceId())
+        .containsExactly("Device_1", "Device_10");
+  }
+
+  private static TelemetryRecord record(int second, String deviceId) {
+    return new TelemetryRecord(START.plusSeconds(second), deviceId, 1.0, 60.0);
+  }
+
+  private static List<Long> sequences(List<ReplayRing.Entry> entries) {
+    return entries.stream().map(ReplayRing.Entry::sequence).toList();
+  }
+}
@@ -0,0 +1,307 @@
+// path: server/src/test/java/com/greenko/windfarm/event/SseClientTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.greenko.windfarm.config.WindfarmProperties.Sse.SlowClientPolicy;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class SseClientTest {
+  private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+  @AfterEach
+  void releaseEmitters() {
+    emitters.forEach(RecordingEmitter::release);
+  }
+
+  @Test
+  void dropsTheOldestFrameWhenTheQueueIsFull() throws Exception {
+    RecordingEmitter emitter = stalledEmitter();
+    SseClient client = client(emitter, 2, SlowClientPolicy.DROP_OLDEST, c -> {});
+
+    assertThat(client.offer(frame("a"), "D1")).isEqualTo(SseClient.Outcome.QUEUED);
+    awaitStalled(emitter);
+    assertThat(client.offer(frame("b"), "D1")).isEqualTo(SseClient.Outcome.QUEUED);
+    assertThat(client.offer(frame("c"), "D2")).isEqualTo(SseClient.Outcome.QUEUED);
+    assertThat(client.offer(frame("d"), "D3")).isEqualTo(SseClient.Outcome.DROPPED_OLDEST);
+    assertThat(client.stats().queued()).isEqualTo(2);
+    assertThat(client.stats().dropped()).isEqualTo(1);
+
+    emitter.release();
+    await().atMost(Duration.ofSeconds(5)).until(() -> emitter.frames.size() == 3);
+    assertThat(emitter.frames).containsExactly("a", "c", "d");
+  }
+
+  @Test
+  void conflatesQueuedFramesOfTheSameDevice() throws Exception {
+    RecordingEmitter emitter = stalledEmitter();
+    SseClient client = client(emitter, 2, SlowClientPolicy.CONFLATE, c -> {});
+
+    client.offer(frame("a1"), "A");
+    awaitStalled(emitter);
+    client.offer(frame("a2"), "A");
+    client.offer(frame("b1"), "B");
+    assertThat(client.offer(frame("a3"), "A")).isEqualTo(SseClient.Outcome.CONFLATED);
+    assertThat(client.offer(frame("b2"), "B")).isEqualTo(SseClient.Outcome.CONFLATED);
+    assertThat(client.offer(frame("c1"), "C")).isEqualTo(SseClient.Outcome.DROPPED_OLDEST);
+    assertThat(client.stats().conflated()).isEqualTo(2);
+
+    emitter.release();
+    await().atMost(Duration.ofSeconds(5)).until(() -> emitter.frames.size() == 3);
+    assertThat(emitter.frames).containsExactly("a1", "b2", "c1");
+  }
+
+  @Test
+  void disconnectsAClientWhoseQueueIsFull() throws Exception {
+    RecordingEmitter emitter = stalledEmitter();
+    AtomicInteger closed = new AtomicInteger();
+    SseClient client =
+        client(emitter, 1, SlowClientPolicy.DISCONNECT, c -> closed.incrementAndGet());
+
+    client.offer(frame("a"), "D1");
+    awaitStalled(emitter);
+    client.offer(frame("b"), "D1");
+
+    // The stalled write holds the emitter's monitor, so completing it here would block the caller.
+    assertThat(
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> client.offer(frame("c"), "D1")))
+        .isEqualTo(SseClient.Outcome.EVICTED);
+    assertThat(client.isClosed()).isTrue();
+    assertThat(client.stats().evicted()).isTrue();
+    assertThat(client.offer(frame("d"), "D1")).isEqualTo(SseClient.Outcome.CLOSED);
+    assertThat(closed).hasValue(1);
+    assertThat(emitter.completed).isFalse();
+
+    emitter.release();
+    await().atMost(Duration.ofSeconds(5)).untilTrue(emitter.completed);
+    assertThat(emitter.frames).containsExactly("a");
+  }
+
+  @Test
+  void closesWhenAWriteFails() {
+    RecordingEmitter emitter = new RecordingEmitter(false);
+    emitter.fail = true;
+    emitters.add(emitter);
+    AtomicInteger closed = new AtomicInteger();
+    SseClient client =
+        client(emitter, 4, SlowClientPolicy.DROP_OLDEST, c -> closed.incrementAndGet());
+
+    client.offer(frame("a"), "D1");
+
+    await().atMost(Duration.ofSeconds(5)).untilTrue(emitter.completed);
+    assertThat(client.isClosed()).isTrue();
+    assertThat(closed).hasValue(1);
+  }
+
+  @Test
+  void heartbeatsAreOnlyQueuedWhenIdle() throws Exception {
+    RecordingEmitter emitter = stalledEmitter();
+    SseClient client = client(emitter, 4, SlowClientPolicy.DROP_OLDEST, c -> {});
+
+    client.offer(frame("a"), "D1");
+    awaitStalled(emitter);
+    client.offerHeartbeat();
+    client.offer(frame("b"), "D1");
+    client.offerHeartbeat();
+
+    assertThat(client.stats().queued()).isEqualTo(2);
+  }
+
+  @Test
+  void heartbeatsOnlyClientsThatWroteNothingForAnInterval() {
+    RecordingEmitter emitter = new RecordingEmitter(false);
+    emitters.add(emitter);
+    SseClient client = client(emitter, 4, SlowClientPolicy.DROP_OLDEST, c -> {});
+    long interval = TimeUnit.SECONDS.toNanos(30);
+
+    assertThat(client.heartbeat(System.nanoTime(), interval, 0))
+        .isEqualTo(SseClient.Heartbeat.SENT);
+    await().atMost(Duration.ofSeconds(5)).until(() -> emitter.frames.size() == 1);
+    client.offer(frame("data"), "D1");
+    await().atMost(Duration.ofSeconds(5)).until(() -> emitter.frames.size() == 2);
+
+    long now = System.nanoTime();
+    assertThat(client.heartbeat(now, interval, 0)).isEqualTo(SseClient.Heartbeat.SKIPPED);
+    assertThat(client.nextHeartbeat(now, interval, 0)).isBetween(now, now + interval);
+    assertThat(client.heartbeat(now + interval, interval, 0)).isEqualTo(SseClient.Heartbeat.SENT);
+    await().atMost(Duration.ofSeconds(5)).until(() -> emitter.frames.size() == 3);
+    assertThat(emitter.frames.get(2)).isEqualTo(SseFrame.HEARTBEAT.toString());
+  }
+
+  @Test
+  void evictsAClientWhoseWriteStaysBlockedForTheIdleTimeout() throws Exception {
+    RecordingEmitter emitter = stalledEmitter();
+    AtomicInteger closed = new AtomicInteger();
+    SseClient client =
+        client(emitter, 4, SlowClientPolicy.DROP_OLDEST, c -> closed.incrementAndGet());
+    long interval = TimeUnit.SECONDS.toNanos(30);
+    long idleTimeout = TimeUnit.MINUTES.toNanos(2);
+
+    client.offer(frame("a"), "D1");
+    awaitStalled(emitter);
+    long now = System.nanoTime();
+
+    assertThat(client.heartbeat(now, interval, idleTimeout)).isEqualTo(SseClient.Heartbeat.SKIPPED);
+    assertThat(client.nextHeartbeat(now + interval * 3, interval, idleTimeout))
+        .isLessThanOrEqualTo(now + idleTimeout);
+    assertThat(client.heartbeat(now + idleTimeout, interval, 0))
+        .isEqualTo(SseClient.Heartbeat.SKIPPED);
+    assertThat(
+            assertTimeoutPreemptively(
+                Duration.ofSeconds(5),
+                () -> client.heartbeat(now + idleTimeout, interval, idleTimeout)))
+        .isEqualTo(SseClient.Heartbeat.IDLE);
+    assertThat(client.isClosed()).isTrue();
+    assertThat(client.stats().evicted()).isTrue();
+    assertThat(closed).hasValue(1);
+    assertThat(emitter.completed).isFalse();
+
+    // The drain thread completes the emitter once the blocked write gives up.
+    emitter.release();
+    await().atMost(Duration.ofSeconds(5)).untilTrue(emitter.completed);
+  }
+
+  @Test
+  void conflatedClientsDrainOnlyTheLatestValueOfChangedDevices() {
+    RecordingEmitter emitter = new RecordingEmitter(false);
+    emitters.add(emitter);
+    SseClient client =
+        new SseClient(emitter, DeviceSelector.all(), 4, SlowClientPolicy.DROP_OLDEST, 2, c -> {});
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+
+    for (int i = 0; i < 1_000; i++) {
+      client.conflate(new TelemetryRecord(start.plusSeconds(i), "D" + (i % 3), i, i * 60.0));
+    }
+
+    List<TelemetryRecord> changed = client.drainChanged();
+    assertThat(changed)
+        .extracting(TelemetryRecord::deviceId, TelemetryRecord::energyKwh)
+        .containsExactly(tuple("D0", 999.0), tuple("D1", 997.0), tuple("D2", 998.0));
+    assertThat(client.drainChanged()).isEmpty();
+
+    client.conflate(new TelemetryRecord(start.plusSeconds(1_000), "D1", 1_000, 60_000));
+    assertThat(client.drainChanged()).extracting(TelemetryRecord::deviceId).containsExactly("D1");
+    assertThat(client.stats().fps()).isEqualTo(2);
+  }
+
+  @Test
+  void aStalledClientDoesNotDelayOthers() throws Exception {
+    RecordingEmitter stalled = stalledEmitter();
+    RecordingEmitter healthy = new RecordingEmitter(false);
+    emitters.add(healthy);
+    SseClient slow = client(stalled, 16, SlowClientPolicy.DROP_OLDEST, c -> {});
+    SseClient fast = client(healthy, 16_384, SlowClientPolicy.DROP_OLDEST, c -> {});
+
+    slow.offer(frame("first"), "D1");
+    awaitStalled(stalled);
+    int frames = 10_000;
+    long started = System.nanoTime();
+    for (int i = 0; i < frames; i++) {
+      SseFrame frame = frame(Integer.toString(i));
+      slow.offer(frame, "D1");
+      fast.offer(frame, "D1");
+    }
+    long offerNanos = System.nanoTime() - started;
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> healthy.frames.size() == frames);
+    assertThat(healthy.frames.get(frames - 1)).isEqualTo(Integer.toString(frames - 1));
+    assertThat(stalled.frames).isEmpty();
+    assertThat(slow.stats().queued()).isEqualTo(16);
+    assertThat(slow.stats().dropped()).isEqualTo(frames - 16);
+    assertThat(TimeUnit.NANOSECONDS.toSeconds(offerNanos)).isLessThan(5);
+  }
+
+  private SseClient client(
+      RecordingEmitter emitter,
+      int capacity,
+      SlowClientPolicy policy,
+      Consumer<SseClient> onClose) {
+    return new SseClient(emitter, DeviceSelector.all(), capacity, policy, onClose).start();
+  }
+
+  private RecordingEmitter stalledEmitter() {
+    RecordingEmitter emitter = new RecordingEmitter(true);
+    emitters.add(emitter);
+    return emitter;
+  }
+
+  private static void awaitStalled(RecordingEmitter emitter) throws InterruptedException {
+    assertThat(emitter.stalled.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private static SseFrame frame(String data) {
+    return SseFrame.of(data);
+  }
+
+  /**
+   * Records frames, optionally blocking the first write until released like a peer that stops
+   * reading. Like {@link org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter}
+   * it writes and completes under its own monitor, so completing it during a blocked write waits.
+   * The write blocks in {@link Object#wait} on a separate gate, for which the JDK adds a carrier
+   * while the virtual thread stays pinned, so a stalled client cannot starve the others.
+   */
+  private static final class RecordingEmitter extends SseEmitter {
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+    private final CountDownLatch stalled = new CountDownLatch(1);
+    private final Object gate = new Object();
+    private boolean released;
+    private volatile boolean fail;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private RecordingEmitter(boolean stall) {
+      this.released = !stall;
+    }
+
+    @Override
+    public synchronized void send(SseEventBuilder builder) throws IOException {
+      if (fail) {
+        throw new IOException("Broken pipe");
+      }
+      stalled.countDown();
+      synchronized (gate) {
+        while (!released) {
+          try {
+            gate.wait();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+          }
+        }
+      }
+      frames.add(builder.toString());
+    }
+
+    private void release() {
+      synchronized (gate) {
+        released = true;
+        gate.notifyAll();
+      }
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed.set(true);
+    }
+
+    @Override
+    public synchronized void completeWithError(Throwable ex) {
+      completed.set(true);
+    }
+  }
+}
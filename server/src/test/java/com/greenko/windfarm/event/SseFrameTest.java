@@ -0,0 +1,116 @@
+// path: server/src/test/java/com/greenko/windfarm/event/SseFrameTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class SseFrameTest {
+  private final ObjectMapper mapper =
+      new ObjectMapper()
+          .registerModule(new JavaTimeModule())
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  @Test
+  void matchesTheFrameSpringWouldWrite() throws Exception {
+    TelemetryRecord record =
+        new TelemetryRecord(Instant.parse("2025-01-01T00:00:00Z"), "Device_1", 1.5, 90.0);
+
+    SseFrame frame = SseFrame.event(record.time().toString(), "telemetry", record, mapper);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (DataWithMediaType part :
+        SseEmitter.event()
+            .id(record.time().toString())
+            .name("telemetry")
+            .data(record, MediaType.APPLICATION_JSON)
+            .build()) {
+      expected.write(
+          part.getData() instanceof String text
+              ? text.getBytes(StandardCharsets.UTF_8)
+              : mapper.writeValueAsBytes(part.getData()));
+    }
+    assertThat(frame.toString()).isEqualTo(expected.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void writesTheEncodedBytesThroughSseEmitter() throws Exception {
+    TelemetryRecord record =
+        new TelemetryRecord(Instant.parse("2025-01-01T00:00:00Z"), "Device_1", 1.5, 90.0);
+    SseFrame frame = SseFrame.event("7", "telemetry", record, mapper);
+    MockMvc mvc = MockMvcBuilders.standaloneSetup(new FrameController(frame)).build();
+
+    MvcResult result = mvc.perform(get("/frames")).andExpect(request().asyncStarted()).andReturn();
+
+    assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+        .isEqualTo(frame.toString() + SseFrame.HEARTBEAT);
+  }
+
+  @Test
+  void sharesOneBufferAcrossSends() {
+    TelemetryRecord record =
+        new TelemetryRecord(Instant.parse("2025-01-01T00:00:00Z"), "Device_1", 1.5, 90.0);
+    SseFrame frame = SseFrame.event("1", "telemetry", record, mapper);
+
+    Object first = frame.build().iterator().next().getData();
+    Object second = frame.build().iterator().next().getData();
+
+    assertThat(first).isInstanceOf(byte[].class).isSameAs(second);
+    assertThat(((byte[]) first).length).isEqualTo(frame.length());
+  }
+
+  @Test
+  void batchesRecordsIntoOneJsonArrayEvent() throws Exception {
+    Instant time = Instant.parse("2025-01-01T00:00:00Z");
+    List<TelemetryRecord> records =
+        List.of(
+            new TelemetryRecord(time, "Device_1", 1.5, 90.0),
+            new TelemetryRecord(time, "Device_2", 0.5, 30.0));
+
+    SseFrame frame = SseFrame.batch(time.toString(), "telemetry-batch", records, mapper);
+
+    assertThat(frame.toString())
+        .isEqualTo(
+            "id:"
+                + time
+                + "\nevent:telemetry-batch\ndata:"
+                + mapper.writeValueAsString(records)
+                + "\n\n");
+  }
+
+  @RestController
+  static class FrameController {
+    private final SseFrame frame;
+
+    FrameController(SseFrame frame) {
+      this.frame = frame;
+    }
+
+    @GetMapping(path = "/frames", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter frames() throws Exception {
+      SseEmitter emitter = new SseEmitter();
+      emitter.send(frame);
+      emitter.send(SseFrame.HEARTBEAT);
+      emitter.complete();
+      return emitter;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+// path: server/src/test/java/com/greenko/windfarm/event/SseHeartbeatScalingTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens tens of thousands of in-process SSE connections and checks that the heartbeat wheel sends
+ * each quiet one a heartbeat once per interval, spread evenly instead of in one sweep, and skips
+ * the ones that just got data. Its assertions depend on wall-clock timing, so it only runs in the
+ * {@code benchmark} task.
+ */
+@Tag("benchmark")
+class SseHeartbeatScalingTest {
+  private static final Logger log = LoggerFactory.getLogger(SseHeartbeatScalingTest.class);
+  private static final int CLIENTS = 20_000;
+  private static final Duration INTERVAL = Duration.ofSeconds(2);
+  private static final Duration WINDOW = Duration.ofMillis(200);
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private TelemetryEventBus bus;
+  private SseHub hub;
+
+  @BeforeEach
+  void setUp() {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getSse().setHeartbeatInterval(INTERVAL);
+    // Room for a record to every busy client at once.
+    properties.getBus().setCapacity(32_768);
+    bus = new TelemetryEventBus(properties, registry);
+    hub =
+        new SseHub(
+            bus,
+            new ObjectMapper().registerModule(new JavaTimeModule()),
+            null,
+            properties,
+            registry);
+    hub.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    hub.shutdown();
+    bus.shutdown();
+  }
+
+  @Test
+  void spreadsHeartbeatsOfQuietClientsEvenlyOverTheInterval() throws Exception {
+    long started = System.nanoTime();
+    for (int i = 0; i < CLIENTS; i++) {
+      // Emitters that no request has picked up yet buffer what they are sent, like a local peer.
+      hub.register(DeviceSelector.device("Device_" + i));
+    }
+    log.info(
+        "Opened {} SSE clients in {} ms",
+        CLIENTS,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    assertThat(hub.connectionCount()).isEqualTo(CLIENTS);
+
+    // Skip the first interval, in which clients were still being opened.
+    Thread.sleep(INTERVAL.toMillis());
+    Counter heartbeats = registry.get("windfarm.sse.heartbeats").counter();
+    int windows = (int) (2 * INTERVAL.toMillis() / WINDOW.toMillis());
+    List<Long> perWindow = new ArrayList<>();
+    long previous = (long) heartbeats.count();
+    for (int i = 0; i < windows; i++) {
+      Thread.sleep(WINDOW.toMillis());
+      long total = (long) heartbeats.count();
+      perWindow.add(total - previous);
+      previous = total;
+    }
+
+    LongSummaryStatistics stats = perWindow.stream().mapToLong(Long::longValue).summaryStatistics();
+    log.info("Heartbeats per {} ms window: {}", WINDOW.toMillis(), perWindow);
+    // Two intervals: every quiet client is due twice, give or take one window at each edge.
+    assertThat(stats.getSum()).isBetween(2L * CLIENTS * 8 / 10, 2L * CLIENTS * 12 / 10);
+    // A single sweep would put all of them in one window.
+    long expectedPerWindow = CLIENTS * WINDOW.toMillis() / INTERVAL.toMillis();
+    assertThat(stats.getMax()).isLessThan(expectedPerWindow * 3);
+  }
+
+  @Test
+  void skipsHeartbeatsForClientsThatGotDataRecently() throws Exception {
+    for (int i = 0; i < CLIENTS; i++) {
+      hub.register(DeviceSelector.device(i % 2 == 0 ? "Busy_" + i : "Quiet_" + i));
+    }
+    Counter heartbeats = registry.get("windfarm.sse.heartbeats").counter();
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+
+    // The busy half gets a record more often than the interval, so only the quiet half is due.
+    long until = System.nanoTime() + 3 * INTERVAL.toNanos();
+    double before = 0;
+    for (int round = 0; System.nanoTime() < until; round++) {
+      if (round == 0) {
+        Thread.sleep(INTERVAL.toMillis());
+        before = heartbeats.count();
+      }
+      for (int i = 0; i < CLIENTS; i += 2) {
+        bus.publish(new TelemetryRecord(start.plusSeconds(round), "Busy_" + i, round, 0));
+      }
+      Thread.sleep(INTERVAL.toMillis() / 4);
+    }
+    double sent = heartbeats.count() - before;
+
+    // Roughly two intervals of the quiet half, and nothing like that for the busy half.
+    assertThat(sent).isLessThan(CLIENTS * 1.5);
+    assertThat(sent).isGreaterThan(CLIENTS * 0.5);
+  }
+}
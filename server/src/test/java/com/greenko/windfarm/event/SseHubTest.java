@@ -0,0 +1,189 @@
+// path: server/src/test/java/com/greenko/windfarm/event/SseHubTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.DeviceMetricSeries;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.model.TimeSeriesPoint;
+import com.greenko.windfarm.repository.TelemetryRepository;
+import com.greenko.windfarm.web.StreamController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+class SseHubTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+  private static final Pattern EVENT = Pattern.compile("id:(\\S+)\nevent:telemetry\ndata:(.*)\n");
+
+  private final ObjectMapper mapper =
+      new ObjectMapper()
+          .registerModule(new JavaTimeModule())
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final CatchUpRepository repository = new CatchUpRepository();
+  private TelemetryEventBus bus;
+  private SseHub hub;
+  private MockMvc mvc;
+
+  @BeforeEach
+  void setUp() {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getSse().setReplayCapacity(8);
+    bus = new TelemetryEventBus(properties, registry);
+    hub = new SseHub(bus, mapper, repository, properties, registry);
+    hub.start();
+    mvc = MockMvcBuilders.standaloneSetup(new StreamController(hub)).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    hub.shutdown();
+    bus.shutdown();
+  }
+
+  @Test
+  void replaysTheGapFromMemoryOnReconnect() throws Exception {
+    MockHttpServletResponse first = open(null);
+    publish(0, 5);
+    List<String> firstIds = awaitEvents(first, 5).stream().map(Event::id).toList();
+
+    MockHttpServletResponse reconnected = open(firstIds.get(2));
+    publish(5, 6);
+
+    List<Event> events = awaitEvents(reconnected, 3);
+    assertThat(events).extracting(Event::energy).containsExactly(3.0, 4.0, 5.0);
+    assertThat(events.get(0).id()).isEqualTo(firstIds.get(3));
+    assertThat(repository.ranges).isEmpty();
+    assertThat(registry.get("windfarm.sse.replayed").tag("source", "memory").counter().count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void readsOnlyTheGapOlderThanTheRingFromTheDatabase() throws Exception {
+    MockHttpServletResponse first = open(null);
+    publish(0, 20);
+    awaitEvents(first, 20);
+    // The ring holds the last 8 events, minutes 12..19; the database has the older ones.
+    for (int minute = 0; minute < 12; minute++) {
+      repository.rows.add(record(minute));
+    }
+
+    MockHttpServletResponse reconnected = open("previousboot-3@" + START.plusSeconds(60L * 9));
+
+    List<Event> events = awaitEvents(reconnected, 11);
+    assertThat(events)
+        .extracting(Event::energy)
+        .containsExactly(9.0, 10.0, 11.0, 12.0, 13.0, 14.0, 15.0, 16.0, 17.0, 18.0, 19.0);
+    assertThat(events.get(0).id()).isEqualTo(START.plusSeconds(60L * 9).toString());
+    assertThat(repository.ranges)
+        .containsExactly(List.of(START.plusSeconds(60L * 9), START.plusSeconds(60L * 12)));
+  }
+
+  private MockHttpServletResponse open(String lastEventId) throws Exception {
+    MockHttpServletRequestBuilder stream = get("/api/stream");
+    if (lastEventId != null) {
+      stream.header("Last-Event-ID", lastEventId);
+    }
+    return mvc.perform(stream).andExpect(request().asyncStarted()).andReturn().getResponse();
+  }
+
+  private void publish(int fromMinute, int toMinute) {
+    for (int minute = fromMinute; minute < toMinute; minute++) {
+      bus.publish(record(minute));
+    }
+  }
+
+  private List<Event> awaitEvents(MockHttpServletResponse response, int count) throws Exception {
+    await().atMost(Duration.ofSeconds(10)).until(() -> events(response).size() >= count);
+    return events(response);
+  }
+
+  private List<Event> events(MockHttpServletResponse response) throws Exception {
+    List<Event> events = new ArrayList<>();
+    Matcher matcher =
+        EVENT.matcher(new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    while (matcher.find()) {
+      events.add(
+          new Event(
+              matcher.group(1),
+              mapper.readValue(matcher.group(2), TelemetryRecord.class).energyKwh()));
+    }
+    return events;
+  }
+
+  private static TelemetryRecord record(int minute) {
+    return new TelemetryRecord(START.plusSeconds(60L * minute), "Device_1", minute, minute * 60d);
+  }
+
+  private record Event(String id, double energy) {}
+
+  private static class CatchUpRepository implements TelemetryRepository {
+    private final List<TelemetryRecord> rows = new CopyOnWriteArrayList<>();
+    private final List<List<Instant>> ranges = new CopyOnWriteArrayList<>();
+
+    @Override
+    public List<TelemetryRecord> findBetween(Instant from, Instant to, int limit) {
+      ranges.add(List.of(from, to));
+      return rows.stream()
+          .filter(row -> !row.time().isBefore(from) && row.time().isBefore(to))
+          .limit(limit)
+          .toList();
+    }
+
+    @Override
+    public List<MetricPoint> queryMetrics(
+        Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<DeviceMetricSeries> queryDeviceMetrics(
+        Instant from, Instant to, List<String> deviceIds, Duration bucket) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TelemetryRecord> findLatest(Optional<String> deviceId, int limit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TimeSeriesPoint> loadPowerSeries(
+        Instant from, Instant to, Optional<String> deviceId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<Instant> findMostRecentTimestamp() {
+      return Optional.empty();
+    }
+
+    @Override
+    public List<String> listDeviceIds() {
+      return List.of();
+    }
+  }
+}
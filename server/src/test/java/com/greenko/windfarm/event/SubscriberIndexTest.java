@@ -0,0 +1,104 @@
+// path: server/src/test/java/com/greenko/windfarm/event/SubscriberIndexTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class SubscriberIndexTest {
+  private static final Logger log = LoggerFactory.getLogger(SubscriberIndexTest.class);
+
+  @Test
+  void routesRecordsOnlyToMatchingSubscribersOnce() {
+    SubscriberIndex<String> index = new SubscriberIndex<>();
+    index.add("everything", DeviceSelector.all());
+    index.add("one", DeviceSelector.device("Device_1"));
+    index.add("pair", DeviceSelector.of(List.of("Device_1", "Device_2"), List.of()));
+    index.add("group", DeviceSelector.of(List.of("Device_12"), List.of("Device_1", "Device_")));
+    index.add("other", DeviceSelector.of(List.of(), List.of("Turbine_")));
+
+    assertThat(receivers(index, "Device_1"))
+        .containsExactlyInAnyOrder("everything", "one", "pair", "group");
+    assertThat(receivers(index, "Device_12")).containsExactlyInAnyOrder("everything", "group");
+    assertThat(receivers(index, "Turbine_9")).containsExactlyInAnyOrder("everything", "other");
+
+    assertThat(index.remove("group")).isTrue();
+    assertThat(index.remove("group")).isFalse();
+    assertThat(receivers(index, "Device_12")).containsExactly("everything");
+    assertThat(index.size()).isEqualTo(4);
+  }
+
+  @Test
+  void selectorDropsEntriesCoveredByShorterPrefixes() {
+    DeviceSelector selector =
+        DeviceSelector.of(List.of("Device_7", "Pump_1", " "), List.of("Device_1", "Device_", ""));
+
+    assertThat(selector.devices()).containsExactly("Pump_1");
+    assertThat(selector.prefixes()).containsExactly("Device_");
+    assertThat(DeviceSelector.of(List.of(" "), List.of()).isAll()).isTrue();
+  }
+
+  @Test
+  void broadcastCostFollowsInterestedSubscribersNotConnections() {
+    int events = 20_000;
+    for (int connections : new int[] {100, 1_000, 10_000}) {
+      SubscriberIndex<Integer> index = new SubscriberIndex<>();
+      Map<Integer, String> linear = new ConcurrentHashMap<>();
+      for (int i = 0; i < connections; i++) {
+        index.add(i, DeviceSelector.device("Device_" + i));
+        linear.put(i, "Device_" + i);
+      }
+      LongAdder delivered = new LongAdder();
+      long indexed = time(() -> dispatch(index, events, connections, delivered));
+      long scanned = time(() -> scan(linear, events, connections, delivered));
+      log.info(
+          "Broadcast to 1 of {} connections: index {} ns/event, linear scan {} ns/event",
+          connections,
+          indexed / events,
+          scanned / events);
+      if (connections == 10_000) {
+        assertThat(indexed).isLessThan(scanned);
+      }
+    }
+  }
+
+  private static void dispatch(
+      SubscriberIndex<Integer> index, int events, int devices, LongAdder delivered) {
+    for (int i = 0; i < events; i++) {
+      index.forEach("Device_" + (i % devices), subscriber -> delivered.increment());
+    }
+  }
+
+  private static void scan(
+      Map<Integer, String> filters, int events, int devices, LongAdder delivered) {
+    for (int i = 0; i < events; i++) {
+      String deviceId = "Device_" + (i % devices);
+      filters.forEach(
+          (subscriber, filter) -> {
+            if (filter.equals(deviceId)) {
+              delivered.increment();
+            }
+          });
+    }
+  }
+
+  private static long time(Runnable work) {
+    work.run(); // warm-up
+    long started = System.nanoTime();
+    work.run();
+    return System.nanoTime() - started;
+  }
+
+  private static List<String> receivers(SubscriberIndex<String> index, String deviceId) {
+    List<String> receivers = new ArrayList<>();
+    index.forEach(deviceId, receivers::add);
+    return receivers;
+  }
+}
@@ -0,0 +1,164 @@
+// path: server/src/test/java/com/greenko/windfarm/event/TelemetryEventBusTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+class TelemetryEventBusTest {
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private TelemetryEventBus bus;
+
+  @AfterEach
+  void tearDown() {
+    if (bus != null) {
+      bus.shutdown();
+    }
+  }
+
+  @Test
+  void deliversEveryEventToEachConsumerInOrder() {
+    bus = newBus(64);
+    List<TelemetryRecord> first = new CopyOnWriteArrayList<>();
+    List<TelemetryRecord> second = new CopyOnWriteArrayList<>();
+    bus.stream("first", OverflowPolicy.BLOCK).subscribe(first::add);
+    bus.stream("second", OverflowPolicy.BLOCK).subscribe(second::add);
+
+    for (int i = 0; i < 10_000; i++) {
+      bus.publish(record(i, "Device_" + (i % 7)));
+    }
+
+    await().until(() -> first.size() == 10_000 && second.size() == 10_000);
+    assertThat(first).isEqualTo(second);
+    assertThat(first.get(9_999).energyKwh()).isEqualTo(9_999d);
+  }
+
+  @Test
+  void blockingConsumerGatesTheProducer() {
+    bus = newBus(8);
+    StalledSubscriber stalled = new StalledSubscriber();
+    bus.stream("stalled", OverflowPolicy.BLOCK).subscribe(stalled);
+
+    for (int i = 0; i < 8; i++) {
+      assertThat(tryPublish(i, "Device_1")).isTrue();
+    }
+    assertThat(tryPublish(8, "Device_1")).isFalse();
+
+    stalled.request(Long.MAX_VALUE);
+    await().until(() -> tryPublish(8, "Device_1"));
+  }
+
+  @Test
+  void tryPublishDoesNotWaitBehindABlockedPublisher() throws Exception {
+    bus = newBus(8);
+    StalledSubscriber stalled = new StalledSubscriber();
+    bus.stream("stalled", OverflowPolicy.BLOCK).subscribe(stalled);
+    for (int i = 0; i < 8; i++) {
+      assertThat(tryPublish(i, "Device_1")).isTrue();
+    }
+    Thread publisher = new Thread(() -> bus.publish(record(8, "Device_1")));
+    publisher.start();
+    await().until(() -> publisher.getState() == Thread.State.TIMED_WAITING);
+
+    assertThat(assertTimeoutPreemptively(Duration.ofSeconds(5), () -> tryPublish(9, "Device_1")))
+        .isFalse();
+
+    stalled.request(Long.MAX_VALUE);
+    publisher.join(5_000);
+    assertThat(publisher.isAlive()).isFalse();
+    await().until(() -> stalled.received.size() == 9);
+  }
+
+  @Test
+  void slowDroppingConsumerDoesNotStallTheProducer() {
+    bus = newBus(8);
+    StalledSubscriber slow = new StalledSubscriber();
+    bus.stream("slow", OverflowPolicy.DROP_OLDEST).subscribe(slow);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(tryPublish(i, "Device_1")).isTrue();
+    }
+    slow.request(Long.MAX_VALUE);
+
+    await()
+        .until(
+            () ->
+                registry
+                        .get("windfarm.bus.dropped")
+                        .tag("consumer", "slow")
+                        .functionCounter()
+                        .count()
+                    > 0);
+    assertThat(slow.received).hasSizeLessThan(100);
+  }
+
+  @Test
+  void conflatingConsumerKeepsLatestValuePerDevice() {
+    bus = newBus(8);
+    StalledSubscriber slow = new StalledSubscriber();
+    bus.stream("wallboard", OverflowPolicy.CONFLATE).subscribe(slow);
+
+    for (int i = 0; i < 40; i++) {
+      assertThat(tryPublish(i, "Device_" + (i % 3))).isTrue();
+    }
+    slow.request(Long.MAX_VALUE);
+
+    await().until(() -> latestByDevice(slow.received).size() == 3);
+    assertThat(latestByDevice(slow.received))
+        .containsEntry("Device_0", 39d)
+        .containsEntry("Device_1", 37d)
+        .containsEntry("Device_2", 38d);
+  }
+
+  private static Map<String, Double> latestByDevice(List<TelemetryRecord> records) {
+    return records.stream()
+        .collect(
+            Collectors.toMap(TelemetryRecord::deviceId, TelemetryRecord::energyKwh, (a, b) -> b));
+  }
+
+  private TelemetryEventBus newBus(int capacity) {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getBus().setCapacity(capacity);
+    return new TelemetryEventBus(properties, registry);
+  }
+
+  private boolean tryPublish(int minute, String deviceId) {
+    TelemetryRecord record = record(minute, deviceId);
+    return bus.tryPublish(
+        record.time().getEpochSecond(), 0, deviceId, record.energyKwh(), record.powerKw());
+  }
+
+  private static TelemetryRecord record(int minute, String deviceId) {
+    return new TelemetryRecord(
+        Instant.parse("2025-01-01T00:00:00Z").plusSeconds(60L * minute),
+        deviceId,
+        minute,
+        minute * 60d);
+  }
+
+  private static class StalledSubscriber extends BaseSubscriber<TelemetryRecord> {
+    final List<TelemetryRecord> received = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {}
+
+    @Override
+    protected void hookOnNext(TelemetryRecord value) {
+      received.add(value);
+    }
+  }
+}
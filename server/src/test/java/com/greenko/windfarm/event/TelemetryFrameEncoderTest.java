@@ -0,0 +1,126 @@
+// path: server/src/test/java/com/greenko/windfarm/event/TelemetryFrameEncoderTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TelemetryFrameEncoderTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+  @Test
+  void roundTripsRecordsAndSendsEachDeviceNameOnce() {
+    TelemetryFrameEncoder encoder = new TelemetryFrameEncoder(true);
+    List<TelemetryRecord> first =
+        List.of(
+            new TelemetryRecord(START, "Device_1", 1.25, 75.0),
+            new TelemetryRecord(START, "Device_2", 0.5, 30.0),
+            new TelemetryRecord(START.plusMillis(60_000), "Device_1", 1.5, 90.0));
+    List<TelemetryRecord> second =
+        List.of(
+            new TelemetryRecord(START.plusMillis(59_999), "Device_3", 2.0, 120.0),
+            new TelemetryRecord(START.plusMillis(60_000), "Device_2", 0.75, 45.0));
+
+    FrameDecoder decoder = new FrameDecoder();
+    assertThat(decoder.decode(encoder.encode(first))).isEqualTo(first);
+    assertThat(decoder.newDevices).containsExactly("Device_1", "Device_2");
+    assertThat(decoder.decode(encoder.encode(second))).isEqualTo(second);
+    assertThat(decoder.newDevices).containsExactly("Device_3");
+    assertThat(encoder.deviceCount()).isEqualTo(3);
+  }
+
+  @Test
+  void float32FramesRoundValues() {
+    TelemetryRecord record = new TelemetryRecord(START, "Device_1", 0.1, 6.0);
+
+    List<TelemetryRecord> decoded =
+        new FrameDecoder().decode(new TelemetryFrameEncoder(false).encode(List.of(record)));
+
+    assertThat(decoded.get(0).energyKwh()).isEqualTo((float) 0.1);
+    assertThat(decoded.get(0).powerKw()).isEqualTo(6.0);
+  }
+
+  @Test
+  void fleetMinutesCostATenthOfTheJsonStream() throws Exception {
+    ObjectMapper mapper =
+        new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    TelemetryFrameEncoder encoder = new TelemetryFrameEncoder(false);
+    long binaryBytes = 0;
+    long sseBytes = 0;
+    for (int minute = 0; minute < 60; minute++) {
+      List<TelemetryRecord> batch = new ArrayList<>();
+      for (int device = 1; device <= 200; device++) {
+        TelemetryRecord record =
+            new TelemetryRecord(
+                START.plusSeconds(60L * minute), "Device_" + device, device * 0.013, device * 0.78);
+        batch.add(record);
+        sseBytes +=
+            SseFrame.event(
+                    "k3x9q-" + (minute * 200 + device) + "@" + record.time(),
+                    "telemetry",
+                    record,
+                    mapper)
+                .length();
+      }
+      binaryBytes += encoder.encode(batch).length;
+    }
+
+    double bytesPerRecord = binaryBytes / 12_000.0;
+    assertThat(bytesPerRecord).isLessThan(12);
+    assertThat(sseBytes / (double) binaryBytes).isGreaterThan(10);
+  }
+
+  /** Reference decoder for the documented layout; keeps the device dictionary across frames. */
+  static final class FrameDecoder {
+    final List<String> devices = new ArrayList<>();
+    List<String> newDevices = List.of();
+
+    List<TelemetryRecord> decode(byte[] frame) {
+      ByteBuffer buffer = ByteBuffer.wrap(frame);
+      assertThat(buffer.get()).isEqualTo(TelemetryFrameEncoder.TELEMETRY_FRAME);
+      int width = buffer.get();
+      newDevices = new ArrayList<>();
+      for (long i = 0, n = varint(buffer); i < n; i++) {
+        byte[] name = new byte[(int) varint(buffer)];
+        buffer.get(name);
+        newDevices.add(new String(name, StandardCharsets.UTF_8));
+      }
+      devices.addAll(newDevices);
+      long count = varint(buffer);
+      long time = buffer.getLong();
+      List<TelemetryRecord> records = new ArrayList<>();
+      for (long i = 0; i < count; i++) {
+        long zigzag = varint(buffer);
+        time += (zigzag >>> 1) ^ -(zigzag & 1);
+        String device = devices.get((int) varint(buffer));
+        double energy = width == 8 ? buffer.getDouble() : buffer.getFloat();
+        double power = width == 8 ? buffer.getDouble() : buffer.getFloat();
+        records.add(new TelemetryRecord(Instant.ofEpochMilli(time), device, energy, power));
+      }
+      assertThat(buffer.hasRemaining()).isFalse();
+      return records;
+    }
+
+    private static long varint(ByteBuffer buffer) {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+  }
+}
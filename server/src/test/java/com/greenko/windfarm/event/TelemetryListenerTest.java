@@ -0,0 +1,62 @@
+// path: server/src/test/java/com/greenko/windfarm/event/TelemetryListenerTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.Disposable;
+
+class TelemetryListenerTest {
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final TelemetryEventBus bus = new TelemetryEventBus(new WindfarmProperties(), registry);
+
+  @AfterEach
+  void tearDown() {
+    bus.shutdown();
+  }
+
+  @Test
+  void aLaneSurvivesABatchThatFails() {
+    List<TelemetryRecord> persisted = new CopyOnWriteArrayList<>();
+    Consumer<List<TelemetryRecord>> writer =
+        batch -> {
+          if (batch.get(0).deviceId().equals("Device_9")) {
+            throw new DataIntegrityViolationException("value out of range");
+          }
+          persisted.addAll(batch);
+        };
+    Counter dropped = registry.counter("windfarm.listener.dropped");
+    Disposable lane =
+        bus.stream("listener-0", OverflowPolicy.BLOCK)
+            .buffer(1)
+            .subscribe(TelemetryListener.isolating(writer, dropped));
+
+    bus.publish(record(0, "Device_1"));
+    bus.publish(record(1, "Device_9"));
+    bus.publish(record(2, "Device_2"));
+
+    await().until(() -> persisted.size() == 2);
+    assertThat(persisted)
+        .extracting(TelemetryRecord::deviceId)
+        .containsExactly("Device_1", "Device_2");
+    assertThat(dropped.count()).isEqualTo(1);
+    assertThat(lane.isDisposed()).isFalse();
+    lane.dispose();
+  }
+
+  private static TelemetryRecord record(int minute, String deviceId) {
+    return new TelemetryRecord(
+        Instant.parse("2025-01-01T00:00:00Z").plusSeconds(60L * minute), deviceId, 1, 60);
+  }
+}
@@ -0,0 +1,244 @@
+// path: server/src/test/java/com/greenko/windfarm/event/TelemetrySocketHubTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.web.TelemetryWebSocketHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class TelemetrySocketHubTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private TelemetryEventBus bus;
+  private TelemetrySocketHub hub;
+  private TelemetryWebSocketHandler handler;
+
+  @BeforeEach
+  void setUp() {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getWebSocket().setFlushInterval(Duration.ofMillis(20));
+    bus = new TelemetryEventBus(properties, registry);
+    hub = new TelemetrySocketHub(bus, properties, registry);
+    hub.start();
+    handler = new TelemetryWebSocketHandler(hub, new ObjectMapper());
+  }
+
+  @AfterEach
+  void tearDown() {
+    hub.shutdown();
+    bus.shutdown();
+  }
+
+  @Test
+  void streamsOnlySubscribedDevicesAndChangesSubscriptionsInBand() throws Exception {
+    RecordingSession session = new RecordingSession("/api/ws/telemetry?deviceId=Device_1");
+    handler.afterConnectionEstablished(session);
+    await().until(() -> session.texts().size() == 1);
+    assertThat(session.texts().get(0)).contains("\"deviceIds\":[\"Device_1\"]");
+
+    publish(0, "Device_1", "Device_2");
+    await().until(() -> session.records().size() == 1);
+    assertThat(session.records()).extracting(TelemetryRecord::deviceId).containsExactly("Device_1");
+
+    handler.handleMessage(
+        session, new TextMessage("{\"type\":\"subscribe\",\"prefixes\":[\"Device_2\"]}"));
+    await().until(() -> session.texts().size() == 2);
+    publish(1, "Device_1", "Device_2", "Device_3", "Device_20");
+    await().until(() -> session.records().size() == 4);
+    assertThat(session.records().subList(1, 4))
+        .extracting(TelemetryRecord::deviceId)
+        .containsExactly("Device_1", "Device_2", "Device_20");
+
+    handler.handleMessage(session, new TextMessage("{\"type\":\"unsubscribe\"}"));
+    await().until(() -> session.texts().size() == 3);
+    assertThat(session.texts().get(2)).contains("\"all\":false").contains("\"deviceIds\":[]");
+    assertThat(hub.sessionCount()).isZero();
+    handler.handleMessage(session, new TextMessage("{\"type\":\"subscribe\"}"));
+    publish(2, "Device_3");
+    await().until(() -> session.records().size() == 5);
+    assertThat(session.records().get(4).deviceId()).isEqualTo("Device_3");
+    assertThat(registry.get("windfarm.ws.bytes").counter().count()).isPositive();
+  }
+
+  @Test
+  void batchesRecordsIntoFewFrames() throws Exception {
+    RecordingSession session = new RecordingSession("/api/ws/telemetry?precision=float64");
+    handler.afterConnectionEstablished(session);
+    handler.handleMessage(session, new TextMessage("{\"type\":\"subscribe\"}"));
+    await().until(() -> session.texts().size() == 1);
+
+    String[] devices = new String[500];
+    for (int i = 0; i < devices.length; i++) {
+      devices[i] = "Device_" + i;
+    }
+    publish(0, devices);
+
+    await().until(() -> session.records().size() == 500);
+    assertThat(session.binaryFrames()).isLessThan(10);
+    assertThat(session.records().get(499).energyKwh()).isEqualTo(499);
+  }
+
+  @Test
+  void rejectsUnknownCommandsAndClosesOnBadPrecision() throws Exception {
+    RecordingSession session = new RecordingSession("/api/ws/telemetry");
+    handler.afterConnectionEstablished(session);
+    handler.handleMessage(session, new TextMessage("{\"type\":\"resubscribe\"}"));
+    handler.handleMessage(session, new TextMessage("not json"));
+    await().until(() -> session.texts().size() == 2);
+    assertThat(session.texts()).allMatch(text -> text.contains("\"type\":\"error\""));
+
+    RecordingSession invalid = new RecordingSession("/api/ws/telemetry?precision=float16");
+    handler.afterConnectionEstablished(invalid);
+    assertThat(invalid.closeStatus.getCode()).isEqualTo(CloseStatus.BAD_DATA.getCode());
+  }
+
+  private void publish(int minute, String... devices) {
+    for (String device : devices) {
+      int index = Integer.parseInt(device.substring(device.indexOf('_') + 1));
+      bus.publish(
+          new TelemetryRecord(START.plusSeconds(60L * minute), device, index, index * 60.0));
+    }
+  }
+
+  private static final class RecordingSession implements WebSocketSession {
+    private final URI uri;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<WebSocketMessage<?>> messages = new CopyOnWriteArrayList<>();
+    private volatile CloseStatus closeStatus;
+
+    private RecordingSession(String path) {
+      this.uri = URI.create("ws://localhost" + path);
+    }
+
+    List<String> texts() {
+      return messages.stream()
+          .filter(TextMessage.class::isInstance)
+          .map(message -> ((TextMessage) message).getPayload())
+          .toList();
+    }
+
+    List<TelemetryRecord> records() {
+      // Decodes from the first frame each time, since the device dictionary spans frames.
+      TelemetryFrameEncoderTest.FrameDecoder decoder = new TelemetryFrameEncoderTest.FrameDecoder();
+      List<TelemetryRecord> records = new ArrayList<>();
+      for (WebSocketMessage<?> message : messages) {
+        if (message instanceof BinaryMessage binary) {
+          byte[] frame = new byte[binary.getPayloadLength()];
+          binary.getPayload().duplicate().get(frame);
+          records.addAll(decoder.decode(frame));
+        }
+      }
+      return records;
+    }
+
+    long binaryFrames() {
+      return messages.stream().filter(BinaryMessage.class::isInstance).count();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+      messages.add(message);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return closeStatus == null;
+    }
+
+    @Override
+    public void close() {
+      close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+      closeStatus = status;
+    }
+
+    @Override
+    public String getId() {
+      return "test";
+    }
+
+    @Override
+    public URI getUri() {
+      return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+      return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+      return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getTextMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+      return List.of();
+    }
+  }
+}
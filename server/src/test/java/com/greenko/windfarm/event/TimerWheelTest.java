@@ -0,0 +1,92 @@
+// path: server/src/test/java/com/greenko/windfarm/event/TimerWheelTest.java
+package com.greenko.windfarm.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+  private static final long ORIGIN = 1_000_000_000L;
+  private static final long TICK = 100;
+
+  @Test
+  void firesEveryTimerAfterItsDeadlineAndWithinATick() {
+    Map<Integer, Long> fired = new HashMap<>();
+    TimerWheel<Integer> wheel =
+        new TimerWheel<>(
+            ORIGIN,
+            TICK,
+            16,
+            (item, deadline, now) -> {
+              fired.put(item, now);
+              return TimerWheel.CANCEL;
+            });
+    Random random = new Random(7);
+    long[] deadlines = new long[10_000];
+    for (int i = 0; i < deadlines.length; i++) {
+      // Up to five revolutions ahead, so most timers wait out several passes of their slot.
+      deadlines[i] = ORIGIN + random.nextLong(16 * TICK * 5);
+      wheel.schedule(i, deadlines[i]);
+    }
+
+    long now = ORIGIN;
+    while (fired.size() < deadlines.length && now < ORIGIN + 16 * TICK * 6) {
+      now += 1 + random.nextInt(30);
+      wheel.advance(now);
+    }
+
+    assertThat(fired).hasSize(deadlines.length);
+    assertThat(wheel.size()).isZero();
+    for (int i = 0; i < deadlines.length; i++) {
+      assertThat(fired.get(i)).isBetween(deadlines[i], deadlines[i] + TICK + 30);
+    }
+  }
+
+  @Test
+  void reschedulesUntilTheExpiryCancels() {
+    List<Long> expiries = new ArrayList<>();
+    TimerWheel<String> wheel =
+        new TimerWheel<>(
+            ORIGIN,
+            TICK,
+            8,
+            (item, deadline, now) -> {
+              expiries.add(now);
+              return expiries.size() < 3 ? deadline + 1_000 : TimerWheel.CANCEL;
+            });
+    wheel.schedule("client", ORIGIN + 250);
+
+    for (long now = ORIGIN; now <= ORIGIN + 5_000; now += TICK) {
+      wheel.advance(now);
+    }
+
+    assertThat(expiries).containsExactly(ORIGIN + 300, ORIGIN + 1_300, ORIGIN + 2_300);
+    assertThat(wheel.size()).isZero();
+  }
+
+  @Test
+  void catchesUpOnTicksMissedBetweenAdvances() {
+    List<String> fired = new ArrayList<>();
+    TimerWheel<String> wheel =
+        new TimerWheel<>(
+            ORIGIN,
+            TICK,
+            4,
+            (item, deadline, now) -> {
+              fired.add(item);
+              return TimerWheel.CANCEL;
+            });
+    wheel.schedule("late", ORIGIN + 900);
+    wheel.schedule("early", ORIGIN + 50);
+    wheel.schedule("future", ORIGIN + 5_000);
+
+    assertThat(wheel.advance(ORIGIN + 2_000)).isEqualTo(2);
+    assertThat(fired).containsExactly("early", "late");
+    assertThat(wheel.size()).isEqualTo(1);
+  }
+}
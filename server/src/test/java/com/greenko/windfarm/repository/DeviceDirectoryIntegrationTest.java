@@ -0,0 +1,119 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/DeviceDirectoryIntegrationTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.Device;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers(disabledWithoutDocker = true)
+class DeviceDirectoryIntegrationTest {
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("timescale/timescaledb:latest-pg15")
+          .withDatabaseName("windfarm")
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+  private static JdbcTemplate jdbcTemplate;
+  private final WindfarmProperties properties = new WindfarmProperties();
+
+  @BeforeAll
+  static void migrate() {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @BeforeEach
+  void truncate() {
+    jdbcTemplate.execute("TRUNCATE device");
+    properties.getDevices().setLastSeenInterval(Duration.ofMinutes(5));
+  }
+
+  @Test
+  void registersNewDevicesAndThrottlesLastSeenWrites() {
+    DeviceDirectory directory = new DeviceDirectory(jdbcTemplate, properties);
+
+    directory.observe(
+        List.of(reading("Device_2", 1), reading("Device_1", 0), reading("Device_1", 2)));
+    assertThat(directory.deviceIds()).containsExactly("Device_1", "Device_2");
+    assertThat(storedLastSeen("Device_1")).isEqualTo(Timestamp.from(minute(2)));
+
+    // Within the interval only the in-memory copy moves on.
+    directory.observe(List.of(reading("Device_1", 6)));
+    assertThat(directory.find("Device_1")).contains(new Device("Device_1", minute(0), minute(6)));
+    assertThat(storedLastSeen("Device_1")).isEqualTo(Timestamp.from(minute(2)));
+
+    directory.observe(List.of(reading("Device_1", 8)));
+    assertThat(storedLastSeen("Device_1")).isEqualTo(Timestamp.from(minute(8)));
+
+    // A late reading moves first-seen back straight away.
+    directory.observe(List.of(reading("Device_2", -3)));
+    assertThat(new DeviceDirectory(jdbcTemplate, properties).devices())
+        .containsExactly(
+            new Device("Device_1", minute(0), minute(8)),
+            new Device("Device_2", minute(-3), minute(1)));
+  }
+
+  @Test
+  void mergesWithWhatOtherWritersStored() {
+    DeviceDirectory first = new DeviceDirectory(jdbcTemplate, properties);
+    DeviceDirectory second = new DeviceDirectory(jdbcTemplate, properties);
+    first.observe(List.of(reading("Device_1", 10)));
+    second.observe(List.of(reading("Device_1", 0)));
+
+    assertThat(second.find("Device_1")).contains(new Device("Device_1", minute(0), minute(10)));
+    assertThat(new DeviceDirectory(jdbcTemplate, properties).find("Device_1"))
+        .contains(new Device("Device_1", minute(0), minute(10)));
+  }
+
+  @Test
+  void drawsAnIdOnlyForNewDevices() {
+    DeviceDirectory directory = new DeviceDirectory(jdbcTemplate, properties);
+    directory.observe(List.of(reading("Device_1", 0), reading("Device_2", 0)));
+    for (int minute = 10; minute <= 100; minute += 10) {
+      directory.observe(List.of(reading("Device_1", minute), reading("Device_2", minute)));
+    }
+    new DeviceDirectory(jdbcTemplate, properties).observe(List.of(reading("Device_2", 110)));
+    directory.observe(List.of(reading("Device_3", 0)));
+
+    assertThat(storedLastSeen("Device_2")).isEqualTo(Timestamp.from(minute(110)));
+    assertThat(storedId("Device_3")).isEqualTo(storedId("Device_2") + 1);
+  }
+
+  private long storedId(String deviceId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT id FROM device WHERE device_id = ?", Long.class, deviceId);
+  }
+
+  private Timestamp storedLastSeen(String deviceId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT last_seen FROM device WHERE device_id = ?", Timestamp.class, deviceId);
+  }
+
+  private static TelemetryRecord reading(String deviceId, int minute) {
+    return new TelemetryRecord(minute(minute), deviceId, 1.0, 60.0);
+  }
+
+  private static Instant minute(int minute) {
+    return T0.plus(Duration.ofMinutes(minute));
+  }
+}
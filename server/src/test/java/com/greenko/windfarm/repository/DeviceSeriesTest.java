@@ -0,0 +1,52 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/DeviceSeriesTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DeviceSeriesTest {
+  @Test
+  void keepsReadingsInTimeOrderAcrossGrowthAndEviction() {
+    DeviceSeries series = new DeviceSeries(4);
+    for (long time = 0; time < 10; time++) {
+      assertThat(series.put(time, time, time * 60)).isTrue();
+    }
+    assertThat(series.evictBefore(6)).isEqualTo(6);
+    // Wraps around the ring's end before it has to grow again.
+    for (long time = 10; time < 30; time++) {
+      series.put(time, time, time * 60);
+    }
+
+    assertThat(times(series)).hasSize(24).startsWith(6L, 7L).endsWith(28L, 29L);
+    assertThat(series.lowerBound(20)).isEqualTo(14);
+    assertThat(series.lowerBound(100)).isEqualTo(series.size());
+    assertThat(series.energy(series.size() - 1)).isEqualTo(29);
+  }
+
+  @Test
+  void placesLateReadingsAndReplacesRepeatedTimestamps() {
+    DeviceSeries series = new DeviceSeries(2);
+    series.put(10, 1, 60);
+    series.put(30, 3, 180);
+    series.evictBefore(5);
+
+    assertThat(series.put(20, 2, 120)).isTrue();
+    assertThat(series.put(30, 4, 240)).isFalse();
+    assertThat(series.put(5, 0.5, 30)).isTrue();
+
+    assertThat(times(series)).containsExactly(5L, 10L, 20L, 30L);
+    assertThat(series.energy(3)).isEqualTo(4);
+    assertThat(series.power(2)).isEqualTo(120);
+  }
+
+  private static List<Long> times(DeviceSeries series) {
+    List<Long> times = new ArrayList<>();
+    for (int i = 0; i < series.size(); i++) {
+      times.add(series.time(i));
+    }
+    return times;
+  }
+}
@@ -0,0 +1,210 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/HotTierTelemetryRepositoryTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.awaitility.Awaitility.await;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.TelemetryEventBus;
+import com.greenko.windfarm.model.DeviceMetricSeries;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.model.TimeSeriesPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HotTierTelemetryRepositoryTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+  private static final int MINUTES = 8 * 60;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final TableRepository table = new TableRepository();
+  private TelemetryEventBus bus;
+  private HotTierTelemetryRepository hotTier;
+
+  @BeforeEach
+  void setUp() {
+    for (int minute = 0; minute < MINUTES; minute++) {
+      table.rows.add(reading("Device_1", minute, 1));
+      table.rows.add(reading("Device_2", minute, 2));
+    }
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getHotTier().setWindow(Duration.ofHours(6));
+    properties.getHotTier().setWarmPageRows(100);
+    bus = new TelemetryEventBus(properties, registry);
+    hotTier = new HotTierTelemetryRepository(table, bus, properties, registry);
+    hotTier.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    hotTier.shutdown();
+  }
+
+  @Test
+  void answersRecentQueriesFromMemoryOnceWarm() {
+    hotTier.findLatest(Optional.empty(), 4);
+    assertThat(table.calls).containsExactly("findLatest");
+
+    hotTier.warm();
+    table.calls.clear();
+
+    assertThat(hotTier.findLatest(Optional.empty(), 4))
+        .extracting(TelemetryRecord::time)
+        .containsExactly(minute(478), minute(478), minute(479), minute(479));
+    assertThat(hotTier.findLatest(Optional.of("Device_2"), 2))
+        .extracting(TelemetryRecord::energyKwh)
+        .containsExactly(2 + 478 * 0.01, 2 + 479 * 0.01);
+    assertThat(hotTier.findMostRecentTimestamp()).contains(minute(479));
+
+    List<TimeSeriesPoint> fleet =
+        hotTier.loadPowerSeries(minute(450), minute(479), Optional.empty());
+    assertThat(fleet).hasSize(30);
+    assertThat(fleet.get(0).time()).isEqualTo(minute(450));
+    assertThat(fleet.get(0).value()).isCloseTo((3 + 2 * 450 * 0.01) * 60, within(1e-9));
+    assertThat(hotTier.loadPowerSeries(minute(470), minute(479), Optional.of("Device_1")))
+        .extracting(TimeSeriesPoint::value)
+        .first()
+        .isEqualTo((1 + 470 * 0.01) * 60);
+
+    List<MetricPoint> metrics =
+        hotTier.queryMetrics(
+            minute(420), minute(480), Optional.of("Device_1"), Duration.ofMinutes(7));
+    // time_bucket() counts from 2000-01-03, so 7-minute buckets start at 06:57, not 06:58.
+    assertThat(metrics.get(0).bucketStart()).isEqualTo(Instant.parse("2025-01-01T06:57:00Z"));
+    assertThat(metrics.get(0).totalEnergyKwh())
+        .isCloseTo(4 + (420 + 421 + 422 + 423) * 0.01, within(1e-9));
+    assertThat(metrics.get(0).averagePowerKw()).isCloseTo((1 + 421.5 * 0.01) * 60, within(1e-9));
+    assertThat(metrics.get(1).bucketStart()).isEqualTo(Instant.parse("2025-01-01T07:04:00Z"));
+
+    assertThat(table.calls).isEmpty();
+    assertThat(registry.get("windfarm.hot-tier.queries").tag("source", "memory").counter().count())
+        .isEqualTo(6);
+  }
+
+  @Test
+  void buildsPerDeviceSeriesInOnePass() {
+    hotTier.warm();
+    table.calls.clear();
+
+    List<DeviceMetricSeries> fleet =
+        hotTier.queryDeviceMetrics(minute(400), minute(479), List.of(), Duration.ofMinutes(5));
+    assertThat(fleet)
+        .extracting(DeviceMetricSeries::deviceId)
+        .containsExactly("Device_1", "Device_2");
+    for (DeviceMetricSeries device : fleet) {
+      List<MetricPoint> expected =
+          hotTier.queryMetrics(
+              minute(400), minute(479), Optional.of(device.deviceId()), Duration.ofMinutes(5));
+      assertThat(device.bucketStarts())
+          .containsExactly(
+              expected.stream().mapToLong(point -> point.bucketStart().toEpochMilli()).toArray());
+      assertThat(device.averagePowerKw())
+          .containsExactly(expected.stream().mapToDouble(MetricPoint::averagePowerKw).toArray());
+      assertThat(device.totalEnergyKwh())
+          .containsExactly(expected.stream().mapToDouble(MetricPoint::totalEnergyKwh).toArray());
+    }
+    assertThat(
+            hotTier.queryDeviceMetrics(
+                minute(400), minute(479), List.of("Device_2", "Device_9"), Duration.ofMinutes(5)))
+        .extracting(DeviceMetricSeries::deviceId)
+        .containsExactly("Device_2");
+    assertThat(table.calls).isEmpty();
+  }
+
+  @Test
+  void delegatesRangesOlderThanTheWindow() {
+    hotTier.warm();
+    table.calls.clear();
+
+    hotTier.queryMetrics(minute(60), minute(480), Optional.empty(), Duration.ofMinutes(5));
+    hotTier.loadPowerSeries(minute(100), minute(200), Optional.of("Device_1"));
+    // More rows than the window holds for one device.
+    hotTier.findLatest(Optional.of("Device_1"), 400);
+
+    assertThat(table.calls).containsExactly("queryMetrics", "loadPowerSeries", "findLatest");
+  }
+
+  @Test
+  void followsLiveTelemetryAndEvictsWhatFallsOutOfTheWindow() {
+    hotTier.warm();
+    table.calls.clear();
+    double readings = registry.get("windfarm.hot-tier.readings").gauge().value();
+
+    for (int minute = MINUTES; minute < MINUTES + 120; minute++) {
+      bus.publish(reading("Device_1", minute, 1));
+    }
+    await()
+        .atMost(Duration.ofSeconds(5))
+        .until(() -> hotTier.findMostRecentTimestamp().equals(Optional.of(minute(599))));
+
+    assertThat(hotTier.findLatest(Optional.of("Device_1"), 1))
+        .extracting(TelemetryRecord::time)
+        .containsExactly(minute(599));
+    // Two hours later the window starts at 03:59; Device_2 went quiet and lost its oldest readings.
+    assertThat(hotTier.loadPowerSeries(minute(239), minute(300), Optional.of("Device_2")))
+        .hasSize(62);
+    assertThat(table.calls).isEmpty();
+    assertThat(registry.get("windfarm.hot-tier.readings").gauge().value()).isLessThan(readings);
+  }
+
+  private static TelemetryRecord reading(String deviceId, int minute, double base) {
+    double energy = base + minute * 0.01;
+    return new TelemetryRecord(minute(minute), deviceId, energy, energy * 60);
+  }
+
+  private static Instant minute(int minute) {
+    return START.plusSeconds(60L * minute);
+  }
+
+  /** Stands in for the table: serves warm-up reads and records every other query it receives. */
+  private static class TableRepository extends JdbcTelemetryRepository {
+    private final List<TelemetryRecord> rows = new CopyOnWriteArrayList<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    private TableRepository() {
+      super(null, new WindfarmProperties());
+    }
+
+    @Override
+    public Optional<Instant> findMostRecentTimestamp() {
+      return rows.stream().map(TelemetryRecord::time).max(Instant::compareTo);
+    }
+
+    @Override
+    public List<TelemetryRecord> findBetween(Instant from, Instant to, int limit) {
+      return rows.stream()
+          .filter(row -> !row.time().isBefore(from) && row.time().isBefore(to))
+          .limit(limit)
+          .toList();
+    }
+
+    @Override
+    public List<MetricPoint> queryMetrics(
+        Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+      calls.add("queryMetrics");
+      return List.of();
+    }
+
+    @Override
+    public List<TelemetryRecord> findLatest(Optional<String> deviceId, int limit) {
+      calls.add("findLatest");
+      return List.of();
+    }
+
+    @Override
+    public List<TimeSeriesPoint> loadPowerSeries(
+        Instant from, Instant to, Optional<String> deviceId) {
+      calls.add("loadPowerSeries");
+      return List.of();
+    }
+  }
+}
@@ -3,17 +3,26 @@
 package com.greenko.windfarm.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
+import com.greenko.windfarm.model.DeviceMetricSeries;
 import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
 import com.greenko.windfarm.model.TimeSeriesPoint;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.postgresql.util.PGInterval;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -43,11 +52,16 @@ class JdbcTelemetryRepositoryIntegrationTest {
   }
 
   @Autowired private JdbcTelemetryRepository repository;
+  @Autowired private HotTierTelemetryRepository hotTier;
   @Autowired private JdbcTemplate jdbcTemplate;
   @Autowired private Flyway flyway;
 
   @BeforeEach
   void setUp() {
+    for (int i = RollupPlanner.ROLLUPS.size() - 1; i >= 0; i--) {
+      jdbcTemplate.execute(
+          "DROP MATERIALIZED VIEW IF EXISTS " + RollupPlanner.ROLLUPS.get(i).view());
+    }
     flyway.clean();
     flyway.migrate();
     insertSampleData();
@@ -76,6 +90,170 @@ class JdbcTelemetryRepositoryIntegrationTest {
     assertThat(series).isNotEmpty();
   }
 
+  @Test
+  void findsRowsInAHalfOpenRangeInTimeOrder() {
+    List<TelemetryRecord> rows =
+        repository.findBetween(
+            Instant.parse("2025-01-01T00:05:00Z"), Instant.parse("2025-01-01T00:10:00Z"), 100);
+
+    assertThat(rows)
+        .extracting(TelemetryRecord::time)
+        .containsExactly(
+            Instant.parse("2025-01-01T00:05:00Z"),
+            Instant.parse("2025-01-01T00:06:00Z"),
+            Instant.parse("2025-01-01T00:07:00Z"),
+            Instant.parse("2025-01-01T00:08:00Z"),
+            Instant.parse("2025-01-01T00:09:00Z"));
+    assertThat(
+            repository.findBetween(
+                Instant.parse("2025-01-01T00:00:00Z"), Instant.parse("2025-01-01T01:00:00Z"), 3))
+        .hasSize(3);
+  }
+
+  @Test
+  void hotTierAnswersLikeTheTable() {
+    hotTier.warm();
+    Instant from = Instant.parse("2025-01-01T00:03:00Z");
+    Instant to = Instant.parse("2025-01-01T00:29:00Z");
+
+    List<MetricPoint> expected =
+        repository.queryMetrics(from, to, Optional.empty(), Duration.ofMinutes(7));
+    List<MetricPoint> actual =
+        hotTier.queryMetrics(from, to, Optional.empty(), Duration.ofMinutes(7));
+    assertThat(actual)
+        .extracting(MetricPoint::bucketStart)
+        .containsExactlyElementsOf(expected.stream().map(MetricPoint::bucketStart).toList());
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).averagePowerKw())
+          .isCloseTo(expected.get(i).averagePowerKw(), within(1e-9));
+      assertThat(actual.get(i).totalEnergyKwh())
+          .isCloseTo(expected.get(i).totalEnergyKwh(), within(1e-9));
+    }
+    assertThat(hotTier.loadPowerSeries(from, to, Optional.empty()))
+        .isEqualTo(repository.loadPowerSeries(from, to, Optional.empty()));
+    assertThat(hotTier.loadPowerSeries(from, to, Optional.of("Device_2")))
+        .isEqualTo(repository.loadPowerSeries(from, to, Optional.of("Device_2")));
+    assertThat(hotTier.findLatest(Optional.of("Device_1"), 5))
+        .isEqualTo(repository.findLatest(Optional.of("Device_1"), 5));
+    assertThat(hotTier.findMostRecentTimestamp()).isEqualTo(repository.findMostRecentTimestamp());
+  }
+
+  @Test
+  void stitchesRollupsWithTheUnmaterializedTail() throws SQLException {
+    new TelemetrySeedWriter(jdbcTemplate).refreshRollups();
+    Instant start = Instant.parse("2025-01-01T00:30:00Z");
+    for (int minute = 0; minute < 45; minute++) {
+      jdbcTemplate.update(
+          "INSERT INTO telemetry(time, device_id, energy_kwh) VALUES (?, ?, ?)",
+          start.plusSeconds(60L * minute),
+          "Device_3",
+          2.0 + minute * 0.01);
+    }
+    Instant from = Instant.parse("2025-01-01T00:00:00Z");
+    Instant to = Instant.parse("2025-01-01T01:10:00Z");
+
+    for (Duration bucket : List.of(Duration.ofMinutes(15), Duration.ofHours(1))) {
+      List<MetricPoint> expected =
+          jdbcTemplate.query(
+              "SELECT time_bucket(?, time) AS bucket_start, AVG(power_kw), SUM(energy_kwh) "
+                  + "FROM telemetry WHERE time >= ? AND time <= ? "
+                  + "GROUP BY bucket_start ORDER BY bucket_start",
+              (rs, rowNum) ->
+                  new MetricPoint(rs.getTimestamp(1).toInstant(), rs.getDouble(2), rs.getDouble(3)),
+              new PGInterval(bucket.toSeconds() + " seconds"),
+              Timestamp.from(from),
+              Timestamp.from(to));
+      List<MetricPoint> actual = repository.queryMetrics(from, to, Optional.empty(), bucket);
+
+      assertThat(actual)
+          .extracting(MetricPoint::bucketStart)
+          .containsExactlyElementsOf(expected.stream().map(MetricPoint::bucketStart).toList());
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(actual.get(i).averagePowerKw())
+            .isCloseTo(expected.get(i).averagePowerKw(), within(1e-9));
+        assertThat(actual.get(i).totalEnergyKwh())
+            .isCloseTo(expected.get(i).totalEnergyKwh(), within(1e-9));
+      }
+    }
+  }
+
+  @Test
+  void refreshesTheRollupsALateWriteLandsIn() {
+    new TelemetrySeedWriter(jdbcTemplate).refreshRollups();
+    Instant late = Instant.parse("2025-01-01T00:04:00Z");
+    jdbcTemplate.update(
+        "UPDATE telemetry SET energy_kwh = 10.0 WHERE time = ?", Timestamp.from(late));
+    Instant from = Instant.parse("2025-01-01T00:00:00Z");
+    Instant to = Instant.parse("2025-01-01T00:20:00Z");
+    Duration bucket = Duration.ofMinutes(5);
+    double stale =
+        repository.queryMetrics(from, to, Optional.empty(), bucket).get(0).totalEnergyKwh();
+
+    // The 1-minute and 15-minute rollups hold 00:04 below their watermarks; the others do not.
+    assertThat(new TelemetryRollups(jdbcTemplate).refresh(late, late)).isEqualTo(2);
+
+    assertThat(repository.queryMetrics(from, to, Optional.empty(), bucket).get(0).totalEnergyKwh())
+        .isCloseTo(stale - (1.0 + 4 * 0.01) + 10.0, within(1e-9));
+  }
+
+  @Test
+  void streamsWhatTheListQueriesReturn() {
+    Instant from = Instant.parse("2025-01-01T00:00:00Z");
+    Instant to = Instant.parse("2025-01-01T00:29:00Z");
+
+    List<MetricPoint> metrics = new ArrayList<>();
+    repository.streamMetrics(from, to, Optional.empty(), Duration.ofMinutes(5), metrics::add);
+    assertThat(metrics)
+        .isEqualTo(repository.queryMetrics(from, to, Optional.empty(), Duration.ofMinutes(5)));
+    List<TimeSeriesPoint> series = new ArrayList<>();
+    repository.streamPowerSeries(from, to, Optional.of("Device_1"), series::add);
+    assertThat(series).isEqualTo(repository.loadPowerSeries(from, to, Optional.of("Device_1")));
+    List<TelemetryRecord> rows = new ArrayList<>();
+    repository.streamRaw(from, to, Optional.empty(), rows::add);
+    assertThat(rows).hasSize(30);
+
+    ByteArrayOutputStream csv = new ByteArrayOutputStream();
+    long copied =
+        repository.copyRawCsv(
+            from, Instant.parse("2025-01-01T00:02:00Z"), Optional.of("Device_1"), csv);
+    assertThat(copied).isEqualTo(2);
+    assertThat(csv.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "time,deviceId,energyKwh,powerKw\n"
+                + "2025-01-01T00:00:00.000000Z,Device_1,1,60\n"
+                + "2025-01-01T00:02:00.000000Z,Device_1,1.02,61.2\n");
+  }
+
+  @Test
+  void groupsMetricsByDeviceInOneQuery() {
+    new TelemetrySeedWriter(jdbcTemplate).refreshRollups();
+    Instant from = Instant.parse("2025-01-01T00:00:00Z");
+    Instant to = Instant.parse("2025-01-01T00:29:00Z");
+
+    // Served from the rollups, and from the raw table.
+    for (Duration bucket : List.of(Duration.ofMinutes(5), Duration.ofSeconds(90))) {
+      List<DeviceMetricSeries> devices = repository.queryDeviceMetrics(from, to, List.of(), bucket);
+      assertThat(devices)
+          .extracting(DeviceMetricSeries::deviceId)
+          .containsExactly("Device_1", "Device_2");
+      for (DeviceMetricSeries device : devices) {
+        List<MetricPoint> expected =
+            repository.queryMetrics(from, to, Optional.of(device.deviceId()), bucket);
+        assertThat(device.bucketStarts())
+            .containsExactly(
+                expected.stream().mapToLong(point -> point.bucketStart().toEpochMilli()).toArray());
+        assertThat(device.totalEnergyKwh())
+            .containsExactly(
+                expected.stream().mapToDouble(MetricPoint::totalEnergyKwh).toArray(), within(1e-9));
+      }
+    }
+    assertThat(
+            repository.queryDeviceMetrics(
+                from, to, List.of("Device_2", "Device_9"), Duration.ofMinutes(5)))
+        .extracting(DeviceMetricSeries::deviceId)
+        .containsExactly("Device_2");
+  }
+
   private void insertSampleData() {
     Instant start = Instant.parse("2025-01-01T00:00:00Z");
     for (int minute = 0; minute < 30; minute++) {
@@ -0,0 +1,56 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/RollupPlannerTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.repository.RollupPlanner.Segment;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RollupPlannerTest {
+  private static final Instant FAR = Instant.parse("2030-01-01T00:00:00Z");
+
+  @Test
+  void servesTheMiddleFromTheCoarsestRollupAndTheEdgesFromFinerOnes() {
+    Map<String, Instant> watermarks =
+        Map.of("telemetry_1m", FAR, "telemetry_15m", FAR, "telemetry_1h", FAR, "telemetry_1d", FAR);
+
+    assertThat(RollupPlanner.plan(at("00:00:30"), at("03:20:00"), Duration.ofHours(1), watermarks))
+        .containsExactly(
+            new Segment("telemetry", at("00:00:30"), at("00:01:00")),
+            new Segment("telemetry_1m", at("00:01:00"), at("00:15:00")),
+            new Segment("telemetry_15m", at("00:15:00"), at("01:00:00")),
+            new Segment("telemetry_1h", at("01:00:00"), at("03:00:00")),
+            new Segment("telemetry_15m", at("03:00:00"), at("03:15:00")),
+            new Segment("telemetry_1m", at("03:15:00"), at("03:20:00")),
+            // The range is inclusive, so readings at exactly 03:20 still count.
+            new Segment("telemetry", at("03:20:00"), at("03:20:00").plusNanos(1_000)));
+    assertThat(RollupPlanner.usable(Duration.ofMinutes(7)))
+        .extracting(RollupPlanner.Rollup::view)
+        .containsExactly("telemetry_1m");
+    assertThat(
+            RollupPlanner.plan(at("00:00:00"), at("03:00:00"), Duration.ofSeconds(90), watermarks))
+        .containsExactly(new Segment("telemetry", at("00:00:00"), at("03:00:00").plusNanos(1_000)));
+  }
+
+  @Test
+  void readsPastEachWatermarkFromFinerRollupsAndThenTheTable() {
+    Map<String, Instant> watermarks =
+        Map.of("telemetry_1m", at("01:30:00"), "telemetry_15m", at("01:00:00"));
+
+    assertThat(
+            RollupPlanner.plan(at("00:00:00"), at("01:59:59"), Duration.ofMinutes(15), watermarks))
+        .containsExactly(
+            new Segment("telemetry_15m", at("00:00:00"), at("01:00:00")),
+            new Segment("telemetry_1m", at("01:00:00"), at("01:30:00")),
+            new Segment("telemetry", at("01:30:00"), at("01:59:59").plusNanos(1_000)));
+    assertThat(RollupPlanner.plan(at("00:00:00"), at("01:00:00"), Duration.ofHours(1), Map.of()))
+        .containsExactly(new Segment("telemetry", at("00:00:00"), at("01:00:00").plusNanos(1_000)));
+  }
+
+  private static Instant at(String time) {
+    return Instant.parse("2025-01-01T" + time + "Z");
+  }
+}
@@ -0,0 +1,159 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/TelemetryCompressionBenchmarkIntegrationTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Reports the on-disk size of telemetry and the latency of metrics and latest-reading queries with
+ * its chunks uncompressed and then compressed. Metrics are read from the raw table; the rollups are
+ * left unmaterialized.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TelemetryCompressionBenchmarkIntegrationTest {
+  private static final Logger log =
+      LoggerFactory.getLogger(TelemetryCompressionBenchmarkIntegrationTest.class);
+  private static final int DEVICES = 50;
+  private static final int MINUTES = 4 * 24 * 60;
+  private static final int BATCH_SIZE = 10_000;
+  private static final int RUNS = 15;
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("timescale/timescaledb:latest-pg15")
+          .withDatabaseName("windfarm")
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  private static JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void migrate() {
+    SingleConnectionDataSource dataSource =
+        new SingleConnectionDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), true);
+    Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @Test
+  void comparesCompressedAndUncompressedChunks() {
+    jdbcTemplate.execute("SELECT set_chunk_time_interval('telemetry', INTERVAL '1 day')");
+    TelemetryWriter writer =
+        new CopyTelemetryWriter(jdbcTemplate, new BatchTelemetryWriter(jdbcTemplate));
+    generateBatches().forEach(writer::write);
+    jdbcTemplate.execute("ANALYZE telemetry");
+    JdbcTelemetryRepository repository = new JdbcTelemetryRepository(jdbcTemplate, new WindfarmProperties());
+    TelemetryStorage storage = new TelemetryStorage(jdbcTemplate);
+    Map<String, Supplier<List<?>>> queries = queries(repository);
+
+    long rawBytes = storage.sizeBytes();
+    Map<String, List<?>> rawResults = new LinkedHashMap<>();
+    Map<String, Long> rawMicros = new LinkedHashMap<>();
+    queries.forEach(
+        (name, query) -> {
+          rawResults.put(name, query.get());
+          rawMicros.put(name, medianMicros(query));
+        });
+
+    Instant newest = storage.newestTime().orElseThrow();
+    List<String> chunks = storage.uncompressedChunks(newest.plus(Duration.ofDays(1)));
+    chunks.forEach(storage::compressChunk);
+    jdbcTemplate.execute("ANALYZE telemetry");
+    long compressedBytes = storage.sizeBytes();
+
+    StringBuilder report =
+        new StringBuilder(
+            String.format(
+                "Telemetry storage, %d rows in %d chunks: uncompressed %d kB, compressed %d kB"
+                    + " (%.1fx)",
+                (long) DEVICES * MINUTES,
+                chunks.size(),
+                rawBytes / 1024,
+                compressedBytes / 1024,
+                (double) rawBytes / compressedBytes));
+    queries.forEach(
+        (name, query) -> {
+          // Sums may be accumulated in another order once chunks are compressed.
+          assertThat(query.get()).as(name).hasSameSizeAs(rawResults.get(name));
+          report.append(
+              String.format(
+                  "%n  %-24s uncompressed %6d us, compressed %6d us",
+                  name, rawMicros.get(name), medianMicros(query)));
+        });
+    log.info(report.toString());
+
+    assertThat(chunks).hasSizeGreaterThan(1);
+    assertThat(compressedBytes).isLessThan(rawBytes);
+  }
+
+  private static Map<String, Supplier<List<?>>> queries(JdbcTelemetryRepository repository) {
+    Instant end = START.plus(Duration.ofMinutes(MINUTES - 1));
+    Map<String, Supplier<List<?>>> queries = new LinkedHashMap<>();
+    queries.put(
+        "queryMetrics device 4d",
+        () -> repository.queryMetrics(START, end, Optional.of("Device_7"), Duration.ofMinutes(5)));
+    queries.put(
+        "queryMetrics fleet 1d",
+        () ->
+            repository.queryMetrics(
+                end.minus(Duration.ofDays(1)), end, Optional.empty(), Duration.ofMinutes(15)));
+    queries.put("findLatest device", () -> repository.findLatest(Optional.of("Device_7"), 50));
+    queries.put("findLatest fleet", () -> repository.findLatest(Optional.empty(), 50));
+    return queries;
+  }
+
+  private static long medianMicros(Supplier<List<?>> query) {
+    query.get();
+    long[] micros = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long started = System.nanoTime();
+      query.get();
+      micros[i] = (System.nanoTime() - started) / 1_000;
+    }
+    Arrays.sort(micros);
+    return micros[RUNS / 2];
+  }
+
+  private static List<List<TelemetryRecord>> generateBatches() {
+    List<List<TelemetryRecord>> batches = new ArrayList<>();
+    List<TelemetryRecord> current = new ArrayList<>(BATCH_SIZE);
+    for (int minute = 0; minute < MINUTES; minute++) {
+      Instant time = START.plusSeconds(60L * minute);
+      for (int device = 1; device <= DEVICES; device++) {
+        double energy = 1.0 + Math.sin((minute + device * 37) / 90.0) * 0.4 + device * 0.001;
+        current.add(new TelemetryRecord(time, "Device_" + device, energy, energy * 60d));
+        if (current.size() == BATCH_SIZE) {
+          batches.add(current);
+          current = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+    }
+    if (!current.isEmpty()) {
+      batches.add(current);
+    }
+    return batches;
+  }
+}
@@ -0,0 +1,120 @@
+// path: server/src/test/java/com/greenko/windfarm/repository/TelemetryWriterThroughputIntegrationTest.java
+package com.greenko.windfarm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/** Compares the JDBC batch and binary COPY ingest paths against the same TimescaleDB image. */
+@Testcontainers(disabledWithoutDocker = true)
+class TelemetryWriterThroughputIntegrationTest {
+  private static final Logger log =
+      LoggerFactory.getLogger(TelemetryWriterThroughputIntegrationTest.class);
+  private static final int DEVICES = 100;
+  private static final int MINUTES = 500;
+  private static final int BATCH_SIZE = 500;
+
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("timescale/timescaledb:latest-pg15")
+          .withDatabaseName("windfarm")
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  private static JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void migrate() {
+    SingleConnectionDataSource dataSource =
+        new SingleConnectionDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), true);
+    Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @BeforeEach
+  void truncate() {
+    jdbcTemplate.execute("TRUNCATE telemetry");
+  }
+
+  @Test
+  void copyIngestOutperformsBatchInsert() {
+    List<List<TelemetryRecord>> batches = generateBatches();
+    TelemetryWriter batch = new BatchTelemetryWriter(jdbcTemplate);
+    TelemetryWriter copy = new CopyTelemetryWriter(jdbcTemplate, batch);
+
+    double batchRate = measure("batch", batch, batches);
+    jdbcTemplate.execute("TRUNCATE telemetry");
+    double copyRate = measure("copy", copy, batches);
+
+    log.info(
+        "Ingest throughput: batch={} rows/s, copy={} rows/s ({}x)",
+        Math.round(batchRate),
+        Math.round(copyRate),
+        String.format("%.1f", copyRate / batchRate));
+    assertThat(copyRate).isGreaterThan(batchRate);
+  }
+
+  @Test
+  void copyMergeKeepsLastValueForDuplicateKeys() {
+    Instant time = Instant.parse("2025-01-01T00:00:00Z");
+    TelemetryWriter copy =
+        new CopyTelemetryWriter(jdbcTemplate, new BatchTelemetryWriter(jdbcTemplate));
+
+    copy.write(
+        List.of(
+            new TelemetryRecord(time, "Device_1", 1.0, 60.0),
+            new TelemetryRecord(time, "Device_1", 2.0, 120.0)));
+    copy.write(List.of(new TelemetryRecord(time, "Device_1", 3.0, 180.0)));
+
+    Double energy =
+        jdbcTemplate.queryForObject(
+            "SELECT energy_kwh FROM telemetry WHERE device_id = 'Device_1'", Double.class);
+    assertThat(energy).isEqualTo(3.0);
+  }
+
+  private double measure(String mode, TelemetryWriter writer, List<List<TelemetryRecord>> batches) {
+    long rows = batches.stream().mapToLong(List::size).sum();
+    long started = System.nanoTime();
+    batches.forEach(writer::write);
+    double seconds = (System.nanoTime() - started) / 1e9;
+    Long persisted = jdbcTemplate.queryForObject("SELECT count(*) FROM telemetry", Long.class);
+    assertThat(persisted).as("%s rows", mode).isEqualTo(rows);
+    return rows / seconds;
+  }
+
+  private List<List<TelemetryRecord>> generateBatches() {
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+    List<List<TelemetryRecord>> batches = new ArrayList<>();
+    List<TelemetryRecord> current = new ArrayList<>(BATCH_SIZE);
+    for (int minute = 0; minute < MINUTES; minute++) {
+      Instant time = start.plusSeconds(60L * minute);
+      for (int device = 1; device <= DEVICES; device++) {
+        double energy = 1.0 + (minute % 60) * 0.01 + device * 0.001;
+        current.add(new TelemetryRecord(time, "Device_" + device, energy, energy * 60d));
+        if (current.size() == BATCH_SIZE) {
+          batches.add(current);
+          current = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+    }
+    if (!current.isEmpty()) {
+      batches.add(current);
+    }
+    return batches;
+  }
+}
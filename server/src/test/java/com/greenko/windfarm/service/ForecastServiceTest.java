@@ -34,13 +34,37 @@ class ForecastServiceTest {
 
     ForecastResponse response =
         service.forecast(
-            Optional.empty(), Duration.ofHours(1), Duration.ofMinutes(30), Duration.ofMinutes(1));
+            Optional.empty(),
+            Duration.ofHours(1),
+            Duration.ofMinutes(30),
+            Duration.ofMinutes(1),
+            0);
 
     assertThat(response.points()).hasSize(30);
     assertThat(response.points().get(0).predictedPowerKw()).isGreaterThan(100);
     assertThat(response.residualStdDev()).isGreaterThanOrEqualTo(0);
   }
 
+  @Test
+  void boundsTheForecastPointsReturned() {
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+    for (int i = 0; i < 60; i++) {
+      repository.addPoint(start.plusSeconds(60L * i), 100 + i);
+    }
+
+    ForecastResponse full =
+        service.forecast(
+            Optional.empty(), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1), 0);
+    ForecastResponse bounded =
+        service.forecast(
+            Optional.empty(), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1), 10);
+
+    assertThat(bounded.points()).hasSize(10);
+    assertThat(bounded.points().get(0)).isEqualTo(full.points().get(0));
+    assertThat(bounded.points().get(9)).isEqualTo(full.points().get(119));
+    assertThat(bounded.trendSlopePerMinute()).isEqualTo(full.trendSlopePerMinute());
+  }
+
   @Test
   void requiresEnoughData() {
     repository.addPoint(Instant.parse("2025-01-01T00:00:00Z"), 100);
@@ -52,7 +76,8 @@ class ForecastServiceTest {
                     Optional.empty(),
                     Duration.ofMinutes(5),
                     Duration.ofMinutes(5),
-                    Duration.ofMinutes(1)))
+                    Duration.ofMinutes(1),
+                    0))
         .isInstanceOf(IllegalArgumentException.class);
   }
 
@@ -71,12 +96,24 @@ class ForecastServiceTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<com.greenko.windfarm.model.DeviceMetricSeries> queryDeviceMetrics(
+        Instant from, Instant to, List<String> deviceIds, Duration bucket) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<com.greenko.windfarm.model.TelemetryRecord> findLatest(
         Optional<String> deviceId, int limit) {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<com.greenko.windfarm.model.TelemetryRecord> findBetween(
+        Instant from, Instant to, int limit) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<TimeSeriesPoint> loadPowerSeries(
         Instant from, Instant to, Optional<String> deviceId) {
@@ -0,0 +1,34 @@
+// path: server/src/test/java/com/greenko/windfarm/service/LttbTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class LttbTest {
+  @Test
+  void keepsTheEndsAndTheExtremes() {
+    double[] values = new double[1000];
+    values[317] = 50;
+    values[640] = -20;
+
+    int[] kept = Lttb.select(values.length, 20, i -> i, i -> values[i]);
+
+    assertThat(kept).hasSize(20).startsWith(0).endsWith(999).contains(317, 640);
+    assertThat(kept).isSorted().doesNotHaveDuplicates();
+  }
+
+  @Test
+  void leavesShortSeriesAloneAndRejectsTinyLimits() {
+    List<Integer> points = IntStream.range(0, 5).boxed().toList();
+
+    assertThat(Lttb.downsample(points, 5, i -> i, i -> i)).isSameAs(points);
+    assertThat(Lttb.downsample(points, 0, i -> i, i -> i)).isSameAs(points);
+    assertThat(Lttb.downsample(points, 3, i -> i, i -> i)).containsExactly(0, 1, 4);
+    assertThatThrownBy(() -> Lttb.downsample(points, 2, i -> i, i -> i))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,121 @@
+// path: server/src/test/java/com/greenko/windfarm/service/MetricSegmentCacheTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MetricSegmentCacheTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+  private static final Duration BUCKET = Duration.ofMinutes(5);
+
+  private final TableLoader table = new TableLoader();
+  private MetricSegmentCache cache;
+
+  @BeforeEach
+  void setUp() {
+    for (int minute = 0; minute < 180; minute++) {
+      table.add(minute, "Device_1", 1.0 + minute * 0.01);
+      table.add(minute, "Device_2", 2.0 + minute * 0.01);
+    }
+    // One hour per segment.
+    cache = new MetricSegmentCache(table, 16, 12);
+  }
+
+  @Test
+  void answersLikeTheTableAndSharesSegmentsAcrossOverlappingWindows() {
+    Instant from = START.plusSeconds(30);
+    Instant to = START.plus(Duration.ofMinutes(130));
+    List<MetricPoint> expected = table.load(from, to, Optional.empty(), BUCKET);
+    table.calls = 0;
+
+    assertThat(cache.query(from, to, Optional.empty(), BUCKET)).isEqualTo(expected);
+    // The partial bucket at 00:00, segments 00:00, 01:00 and 02:00, and the bucket at 02:10.
+    assertThat(table.calls).isEqualTo(5);
+    assertThat(cache.misses()).isEqualTo(3);
+
+    Instant laterFrom = START.plus(Duration.ofMinutes(20));
+    Instant laterTo = START.plus(Duration.ofMinutes(157));
+    expected = table.load(laterFrom, laterTo, Optional.empty(), BUCKET);
+    table.calls = 0;
+
+    assertThat(cache.query(laterFrom, laterTo, Optional.empty(), BUCKET)).isEqualTo(expected);
+    // Only the partial bucket at 02:35 goes to the table.
+    assertThat(table.calls).isEqualTo(1);
+    assertThat(cache.hits()).isEqualTo(3);
+  }
+
+  @Test
+  void writesDropOnlyTheSegmentsTheyTouch() {
+    Instant from = START;
+    Instant to = START.plus(Duration.ofMinutes(180)).minusNanos(1_000);
+    cache.query(from, to, Optional.empty(), BUCKET);
+    cache.query(from, to, Optional.of("Device_1"), BUCKET);
+    cache.query(from, to, Optional.of("Device_2"), BUCKET);
+    assertThat(cache.size()).isEqualTo(9);
+
+    table.add(150, "Device_1", 50.0);
+    cache.invalidate(
+        START.plus(Duration.ofMinutes(150)),
+        START.plus(Duration.ofMinutes(150)),
+        Set.of("Device_1"));
+
+    // The 02:00 segment of the fleet and of Device_1.
+    assertThat(cache.size()).isEqualTo(7);
+    assertThat(cache.query(from, to, Optional.empty(), BUCKET))
+        .isEqualTo(table.load(from, to, Optional.empty(), BUCKET));
+    assertThat(cache.query(from, to, Optional.of("Device_1"), BUCKET))
+        .isEqualTo(table.load(from, to, Optional.of("Device_1"), BUCKET));
+    assertThat(cache.misses()).isEqualTo(11);
+  }
+
+  /** Buckets readings the way {@code time_bucket} and the SQL query do. */
+  private static final class TableLoader implements MetricSegmentCache.Loader {
+    private final Map<String, TelemetryRecord> rows = new TreeMap<>();
+    private int calls;
+
+    void add(int minute, String deviceId, double energyKwh) {
+      Instant time = START.plus(Duration.ofMinutes(minute));
+      rows.put(time + deviceId, new TelemetryRecord(time, deviceId, energyKwh, energyKwh * 60));
+    }
+
+    @Override
+    public List<MetricPoint> load(
+        Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+      calls++;
+      long origin = Instant.parse("2000-01-03T00:00:00Z").getEpochSecond();
+      TreeMap<Long, double[]> buckets = new TreeMap<>();
+      for (TelemetryRecord row : rows.values()) {
+        if (row.time().isBefore(from)
+            || row.time().isAfter(to)
+            || deviceId.filter(id -> !id.equals(row.deviceId())).isPresent()) {
+          continue;
+        }
+        long seconds = row.time().getEpochSecond();
+        long start =
+            origin + Math.floorDiv(seconds - origin, bucket.getSeconds()) * bucket.getSeconds();
+        double[] sums = buckets.computeIfAbsent(start, key -> new double[3]);
+        sums[0] += row.powerKw();
+        sums[1]++;
+        sums[2] += row.energyKwh();
+      }
+      List<MetricPoint> points = new ArrayList<>();
+      buckets.forEach(
+          (start, sums) ->
+              points.add(
+                  new MetricPoint(Instant.ofEpochSecond(start), sums[0] / sums[1], sums[2])));
+      return points;
+    }
+  }
+}
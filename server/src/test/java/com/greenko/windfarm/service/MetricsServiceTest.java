@@ -0,0 +1,157 @@
+// path: server/src/test/java/com/greenko/windfarm/service/MetricsServiceTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.TelemetryPersistedEvent;
+import com.greenko.windfarm.model.DeviceMetricSeries;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.model.TimeSeriesPoint;
+import com.greenko.windfarm.repository.TelemetryRepository;
+import com.greenko.windfarm.repository.TelemetryRollups;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class MetricsServiceTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+  private static final Duration BUCKET = Duration.ofHours(1);
+
+  private final RollupRepository repository = new RollupRepository();
+  private final FakeRollups rollups = new FakeRollups(repository);
+  private final MetricsService service =
+      new MetricsService(repository, rollups, new WindfarmProperties(), new SimpleMeterRegistry());
+
+  @Test
+  void refreshesTheRollupsBeforeDroppingSegmentsALateWriteTouched() {
+    for (int minute = 0; minute < 180; minute++) {
+      repository.raw.put(START.plus(Duration.ofMinutes(minute)), 1.0);
+    }
+    rollups.refresh(START, START.plus(Duration.ofMinutes(179)));
+    Instant to = START.plus(Duration.ofMinutes(180)).minusNanos(1_000);
+    assertThat(service.loadMetrics(START, to, Optional.empty(), BUCKET, 0))
+        .extracting(MetricPoint::averagePowerKw)
+        .containsExactly(60.0, 60.0, 60.0);
+
+    // Late data for the second hour, which the rollup had already materialized.
+    Instant late = START.plus(Duration.ofMinutes(90));
+    repository.raw.put(late, 31.0);
+    service.onTelemetryPersisted(new TelemetryPersistedEvent(late, late, Set.of("Device_1")));
+    assertThat(rollups.refreshed).isEmpty();
+    service.refreshRollups();
+
+    assertThat(rollups.refreshed).containsExactly(late);
+    assertThat(service.loadMetrics(START, to, Optional.empty(), BUCKET, 0))
+        .extracting(MetricPoint::averagePowerKw)
+        .containsExactly(60.0, 90.0, 60.0);
+  }
+
+  @Test
+  void mergesNearbyWritesIntoOneRefreshPerPass() {
+    repository.rollup.put(START, 1.0);
+    for (int minute = 0; minute < 30; minute++) {
+      Instant time = START.plus(Duration.ofMinutes(minute));
+      service.onTelemetryPersisted(new TelemetryPersistedEvent(time, time, Set.of("Device_1")));
+    }
+    Instant late = START.minus(Duration.ofHours(5));
+    service.onTelemetryPersisted(new TelemetryPersistedEvent(late, late, Set.of("Device_2")));
+
+    service.refreshRollups();
+    service.refreshRollups();
+
+    assertThat(rollups.watermarkReads).isEqualTo(1);
+    assertThat(rollups.refreshed).containsExactly(late, START);
+  }
+
+  /** Materializes the raw rows it is asked to refresh into the repository's rollup. */
+  private static final class FakeRollups extends TelemetryRollups {
+    private final RollupRepository repository;
+    private final List<Instant> refreshed = new ArrayList<>();
+    private int watermarkReads;
+
+    FakeRollups(RollupRepository repository) {
+      super(null);
+      this.repository = repository;
+    }
+
+    @Override
+    public Map<String, Instant> watermarks() {
+      watermarkReads++;
+      return Map.of();
+    }
+
+    @Override
+    public int refresh(Instant from, Instant to, Map<String, Instant> watermarks) {
+      if (!repository.rollup.isEmpty()) {
+        refreshed.add(from);
+      }
+      repository.rollup.putAll(repository.raw.subMap(from, true, to, true));
+      return 1;
+    }
+  }
+
+  /** Answers metrics from its rollup only, which lags the raw rows until it is refreshed. */
+  private static final class RollupRepository implements TelemetryRepository {
+    private final TreeMap<Instant, Double> raw = new TreeMap<>();
+    private final TreeMap<Instant, Double> rollup = new TreeMap<>();
+
+    @Override
+    public List<MetricPoint> queryMetrics(
+        Instant from, Instant to, Optional<String> deviceId, Duration bucket) {
+      TreeMap<Instant, double[]> buckets = new TreeMap<>();
+      for (Map.Entry<Instant, Double> row : rollup.subMap(from, true, to, true).entrySet()) {
+        long seconds = row.getKey().getEpochSecond();
+        Instant start =
+            Instant.ofEpochSecond(seconds - Math.floorMod(seconds, bucket.getSeconds()));
+        double[] sums = buckets.computeIfAbsent(start, key -> new double[2]);
+        sums[0] += row.getValue() * 60;
+        sums[1]++;
+      }
+      List<MetricPoint> points = new ArrayList<>();
+      buckets.forEach(
+          (start, sums) -> points.add(new MetricPoint(start, sums[0] / sums[1], sums[0] / 60)));
+      return points;
+    }
+
+    @Override
+    public List<DeviceMetricSeries> queryDeviceMetrics(
+        Instant from, Instant to, List<String> deviceIds, Duration bucket) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TelemetryRecord> findLatest(Optional<String> deviceId, int limit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TelemetryRecord> findBetween(Instant from, Instant to, int limit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TimeSeriesPoint> loadPowerSeries(
+        Instant from, Instant to, Optional<String> deviceId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<Instant> findMostRecentTimestamp() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> listDeviceIds() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+// path: server/src/test/java/com/greenko/windfarm/service/SeedRunnerIntegrationTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.csv.DatasetLoader;
+import com.greenko.windfarm.model.Device;
+import com.greenko.windfarm.repository.DeviceDirectory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers(disabledWithoutDocker = true)
+class SeedRunnerIntegrationTest {
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("timescale/timescaledb:latest-pg15")
+          .withDatabaseName("windfarm")
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  private static JdbcTemplate jdbcTemplate;
+  @TempDir Path tempDir;
+
+  @BeforeAll
+  static void migrate() {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @BeforeEach
+  void truncate() {
+    jdbcTemplate.execute("TRUNCATE telemetry");
+    jdbcTemplate.execute("TRUNCATE seed_checkpoint");
+    jdbcTemplate.execute("TRUNCATE device");
+  }
+
+  @Test
+  void seedsEveryRowAndCheckpointsTheLastMinute() throws Exception {
+    runner().run();
+
+    assertThat(count()).isEqualTo(5);
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT last_time FROM seed_checkpoint WHERE dataset = 'sample.csv'",
+                Timestamp.class))
+        .isEqualTo(Timestamp.from(Instant.parse("2025-01-01T00:02:00Z")));
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_indexes WHERE indexname ="
+                    + " 'idx_telemetry_device_time_desc'",
+                Integer.class))
+        .isEqualTo(1);
+    assertThat(new DeviceDirectory(jdbcTemplate, new WindfarmProperties()).devices())
+        .containsExactly(
+            new Device(
+                "Device_1",
+                Instant.parse("2025-01-01T00:00:00Z"),
+                Instant.parse("2025-01-01T00:02:00Z")),
+            new Device(
+                "Device_2",
+                Instant.parse("2025-01-01T00:01:00Z"),
+                Instant.parse("2025-01-01T00:02:00Z")));
+  }
+
+  @Test
+  void resumesAfterTheCheckpoint() throws Exception {
+    jdbcTemplate.update(
+        "INSERT INTO seed_checkpoint(dataset, last_time, rows_loaded) VALUES ('sample.csv', ?, 1)",
+        Timestamp.from(Instant.parse("2025-01-01T00:00:00Z")));
+
+    runner().run();
+
+    assertThat(count()).isEqualTo(4);
+    assertThat(jdbcTemplate.queryForObject("SELECT min(time) FROM telemetry", Timestamp.class))
+        .isEqualTo(Timestamp.from(Instant.parse("2025-01-01T00:01:00Z")));
+    // Rows below the checkpoint were loaded earlier and still count as seen.
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT first_seen FROM device WHERE device_id = 'Device_1'", Timestamp.class))
+        .isEqualTo(Timestamp.from(Instant.parse("2025-01-01T00:00:00Z")));
+  }
+
+  private SeedRunner runner() {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.setDatasetPath(Paths.get("src/test/resources/test-data/sample.csv"));
+    properties.getDataset().setCacheDirectory(tempDir);
+    properties.getSeed().setMinutes(0);
+    properties.getSeed().setChunkRows(2);
+    properties.getSeed().setParallelism(2);
+    properties.getSeed().setDeferIndexes(true);
+    return new SeedRunner(
+        new DatasetLoader(properties, new SimpleMeterRegistry()),
+        properties,
+        jdbcTemplate,
+        event -> {},
+        new DeviceDirectory(jdbcTemplate, properties));
+  }
+
+  private long count() {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM telemetry", Long.class);
+  }
+}
@@ -0,0 +1,66 @@
+// path: server/src/test/java/com/greenko/windfarm/service/SeedRunnerTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.csv.DatasetLoader;
+import com.greenko.windfarm.csv.DatasetSnapshot;
+import com.greenko.windfarm.repository.DeviceDirectory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeedRunnerTest {
+  @TempDir Path tempDir;
+  private DatasetSnapshot snapshot;
+
+  @BeforeEach
+  void setUp() {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.setDatasetPath(Paths.get("src/test/resources/test-data/sample.csv"));
+    properties.getDataset().setCacheDirectory(tempDir);
+    snapshot = new DatasetLoader(properties, new SimpleMeterRegistry()).loadDataset();
+  }
+
+  @Test
+  void chunksNeverSplitAMinute() {
+    // Rows: 00:00 x1, 00:01 x2, 00:02 x2.
+    assertThat(SeedRunner.chunkBounds(snapshot, 0, 5, 2)).containsExactly(0, 3, 5);
+    assertThat(SeedRunner.chunkBounds(snapshot, 1, 5, 1)).containsExactly(1, 3, 5);
+    assertThat(SeedRunner.chunkBounds(snapshot, 0, 5, 10)).containsExactly(0, 5);
+  }
+
+  @Test
+  void countsRowsBeforeATimestamp() {
+    long minuteOne = Instant.parse("2025-01-01T00:01:00Z").getEpochSecond();
+
+    assertThat(SeedRunner.rowsBefore(snapshot, minuteOne)).isEqualTo(1);
+    assertThat(SeedRunner.rowsBefore(snapshot, minuteOne + 1)).isEqualTo(3);
+    assertThat(SeedRunner.rowsBefore(snapshot, Long.MAX_VALUE)).isEqualTo(5);
+  }
+
+  @Test
+  void spansEveryDeviceOverTheLeadingRows() {
+    assertThat(SeedRunner.sightings(snapshot, 5))
+        .containsExactly(
+            new DeviceDirectory.Sighting(
+                "Device_1",
+                Instant.parse("2025-01-01T00:00:00Z"),
+                Instant.parse("2025-01-01T00:02:00Z")),
+            new DeviceDirectory.Sighting(
+                "Device_2",
+                Instant.parse("2025-01-01T00:01:00Z"),
+                Instant.parse("2025-01-01T00:02:00Z")));
+    assertThat(SeedRunner.sightings(snapshot, 1))
+        .containsExactly(
+            new DeviceDirectory.Sighting(
+                "Device_1",
+                Instant.parse("2025-01-01T00:00:00Z"),
+                Instant.parse("2025-01-01T00:00:00Z")));
+  }
+}
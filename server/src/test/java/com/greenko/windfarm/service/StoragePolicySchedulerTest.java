@@ -0,0 +1,92 @@
+// path: server/src/test/java/com/greenko/windfarm/service/StoragePolicySchedulerTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.repository.TelemetryStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class StoragePolicySchedulerTest {
+  private static final Instant NEWEST = Instant.parse("2025-03-01T00:00:00Z");
+  private final FakeStorage storage = new FakeStorage();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final WindfarmProperties properties = new WindfarmProperties();
+  private final WindfarmProperties.Storage config = properties.getStorage();
+
+  @Test
+  void agesChunksFromTheNewestReading() {
+    config.getRetention().setEnabled(true);
+    config.getRetention().setAfter(Duration.ofDays(30));
+    config.getCompression().setAfter(Duration.ofDays(7));
+    storage.newest = NEWEST;
+    storage.uncompressed = List.of("_timescaledb_internal._hyper_1_1_chunk", "_hyper_1_2_chunk");
+
+    new StoragePolicyScheduler(storage, properties, registry).apply();
+
+    assertThat(storage.calls)
+        .containsExactly(
+            "drop " + NEWEST.minus(Duration.ofDays(30)),
+            "list " + NEWEST.minus(Duration.ofDays(7)),
+            "compress _timescaledb_internal._hyper_1_1_chunk",
+            "compress _hyper_1_2_chunk");
+    assertThat(registry.counter("windfarm.storage.chunks", "action", "compressed").count())
+        .isEqualTo(2);
+    assertThat(registry.counter("windfarm.storage.chunks", "action", "dropped").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void leavesAnEmptyTableAndDisabledPoliciesAlone() {
+    new StoragePolicyScheduler(storage, properties, registry).apply();
+    assertThat(storage.calls).isEmpty();
+
+    storage.newest = NEWEST;
+    config.getCompression().setEnabled(false);
+    new StoragePolicyScheduler(storage, properties, registry).apply();
+    assertThat(storage.calls).isEmpty();
+  }
+
+  private static class FakeStorage extends TelemetryStorage {
+    private final List<String> calls = new ArrayList<>();
+    private Instant newest;
+    private List<String> uncompressed = List.of();
+
+    FakeStorage() {
+      super(null);
+    }
+
+    @Override
+    public Optional<Instant> newestTime() {
+      return Optional.ofNullable(newest);
+    }
+
+    @Override
+    public List<String> uncompressedChunks(Instant olderThan) {
+      calls.add("list " + olderThan);
+      return uncompressed;
+    }
+
+    @Override
+    public void compressChunk(String chunk) {
+      calls.add("compress " + chunk);
+    }
+
+    @Override
+    public int dropChunks(Instant olderThan) {
+      calls.add("drop " + olderThan);
+      return 1;
+    }
+
+    @Override
+    public long sizeBytes() {
+      return 0;
+    }
+  }
+}
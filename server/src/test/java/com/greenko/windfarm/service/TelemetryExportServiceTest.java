@@ -0,0 +1,124 @@
+// path: server/src/test/java/com/greenko/windfarm/service/TelemetryExportServiceTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.model.MetricPoint;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.repository.JdbcTelemetryRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class TelemetryExportServiceTest {
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final WindfarmProperties properties = new WindfarmProperties();
+  private final TelemetryExportService service =
+      new TelemetryExportService(
+          new StreamingRepository(),
+          new ObjectMapper()
+              .registerModule(new JavaTimeModule())
+              .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS),
+          properties);
+
+  @Test
+  void runsAtMostTheConfiguredNumberOfExports() {
+    for (int i = 0; i < properties.getExport().getMaxConcurrent(); i++) {
+      assertThat(service.tryBegin()).isTrue();
+    }
+    assertThat(service.tryBegin()).isFalse();
+
+    service.end();
+    assertThat(service.tryBegin()).isTrue();
+  }
+
+  @Test
+  void writesOneJsonObjectPerLine() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    service.writeMetrics(
+        START,
+        START.plusSeconds(120),
+        Optional.empty(),
+        Duration.ofMinutes(1),
+        ExportFormat.NDJSON,
+        out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "{\"bucketStart\":\"2025-01-01T00:00:00Z\",\"averagePowerKw\":60.0,\"totalEnergyKwh\":1.0}\n"
+                + "{\"bucketStart\":\"2025-01-01T00:01:00Z\",\"averagePowerKw\":120.0,\"totalEnergyKwh\":2.0}\n");
+  }
+
+  @Test
+  void writesCsvWithAHeaderAndQuotesFieldsThatNeedIt() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    service.writeMetrics(
+        START,
+        START.plusSeconds(120),
+        Optional.empty(),
+        Duration.ofMinutes(1),
+        ExportFormat.CSV,
+        out);
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "bucketStart,averagePowerKw,totalEnergyKwh\n"
+                + "2025-01-01T00:00:00Z,60.0,1.0\n"
+                + "2025-01-01T00:01:00Z,120.0,2.0\n");
+    assertThat(TelemetryExportService.csvField("Device \"7\", east"))
+        .isEqualTo("\"Device \"\"7\"\", east\"");
+
+    out.reset();
+    service.writeRaw(START, START.plusSeconds(60), Optional.empty(), ExportFormat.CSV, out);
+    assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("copied\n");
+  }
+
+  /** Emits fixed rows the way the cursor-backed methods do, one at a time. */
+  private static final class StreamingRepository extends JdbcTelemetryRepository {
+    StreamingRepository() {
+      super(null, new WindfarmProperties());
+    }
+
+    @Override
+    public void streamMetrics(
+        Instant from,
+        Instant to,
+        Optional<String> deviceId,
+        Duration bucket,
+        Consumer<? super MetricPoint> sink) {
+      sink.accept(new MetricPoint(START, 60.0, 1.0));
+      sink.accept(new MetricPoint(START.plusSeconds(60), 120.0, 2.0));
+    }
+
+    @Override
+    public void streamRaw(
+        Instant from,
+        Instant to,
+        Optional<String> deviceId,
+        Consumer<? super TelemetryRecord> sink) {
+      sink.accept(new TelemetryRecord(START, "Device_1", 1.0, 60.0));
+      sink.accept(new TelemetryRecord(START, "Device_2", 2.0, 120.0));
+    }
+
+    @Override
+    public long copyRawCsv(Instant from, Instant to, Optional<String> deviceId, OutputStream out) {
+      try {
+        out.write("copied\n".getBytes(StandardCharsets.UTF_8));
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return 1;
+    }
+  }
+}
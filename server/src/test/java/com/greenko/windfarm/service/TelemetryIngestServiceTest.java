@@ -0,0 +1,174 @@
+// path: server/src/test/java/com/greenko/windfarm/service/TelemetryIngestServiceTest.java
+package com.greenko.windfarm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.greenko.windfarm.config.WindfarmProperties;
+import com.greenko.windfarm.event.OverflowPolicy;
+import com.greenko.windfarm.event.TelemetryEventBus;
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.web.dto.IngestResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+class TelemetryIngestServiceTest {
+  private static final Logger log = LoggerFactory.getLogger(TelemetryIngestServiceTest.class);
+  private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+  private static final int BENCHMARK_RECORDS = 200_000;
+
+  private TelemetryEventBus bus;
+  private Disposable subscription;
+
+  @AfterEach
+  void tearDown() {
+    if (subscription != null) {
+      subscription.dispose();
+    }
+  }
+
+  @Test
+  void publishesNdjsonAndBinaryRecords() throws IOException {
+    TelemetryIngestService service = newService(1024, Duration.ofMillis(100));
+    List<TelemetryRecord> received = new CopyOnWriteArrayList<>();
+    subscription = bus.stream("test", OverflowPolicy.BLOCK).subscribe(received::add);
+
+    IngestResponse ndjson =
+        service.ingestNdjson(
+            body(
+                "{\"time\":\"2025-01-01T00:00:00Z\",\"deviceId\":\"Device_1\",\"energyKwh\":1.5}\n"
+                    + "{\"time\":1735689660000,\"deviceId\":\"Device_2\",\"energyKwh\":2.0,"
+                    + "\"powerKw\":100.0,\"site\":{\"name\":\"ignored\"}}\n"));
+    IngestResponse binary = service.ingestBinary(new ByteArrayInputStream(binary(2)));
+
+    assertThat(ndjson).isEqualTo(new IngestResponse(2, false));
+    assertThat(binary).isEqualTo(new IngestResponse(2, false));
+    await().until(() -> received.size() == 4);
+    assertThat(received.get(0)).isEqualTo(new TelemetryRecord(START, "Device_1", 1.5, 90.0));
+    assertThat(received.get(1))
+        .isEqualTo(new TelemetryRecord(START.plusSeconds(60), "Device_2", 2.0, 120.0));
+    assertThat(received.get(2).deviceId()).isEqualTo("Device_1");
+  }
+
+  @Test
+  void reportsThrottlingWhenTheBusIsFull() throws IOException {
+    TelemetryIngestService service = newService(8, Duration.ofMillis(20));
+    subscription =
+        bus.stream("stalled", OverflowPolicy.BLOCK)
+            .subscribeWith(
+                new BaseSubscriber<TelemetryRecord>() {
+                  @Override
+                  protected void hookOnSubscribe(Subscription subscription) {}
+                });
+
+    IngestResponse response = service.ingestBinary(new ByteArrayInputStream(binary(20)));
+
+    assertThat(response).isEqualTo(new IngestResponse(8, true));
+  }
+
+  @Test
+  void rejectsMalformedRecords() {
+    TelemetryIngestService service = newService(1024, Duration.ofMillis(100));
+
+    assertThatThrownBy(() -> service.ingestNdjson(body("{\"deviceId\":\"Device_1\"}\n")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("record 0");
+    String valid =
+        "{\"time\":\"2025-01-01T00:00:00Z\",\"deviceId\":\"Device_1\",\"energyKwh\":1}\n";
+    assertThatThrownBy(() -> service.ingestNdjson(body(valid + "{\"time\":\"2025-01-01T00:01")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("record 1: malformed JSON");
+    assertThatThrownBy(() -> service.ingestNdjson(body(valid + "not json\n")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("record 1: malformed JSON");
+  }
+
+  @Test
+  void measuresRecordsPerSecondPerCore() throws IOException {
+    TelemetryIngestService service = newService(1 << 16, Duration.ofMillis(100));
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < BENCHMARK_RECORDS; i++) {
+      ndjson
+          .append("{\"time\":")
+          .append(START.toEpochMilli() + 60_000L * (i / 100))
+          .append(",\"deviceId\":\"Device_")
+          .append(i % 100)
+          .append("\",\"energyKwh\":")
+          .append(1.0 + (i % 50) * 0.01)
+          .append("}\n");
+    }
+    byte[] ndjsonBody = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    byte[] binaryBody = binary(BENCHMARK_RECORDS);
+
+    double ndjsonRate = measure(() -> service.ingestNdjson(new ByteArrayInputStream(ndjsonBody)));
+    double binaryRate = measure(() -> service.ingestBinary(new ByteArrayInputStream(binaryBody)));
+
+    log.info(
+        "Ingest records/s per core: ndjson={} ({} B/record), binary={} ({} B/record)",
+        Math.round(ndjsonRate),
+        ndjsonBody.length / BENCHMARK_RECORDS,
+        Math.round(binaryRate),
+        binaryBody.length / BENCHMARK_RECORDS);
+    assertThat(ndjsonRate).isPositive();
+    assertThat(binaryRate).isPositive();
+  }
+
+  private double measure(IngestCall call) throws IOException {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    call.run(); // warm-up
+    long cpuStart = threads.getCurrentThreadCpuTime();
+    IngestResponse response = call.run();
+    long cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+    assertThat(response.accepted()).isEqualTo(BENCHMARK_RECORDS);
+    return BENCHMARK_RECORDS / (Math.max(1, cpuNanos) / 1e9);
+  }
+
+  private TelemetryIngestService newService(int capacity, Duration backpressureTimeout) {
+    WindfarmProperties properties = new WindfarmProperties();
+    properties.getBus().setCapacity(capacity);
+    properties.getIngest().setBackpressureTimeout(backpressureTimeout);
+    bus = new TelemetryEventBus(properties, new SimpleMeterRegistry());
+    return new TelemetryIngestService(bus, properties);
+  }
+
+  private static ByteArrayInputStream body(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] binary(int records) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (int i = 0; i < records; i++) {
+      byte[] device = ("Device_" + (i % 100 + 1)).getBytes(StandardCharsets.UTF_8);
+      out.writeShort(8 + 8 + 1 + device.length);
+      out.writeLong(START.toEpochMilli() + 60_000L * (i / 100));
+      out.writeDouble(1.0 + (i % 50) * 0.01);
+      out.writeByte(device.length);
+      out.write(device);
+    }
+    return bytes.toByteArray();
+  }
+
+  @FunctionalInterface
+  private interface IngestCall {
+    IngestResponse run() throws IOException;
+  }
+}
@@ -0,0 +1,171 @@
+// path: server/src/test/java/com/greenko/windfarm/spool/TelemetrySpoolTest.java
+package com.greenko.windfarm.spool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.greenko.windfarm.model.TelemetryRecord;
+import com.greenko.windfarm.repository.TelemetryWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class TelemetrySpoolTest {
+  private static final Duration NO_WAIT = Duration.ZERO;
+
+  @TempDir Path directory;
+
+  @Test
+  void replaysOnlyUnacknowledgedBatchesAfterRestart() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 4096, false)) {
+      spool.append(batch(0, 3));
+      spool.append(batch(3, 2));
+      spool.acknowledge(spool.next(NO_WAIT));
+      assertThat(spool.depth()).isEqualTo(2);
+    }
+
+    try (TelemetrySpool reopened = new TelemetrySpool(directory, 4096, false)) {
+      assertThat(reopened.depth()).isEqualTo(2);
+      SpoolBatch replayed = reopened.next(NO_WAIT);
+      assertThat(replayed.records()).isEqualTo(batch(3, 2));
+      reopened.acknowledge(replayed);
+      assertThat(reopened.next(NO_WAIT)).isNull();
+      assertThat(reopened.depth()).isZero();
+    }
+  }
+
+  @Test
+  void returnsSameBatchUntilAcknowledged() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 4096, false)) {
+      spool.append(batch(0, 2));
+      SpoolBatch first = spool.next(NO_WAIT);
+      assertThat(spool.next(NO_WAIT)).isEqualTo(first);
+      spool.acknowledge(first);
+      assertThat(spool.next(NO_WAIT)).isNull();
+    }
+  }
+
+  @Test
+  void rollsSegmentsAndDeletesDrainedOnes() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 256, false)) {
+      List<TelemetryRecord> expected = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        List<TelemetryRecord> batch = batch(i * 4, 4);
+        expected.addAll(batch);
+        spool.append(batch);
+      }
+      assertThat(segmentCount()).isGreaterThan(1);
+
+      List<TelemetryRecord> drained = new ArrayList<>();
+      SpoolBatch batch;
+      while ((batch = spool.next(NO_WAIT)) != null) {
+        drained.addAll(batch.records());
+        spool.acknowledge(batch);
+      }
+
+      assertThat(drained).isEqualTo(expected);
+      assertThat(segmentCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void ignoresTornFrameAtTailOfSegment() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 4096, false)) {
+      spool.append(batch(0, 2));
+      spool.append(batch(2, 2));
+    }
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.filter(path -> path.toString().endsWith(".seg")).sorted().findFirst().get();
+    }
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      int secondFrame = 8 + TelemetrySpool.encode(batch(0, 2)).length;
+      channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4}), secondFrame + 20);
+    }
+
+    try (TelemetrySpool reopened = new TelemetrySpool(directory, 4096, false)) {
+      assertThat(reopened.depth()).isEqualTo(2);
+      assertThat(reopened.next(NO_WAIT).records()).isEqualTo(batch(0, 2));
+    }
+  }
+
+  @Test
+  void dropsBatchesWhileItsSegmentsFillTheSizeLimit() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 256, 512, false)) {
+      int appended = 0;
+      while (spool.append(batch(appended * 4, 4))) {
+        appended++;
+      }
+      assertThat(appended).isPositive();
+      assertThat(spool.rejected()).isEqualTo(4);
+      assertThat(spool.sizeBytes()).isEqualTo(512);
+
+      SpoolBatch batch;
+      while ((batch = spool.next(NO_WAIT)) != null) {
+        spool.acknowledge(batch);
+      }
+      assertThat(spool.append(batch(0, 4))).isTrue();
+      assertThat(spool.depth()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void drainerQuarantinesABatchTheDatabaseKeepsRejecting() throws Exception {
+    try (TelemetrySpool spool = new TelemetrySpool(directory, 4096, false)) {
+      spool.append(batch(0, 2));
+      spool.append(batch(2, 2));
+      List<TelemetryRecord> written = new ArrayList<>();
+      AtomicInteger outages = new AtomicInteger(3);
+      TelemetryWriter writer =
+          records -> {
+            if (outages.getAndDecrement() > 0) {
+              throw new DataAccessResourceFailureException("Connection refused");
+            }
+            if (records.get(0).time().equals(batch(0, 1).get(0).time())) {
+              throw new DataIntegrityViolationException("value out of range");
+            }
+            written.addAll(records);
+          };
+
+      new SpoolDrainer(spool, writer, Duration.ofMillis(1), Duration.ofMillis(1), 2, true).run();
+
+      assertThat(written).isEqualTo(batch(2, 2));
+      assertThat(spool.quarantined()).isEqualTo(2);
+      assertThat(spool.depth()).isZero();
+      List<Path> quarantined;
+      try (Stream<Path> files = Files.list(directory.resolve("quarantine"))) {
+        quarantined = files.toList();
+      }
+      assertThat(quarantined).hasSize(1);
+      assertThat(TelemetrySpool.decode(Files.readAllBytes(quarantined.get(0))))
+          .isEqualTo(batch(0, 2));
+    }
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.toString().endsWith(".seg")).count();
+    }
+  }
+
+  private static List<TelemetryRecord> batch(int startMinute, int size) {
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+    List<TelemetryRecord> records = new ArrayList<>();
+    for (int i = startMinute; i < startMinute + size; i++) {
+      records.add(new TelemetryRecord(start.plusSeconds(60L * i), "Device_" + (i % 3), i, i * 60d));
+    }
+    return records;
+  }
+}